@@ -0,0 +1,44 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfile;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Original multi-stream computation versus the single-pass {@link AnalyticsAccumulator} over one unit's window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnalyticsKernelBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    private int attendancesPerUnit;
+
+    @Param({"BALANCED", "EMERGENCY_SURGE", "MOSTLY_DISCHARGED"})
+    private WindowScenario scenario;
+
+    private List<Attendance> attendances;
+
+    @Setup
+    public void setUp() {
+        attendances = scenario.window("US-BENCH", attendancesPerUnit, Instant.now(), 42);
+    }
+
+    @Benchmark
+    public UnitAnalytics legacyMultiStream() {
+        return LegacyAnalyticsCalculator.compute("US-BENCH", attendances);
+    }
+
+    @Benchmark
+    public UnitAnalytics singlePassKernel() {
+        return AnalyticsAccumulator.of(attendances, EpochTime.now(), DecayProfile.DEFAULT).toUnitAnalytics("US-BENCH");
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.RiskAttendancePerformance;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfile;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Individual steps of {@code AnalyticsService.getAnalytics} over one unit's window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnalyticsStepsBenchmark {
+
+    private static final String UNIT = "US-BENCH";
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    private int attendancesPerUnit;
+
+    @Param({"BALANCED", "EMERGENCY_SURGE", "MOSTLY_DISCHARGED"})
+    private WindowScenario scenario;
+
+    private List<Attendance> attendances;
+    private AnalyticsAccumulator accumulator;
+    private LiveQueueStateStore store;
+    private AnalyticsService service;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        attendances = scenario.window(UNIT, attendancesPerUnit, Instant.now(), 42);
+        accumulator = AnalyticsAccumulator.of(attendances, EpochTime.now(), DecayProfile.DEFAULT);
+
+        store = new LiveQueueStateStore(null, DecayProfiles.defaults());
+        attendances.forEach(store::apply);
+
+        // Zero TTL: every call computes
+        AnalyticsResultCache noCache = new AnalyticsResultCache(new SimpleMeterRegistry(), 0, 0);
+        service = new AnalyticsService(null, Runnable::run, store, null, noCache, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public long weightedWaitPass() {
+        return AnalyticsAccumulator.of(attendances, EpochTime.now(), DecayProfile.DEFAULT).getGeneralAverageWait();
+    }
+
+    @Benchmark
+    public List<RiskAttendancePerformance> riskAttendancePerformances() {
+        return service.getRiskAttendancePerformances(UNIT, accumulator);
+    }
+
+    @Benchmark
+    public LiveQueueSnapshot liveQueueSnapshot() {
+        return service.getLiveQueueSnapshot(UNIT);
+    }
+
+    @Benchmark
+    public LiveQueueSnapshot liveQueueStateApply() {
+        // Re-applying a known state exercises the lookup and counter path of every write event
+        store.apply(attendances.get(next++ % attendances.size()));
+        return store.getSnapshot(UNIT);
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.core.config.AsyncConfig;
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@code AnalyticsService.getAnalyticsByUnits} on the production executor, with a stub repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchAnalyticsBenchmark {
+
+    @Param({"10", "100"})
+    private int units;
+
+    @Param({"100", "1000"})
+    private int attendancesPerUnit;
+
+    @Param({"BALANCED"})
+    private WindowScenario scenario;
+
+    // 1 forces the single $in query, a huge threshold forces the per-unit fan-out
+    @Param({"1", "2147483647"})
+    private int singleQueryThreshold;
+
+    private List<String> healthUnitIds;
+    private ThreadPoolTaskExecutor executor;
+    private AnalyticsService service;
+
+    @Setup
+    public void setUp() {
+        Instant now = Instant.now();
+        LiveQueueStateStore store = new LiveQueueStateStore(null, DecayProfiles.defaults());
+        Map<String, List<Attendance>> windowByUnit = new HashMap<>();
+        healthUnitIds = new ArrayList<>(units);
+
+        for (int i = 0; i < units; i++) {
+            String unitId = "US-BENCH-" + i;
+            List<Attendance> window = scenario.window(unitId, attendancesPerUnit, now, i);
+            window.forEach(attendance -> attendance.setId(unitId + "-" + attendance.getId()));
+            window.forEach(store::apply);
+
+            windowByUnit.put(unitId, window);
+            healthUnitIds.add(unitId);
+        }
+
+        executor = (ThreadPoolTaskExecutor) new AsyncConfig().getAsyncExecutor();
+        // Zero TTL: every call computes
+        AnalyticsResultCache noCache = new AnalyticsResultCache(new SimpleMeterRegistry(), 0, 0);
+        service = new AnalyticsService(StubAttendanceRepository.of(windowByUnit), executor, store, null, noCache, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "singleQueryThreshold", singleQueryThreshold);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public List<UnitAnalytics> getAnalyticsByUnits() {
+        return service.getAnalyticsByUnits(healthUnitIds);
+    }
+
+}
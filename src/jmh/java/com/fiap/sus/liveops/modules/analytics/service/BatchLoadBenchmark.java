@@ -0,0 +1,120 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fiap.sus.liveops.core.config.AsyncConfig;
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of {@code AnalyticsService.getAnalyticsByUnits} with a simulated MongoDB latency per unit query.
+ * Scores are units analysed per second ({@link OperationsPerInvocation} is the batch size).
+ * <p>
+ * The platform pool (20 threads, queue of 100, AbortPolicy) rejects batches above ~120 units, so it is measured
+ * at 100 units while the virtual-thread executor is measured at 500. Both fan out one query per unit; the single
+ * {@code $in} query path is measured at 500 units as well.
+ * <p>
+ * The batches go through {@link AnalyticsResultCache} even with a zero TTL, so a computation that blocks inside a
+ * lock there serializes the virtual threads on their carriers; run with several forks and iterations
+ * (e.g. {@code -f 2 -i 5}) when comparing the modes, the defaults of the {@code jmh} task are too short for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchLoadBenchmark {
+
+    private static final int PLATFORM_BATCH = 100;
+    private static final int VIRTUAL_BATCH = 500;
+    private static final int ATTENDANCES_PER_UNIT = 100;
+
+    @Param({"2"})
+    private long mongoLatencyMillis;
+
+    @Param({"50"})
+    private int virtualMaxConcurrency;
+
+    private List<String> healthUnitIds;
+    private Executor platformExecutor;
+    private Executor virtualExecutor;
+    private AnalyticsService platformService;
+    private AnalyticsService virtualService;
+    private AnalyticsService singleQueryService;
+
+    @Setup
+    public void setUp() {
+        // Console logging would be measured along with the batches
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        Instant now = Instant.now();
+        LiveQueueStateStore store = new LiveQueueStateStore(null, DecayProfiles.defaults());
+        Map<String, List<Attendance>> windowByUnit = new HashMap<>();
+        healthUnitIds = new ArrayList<>(VIRTUAL_BATCH);
+
+        for (int i = 0; i < VIRTUAL_BATCH; i++) {
+            String unitId = "US-LOAD-" + i;
+            List<Attendance> window = WindowScenario.BALANCED.window(unitId, ATTENDANCES_PER_UNIT, now, i);
+            window.forEach(attendance -> attendance.setId(unitId + "-" + attendance.getId()));
+            window.forEach(store::apply);
+
+            windowByUnit.put(unitId, window);
+            healthUnitIds.add(unitId);
+        }
+
+        platformExecutor = new AsyncConfig().getAsyncExecutor();
+
+        AsyncConfig virtualConfig = new AsyncConfig();
+        ReflectionTestUtils.setField(virtualConfig, "virtualThreads", true);
+        ReflectionTestUtils.setField(virtualConfig, "virtualMaxConcurrency", virtualMaxConcurrency);
+        virtualExecutor = virtualConfig.getAsyncExecutor();
+
+        // Zero TTL: every call computes
+        AnalyticsResultCache noCache = new AnalyticsResultCache(new SimpleMeterRegistry(), 0, 0);
+        platformService = new AnalyticsService(StubAttendanceRepository.of(windowByUnit, mongoLatencyMillis), platformExecutor, store, null, noCache, new SimpleMeterRegistry());
+        virtualService = new AnalyticsService(StubAttendanceRepository.of(windowByUnit, mongoLatencyMillis), virtualExecutor, store, null, noCache, new SimpleMeterRegistry());
+        singleQueryService = new AnalyticsService(StubAttendanceRepository.of(windowByUnit, mongoLatencyMillis), platformExecutor, store, null, noCache, new SimpleMeterRegistry());
+
+        ReflectionTestUtils.setField(platformService, "singleQueryThreshold", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(virtualService, "singleQueryThreshold", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(singleQueryService, "singleQueryThreshold", 20);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        ((DisposableBean) platformExecutor).destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PLATFORM_BATCH)
+    public List<UnitAnalytics> platformBatchOf100() {
+        return platformService.getAnalyticsByUnits(healthUnitIds.subList(0, PLATFORM_BATCH));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VIRTUAL_BATCH)
+    public List<UnitAnalytics> virtualBatchOf500() {
+        return virtualService.getAnalyticsByUnits(healthUnitIds);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VIRTUAL_BATCH)
+    public List<UnitAnalytics> singleQueryBatchOf500() {
+        return singleQueryService.getAnalyticsByUnits(healthUnitIds);
+    }
+
+}
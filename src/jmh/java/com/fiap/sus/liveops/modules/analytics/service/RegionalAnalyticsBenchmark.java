@@ -0,0 +1,49 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.core.config.AnalyticsRegionsProperties;
+import com.fiap.sus.liveops.modules.analytics.dto.RegionAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Network-wide view over every unit: the latency should grow with the number of units only, not with their queues.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegionalAnalyticsBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    private int units;
+
+    @Param({"200"})
+    private int attendancesPerUnit;
+
+    private RegionalAnalyticsService service;
+
+    @Setup
+    public void setUp() {
+        LiveQueueStateStore store = new LiveQueueStateStore(null, DecayProfiles.defaults());
+        Instant now = Instant.now();
+        for (int i = 0; i < units; i++) {
+            String unitId = "US-REGION-" + i;
+            List<Attendance> window = WindowScenario.BALANCED.window(unitId, attendancesPerUnit, now, i);
+            window.forEach(attendance -> attendance.setId(unitId + "-" + attendance.getId()));
+            window.forEach(store::apply);
+        }
+        service = new RegionalAnalyticsService(store, new AnalyticsRegionsProperties(Map.of()));
+    }
+
+    @Benchmark
+    public RegionAnalytics allUnits() {
+        return service.getRegion(RegionalAnalyticsService.ALL_UNITS, 10);
+    }
+
+}
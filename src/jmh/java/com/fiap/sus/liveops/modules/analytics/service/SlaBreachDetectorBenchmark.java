@@ -0,0 +1,78 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the SLA breach detector with many patients waiting: a status change moves one deadline, and a tick only
+ * looks at the deadlines due, so neither should grow with the number of waiting patients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SlaBreachDetectorBenchmark {
+
+    private static final String UNIT = "US-BENCH";
+
+    @Param({"1000", "100000"})
+    private int waitingPatients;
+
+    private SlaBreachDetector detector;
+    private List<Attendance> attendances;
+    private long now;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        LiveQueueStateStore store = new LiveQueueStateStore(null, DecayProfiles.defaults());
+        detector = new SlaBreachDetector(store, List.of(breach -> { }), null, new SimpleMeterRegistry(), 1_000);
+
+        // Limits far enough ahead that nothing is due while measuring
+        Instant entry = Instant.now();
+        attendances = new ArrayList<>(waitingPatients);
+        for (int i = 0; i < waitingPatients; i++) {
+            Attendance attendance = new Attendance();
+            attendance.setId("a" + i);
+            attendance.setHealthUnitId(UNIT);
+            attendance.setRiskClassification(RiskClassification.BLUE);
+            attendance.setStatus(AttendanceStatus.WAITING);
+            attendance.setEntryTime(entry.plusSeconds(i % 3_600));
+            attendances.add(attendance);
+        }
+        AttendanceChangedEvent event = new AttendanceChangedEvent(UNIT, attendances);
+        store.onAttendanceChanged(event);
+        detector.onAttendanceChanged(event);
+        now = EpochTime.now();
+    }
+
+    @Benchmark
+    public int statusChange() {
+        // Called and sent back to the queue: one cancellation and one new deadline
+        Attendance attendance = attendances.get(next++ % attendances.size());
+        attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+        detector.onAttendanceChanged(AttendanceChangedEvent.of(attendance));
+        attendance.setStatus(AttendanceStatus.WAITING);
+        detector.onAttendanceChanged(AttendanceChangedEvent.of(attendance));
+        return detector.getPendingCount();
+    }
+
+    @Benchmark
+    public int tick() {
+        now += 1_000;
+        detector.tick(now);
+        return detector.getPendingCount();
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceTimes;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory {@link AttendanceRepository} answering the analytics window queries from a prebuilt map, so benchmarks
+ * measure the service and not MongoDB.
+ */
+public final class StubAttendanceRepository {
+
+    private StubAttendanceRepository() {
+    }
+
+    public static AttendanceRepository of(Map<String, List<Attendance>> windowByUnit) {
+        return of(windowByUnit, 0);
+    }
+
+    /**
+     * Same stub, but every window query blocks for {@code latencyMillis} to stand in for the MongoDB round trip.
+     */
+    public static AttendanceRepository of(Map<String, List<Attendance>> windowByUnit, long latencyMillis) {
+        // Projected once up front, as MongoDB would return them
+        Map<String, List<AttendanceTimes>> timesByUnit = windowByUnit.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey,
+                        entry -> entry.getValue().stream().map(AttendanceTimes::of).toList()));
+
+        return (AttendanceRepository) Proxy.newProxyInstance(
+                AttendanceRepository.class.getClassLoader(),
+                new Class<?>[]{AttendanceRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByHealthUnitIdAndEntryTimeAfter" -> {
+                        if (latencyMillis > 0) {
+                            Thread.sleep(latencyMillis);
+                        }
+                        yield timesByUnit.getOrDefault((String) args[0], List.of());
+                    }
+                    case "findByHealthUnitIdInAndEntryTimeAfter" -> {
+                        if (latencyMillis > 0) {
+                            Thread.sleep(latencyMillis);
+                        }
+                        yield ((Collection<?>) args[0]).stream()
+                                .flatMap(id -> timesByUnit.getOrDefault((String) id, List.of()).stream());
+                    }
+                    case "toString" -> "StubAttendanceRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Risk and status distributions used by the benchmarks. Risk shares are indexed by {@code RiskClassification.ordinal()}.
+ */
+public enum WindowScenario {
+
+    BALANCED(new double[]{0.05, 0.15, 0.30, 0.35, 0.15}, 0.30, 0.20),
+    EMERGENCY_SURGE(new double[]{0.30, 0.30, 0.25, 0.10, 0.05}, 0.60, 0.25),
+    MOSTLY_DISCHARGED(new double[]{0.02, 0.08, 0.25, 0.45, 0.20}, 0.05, 0.05);
+
+    private final double[] riskShare;
+    private final double waitingShare;
+    private final double inProgressShare;
+
+    WindowScenario(double[] riskShare, double waitingShare, double inProgressShare) {
+        this.riskShare = riskShare;
+        this.waitingShare = waitingShare;
+        this.inProgressShare = inProgressShare;
+    }
+
+    public List<Attendance> window(String healthUnitId, int size, Instant now, long seed) {
+        return SyntheticAttendances.window(healthUnitId, size, now, seed, riskShare, waitingShare, inProgressShare);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.fiap.sus.liveops.modules.attendance.mapper;
+
+import com.fiap.sus.liveops.modules.analytics.service.WindowScenario;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.dto.AttendanceResponse;
+import com.fiap.sus.liveops.modules.attendance.dto.CompleteAttendanceResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct conversions of a unit's attendance listing, as done by {@code AttendanceController}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AttendanceMapperBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int attendancesPerUnit;
+
+    private final AttendanceMapper mapper = new AttendanceMapperImpl();
+    private List<Attendance> attendances;
+
+    @Setup
+    public void setUp() {
+        attendances = WindowScenario.BALANCED.window("US-BENCH", attendancesPerUnit, Instant.now(), 42);
+    }
+
+    @Benchmark
+    public List<AttendanceResponse> toResponse() {
+        return attendances.stream().map(mapper::toResponse).toList();
+    }
+
+    @Benchmark
+    public List<CompleteAttendanceResponse> toCompleteResponse() {
+        return attendances.stream().map(mapper::toCompleteResponse).toList();
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.fiap.sus.liveops.modules.attendance.repository;
+
+import com.fiap.sus.liveops.core.config.MongoConfig;
+import com.fiap.sus.liveops.modules.analytics.service.WindowScenario;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.mongodb.MongoClientSettings;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side cost of reading an analytics window: the BSON returned by MongoDB is decoded into a {@link Document}
+ * by the driver and then mapped by Spring Data, either into full {@link Attendance} entities (patient and id
+ * included) or into the {@link AttendanceTimes} projection of {@link AttendanceRepository#ANALYTICS_FIELDS}.
+ * <p>
+ * Run with the {@code gc} profiler: {@code gc.alloc.rate.norm} is the heap allocated per window. The bytes on the
+ * wire for each shape are printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AttendanceProjectionBenchmark {
+
+    private static final List<String> PROJECTED_FIELDS = List.of(
+            "healthUnitId", "status", "riskClassification", "entryTime", "startTime", "dischargeTime");
+
+    @Param({"10000"})
+    private int rows;
+
+    private final DocumentCodec documentCodec = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+    private MappingMongoConverter converter;
+    private List<RawBsonDocument> fullWire;
+    private List<RawBsonDocument> projectedWire;
+
+    @Setup
+    public void setUp() {
+        MongoCustomConversions conversions = MongoConfig.conversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        fullWire = new ArrayList<>(rows);
+        projectedWire = new ArrayList<>(rows);
+        long fullBytes = 0;
+        long projectedBytes = 0;
+
+        for (Attendance attendance : WindowScenario.BALANCED.window("US-BENCH", rows, Instant.now(), 42)) {
+            attendance.setId(new ObjectId().toHexString());
+            Document stored = new Document();
+            converter.write(attendance, stored);
+
+            // What the server sends back for the projection: the listed fields, without _id
+            Document projected = new Document();
+            PROJECTED_FIELDS.stream().filter(stored::containsKey).forEach(field -> projected.put(field, stored.get(field)));
+
+            RawBsonDocument full = RawBsonDocument.parse(stored.toJson());
+            RawBsonDocument restricted = RawBsonDocument.parse(projected.toJson());
+            fullWire.add(full);
+            projectedWire.add(restricted);
+            fullBytes += full.getByteBuffer().remaining();
+            projectedBytes += restricted.getByteBuffer().remaining();
+        }
+
+        System.out.printf("%nBSON bytes per %d rows: full=%d, projected=%d (%.0f%% saved)%n",
+                rows, fullBytes, projectedBytes, 100.0 * (fullBytes - projectedBytes) / fullBytes);
+    }
+
+    @Benchmark
+    public void fullEntity(Blackhole blackhole) {
+        for (RawBsonDocument raw : fullWire) {
+            blackhole.consume(converter.read(Attendance.class, raw.decode(documentCodec)));
+        }
+    }
+
+    @Benchmark
+    public void projection(Blackhole blackhole) {
+        for (RawBsonDocument raw : projectedWire) {
+            blackhole.consume(converter.read(AttendanceTimes.class, raw.decode(documentCodec)));
+        }
+    }
+
+}
@@ -3,11 +3,13 @@ package com.fiap.sus.liveops;
 import io.mongock.runner.springboot.EnableMongock;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 @EnableAsync
 @EnableMongock
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class LiveopsApplication {
 
 	public static void main(String[] args) {
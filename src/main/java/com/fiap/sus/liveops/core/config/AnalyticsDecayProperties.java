@@ -0,0 +1,48 @@
+package com.fiap.sus.liveops.core.config;
+
+import com.fiap.sus.liveops.shared.enums.DecayFunction;
+import com.fiap.sus.liveops.shared.enums.UnitClass;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Analysis window and decay curve of each {@link UnitClass}, e.g.
+ * {@code analytics.decay.classes.ubs.function=exponential}, and which units belong to which class, e.g.
+ * {@code analytics.decay.units.ubs=US-JARDIM-PAULISTA}. Units not listed fall in {@code default-class}.
+ */
+@ConfigurationProperties(prefix = "analytics.decay")
+public record AnalyticsDecayProperties(
+        UnitClass defaultClass,
+        Map<UnitClass, Set<String>> units,
+        Map<UnitClass, Curve> classes
+) {
+
+    public AnalyticsDecayProperties {
+        defaultClass = defaultClass == null ? UnitClass.UPA : defaultClass;
+        units = units == null ? Map.of() : Map.copyOf(units);
+
+        Map<UnitClass, Curve> complete = new EnumMap<>(UnitClass.class);
+        for (UnitClass unitClass : UnitClass.values()) {
+            Curve curve = classes == null ? null : classes.get(unitClass);
+            complete.put(unitClass, curve == null ? new Curve(null, null, null) : curve);
+        }
+        classes = Map.copyOf(complete);
+    }
+
+    /**
+     * Defaults to the original analytics: 12 hours, {@code 1 / (1 + hoursAgo)}.
+     */
+    public record Curve(Integer windowHours, DecayFunction function, Integer halfLifeMinutes) {
+
+        public Curve {
+            windowHours = windowHours == null ? 12 : windowHours;
+            function = function == null ? DecayFunction.HYPERBOLIC : function;
+            halfLifeMinutes = halfLifeMinutes == null ? 60 : halfLifeMinutes;
+        }
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.fiap.sus.liveops.core.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Named groups of health units ("tags") for the regional analytics, e.g.
+ * {@code analytics.regions.zona-sul=US-VILA-MARIANA,US-SAUDE}. The name {@code all} is reserved for every unit.
+ */
+@ConfigurationProperties(prefix = "analytics")
+public record AnalyticsRegionsProperties(Map<String, Set<String>> regions) {
+
+    public AnalyticsRegionsProperties {
+        regions = regions == null ? Map.of() : Map.copyOf(regions);
+    }
+
+}
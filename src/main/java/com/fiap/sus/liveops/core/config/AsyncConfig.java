@@ -1,34 +1,83 @@
 package com.fiap.sus.liveops.core.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @EnableAsync
 @Configuration
 public class AsyncConfig implements AsyncConfigurer {
 
+    // Same switch Spring Boot uses to run Tomcat request handling on virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Upper bound of concurrent tasks on virtual threads, kept below the Mongo connection pool size
+    @Value("${async.virtual.max-concurrency:50}")
+    private int virtualMaxConcurrency;
+
+    private final CountingAbortPolicy rejectionPolicy = new CountingAbortPolicy();
+
     @Override
     @Bean(name = "taskExecutor")
     public Executor getAsyncExecutor() {
+        if (virtualThreads) {
+            return virtualThreadExecutor();
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(5);
         executor.setMaxPoolSize(20);
         executor.setQueueCapacity(100);
         executor.setThreadNamePrefix("Async-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setRejectedExecutionHandler(rejectionPolicy);
         executor.initialize();
         return executor;
     }
 
+    private Executor virtualThreadExecutor() {
+        log.info("Using virtual threads for taskExecutor (max concurrency: {})", virtualMaxConcurrency);
+
+        // Submissions beyond the limit block the caller instead of being rejected
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("Async-VT-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(virtualMaxConcurrency);
+        return executor;
+    }
+
+    // Queue depth, active threads and pool size come from Spring Boot's executor metrics; rejections are counted here
+    @Bean
+    public MeterBinder taskExecutorRejectionMetrics() {
+        return registry -> FunctionCounter.builder("executor.rejected", rejectionPolicy, CountingAbortPolicy::getCount)
+                .description("Tasks rejected by the executor because its queue was full")
+                .tag("name", "taskExecutor")
+                .register(registry);
+    }
+
+    // Delayed, short-lived jobs such as coalesced analytics stream emissions
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("Scheduler-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return (ex, method, params) -> {
@@ -42,4 +91,20 @@ public class AsyncConfig implements AsyncConfigurer {
         };
     }
 
+    static class CountingAbortPolicy extends ThreadPoolExecutor.AbortPolicy {
+
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            count.increment();
+            super.rejectedExecution(task, executor);
+        }
+
+        double getCount() {
+            return count.sum();
+        }
+
+    }
+
 }
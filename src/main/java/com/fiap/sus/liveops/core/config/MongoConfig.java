@@ -0,0 +1,71 @@
+package com.fiap.sus.liveops.core.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Attendance timestamps are stored as epoch millis ({@code long}) instead of BSON dates: no time zone is involved
+ * on either side, range queries still hit the same indexes, and analytics read plain numbers. The conversion is
+ * scoped to the annotated properties ({@code @ValueConverter}), so every other {@link Instant}, {@link Long} or
+ * {@link Date} of the application keeps the default mapping. Documents still holding dates (written before
+ * {@code 005_attendance_epoch_timestamps} or by older writers) remain readable.
+ */
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return conversions();
+    }
+
+    // No global converters: the epoch millis conversions below are declared per property
+    public static MongoCustomConversions conversions() {
+        return new MongoCustomConversions(List.of());
+    }
+
+    /**
+     * {@link Instant} property stored as epoch millis; also applied to the values of queries on the property.
+     */
+    public static class InstantAsEpochMillis implements MongoValueConverter<Instant, Object> {
+
+        @Override
+        public Instant read(Object value, MongoConversionContext context) {
+            return Instant.ofEpochMilli(EpochMillis.millis(value));
+        }
+
+        @Override
+        public Object write(Instant value, MongoConversionContext context) {
+            return value.toEpochMilli();
+        }
+
+    }
+
+    /**
+     * Epoch millis property of a read model, accepting the legacy BSON dates as well.
+     */
+    public static class EpochMillis implements MongoValueConverter<Long, Object> {
+
+        @Override
+        public Long read(Object value, MongoConversionContext context) {
+            return millis(value);
+        }
+
+        @Override
+        public Object write(Long value, MongoConversionContext context) {
+            return value;
+        }
+
+        static long millis(Object value) {
+            return value instanceof Date date ? date.getTime() : ((Number) value).longValue();
+        }
+
+    }
+
+}
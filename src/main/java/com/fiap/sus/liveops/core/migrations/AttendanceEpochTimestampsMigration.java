@@ -0,0 +1,88 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import io.mongock.api.annotations.ChangeUnit;
+import io.mongock.api.annotations.Execution;
+import io.mongock.api.annotations.RollbackExecution;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites the BSON dates of {@code entryTime}, {@code startTime} and {@code dischargeTime} as epoch millis, the
+ * format written since {@link com.fiap.sus.liveops.core.config.MongoConfig}. Walks the collection in {@code _id}
+ * order, one bounded batch at a time, so no single update locks or rewrites the whole collection; values that are
+ * already numbers (or null) are left as they are, so running it again, or alongside live writes, is safe.
+ * <p>
+ * Range queries compare numbers with numbers only, so documents still holding dates would drop out of the analytics
+ * window: writers outside this service must store epoch millis as well.
+ */
+@Slf4j
+@AllArgsConstructor
+@ChangeUnit(id = "005_attendance_epoch_timestamps", order = "5", author = "sptechers", transactional = false)
+public class AttendanceEpochTimestampsMigration {
+
+    static final List<String> TIMESTAMP_FIELDS = List.of("entryTime", "startTime", "dischargeTime");
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Execution
+    public void execute() {
+        long converted = rewrite("date", "$toLong");
+        log.info("Converted the timestamps of {} attendances to epoch millis", converted);
+    }
+
+    @RollbackExecution
+    public void rollback() {
+        rewrite("long", "$toDate");
+    }
+
+    private long rewrite(String fromType, String operator) {
+        MongoCollection<Document> attendances = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Attendance.class));
+        List<Bson> pipeline = List.of(new Document("$set", convertFields(fromType, operator)));
+
+        long modified = 0;
+        Object lastId = null;
+        List<Object> ids = new ArrayList<>(BATCH_SIZE);
+        do {
+            ids.clear();
+            Bson range = lastId == null ? new Document() : Filters.gt("_id", lastId);
+            attendances.find(range)
+                    .projection(Projections.include("_id"))
+                    .sort(Sorts.ascending("_id"))
+                    .limit(BATCH_SIZE)
+                    .forEach(document -> ids.add(document.get("_id")));
+            if (ids.isEmpty()) break;
+
+            modified += attendances.updateMany(Filters.in("_id", ids), pipeline).getModifiedCount();
+            lastId = ids.getLast();
+        } while (ids.size() == BATCH_SIZE);
+        return modified;
+    }
+
+    // { field: { $cond: [ { $eq: [ { $type: "$field" }, fromType ] }, { operator: "$field" }, "$field" ] } }
+    private static Document convertFields(String fromType, String operator) {
+        Document set = new Document();
+        for (String field : TIMESTAMP_FIELDS) {
+            String value = "$" + field;
+            set.append(field, new Document("$cond", List.of(
+                    new Document("$eq", List.of(new Document("$type", value), fromType)),
+                    new Document(operator, value),
+                    value
+            )));
+        }
+        return set;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import io.mongock.api.annotations.ChangeUnit;
+import io.mongock.api.annotations.Execution;
+import io.mongock.api.annotations.RollbackExecution;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+
+/**
+ * Managed index set for the {@code attendances} collection. Indexes are created here instead of through
+ * {@code auto-index-creation}, so they are versioned and built once per environment.
+ */
+@AllArgsConstructor
+@ChangeUnit(id = "002_attendance_indexes", order = "2", author = "sptechers", transactional = false)
+public class AttendanceIndexesMigration {
+
+    // findByHealthUnitIdAndStatus / findByHealthUnitIdAndStatusNot / findByHealthUnitId
+    public static final String UNIT_STATUS_ENTRY_INDEX = "healthUnitId_status_entryTime";
+
+    // findByHealthUnitIdAndEntryTimeAfter (analytics window)
+    public static final String UNIT_ENTRY_INDEX = "healthUnitId_entryTime";
+
+    // findByStatusIn(WAITING, IN_PROGRESS) - only the live queue is indexed
+    public static final String ACTIVE_QUEUE_INDEX = "active_status_healthUnitId_entryTime";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Execution
+    public void execute() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Attendance.class);
+
+        indexOps.createIndex(new Index()
+                .on("healthUnitId", Sort.Direction.ASC)
+                .on("status", Sort.Direction.ASC)
+                .on("entryTime", Sort.Direction.ASC)
+                .named(UNIT_STATUS_ENTRY_INDEX));
+
+        indexOps.createIndex(new Index()
+                .on("healthUnitId", Sort.Direction.ASC)
+                .on("entryTime", Sort.Direction.ASC)
+                .named(UNIT_ENTRY_INDEX));
+
+        // Partial filters do not support $ne, so the active statuses are listed explicitly
+        indexOps.createIndex(new Index()
+                .on("status", Sort.Direction.ASC)
+                .on("healthUnitId", Sort.Direction.ASC)
+                .on("entryTime", Sort.Direction.ASC)
+                .named(ACTIVE_QUEUE_INDEX)
+                .partial(PartialIndexFilter.of(Criteria.where("status").in(
+                        AttendanceStatus.WAITING.name(),
+                        AttendanceStatus.IN_PROGRESS.name()
+                ))));
+    }
+
+    @RollbackExecution
+    public void rollback() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Attendance.class);
+        List<String> existing = indexOps.getIndexInfo().stream().map(IndexInfo::getName).toList();
+
+        for (String name : List.of(UNIT_STATUS_ENTRY_INDEX, UNIT_ENTRY_INDEX, ACTIVE_QUEUE_INDEX)) {
+            if (existing.contains(name)) {
+                indexOps.dropIndex(name);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import io.mongock.api.annotations.ChangeUnit;
+import io.mongock.api.annotations.Execution;
+import io.mongock.api.annotations.RollbackExecution;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.List;
+
+/**
+ * Replaces {@code healthUnitId_entryTime} with {@code healthUnitId_entryTime_id}, which also serves the
+ * {@code (entryTime, id)} keyset ordering of the paginated listing. The old index is a prefix of the new one.
+ */
+@AllArgsConstructor
+@ChangeUnit(id = "003_attendance_keyset_index", order = "3", author = "sptechers", transactional = false)
+public class AttendanceKeysetIndexMigration {
+
+    // findPage / streamAll (keyset listing) and findByHealthUnitIdAndEntryTimeAfter (analytics window)
+    public static final String UNIT_ENTRY_ID_INDEX = "healthUnitId_entryTime_id";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Execution
+    public void execute() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Attendance.class);
+
+        indexOps.createIndex(new Index()
+                .on("healthUnitId", Sort.Direction.ASC)
+                .on("entryTime", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named(UNIT_ENTRY_ID_INDEX));
+
+        dropIfExists(indexOps, AttendanceIndexesMigration.UNIT_ENTRY_INDEX);
+    }
+
+    @RollbackExecution
+    public void rollback() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Attendance.class);
+
+        indexOps.createIndex(new Index()
+                .on("healthUnitId", Sort.Direction.ASC)
+                .on("entryTime", Sort.Direction.ASC)
+                .named(AttendanceIndexesMigration.UNIT_ENTRY_INDEX));
+
+        dropIfExists(indexOps, UNIT_ENTRY_ID_INDEX);
+    }
+
+    private static void dropIfExists(IndexOperations indexOps, String name) {
+        List<String> existing = indexOps.getIndexInfo().stream().map(IndexInfo::getName).toList();
+        if (existing.contains(name)) {
+            indexOps.dropIndex(name);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+import com.fiap.sus.liveops.modules.analytics.repository.AttendanceRollupRepositoryCustomImpl;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import io.mongock.api.annotations.ChangeUnit;
+import io.mongock.api.annotations.Execution;
+import io.mongock.api.annotations.RollbackExecution;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Creates the {@code attendance_rollups} index and counts every attendance discharged so far into its bucket.
+ * Recording is idempotent, so discharges made while this runs are never counted twice.
+ */
+@Slf4j
+@AllArgsConstructor
+@ChangeUnit(id = "004_attendance_rollup_backfill", order = "4", author = "sptechers", transactional = false)
+public class AttendanceRollupBackfillMigration {
+
+    // totalsByRisk: one unit over a range of buckets
+    public static final String UNIT_BUCKET_INDEX = "healthUnitId_bucketStart";
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Execution
+    public void execute() {
+        mongoTemplate.indexOps(AttendanceRollup.class).createIndex(new Index()
+                .on("healthUnitId", Sort.Direction.ASC)
+                .on("bucketStart", Sort.Direction.ASC)
+                .named(UNIT_BUCKET_INDEX));
+
+        AttendanceRollupRepositoryCustomImpl rollups = new AttendanceRollupRepositoryCustomImpl(mongoTemplate);
+        Query discharged = new Query(Criteria.where("status").is(AttendanceStatus.DISCHARGED));
+        // The rollups never need the patient
+        discharged.fields().include("healthUnitId", "riskClassification", "status", "entryTime", "startTime", "dischargeTime");
+
+        List<Attendance> chunk = new ArrayList<>(CHUNK_SIZE);
+        long recorded = 0;
+        try (Stream<Attendance> attendances = mongoTemplate.stream(discharged, Attendance.class)) {
+            for (Attendance attendance : (Iterable<Attendance>) attendances::iterator) {
+                chunk.add(attendance);
+                if (chunk.size() == CHUNK_SIZE) {
+                    recorded += rollups.recordAll(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        recorded += rollups.recordAll(chunk);
+
+        log.info("Backfilled {} discharged attendances into the rollups", recorded);
+    }
+
+    @RollbackExecution
+    public void rollback() {
+        mongoTemplate.dropCollection(AttendanceRollup.class);
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+import io.mongock.api.annotations.ChangeUnit;
+import io.mongock.api.annotations.Execution;
+import io.mongock.api.annotations.RollbackExecution;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Rebuilds {@code attendance_rollups} with buckets aligned in UTC. The buckets written before were keyed by the
+ * wall-clock time of the host, so their ids and starts no longer match the ones recorded now; they are dropped and
+ * every discharge is counted again as {@link AttendanceRollupBackfillMigration} does. Recording is idempotent, so
+ * discharges made while this runs are never counted twice.
+ */
+@Slf4j
+@AllArgsConstructor
+@ChangeUnit(id = "007_attendance_rollup_utc_buckets", order = "7", author = "sptechers", transactional = false)
+public class AttendanceRollupUtcBucketsMigration {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Execution
+    public void execute() {
+        long removed = mongoTemplate.remove(new Query(), AttendanceRollup.class).getDeletedCount();
+        log.info("Removed {} rollup buckets keyed by local time", removed);
+
+        new AttendanceRollupBackfillMigration(mongoTemplate).execute();
+    }
+
+    @RollbackExecution
+    public void rollback() {
+        // The local time buckets cannot be told apart from the new ones; a partial rebuild is completed instead
+        new AttendanceRollupBackfillMigration(mongoTemplate).execute();
+    }
+
+}
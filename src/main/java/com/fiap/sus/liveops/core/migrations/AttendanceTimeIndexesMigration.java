@@ -0,0 +1,58 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import io.mongock.api.annotations.ChangeUnit;
+import io.mongock.api.annotations.Execution;
+import io.mongock.api.annotations.RollbackExecution;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.List;
+
+/**
+ * Indexes for the cross-unit reads of the live state rebuild and resync, which filter on a time alone and so
+ * cannot use the indexes led by {@code healthUnitId}.
+ */
+@AllArgsConstructor
+@ChangeUnit(id = "006_attendance_time_indexes", order = "6", author = "sptechers", transactional = false)
+public class AttendanceTimeIndexesMigration {
+
+    // findByEntryTimeAfter (analysis windows of every unit)
+    public static final String ENTRY_TIME_INDEX = "entryTime";
+
+    // findByStartTimeAfter (served waits of every unit) - sparse, as waiting attendances have no startTime
+    public static final String START_TIME_INDEX = "startTime";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Execution
+    public void execute() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Attendance.class);
+
+        indexOps.createIndex(new Index()
+                .on("entryTime", Sort.Direction.ASC)
+                .named(ENTRY_TIME_INDEX));
+
+        indexOps.createIndex(new Index()
+                .on("startTime", Sort.Direction.ASC)
+                .sparse()
+                .named(START_TIME_INDEX));
+    }
+
+    @RollbackExecution
+    public void rollback() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Attendance.class);
+        List<String> existing = indexOps.getIndexInfo().stream().map(IndexInfo::getName).toList();
+
+        for (String name : List.of(ENTRY_TIME_INDEX, START_TIME_INDEX)) {
+            if (existing.contains(name)) {
+                indexOps.dropIndex(name);
+            }
+        }
+    }
+
+}
@@ -10,7 +10,8 @@ import io.mongock.api.annotations.Execution;
 import io.mongock.api.annotations.RollbackExecution;
 import lombok.AllArgsConstructor;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 @AllArgsConstructor
 @ChangeUnit(id = "001_initial_seed_data", order = "1", author = "luuh-oliveira")
@@ -74,16 +75,16 @@ public class DatabaseSeedMigration {
         Attendance att = new Attendance(unitId, risk, patient);
         att.setStatus(status);
 
-        LocalDateTime now = LocalDateTime.now();
+        Instant now = Instant.now();
 
-        att.setEntryTime(now.minusMinutes(minutesAgoEntry));
+        att.setEntryTime(now.minus(minutesAgoEntry, ChronoUnit.MINUTES));
 
         if (status == AttendanceStatus.IN_PROGRESS || status == AttendanceStatus.DISCHARGED) {
-            att.setStartTime(now.minusMinutes(minutesAgoStart));
+            att.setStartTime(now.minus(minutesAgoStart, ChronoUnit.MINUTES));
         }
 
         if (status == AttendanceStatus.DISCHARGED) {
-            att.setDischargeTime(now.minusMinutes(minutesAgoDischarge));
+            att.setDischargeTime(now.minus(minutesAgoDischarge, ChronoUnit.MINUTES));
         }
 
         repository.save(att);
@@ -0,0 +1,170 @@
+package com.fiap.sus.liveops.modules.analytics.cache;
+
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitMetrics;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded per-unit cache of {@link UnitAnalytics} and {@link UnitMetrics}. Entries expire after a short TTL, since
+ * wait times keep growing with the clock, and are invalidated as soon as an attendance of the unit changes.
+ * <p>
+ * Concurrent misses on the same unit share a single computation. It runs on the first caller's thread outside any
+ * lock, and the others wait on its future, so a computation blocked on MongoDB never pins a virtual thread to its
+ * carrier, as it would inside Caffeine's {@code get(key, loader)}, which runs the loader under a monitor. Hits,
+ * misses and evictions are published as {@code cache.*} meters tagged {@code cache=unitAnalytics|unitMetrics}.
+ */
+@Slf4j
+@Component
+public class AnalyticsResultCache {
+
+    public static final String ANALYTICS_CACHE = "unitAnalytics";
+    public static final String METRICS_CACHE = "unitMetrics";
+
+    // After the live state is updated, before anything that reads the analytics of the unit back
+    public static final int EVICTION_ORDER = Ordered.HIGHEST_PRECEDENCE + 1;
+
+    private final Cache<String, UnitAnalytics> analyticsByUnit;
+    private final Cache<String, UnitMetrics> metricsByUnit;
+    // Stamped on every invalidation, so a value computed outside the cache can tell whether it is still current.
+    // Stamps come from one counter and the evicted ones raise the floor read for untracked units, so an evicted unit
+    // never reads a generation taken before its last invalidation again
+    private final Cache<String, Long> generationByUnit;
+    private final AtomicLong lastGeneration = new AtomicLong();
+    private final AtomicLong evictedGeneration = new AtomicLong();
+    // Computations running, joined by concurrent misses; dropped on invalidation, so later misses start afresh
+    private final ConcurrentMap<String, CompletableFuture<UnitAnalytics>> analyticsInFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<UnitMetrics>> metricsInFlight = new ConcurrentHashMap<>();
+    private final Counter invalidations;
+
+    public AnalyticsResultCache(
+            MeterRegistry meterRegistry,
+            @Value("${analytics.cache.max-units:1000}") long maxUnits,
+            @Value("${analytics.cache.ttl-ms:5000}") long ttlMillis
+    ) {
+        this.analyticsByUnit = build(maxUnits, ttlMillis);
+        this.metricsByUnit = build(maxUnits, ttlMillis);
+        this.generationByUnit = Caffeine.newBuilder()
+                .maximumSize(maxUnits)
+                .executor(Runnable::run)
+                .<String, Long>evictionListener((id, generation, cause) ->
+                        evictedGeneration.accumulateAndGet(generation, Math::max))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, analyticsByUnit, ANALYTICS_CACHE);
+        CaffeineCacheMetrics.monitor(meterRegistry, metricsByUnit, METRICS_CACHE);
+        this.invalidations = Counter.builder("analytics.cache.invalidations")
+                .description("Units dropped from the analytics caches because an attendance changed")
+                .register(meterRegistry);
+    }
+
+    private static <V> Cache<String, V> build(long maxUnits, long ttlMillis) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxUnits)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+    }
+
+    public UnitAnalytics getAnalytics(String healthUnitId, Function<String, UnitAnalytics> loader) {
+        return get(analyticsByUnit, analyticsInFlight, healthUnitId, loader);
+    }
+
+    public UnitAnalytics getAnalyticsIfPresent(String healthUnitId) {
+        return analyticsByUnit.getIfPresent(healthUnitId);
+    }
+
+    /**
+     * To be read before reading the data of a value later stored with {@link #putAnalyticsIfCurrent}.
+     */
+    public long getGeneration(String healthUnitId) {
+        Long generation = generationByUnit.getIfPresent(healthUnitId);
+        return generation != null ? generation : evictedGeneration.get();
+    }
+
+    long trackedUnits() {
+        generationByUnit.cleanUp();
+        return generationByUnit.estimatedSize();
+    }
+
+    /**
+     * Stores a value computed outside the cache, unless the unit was invalidated since {@code generation} was read.
+     * The check runs under the lock of the entry, so an invalidation either is seen here or removes the value after.
+     */
+    public void putAnalyticsIfCurrent(String healthUnitId, UnitAnalytics analytics, long generation) {
+        analyticsByUnit.asMap().compute(healthUnitId,
+                (id, current) -> getGeneration(id) == generation ? analytics : current);
+    }
+
+    public UnitMetrics getMetrics(String healthUnitId, Function<String, UnitMetrics> loader) {
+        return get(metricsByUnit, metricsInFlight, healthUnitId, loader);
+    }
+
+    private <V> V get(Cache<String, V> cache, ConcurrentMap<String, CompletableFuture<V>> inFlight,
+                      String healthUnitId, Function<String, V> loader) {
+        V cached = cache.getIfPresent(healthUnitId);
+        if (cached != null) return cached;
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(healthUnitId, load);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            long generation = getGeneration(healthUnitId);
+            V value = loader.apply(healthUnitId);
+            cache.asMap().compute(healthUnitId, (id, current) -> getGeneration(id) == generation ? value : current);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(healthUnitId, load);
+        }
+    }
+
+    /**
+     * Drops the unit from both caches. A computation of the unit still in flight is not joined by later misses and
+     * is not stored when it finishes, nor is a value computed outside the cache from data read before the change
+     * ({@link #putAnalyticsIfCurrent}), so a value read before the change is never served afterwards.
+     */
+    @Order(EVICTION_ORDER)
+    @EventListener
+    public void onAttendanceChanged(AttendanceChangedEvent event) {
+        invalidate(event.healthUnitId());
+    }
+
+    public void invalidate(String healthUnitId) {
+        generationByUnit.put(healthUnitId, lastGeneration.incrementAndGet());
+        analyticsInFlight.remove(healthUnitId);
+        metricsInFlight.remove(healthUnitId);
+        analyticsByUnit.invalidate(healthUnitId);
+        metricsByUnit.invalidate(healthUnitId);
+        invalidations.increment();
+    }
+
+}
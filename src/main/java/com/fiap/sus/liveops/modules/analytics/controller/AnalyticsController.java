@@ -1,8 +1,16 @@
 package com.fiap.sus.liveops.modules.analytics.controller;
 
+import com.fiap.sus.liveops.modules.analytics.dto.QueueEntry;
+import com.fiap.sus.liveops.modules.analytics.dto.QueuePosition;
+import com.fiap.sus.liveops.modules.analytics.dto.RegionAnalytics;
 import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitHistory;
 import com.fiap.sus.liveops.modules.analytics.dto.UnitMetrics;
+import com.fiap.sus.liveops.modules.analytics.service.AnalyticsHistoryService;
 import com.fiap.sus.liveops.modules.analytics.service.AnalyticsService;
+import com.fiap.sus.liveops.modules.analytics.service.AnalyticsStreamService;
+import com.fiap.sus.liveops.modules.analytics.service.RegionalAnalyticsService;
+import com.fiap.sus.liveops.modules.analytics.service.WaitingQueueService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -10,9 +18,13 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -22,15 +34,42 @@ import java.util.List;
 @Tag(name = "Analytics", description = "Endpoints para análise de métricas e dados das unidades de saúde")
 public class AnalyticsController {
 
+    private static final int DEFAULT_HISTORY_HOURS = 24;
+
     private final AnalyticsService analyticsService;
+    private final AnalyticsStreamService analyticsStreamService;
+    private final AnalyticsHistoryService analyticsHistoryService;
+    private final RegionalAnalyticsService regionalAnalyticsService;
+    private final WaitingQueueService waitingQueueService;
 
     @Deprecated
     @GetMapping("/units/{healthUnitId}")
     public ResponseEntity<UnitMetrics> getBasicUnitMetrics(@PathVariable String healthUnitId) {
-        UnitMetrics metrics = analyticsService.getBasicMetrics(healthUnitId);
+        UnitMetrics metrics = analyticsHistoryService.getBasicMetrics(healthUnitId);
         return ResponseEntity.ok(metrics);
     }
 
+    @Operation(
+            summary = "Obter o histórico de tempos de espera de uma unidade de saúde",
+            description = "Retorna média, máximo e percentis (p50, p90, p99) dos tempos de espera e de atendimento dos pacientes que receberam alta no período, em geral e por classificação de risco. Calculado a partir de agregados de 15 minutos; por padrão, as últimas 24 horas."
+    )
+    @GetMapping("/units/{healthUnitId}/history")
+    public ResponseEntity<UnitHistory> getUnitHistory(
+            @PathVariable String healthUnitId,
+            @Schema(description = "Início do período (inclusivo)", example = "2026-01-10T08:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Schema(description = "Fim do período (exclusivo)", example = "2026-01-11T08:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(DEFAULT_HISTORY_HOURS);
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(analyticsHistoryService.getHistory(healthUnitId, start, end));
+    }
+
     @Operation(
             summary = "Obter análises avançadas para uma unidade de saúde",
             description = "Retorna métricas detalhadas e insights para a unidade de saúde especificada, incluindo tempo médio de atendimento, taxa de ocupação, e outras análises relevantes."
@@ -41,6 +80,50 @@ public class AnalyticsController {
         return ResponseEntity.ok(analytics);
     }
 
+    @Operation(
+            summary = "Acompanhar análises avançadas de uma unidade de saúde em tempo real",
+            description = "Abre um fluxo Server-Sent Events que envia o estado atual e um novo evento 'unit-analytics' sempre que um atendimento da unidade é alterado, respeitando um intervalo mínimo entre envios."
+    )
+    @GetMapping(value = "/units/{healthUnitId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUnitAnalytics(@PathVariable String healthUnitId) {
+        return analyticsStreamService.subscribe(healthUnitId);
+    }
+
+    @Operation(
+            summary = "Listar os próximos pacientes a serem chamados",
+            description = "Retorna os próximos pacientes aguardando na unidade, na ordem de chamada: risco mais urgente primeiro e, dentro do mesmo risco, por ordem de chegada."
+    )
+    @GetMapping("/units/{healthUnitId}/queue")
+    public ResponseEntity<List<QueueEntry>> getNextInQueue(
+            @PathVariable String healthUnitId,
+            @Schema(description = "Quantidade de pacientes a retornar (máximo 100)", example = "10")
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(waitingQueueService.getNext(healthUnitId, limit));
+    }
+
+    @Operation(
+            summary = "Estimar o tempo até o atendimento de cada paciente da fila",
+            description = "Retorna todos os pacientes aguardando na unidade, na ordem de chamada, com a estimativa de minutos até o início do atendimento calculada pela posição na fila e pelo ritmo recente de chamadas, descontadas as chegadas de riscos mais urgentes."
+    )
+    @GetMapping("/units/{healthUnitId}/eta")
+    public ResponseEntity<List<QueueEntry>> getTimeToServiceEstimates(@PathVariable String healthUnitId) {
+        return ResponseEntity.ok(waitingQueueService.getEstimates(healthUnitId));
+    }
+
+    @Operation(
+            summary = "Obter a posição de um atendimento na fila",
+            description = "Retorna a posição atual do paciente na fila de espera da unidade, quantos pacientes do mesmo risco estão à frente e o tempo de espera até agora."
+    )
+    @GetMapping("/units/{healthUnitId}/queue/{attendanceId}")
+    public ResponseEntity<QueuePosition> getQueuePosition(
+            @PathVariable String healthUnitId,
+            @Schema(description = "ID do atendimento", example = "698e65898661ef045bf53603")
+            @PathVariable String attendanceId
+    ) {
+        return ResponseEntity.ok(waitingQueueService.getPosition(healthUnitId, attendanceId));
+    }
+
     @Operation(
             summary = "Obter análises avançadas para múltiplas unidades de saúde",
             description = "Permite obter métricas detalhadas e insights para uma lista de unidades de saúde, facilitando a comparação e análise entre elas."
@@ -58,4 +141,35 @@ public class AnalyticsController {
         return ResponseEntity.ok(analyticsList);
     }
 
+    @Operation(
+            summary = "Obter análises consolidadas de uma região",
+            description = "Combina o estado atual de todas as unidades da região configurada (ou 'all' para a rede inteira): fila total, médias ponderadas e percentis de espera por risco, e as unidades mais sobrecarregadas, ordenadas pelo índice de estresse em relação ao SLA."
+    )
+    @GetMapping("/regions/{region}")
+    public ResponseEntity<RegionAnalytics> getRegionAnalytics(
+            @PathVariable String region,
+            @Schema(description = "Quantidade de unidades mais sobrecarregadas a retornar (máximo 100)", example = "10")
+            @RequestParam(defaultValue = "10") int top
+    ) {
+        return ResponseEntity.ok(regionalAnalyticsService.getRegion(region, top));
+    }
+
+    @Operation(
+            summary = "Obter análises consolidadas de um conjunto de unidades",
+            description = "Mesma visão consolidada de uma região, para uma lista arbitrária de unidades de saúde."
+    )
+    @PostMapping("/regions")
+    public ResponseEntity<RegionAnalytics> getAnalyticsForUnitGroup(
+            @Schema(description = "Lista de identificadores das unidades de saúde do grupo", example = "[\"9ba937e6-0026-438c-829f-e050780cdda0\"]")
+            @RequestBody List<String> healthUnitIds,
+            @Schema(description = "Quantidade de unidades mais sobrecarregadas a retornar (máximo 100)", example = "10")
+            @RequestParam(defaultValue = "10") int top
+    ) {
+        if (healthUnitIds == null || healthUnitIds.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(regionalAnalyticsService.aggregate(RegionalAnalyticsService.CUSTOM_REGION, healthUnitIds, top));
+    }
+
 }
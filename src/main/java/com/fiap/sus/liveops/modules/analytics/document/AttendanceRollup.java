@@ -0,0 +1,103 @@
+package com.fiap.sus.liveops.modules.analytics.document;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Discharges of one unit and risk within a 15-minute bucket (by discharge time). Wait is entry to start of service
+ * and service is start to discharge, in whole minutes, so their sum is the entry-to-discharge time. Buckets are
+ * aligned in UTC, so a daylight saving change or a host in another zone never merges, skips or shifts one.
+ * <p>
+ * {@code attendanceIds} makes recording idempotent: an attendance already in the bucket is never counted twice.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "attendance_rollups")
+public class AttendanceRollup {
+
+    public static final int BUCKET_MINUTES = 15;
+    private static final long BUCKET_MILLIS = BUCKET_MINUTES * EpochTime.MILLIS_PER_MINUTE;
+
+    /**
+     * Exclusive upper bounds, in minutes, of the wait histogram bins. The last bin, above 24h, is open-ended.
+     * Manchester limits (0, 10, 60, 120, 240) are bin edges, so SLA percentiles are exact at those points.
+     */
+    public static final long[] WAIT_BIN_UPPER_BOUNDS = {5, 10, 15, 30, 45, 60, 90, 120, 180, 240, 360, 480, 720, 1440};
+    public static final int WAIT_BINS = WAIT_BIN_UPPER_BOUNDS.length + 1;
+
+    @Id
+    private String id;
+
+    private String healthUnitId;
+
+    private RiskClassification riskClassification;
+
+    private Instant bucketStart;
+
+    private long count;
+
+    private long sumWaitMinutes;
+
+    private long sumServiceMinutes;
+
+    private long maxWaitMinutes;
+
+    // Bin key -> count, see binKey
+    private Map<String, Long> waitHistogram;
+
+    private List<String> attendanceIds;
+
+    public static boolean isEligible(Attendance attendance) {
+        return attendance.getStatus() == AttendanceStatus.DISCHARGED
+                && attendance.getId() != null
+                && attendance.getHealthUnitId() != null
+                && attendance.getRiskClassification() != null
+                && attendance.getEntryTime() != null
+                && attendance.getDischargeTime() != null;
+    }
+
+    public static Instant bucketStart(Instant time) {
+        return Instant.ofEpochMilli(Math.floorDiv(time.toEpochMilli(), BUCKET_MILLIS) * BUCKET_MILLIS);
+    }
+
+    public static String idOf(String healthUnitId, RiskClassification risk, Instant bucketStart) {
+        return healthUnitId + "|" + risk + "|" + bucketStart;
+    }
+
+    public static long waitMinutes(Attendance attendance) {
+        // Attendances discharged without a recorded start count as waiting until discharge
+        Instant served = attendance.getStartTime() != null ? attendance.getStartTime() : attendance.getDischargeTime();
+        return Math.max(0, minutesBetween(attendance.getEntryTime(), served));
+    }
+
+    public static long serviceMinutes(Attendance attendance) {
+        long total = Math.max(0, minutesBetween(attendance.getEntryTime(), attendance.getDischargeTime()));
+        return Math.max(0, total - waitMinutes(attendance));
+    }
+
+    private static long minutesBetween(Instant from, Instant to) {
+        return (to.toEpochMilli() - from.toEpochMilli()) / EpochTime.MILLIS_PER_MINUTE;
+    }
+
+    public static int waitBin(long waitMinutes) {
+        for (int bin = 0; bin < WAIT_BIN_UPPER_BOUNDS.length; bin++) {
+            if (waitMinutes < WAIT_BIN_UPPER_BOUNDS[bin]) return bin;
+        }
+        return WAIT_BIN_UPPER_BOUNDS.length;
+    }
+
+    public static String binKey(int bin) {
+        return "b" + bin;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.fiap.sus.liveops.modules.analytics.dto;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+public record QueueEntry(
+        @Schema(description = "Posição na fila de espera da unidade, começando em 1", example = "1")
+        int position,
+
+        @Schema(description = "ID do atendimento", example = "698e65898661ef045bf53603")
+        String attendanceId,
+
+        @Schema(description = "Classificação de risco do paciente", example = "ORANGE")
+        RiskClassification riskClassification,
+
+        @Schema(description = "Data e hora de entrada do paciente na unidade", example = "2026-01-10T08:15:00")
+        LocalDateTime entryTime,
+
+        @Schema(description = "Tempo de espera até agora, em minutos", example = "12")
+        long waitingMinutes,
+
+        @Schema(description = "Estimativa de minutos até o início do atendimento, pelos pacientes do mesmo risco à frente e pelo intervalo recente entre chamadas do risco (nulo sem histórico)", example = "4")
+        Long estimatedMinutesToService
+) {
+}
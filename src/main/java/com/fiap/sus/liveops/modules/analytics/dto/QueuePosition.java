@@ -0,0 +1,31 @@
+package com.fiap.sus.liveops.modules.analytics.dto;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record QueuePosition(
+        @Schema(description = "ID do atendimento", example = "698e65898661ef045bf53603")
+        String attendanceId,
+
+        @Schema(description = "Identificador da unidade de saúde", example = "9ba937e6-0026-438c-829f-e050780cdda0")
+        String healthUnitId,
+
+        @Schema(description = "Classificação de risco do paciente", example = "YELLOW")
+        RiskClassification riskClassification,
+
+        @Schema(description = "Posição na fila de espera da unidade, começando em 1", example = "7")
+        int position,
+
+        @Schema(description = "Pacientes de mesmo risco à frente", example = "2")
+        int sameRiskAhead,
+
+        @Schema(description = "Total de pacientes aguardando na unidade", example = "23")
+        long queueSize,
+
+        @Schema(description = "Tempo de espera até agora, em minutos", example = "35")
+        long waitingMinutes,
+
+        @Schema(description = "Estimativa de minutos até o início do atendimento, pelos pacientes do mesmo risco à frente e pelo intervalo recente entre chamadas do risco (nulo sem histórico)", example = "18")
+        Long estimatedMinutesToService
+) {
+}
@@ -0,0 +1,29 @@
+package com.fiap.sus.liveops.modules.analytics.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record RegionAnalytics(
+        @Schema(description = "Nome do grupo de unidades (região configurada, 'all' ou 'custom')", example = "zona-sul")
+        String region,
+
+        @Schema(description = "Quantidade de unidades no grupo", example = "42")
+        int unitCount,
+
+        @Schema(description = "Média ponderada de espera de todas as unidades do grupo, em minutos", example = "38")
+        long generalAverageWaitTimeMinutes,
+
+        @Schema(description = "Soma das filas atuais das unidades do grupo")
+        LiveQueueSnapshot queueSnapshot,
+
+        @Schema(description = "Desempenho por classificação de risco, com as médias ponderadas combinadas das unidades")
+        List<RiskAttendancePerformance> riskPerformance,
+
+        @Schema(description = "Percentis do tempo de espera por classificação de risco, combinando as unidades do grupo")
+        List<WaitPercentiles> waitPercentiles,
+
+        @Schema(description = "Unidades mais sobrecarregadas do grupo, da mais crítica para a menos crítica")
+        List<UnitStress> mostStressedUnits
+) {
+}
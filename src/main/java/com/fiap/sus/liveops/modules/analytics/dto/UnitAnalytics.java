@@ -15,5 +15,22 @@ public record UnitAnalytics(
         LiveQueueSnapshot queueSnapshot,
 
         @Schema(description = "Desempenho de atendimento por classificação de risco, incluindo tempos médio de atendimento e limites de SLA")
-        List<RiskAttendancePerformance> riskPerformance
-) {}
+        List<RiskAttendancePerformance> riskPerformance,
+
+        @Schema(description = "Percentis (p50, p90, p99) do tempo de espera por classificação de risco, nas últimas 6 a 12 horas")
+        List<WaitPercentiles> waitPercentiles
+) {
+
+    /**
+     * Without wait percentiles, for calculators that only see the attendance window.
+     */
+    public UnitAnalytics(String healthUnitId, long generalAverageWaitTimeMinutes, LiveQueueSnapshot queueSnapshot,
+                         List<RiskAttendancePerformance> riskPerformance) {
+        this(healthUnitId, generalAverageWaitTimeMinutes, queueSnapshot, riskPerformance, List.of());
+    }
+
+    public UnitAnalytics withWaitPercentiles(List<WaitPercentiles> percentiles) {
+        return new UnitAnalytics(healthUnitId, generalAverageWaitTimeMinutes, queueSnapshot, riskPerformance, percentiles);
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.fiap.sus.liveops.modules.analytics.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record UnitHistory(
+        @Schema(description = "Identificador da unidade de saúde", example = "9ba937e6-0026-438c-829f-e050780cdda0")
+        String healthUnitId,
+
+        @Schema(description = "Início do período, arredondado para o início da faixa de 15 minutos", example = "2026-01-10T08:00:00")
+        LocalDateTime from,
+
+        @Schema(description = "Fim do período (exclusivo)", example = "2026-01-11T08:00:00")
+        LocalDateTime to,
+
+        @Schema(description = "Estatísticas de todos os atendimentos finalizados no período")
+        WaitStatistics overall,
+
+        @Schema(description = "Estatísticas por classificação de risco")
+        List<WaitStatistics> riskStatistics
+) {
+}
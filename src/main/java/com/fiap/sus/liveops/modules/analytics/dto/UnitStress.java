@@ -0,0 +1,25 @@
+package com.fiap.sus.liveops.modules.analytics.dto;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record UnitStress(
+        @Schema(description = "Identificador da unidade de saúde", example = "9ba937e6-0026-438c-829f-e050780cdda0")
+        String healthUnitId,
+
+        @Schema(description = "Maior razão entre espera (média ponderada ou do paciente mais antigo na fila) e o limite do risco; acima de 1 o SLA está rompido", example = "1.75")
+        double stressScore,
+
+        @Schema(description = "Classificação de risco que define o índice de estresse", example = "YELLOW")
+        RiskClassification worstRisk,
+
+        @Schema(description = "Espera, em minutos, do paciente mais antigo na fila deste risco (-1 quando não há ninguém aguardando)", example = "105")
+        long longestWaitingMinutes,
+
+        @Schema(description = "Pacientes aguardando atendimento na unidade", example = "23")
+        long waitingCount,
+
+        @Schema(description = "Indica se algum risco da unidade está com SLA rompido", example = "true")
+        boolean slaBreached
+) {
+}
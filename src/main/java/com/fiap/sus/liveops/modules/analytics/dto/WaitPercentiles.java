@@ -0,0 +1,22 @@
+package com.fiap.sus.liveops.modules.analytics.dto;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record WaitPercentiles(
+        @Schema(description = "Classificação de risco", example = "YELLOW")
+        RiskClassification risk,
+
+        @Schema(description = "Quantidade de esperas concluídas (início do atendimento) consideradas", example = "87")
+        long sampleCount,
+
+        @Schema(description = "Mediana do tempo de espera, em minutos", example = "22")
+        long p50WaitMinutes,
+
+        @Schema(description = "Percentil 90 do tempo de espera, em minutos", example = "58")
+        long p90WaitMinutes,
+
+        @Schema(description = "Percentil 99 do tempo de espera, em minutos", example = "97")
+        long p99WaitMinutes
+) {
+}
@@ -0,0 +1,31 @@
+package com.fiap.sus.liveops.modules.analytics.dto;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record WaitStatistics(
+        @Schema(description = "Classificação de risco destas estatísticas; nulo quando se referem a todos os riscos", example = "YELLOW")
+        RiskClassification risk,
+
+        @Schema(description = "Quantidade de atendimentos finalizados no período", example = "128")
+        long attendedCount,
+
+        @Schema(description = "Tempo médio de espera até o início do atendimento, em minutos", example = "42")
+        long averageWaitMinutes,
+
+        @Schema(description = "Tempo médio do início do atendimento até a alta, em minutos", example = "25")
+        long averageServiceMinutes,
+
+        @Schema(description = "Maior tempo de espera observado no período, em minutos", example = "180")
+        long maxWaitMinutes,
+
+        @Schema(description = "Mediana do tempo de espera, em minutos (aproximada por faixas)", example = "35")
+        long p50WaitMinutes,
+
+        @Schema(description = "Percentil 90 do tempo de espera, em minutos (aproximado por faixas)", example = "95")
+        long p90WaitMinutes,
+
+        @Schema(description = "Percentil 99 do tempo de espera, em minutos (aproximado por faixas)", example = "170")
+        long p99WaitMinutes
+) {
+}
@@ -0,0 +1,8 @@
+package com.fiap.sus.liveops.modules.analytics.event;
+
+/**
+ * Published after the live queue was resynchronized from the database because the change stream lost its resume
+ * point: changes were missed, so anything derived from the live queue must be rebuilt from it.
+ */
+public record LiveQueueResyncedEvent() {
+}
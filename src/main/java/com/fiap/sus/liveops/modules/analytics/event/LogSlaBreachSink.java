@@ -0,0 +1,17 @@
+package com.fiap.sus.liveops.modules.analytics.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class LogSlaBreachSink implements SlaBreachSink {
+
+    @Override
+    public void onBreach(SlaBreachEvent breach) {
+        log.warn("SLA breach: attendance {} ({}) waiting for {} min in unit {}, limit {} min",
+                breach.attendanceId(), breach.riskClassification(), breach.waitingMinutes(),
+                breach.healthUnitId(), breach.limitMinutes());
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.fiap.sus.liveops.modules.analytics.event;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * A waiting patient that crossed the time limit of its risk, raised once per attendance by the SLA breach detector.
+ */
+public record SlaBreachEvent(
+        @Schema(description = "ID do atendimento", example = "698e65898661ef045bf53603")
+        String attendanceId,
+
+        @Schema(description = "Identificador da unidade de saúde", example = "9ba937e6-0026-438c-829f-e050780cdda0")
+        String healthUnitId,
+
+        @Schema(description = "Classificação de risco do paciente", example = "RED")
+        RiskClassification riskClassification,
+
+        @Schema(description = "Data e hora de entrada do paciente na unidade", example = "2026-01-10T08:15:00")
+        LocalDateTime entryTime,
+
+        @Schema(description = "Limite de espera do risco, em minutos, incluindo a tolerância", example = "5")
+        long limitMinutes,
+
+        @Schema(description = "Tempo de espera no momento da detecção, em minutos", example = "6")
+        long waitingMinutes,
+
+        @Schema(description = "Data e hora da detecção", example = "2026-01-10T08:21:00")
+        LocalDateTime detectedAt
+) {
+}
@@ -0,0 +1,11 @@
+package com.fiap.sus.liveops.modules.analytics.event;
+
+/**
+ * Destination of the breaches raised by the SLA breach detector. Every bean implementing it receives each breach,
+ * on the detector thread, so implementations must return quickly and hand slow work (e.g. HTTP) off.
+ */
+public interface SlaBreachSink {
+
+    void onBreach(SlaBreachEvent breach);
+
+}
@@ -0,0 +1,67 @@
+package com.fiap.sus.liveops.modules.analytics.event;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Posts each breach as JSON to {@code analytics.sla.webhook-url}, off the detector thread and without retries:
+ * a failed or rejected delivery is only logged. Enabled when the URL is set.
+ * <p>
+ * Deliveries run on a small pool of their own that rejects once its queue is full, never on the shared
+ * {@code taskExecutor}: on virtual threads that one blocks the submitter at its concurrency limit, which would
+ * stall the detector's ticker behind a slow webhook.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "analytics.sla.webhook-url")
+public class WebhookSlaBreachSink implements SlaBreachSink {
+
+    private final RestClient restClient;
+    private final ThreadPoolTaskExecutor executor;
+
+    public WebhookSlaBreachSink(@Value("${analytics.sla.webhook-url}") String webhookUrl) {
+        this.restClient = RestClient.builder().baseUrl(webhookUrl).build();
+
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("Sla-Webhook-");
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void onBreach(SlaBreachEvent breach) {
+        try {
+            executor.execute(() -> post(breach));
+        } catch (TaskRejectedException e) {
+            log.warn("SLA breach webhook dropped for attendance {}: delivery queue is full", breach.attendanceId());
+        }
+    }
+
+    private void post(SlaBreachEvent breach) {
+        try {
+            restClient.post()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(breach)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (RestClientException e) {
+            log.warn("SLA breach webhook failed for attendance {}: {}", breach.attendanceId(), e.getMessage());
+        }
+    }
+
+}
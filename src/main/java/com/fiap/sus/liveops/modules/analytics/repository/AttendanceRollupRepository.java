@@ -0,0 +1,7 @@
+package com.fiap.sus.liveops.modules.analytics.repository;
+
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface AttendanceRollupRepository extends MongoRepository<AttendanceRollup, String>, AttendanceRollupRepositoryCustom {
+}
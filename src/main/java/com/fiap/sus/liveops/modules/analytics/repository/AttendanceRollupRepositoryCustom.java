@@ -0,0 +1,26 @@
+package com.fiap.sus.liveops.modules.analytics.repository;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+public interface AttendanceRollupRepositoryCustom {
+
+    /**
+     * Adds discharged attendances to their buckets in one unordered bulk write. Attendances that are not discharged,
+     * or already counted, are skipped.
+     *
+     * @return how many attendances were added
+     */
+    int recordAll(Collection<Attendance> attendances);
+
+    /**
+     * Totals of the unit per risk over the buckets starting in {@code [from, to)}. A {@code null} bound is open.
+     * Only risks with at least one bucket are present.
+     */
+    Map<RiskClassification, RollupTotals> totalsByRisk(String healthUnitId, Instant from, Instant to);
+
+}
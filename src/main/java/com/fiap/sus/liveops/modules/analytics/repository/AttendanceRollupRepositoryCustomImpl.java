@@ -0,0 +1,132 @@
+package com.fiap.sus.liveops.modules.analytics.repository;
+
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class AttendanceRollupRepositoryCustomImpl implements AttendanceRollupRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public int recordAll(Collection<Attendance> attendances) {
+        List<Attendance> eligible = attendances.stream().filter(AttendanceRollup::isEligible).toList();
+        if (eligible.isEmpty()) return 0;
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AttendanceRollup.class);
+        eligible.forEach(attendance -> operations.upsert(notYetCounted(attendance), increment(attendance)));
+
+        try {
+            return recorded(operations.execute());
+        } catch (BulkOperationException e) {
+            // The filter misses a bucket that already counts the attendance, or one created concurrently, so the
+            // upsert collides on _id. Retried as a plain update, which only applies in the second case.
+            int recorded = recorded(e.getResult());
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) throw e;
+
+                Attendance attendance = eligible.get(error.getIndex());
+                recorded += (int) mongoTemplate.updateFirst(notYetCounted(attendance), increment(attendance), AttendanceRollup.class)
+                        .getModifiedCount();
+            }
+            return recorded;
+        }
+    }
+
+    @Override
+    public Map<RiskClassification, RollupTotals> totalsByRisk(String healthUnitId, Instant from, Instant to) {
+        Criteria criteria = Criteria.where("healthUnitId").is(healthUnitId);
+        if (from != null || to != null) {
+            Criteria range = criteria.and("bucketStart");
+            if (from != null) range.gte(from);
+            if (to != null) range.lt(to);
+        }
+
+        GroupOperation group = Aggregation.group("riskClassification")
+                .sum("count").as("count")
+                .sum("sumWaitMinutes").as("sumWaitMinutes")
+                .sum("sumServiceMinutes").as("sumServiceMinutes")
+                .max("maxWaitMinutes").as("maxWaitMinutes");
+        for (int bin = 0; bin < AttendanceRollup.WAIT_BINS; bin++) {
+            group = group.sum("waitHistogram." + AttendanceRollup.binKey(bin)).as(AttendanceRollup.binKey(bin));
+        }
+
+        List<Document> rows = mongoTemplate.aggregate(
+                // The counted ids are only for idempotent recording; dropped before they reach the $group stage
+                Aggregation.newAggregation(AttendanceRollup.class, Aggregation.match(criteria),
+                        Aggregation.project().andExclude("attendanceIds"), group),
+                Document.class
+        ).getMappedResults();
+
+        Map<RiskClassification, RollupTotals> totals = new EnumMap<>(RiskClassification.class);
+        for (Document row : rows) {
+            long[] histogram = new long[AttendanceRollup.WAIT_BINS];
+            for (int bin = 0; bin < histogram.length; bin++) {
+                histogram[bin] = longValue(row, AttendanceRollup.binKey(bin));
+            }
+            totals.put(RiskClassification.valueOf(row.getString("_id")), RollupTotals.of(
+                    longValue(row, "count"),
+                    longValue(row, "sumWaitMinutes"),
+                    longValue(row, "sumServiceMinutes"),
+                    longValue(row, "maxWaitMinutes"),
+                    histogram
+            ));
+        }
+        return totals;
+    }
+
+    private static Query notYetCounted(Attendance attendance) {
+        String bucketId = AttendanceRollup.idOf(
+                attendance.getHealthUnitId(),
+                attendance.getRiskClassification(),
+                AttendanceRollup.bucketStart(attendance.getDischargeTime())
+        );
+        return new Query(Criteria.where("id").is(bucketId).and("attendanceIds").ne(attendance.getId()));
+    }
+
+    private static Update increment(Attendance attendance) {
+        long waitMinutes = AttendanceRollup.waitMinutes(attendance);
+
+        return new Update()
+                .setOnInsert("healthUnitId", attendance.getHealthUnitId())
+                .setOnInsert("riskClassification", attendance.getRiskClassification())
+                .setOnInsert("bucketStart", AttendanceRollup.bucketStart(attendance.getDischargeTime()))
+                .inc("count", 1)
+                .inc("sumWaitMinutes", waitMinutes)
+                .inc("sumServiceMinutes", AttendanceRollup.serviceMinutes(attendance))
+                .max("maxWaitMinutes", waitMinutes)
+                .inc("waitHistogram." + AttendanceRollup.binKey(AttendanceRollup.waitBin(waitMinutes)), 1)
+                .push("attendanceIds", attendance.getId());
+    }
+
+    private static int recorded(BulkWriteResult result) {
+        return result.getModifiedCount() + result.getUpserts().size();
+    }
+
+    private static long longValue(Document row, String key) {
+        Object value = row.get(key);
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+}
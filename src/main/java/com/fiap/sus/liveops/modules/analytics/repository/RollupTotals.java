@@ -0,0 +1,85 @@
+package com.fiap.sus.liveops.modules.analytics.repository;
+
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+
+/**
+ * Sum of any number of {@link AttendanceRollup} buckets. Totals of disjoint ranges, units or risks merge by addition,
+ * so averages and wait percentiles of a whole region or period never need the attendances themselves.
+ */
+public final class RollupTotals {
+
+    private long count;
+    private long sumWaitMinutes;
+    private long sumServiceMinutes;
+    private long maxWaitMinutes;
+    private final long[] waitHistogram = new long[AttendanceRollup.WAIT_BINS];
+
+    public static RollupTotals of(long count, long sumWaitMinutes, long sumServiceMinutes, long maxWaitMinutes, long[] waitHistogram) {
+        RollupTotals totals = new RollupTotals();
+        totals.count = count;
+        totals.sumWaitMinutes = sumWaitMinutes;
+        totals.sumServiceMinutes = sumServiceMinutes;
+        totals.maxWaitMinutes = maxWaitMinutes;
+        System.arraycopy(waitHistogram, 0, totals.waitHistogram, 0, AttendanceRollup.WAIT_BINS);
+        return totals;
+    }
+
+    public RollupTotals merge(RollupTotals other) {
+        count += other.count;
+        sumWaitMinutes += other.sumWaitMinutes;
+        sumServiceMinutes += other.sumServiceMinutes;
+        maxWaitMinutes = Math.max(maxWaitMinutes, other.maxWaitMinutes);
+        for (int bin = 0; bin < waitHistogram.length; bin++) {
+            waitHistogram[bin] += other.waitHistogram[bin];
+        }
+        return this;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long maxWaitMinutes() {
+        return maxWaitMinutes;
+    }
+
+    public long averageWaitMinutes() {
+        return count == 0 ? 0 : sumWaitMinutes / count;
+    }
+
+    public long averageServiceMinutes() {
+        return count == 0 ? 0 : sumServiceMinutes / count;
+    }
+
+    /** Average entry-to-discharge minutes. */
+    public long averageTotalMinutes() {
+        return count == 0 ? 0 : (sumWaitMinutes + sumServiceMinutes) / count;
+    }
+
+    /**
+     * Wait in minutes below which {@code quantile} of the attendances fall, interpolated linearly inside its
+     * histogram bin and never above the observed maximum. The error is bounded by the width of that bin.
+     */
+    public long waitPercentile(double quantile) {
+        if (count == 0) return 0;
+
+        double rank = Math.max(1, quantile * count);
+        long seen = 0;
+        for (int bin = 0; bin < waitHistogram.length; bin++) {
+            long inBin = waitHistogram[bin];
+            if (inBin == 0 || seen + inBin < rank) {
+                seen += inBin;
+                continue;
+            }
+
+            long lower = bin == 0 ? 0 : AttendanceRollup.WAIT_BIN_UPPER_BOUNDS[bin - 1];
+            long upper = bin < AttendanceRollup.WAIT_BIN_UPPER_BOUNDS.length
+                    ? AttendanceRollup.WAIT_BIN_UPPER_BOUNDS[bin]
+                    : Math.max(lower, maxWaitMinutes);
+            double fraction = (rank - seen) / inBin;
+            return Math.min(maxWaitMinutes, Math.round(lower + fraction * (upper - lower)));
+        }
+        return maxWaitMinutes;
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.RiskAttendancePerformance;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.AttendanceWindow;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfile;
+import com.fiap.sus.liveops.modules.analytics.state.UnitLoad;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceTimes;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass analytics kernel. One walk over the window fills primitive accumulators indexed by
+ * {@link RiskClassification#ordinal()}, using one captured "now" for every row and the precomputed weights of the
+ * unit's {@link DecayProfile}.
+ */
+public final class AnalyticsAccumulator {
+
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+    private static final long[] LIMIT_WITH_TOLERANCE = new long[RISKS.length];
+    private static final long ABSENT = AttendanceWindow.ABSENT;
+
+    static {
+        for (RiskClassification risk : RISKS) {
+            LIMIT_WITH_TOLERANCE[risk.ordinal()] = limitWithTolerance(risk);
+        }
+    }
+
+    private final long nowMillis;
+    private final DecayProfile decayProfile;
+
+    private long waiting;
+    private long inProgress;
+
+    private double generalWeightedWait;
+    private double generalWeights;
+
+    private final double[] weightedWaitByRisk = new double[RISKS.length];
+    private final double[] weightsByRisk = new double[RISKS.length];
+    private final long[] maxWaitingMinutesByRisk = new long[RISKS.length];
+
+    public AnalyticsAccumulator(long nowMillis, DecayProfile decayProfile) {
+        this.nowMillis = nowMillis;
+        this.decayProfile = decayProfile;
+        Arrays.fill(maxWaitingMinutesByRisk, -1);
+    }
+
+    /**
+     * Accumulator of the live loads of several units. Each {@link UnitLoad} is already weighted by the profile of
+     * its own unit, so the merged accumulator has no profile and takes no attendances.
+     */
+    public static AnalyticsAccumulator ofLoads(long nowMillis) {
+        return new AnalyticsAccumulator(nowMillis, null);
+    }
+
+    public static AnalyticsAccumulator of(List<Attendance> attendances, long nowMillis, DecayProfile decayProfile) {
+        AnalyticsAccumulator accumulator = new AnalyticsAccumulator(nowMillis, decayProfile);
+        for (int i = 0, size = attendances.size(); i < size; i++) {
+            accumulator.add(attendances.get(i));
+        }
+        return accumulator;
+    }
+
+    public static AnalyticsAccumulator ofTimes(List<AttendanceTimes> rows, long nowMillis, DecayProfile decayProfile) {
+        AnalyticsAccumulator accumulator = new AnalyticsAccumulator(nowMillis, decayProfile);
+        for (int i = 0, size = rows.size(); i < size; i++) {
+            accumulator.add(rows.get(i));
+        }
+        return accumulator;
+    }
+
+    public static long limitWithTolerance(RiskClassification risk) {
+        return (long) risk.getMaxMinutesWaiting() + ((risk == RiskClassification.RED) ? 5 : 0);
+    }
+
+    public void add(Attendance a) {
+        add(a.getStatus(), a.getRiskClassification(),
+                millis(a.getEntryTime()), millis(a.getStartTime()), millis(a.getDischargeTime()));
+    }
+
+    public void add(AttendanceTimes row) {
+        add(row.status(), row.riskClassification(),
+                millis(row.entryTime()), millis(row.startTime()), millis(row.dischargeTime()));
+    }
+
+    private static long millis(Instant instant) {
+        return instant != null ? instant.toEpochMilli() : ABSENT;
+    }
+
+    private static long millis(Long epochMillis) {
+        return epochMillis != null ? epochMillis : ABSENT;
+    }
+
+    /**
+     * Adds one attendance given as epoch millis, {@link AttendanceWindow#ABSENT} standing for a missing timestamp,
+     * so the hot path only does long arithmetic. Matches {@link AttendanceWindow.Visitor}.
+     */
+    public void add(AttendanceStatus status, RiskClassification risk, long entryMillis,
+                    long startMillis, long dischargeMillis) {
+        if (decayProfile == null) throw new IllegalStateException("An accumulator of unit loads takes no attendances");
+
+        if (status == AttendanceStatus.WAITING) waiting++;
+        else if (status == AttendanceStatus.IN_PROGRESS) inProgress++;
+
+        if (entryMillis == ABSENT) return;
+
+        long waitEndMillis = startMillis != ABSENT ? startMillis : nowMillis;
+        long waitMinutes = (waitEndMillis - entryMillis) / EpochTime.MILLIS_PER_MINUTE;
+
+        double weight;
+        if (status == AttendanceStatus.WAITING) {
+            weight = 1.0;
+        } else {
+            long referenceMillis = startMillis != ABSENT ? startMillis
+                    : dischargeMillis != ABSENT ? dischargeMillis
+                    : nowMillis;
+
+            weight = decayProfile.weight((nowMillis - referenceMillis) / EpochTime.MILLIS_PER_MINUTE);
+        }
+
+        double weightedWait = waitMinutes * weight;
+        generalWeightedWait += weightedWait;
+        generalWeights += weight;
+
+        if (risk == null) return;
+
+        int r = risk.ordinal();
+        weightedWaitByRisk[r] += weightedWait;
+        weightsByRisk[r] += weight;
+
+        if (status == AttendanceStatus.WAITING && waitMinutes > maxWaitingMinutesByRisk[r]) {
+            maxWaitingMinutesByRisk[r] = waitMinutes;
+        }
+    }
+
+    /**
+     * Adds the live load of a unit instead of its attendances, so the accumulators of many units can be merged
+     * without reading the database. Waiting patients weigh 1, as in {@link #add(AttendanceTimes)}.
+     */
+    public void add(UnitLoad load) {
+        for (int r = 0; r < RISKS.length; r++) {
+            waiting += load.waitingCount()[r];
+            inProgress += load.inProgressCount()[r];
+
+            double weightedWait = load.waitingMinutes()[r] + load.servedWeightedWait()[r];
+            double weight = load.waitingCount()[r] + load.servedWeights()[r];
+            generalWeightedWait += weightedWait;
+            generalWeights += weight;
+            weightedWaitByRisk[r] += weightedWait;
+            weightsByRisk[r] += weight;
+
+            maxWaitingMinutesByRisk[r] = Math.max(maxWaitingMinutesByRisk[r], load.longestWaitingMinutes()[r]);
+        }
+    }
+
+    public long getNowMillis() {
+        return nowMillis;
+    }
+
+    /**
+     * Entries at or before this instant are outside the analysis window of the unit.
+     */
+    public long getWindowStartMillis() {
+        if (decayProfile == null) throw new IllegalStateException("An accumulator of unit loads has no window");
+        return decayProfile.windowStart(nowMillis);
+    }
+
+    public long getGeneralAverageWait() {
+        return average(generalWeightedWait, generalWeights);
+    }
+
+    public long getAverageWait(RiskClassification risk) {
+        return average(weightedWaitByRisk[risk.ordinal()], weightsByRisk[risk.ordinal()]);
+    }
+
+    public boolean isAverageBreached(RiskClassification risk) {
+        return getAverageWait(risk) > LIMIT_WITH_TOLERANCE[risk.ordinal()];
+    }
+
+    public boolean isAnyWaitingBreached(RiskClassification risk) {
+        return maxWaitingMinutesByRisk[risk.ordinal()] > LIMIT_WITH_TOLERANCE[risk.ordinal()];
+    }
+
+    public LiveQueueSnapshot toSnapshot() {
+        return new LiveQueueSnapshot(waiting + inProgress, waiting, inProgress);
+    }
+
+    /**
+     * Full result computed only from the accumulated rows, queue snapshot and "forgotten patient" check included.
+     */
+    public UnitAnalytics toUnitAnalytics(String healthUnitId) {
+        List<RiskAttendancePerformance> performances = new ArrayList<>(RISKS.length);
+
+        for (RiskClassification risk : RISKS) {
+            performances.add(new RiskAttendancePerformance(
+                    risk,
+                    getAverageWait(risk),
+                    risk.getMaxMinutesWaiting(),
+                    isAverageBreached(risk) || isAnyWaitingBreached(risk)
+            ));
+        }
+
+        return new UnitAnalytics(healthUnitId, getGeneralAverageWait(), toSnapshot(), performances);
+    }
+
+    private static long average(double weightedWait, double weights) {
+        if (weights == 0) return 0;
+        return (long) (weightedWait / weights);
+    }
+
+}
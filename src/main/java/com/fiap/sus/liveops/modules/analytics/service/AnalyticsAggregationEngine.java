@@ -0,0 +1,155 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.dto.RiskAttendancePerformance;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfile;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes {@link UnitAnalytics} inside MongoDB with a single aggregation, returning only sums instead of the
+ * attendance documents. Mirrors the Java-side rules of {@link AnalyticsService}: the weighted waits come from the
+ * analysis window, while the queue snapshot and the "forgotten patient" check come from the {@link LiveQueueStateStore},
+ * which covers the whole active queue, including patients triaged before the window.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnalyticsAggregationEngine {
+
+    private static final double MILLIS_PER_MINUTE = 60_000.0;
+
+    private final MongoTemplate mongoTemplate;
+    private final LiveQueueStateStore liveQueueStateStore;
+
+    public UnitAnalytics compute(String healthUnitId, DecayProfile decayProfile, long nowMillis) {
+        // Timestamps are stored as epoch millis, so the arithmetic below subtracts plain numbers
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("healthUnitId").is(healthUnitId).and("entryTime").gt(Instant.ofEpochMilli(decayProfile.windowStart(nowMillis)))),
+                projectWaitAndWeight(nowMillis, decayProfile),
+                facetByRisk()
+        );
+
+        Document result = mongoTemplate.aggregate(aggregation, Attendance.class, Document.class).getUniqueMappedResult();
+
+        return toUnitAnalytics(healthUnitId, result, nowMillis);
+    }
+
+    // waitMinutes: startTime (or now, if still waiting) minus entryTime, truncated to whole minutes
+    // weight: 1 for waiting patients, the decay curve of the unit over whole minutes ago for the others
+    private static AggregationOperation projectWaitAndWeight(long now, DecayProfile decayProfile) {
+        Document waitMillis = new Document("$subtract", List.of(
+                new Document("$ifNull", List.of("$startTime", now)),
+                "$entryTime"
+        ));
+
+        Document referenceTime = new Document("$ifNull", List.of(
+                "$startTime",
+                new Document("$ifNull", List.of("$dischargeTime", now))
+        ));
+
+        Document minutesAgo = new Document("$max", List.of(0,
+                truncatedMinutes(new Document("$subtract", List.of(now, referenceTime)))));
+        Document decayWeight = decayWeight(minutesAgo, decayProfile);
+
+        Document weight = new Document("$cond", List.of(
+                new Document("$eq", List.of("$status", AttendanceStatus.WAITING.name())),
+                1.0,
+                decayWeight
+        ));
+
+        return context -> new Document("$project", new Document("status", 1)
+                .append("riskClassification", 1)
+                .append("waitMinutes", truncatedMinutes(waitMillis))
+                .append("weight", weight));
+    }
+
+    // Same curves as DecayFunction; there is no lookup table on the server, so each row evaluates its weight
+    private static Document decayWeight(Document minutesAgo, DecayProfile decayProfile) {
+        Document halfLives = new Document("$divide", List.of(minutesAgo, (double) decayProfile.getHalfLifeMinutes()));
+
+        return switch (decayProfile.getFunction()) {
+            case HYPERBOLIC -> new Document("$divide", List.of(1.0, new Document("$add", List.of(1.0, halfLives))));
+            case EXPONENTIAL -> new Document("$pow", List.of(0.5, halfLives));
+            case STEP -> new Document("$pow", List.of(0.5, new Document("$floor", halfLives)));
+        };
+    }
+
+    private static AggregationOperation facetByRisk() {
+        Document weightedWait = new Document("$sum", new Document("$multiply", List.of("$waitMinutes", "$weight")));
+        Document weights = new Document("$sum", "$weight");
+
+        List<Document> general = List.of(
+                new Document("$group", new Document("_id", null)
+                        .append("weightedWait", weightedWait)
+                        .append("weights", weights))
+        );
+
+        List<Document> byRisk = List.of(
+                new Document("$group", new Document("_id", "$riskClassification")
+                        .append("weightedWait", weightedWait)
+                        .append("weights", weights))
+        );
+
+        return context -> new Document("$facet", new Document("general", general)
+                .append("byRisk", byRisk));
+    }
+
+    private static Document truncatedMinutes(Document millisExpression) {
+        return new Document("$trunc", new Document("$divide", List.of(millisExpression, MILLIS_PER_MINUTE)));
+    }
+
+    private UnitAnalytics toUnitAnalytics(String healthUnitId, Document result, long nowMillis) {
+        List<Document> general = result.getList("general", Document.class);
+        long generalWeightedWait = general.isEmpty() ? 0 : weightedAverage(general.get(0));
+
+        Map<String, Document> byRisk = new HashMap<>();
+        for (Document risk : result.getList("byRisk", Document.class)) {
+            byRisk.put(risk.getString("_id"), risk);
+        }
+
+        List<RiskAttendancePerformance> performances = new ArrayList<>();
+        for (RiskClassification risk : RiskClassification.values()) {
+            Document riskResult = byRisk.get(risk.name());
+
+            long avgWeightedWait = riskResult == null ? 0 : weightedAverage(riskResult);
+            long limitWithTolerance = AnalyticsAccumulator.limitWithTolerance(risk);
+
+            boolean isAnyPatientWaitingBreached = liveQueueStateStore.isAnyWaitingBreached(
+                    healthUnitId, risk, limitWithTolerance, nowMillis);
+
+            performances.add(new RiskAttendancePerformance(
+                    risk,
+                    avgWeightedWait,
+                    risk.getMaxMinutesWaiting(),
+                    avgWeightedWait > limitWithTolerance || isAnyPatientWaitingBreached
+            ));
+        }
+
+        return new UnitAnalytics(healthUnitId, generalWeightedWait, liveQueueStateStore.getSnapshot(healthUnitId), performances);
+    }
+
+    private static long weightedAverage(Document sums) {
+        double weights = ((Number) sums.get("weights")).doubleValue();
+        if (weights == 0) return 0;
+
+        return (long) (((Number) sums.get("weightedWait")).doubleValue() / weights);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitHistory;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitMetrics;
+import com.fiap.sus.liveops.modules.analytics.dto.WaitStatistics;
+import com.fiap.sus.liveops.modules.analytics.repository.AttendanceRollupRepository;
+import com.fiap.sus.liveops.modules.analytics.repository.RollupTotals;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Historical analytics served from the {@link AttendanceRollup} buckets, so their cost depends on the length of the
+ * period and never on the number of attendances. Discharges are added to their bucket as they happen.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsHistoryService {
+
+    private final AttendanceRollupRepository rollupRepository;
+    private final LiveQueueStateStore liveQueueStateStore;
+    private final AnalyticsResultCache resultCache;
+
+    /**
+     * Runs before the cache invalidation, so a recomputation triggered by it already sees the discharge.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onAttendanceChanged(AttendanceChangedEvent event) {
+        List<Attendance> discharged = event.attendances().stream()
+                .filter(AttendanceRollup::isEligible)
+                .toList();
+        if (discharged.isEmpty()) return;
+
+        try {
+            rollupRepository.recordAll(discharged);
+        } catch (DataAccessException e) {
+            // The discharge itself is already stored; the backfill migration can recount it
+            log.error("Could not add {} discharges of unit {} to the rollups: {}",
+                    discharged.size(), event.healthUnitId(), e.getMessage());
+        }
+    }
+
+    public UnitMetrics getBasicMetrics(String healthUnitId) {
+        return resultCache.getMetrics(healthUnitId, this::computeBasicMetrics);
+    }
+
+    private UnitMetrics computeBasicMetrics(String healthUnitId) {
+        log.info("Calculating metrics for unit: {}", healthUnitId);
+
+        long queueSize = liveQueueStateStore.getSnapshot(healthUnitId).totalPatients();
+
+        // Average time in minutes from entry to discharge over the whole history of the unit
+        RollupTotals allTime = merge(rollupRepository.totalsByRisk(healthUnitId, null, null));
+
+        return new UnitMetrics(healthUnitId, queueSize, allTime.averageTotalMinutes());
+    }
+
+    /**
+     * @param from inclusive, in the zone of the host, rounded down to the start of its 15-minute bucket
+     * @param to   exclusive, in the zone of the host
+     */
+    public UnitHistory getHistory(String healthUnitId, LocalDateTime from, LocalDateTime to) {
+        // Buckets are aligned in UTC; the range of the API stays in the zone of the host
+        Instant bucketFrom = AttendanceRollup.bucketStart(EpochTime.toInstant(from));
+        LocalDateTime localFrom = EpochTime.toLocalDateTime(bucketFrom);
+        log.info("Reading history of unit {} from {} to {}", healthUnitId, localFrom, to);
+
+        Map<RiskClassification, RollupTotals> totalsByRisk = rollupRepository.totalsByRisk(healthUnitId, bucketFrom,
+                EpochTime.toInstant(to));
+
+        List<WaitStatistics> riskStatistics = new ArrayList<>();
+        for (RiskClassification risk : RiskClassification.values()) {
+            riskStatistics.add(toStatistics(risk, totalsByRisk.getOrDefault(risk, new RollupTotals())));
+        }
+
+        return new UnitHistory(healthUnitId, localFrom, to, toStatistics(null, merge(totalsByRisk)), riskStatistics);
+    }
+
+    private static RollupTotals merge(Map<RiskClassification, RollupTotals> totalsByRisk) {
+        RollupTotals merged = new RollupTotals();
+        totalsByRisk.values().forEach(merged::merge);
+        return merged;
+    }
+
+    private static WaitStatistics toStatistics(RiskClassification risk, RollupTotals totals) {
+        return new WaitStatistics(
+                risk,
+                totals.count(),
+                totals.averageWaitMinutes(),
+                totals.averageServiceMinutes(),
+                totals.maxWaitMinutes(),
+                totals.waitPercentile(0.50),
+                totals.waitPercentile(0.90),
+                totals.waitPercentile(0.99)
+        );
+    }
+
+}
@@ -1,61 +1,123 @@
 package com.fiap.sus.liveops.modules.analytics.service;
 
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
 import com.fiap.sus.liveops.modules.analytics.dto.*;
-import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfile;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
 import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
-import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceTimes;
 import com.fiap.sus.liveops.shared.enums.RiskClassification;
-import lombok.RequiredArgsConstructor;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Advanced analytics of a unit over the analysis window. Each step is timed in {@code analytics.step} (tag
+ * {@code step}) and the attendances read per computation are summarized in {@code analytics.rows.loaded} (tag
+ * {@code query}), so a slow unit can be told apart from a slow query in Prometheus.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class AnalyticsService {
 
     private final AttendanceRepository repository;
     private final Executor taskExecutor;
+    private final LiveQueueStateStore liveQueueStateStore;
+    private final AnalyticsAggregationEngine aggregationEngine;
+    private final AnalyticsResultCache resultCache;
+
+    private final Timer fetchTimer;
+    private final Timer batchFetchTimer;
+    private final Timer aggregationTimer;
+    private final Timer weightedWaitTimer;
+    private final Timer snapshotTimer;
+    private final Timer riskPerformanceTimer;
+    private final Timer percentilesTimer;
+    private final DistributionSummary rowsPerUnit;
+    private final DistributionSummary rowsPerBatch;
+    private final DistributionSummary rowsPerWindow;
+
+    private static final String AGGREGATION_ENGINE = "aggregation";
+    private static final String MEMORY_ENGINE = "memory";
+
+    // "java" computes over the documents fetched from MongoDB, "aggregation" inside MongoDB, "memory" over the
+    // in-memory window of the live state, which sees other instances' writes only with the change stream enabled
+    @Value("${analytics.engine:java}")
+    private String engine;
+
+    // Batches with at least this many units are answered by one $in query instead of one query per unit
+    @Value("${analytics.batch.single-query-threshold:20}")
+    private int singleQueryThreshold;
+
+    public AnalyticsService(
+            AttendanceRepository repository,
+            Executor taskExecutor,
+            LiveQueueStateStore liveQueueStateStore,
+            AnalyticsAggregationEngine aggregationEngine,
+            AnalyticsResultCache resultCache,
+            MeterRegistry meterRegistry
+    ) {
+        this.repository = repository;
+        this.taskExecutor = taskExecutor;
+        this.liveQueueStateStore = liveQueueStateStore;
+        this.aggregationEngine = aggregationEngine;
+        this.resultCache = resultCache;
+
+        this.fetchTimer = stepTimer("fetch", meterRegistry);
+        this.batchFetchTimer = stepTimer("batch_fetch", meterRegistry);
+        this.aggregationTimer = stepTimer("aggregation", meterRegistry);
+        this.weightedWaitTimer = stepTimer("weighted_wait", meterRegistry);
+        this.snapshotTimer = stepTimer("snapshot", meterRegistry);
+        this.riskPerformanceTimer = stepTimer("risk_performance", meterRegistry);
+        this.percentilesTimer = stepTimer("percentiles", meterRegistry);
+        this.rowsPerUnit = rowsLoaded("unit", meterRegistry);
+        this.rowsPerBatch = rowsLoaded("batch", meterRegistry);
+        this.rowsPerWindow = rowsLoaded("window", meterRegistry);
+    }
 
-    private static final int ANALYSIS_WINDOW_HOURS = 12;
-
-    public UnitMetrics getBasicMetrics(String healthUnitId) {
-        log.info("Calculating metrics for unit: {}", healthUnitId);
-
-        // Calculate queue size from attendances that are not discharged
-        List<Attendance> activeQueue = repository.findByHealthUnitIdAndStatusNot(
-                healthUnitId,
-                AttendanceStatus.DISCHARGED
-        );
-        long queueSize = activeQueue.size();
-
-        // Calculate average time in minutes from entry to discharge for discharged attendances
-        List<Attendance> finishedAttendances = repository.findByHealthUnitIdAndStatus(
-                healthUnitId,
-                AttendanceStatus.DISCHARGED
-        );
-
-        double averageMinutes = finishedAttendances.stream()
-                .filter(a -> a.getEntryTime() != null && a.getDischargeTime() != null)
-                .mapToLong(a -> Duration.between(a.getEntryTime(), a.getDischargeTime()).toMinutes())
-                .average()
-                .orElse(0.0);
+    private static Timer stepTimer(String step, MeterRegistry meterRegistry) {
+        return Timer.builder("analytics.step")
+                .description("Time spent in each step of an analytics computation")
+                .tag("step", step)
+                .register(meterRegistry);
+    }
 
-        return new UnitMetrics(healthUnitId, queueSize, (long) averageMinutes);
+    private static DistributionSummary rowsLoaded(String query, MeterRegistry meterRegistry) {
+        return DistributionSummary.builder("analytics.rows.loaded")
+                .description("Attendances read per analytics computation")
+                .baseUnit("rows")
+                .tag("query", query)
+                .register(meterRegistry);
     }
 
     public List<UnitAnalytics> getAnalyticsByUnits(List<String> healthUnitIds) {
         log.info("Starting batch analytics for {} units", healthUnitIds.size());
 
+        if (MEMORY_ENGINE.equalsIgnoreCase(engine)) {
+            // Nothing to wait on: each unit is one scan of its in-memory window
+            return healthUnitIds.stream()
+                    .map(this::getAnalytics)
+                    .toList();
+        }
+
+        if (healthUnitIds.size() >= singleQueryThreshold) {
+            return getAnalyticsByUnitsInSingleQuery(healthUnitIds);
+        }
+
         List<CompletableFuture<UnitAnalytics>> futures = healthUnitIds.stream()
                 .map(id -> CompletableFuture.supplyAsync(
                         () -> getAnalytics(id),
@@ -68,77 +130,133 @@ public class AnalyticsService {
                 .toList();
     }
 
-    public UnitAnalytics getAnalytics(String healthUnitId) {
-        log.info("Generating advanced analytics for unit: {}", healthUnitId);
+    protected List<UnitAnalytics> getAnalyticsByUnitsInSingleQuery(List<String> healthUnitIds) {
+        long nowMillis = EpochTime.now();
 
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(ANALYSIS_WINDOW_HOURS);
-        List<Attendance> attendances = repository.findByHealthUnitIdAndEntryTimeAfter(healthUnitId, cutoff);
+        // Cached units are served as is, only the misses go to the database
+        Map<String, UnitAnalytics> analyticsByUnit = new HashMap<>();
+        Map<String, AnalyticsAccumulator> accumulatorByUnit = new HashMap<>();
+        Map<String, Long> generationByUnit = new HashMap<>();
+        for (String id : healthUnitIds) {
+            if (analyticsByUnit.containsKey(id) || accumulatorByUnit.containsKey(id)) continue;
 
-        // Step 1: Get live queue snapshot
-        LiveQueueSnapshot snapshot = getLiveQueueSnapshot(attendances);
+            UnitAnalytics cached = resultCache.getAnalyticsIfPresent(id);
+            if (cached != null) {
+                analyticsByUnit.put(id, cached);
+            } else {
+                // Read before the window, so a change landing while the batch is computed keeps its value out of the cache
+                generationByUnit.put(id, resultCache.getGeneration(id));
+                accumulatorByUnit.put(id, new AnalyticsAccumulator(nowMillis, liveQueueStateStore.getDecayProfile(id)));
+            }
+        }
 
-        // Step 2: Calculate general weighted wait time
-        long generalWeightedWait = getGeneralWeightedWait(attendances);
+        if (!accumulatorByUnit.isEmpty()) {
+            // The longest window of the batch; units with a shorter one skip the older rows
+            Instant cutoff = Instant.ofEpochMilli(accumulatorByUnit.values().stream()
+                    .mapToLong(AnalyticsAccumulator::getWindowStartMillis)
+                    .min().orElseThrow());
+
+            // One cursor for every unit, partitioned as documents arrive so the window is never held in memory;
+            // reading and weighting are interleaved, so both are timed as the batch fetch
+            LongAdder rows = new LongAdder();
+            batchFetchTimer.record(() -> {
+                try (Stream<AttendanceTimes> window = repository.findByHealthUnitIdInAndEntryTimeAfter(accumulatorByUnit.keySet(), cutoff)) {
+                    window.forEach(row -> {
+                        AnalyticsAccumulator accumulator = accumulatorByUnit.get(row.healthUnitId());
+                        if (row.entryTime() != null && row.entryTime() <= accumulator.getWindowStartMillis()) return;
+                        accumulator.add(row);
+                        rows.increment();
+                    });
+                }
+            });
+            rowsPerBatch.record(rows.sum());
+
+            accumulatorByUnit.forEach((id, accumulator) -> {
+                UnitAnalytics analytics = toUnitAnalytics(id, accumulator);
+                resultCache.putAnalyticsIfCurrent(id, analytics, generationByUnit.get(id));
+                analyticsByUnit.put(id, analytics);
+            });
+        }
 
-        // Step 3: Calculate risk-based performance
-        List<RiskAttendancePerformance> performances = getRiskAttendancePerformances(attendances);
+        // Results follow the order the caller sent the ids
+        return healthUnitIds.stream()
+                .map(analyticsByUnit::get)
+                .toList();
+    }
 
-        return new UnitAnalytics(healthUnitId, generalWeightedWait, snapshot, performances);
+    public UnitAnalytics getAnalytics(String healthUnitId) {
+        return resultCache.getAnalytics(healthUnitId, this::computeAnalytics);
     }
 
-    protected long calculateEffectiveWaitMinutes(Attendance a) {
-        LocalDateTime end = (a.getStartTime() != null) ? a.getStartTime() : LocalDateTime.now();
-        return Duration.between(a.getEntryTime(), end).toMinutes();
+    private UnitAnalytics computeAnalytics(String healthUnitId) {
+        return computeAnalytics(healthUnitId, EpochTime.now());
     }
 
-    protected long getGeneralWeightedWait(List<Attendance> attendances) {
-        List<Attendance> servedPatients = attendances.stream()
-                .filter(a -> a.getEntryTime() != null)
-                .toList();
+    UnitAnalytics computeAnalytics(String healthUnitId, long nowMillis) {
+        log.debug("Generating advanced analytics for unit: {}", healthUnitId);
+
+        DecayProfile decayProfile = liveQueueStateStore.getDecayProfile(healthUnitId);
+        Instant cutoff = Instant.ofEpochMilli(decayProfile.windowStart(nowMillis));
 
-        return calculateWeightedWaitTime(servedPatients);
+        if (AGGREGATION_ENGINE.equalsIgnoreCase(engine)) {
+            UnitAnalytics analytics = aggregationTimer.record(() -> aggregationEngine.compute(healthUnitId, decayProfile, nowMillis));
+            return analytics.withWaitPercentiles(percentilesTimer.record(() -> liveQueueStateStore.getWaitPercentiles(healthUnitId)));
+        }
+
+        if (MEMORY_ENGINE.equalsIgnoreCase(engine)) {
+            // Single pass over the columns of the window, weighting as it goes
+            AnalyticsAccumulator accumulator = new AnalyticsAccumulator(nowMillis, decayProfile);
+            int rows = weightedWaitTimer.record(() -> liveQueueStateStore.scanWindow(healthUnitId, cutoff.toEpochMilli(), accumulator::add));
+            rowsPerWindow.record(rows);
+            return toUnitAnalytics(healthUnitId, accumulator);
+        }
+
+        // Projected rows: only status, risk and timestamps cross the wire, never the patient
+        List<AttendanceTimes> rows = fetchTimer.record(() -> repository.findByHealthUnitIdAndEntryTimeAfter(healthUnitId, cutoff));
+        rowsPerUnit.record(rows.size());
+
+        // Single pass over the window: weighted waits in general and per risk
+        AnalyticsAccumulator accumulator = weightedWaitTimer.record(() -> AnalyticsAccumulator.ofTimes(rows, nowMillis, decayProfile));
+
+        return toUnitAnalytics(healthUnitId, accumulator);
     }
 
-    protected static LiveQueueSnapshot getLiveQueueSnapshot(List<Attendance> allAttendances) {
-        List<Attendance> activePatients = allAttendances.stream()
-                .filter(a -> a.getStatus() != AttendanceStatus.DISCHARGED)
-                .toList();
+    private UnitAnalytics toUnitAnalytics(String healthUnitId, AnalyticsAccumulator accumulator) {
+        // Step 1: Get live queue snapshot
+        LiveQueueSnapshot snapshot = snapshotTimer.record(() -> getLiveQueueSnapshot(healthUnitId));
+
+        // Step 2: Calculate general weighted wait time
+        long generalWeightedWait = accumulator.getGeneralAverageWait();
 
-        long waiting = activePatients.stream()
-                .filter(a -> a.getStatus() == AttendanceStatus.WAITING).count();
+        // Step 3: Calculate risk-based performance
+        List<RiskAttendancePerformance> performances = riskPerformanceTimer.record(
+                () -> getRiskAttendancePerformances(healthUnitId, accumulator));
 
-        long inProgress = activePatients.stream()
-                .filter(a -> a.getStatus() == AttendanceStatus.IN_PROGRESS).count();
+        // Step 4: Wait percentiles per risk from the live sketches
+        List<WaitPercentiles> percentiles = percentilesTimer.record(() -> liveQueueStateStore.getWaitPercentiles(healthUnitId));
 
-        return new LiveQueueSnapshot(
-                activePatients.size(),
-                waiting,
-                inProgress
-        );
+        return new UnitAnalytics(healthUnitId, generalWeightedWait, snapshot, performances, percentiles);
     }
 
-    protected List<RiskAttendancePerformance> getRiskAttendancePerformances(List<Attendance> attendances) {
-        Map<RiskClassification, List<Attendance>> byRisk = attendances.stream()
-                .collect(Collectors.groupingBy(Attendance::getRiskClassification));
+    public LiveQueueSnapshot getLiveQueueSnapshot(String healthUnitId) {
+        return liveQueueStateStore.getSnapshot(healthUnitId);
+    }
 
+    protected List<RiskAttendancePerformance> getRiskAttendancePerformances(String healthUnitId, AnalyticsAccumulator accumulator) {
         List<RiskAttendancePerformance> performances = new ArrayList<>();
 
         for (RiskClassification risk : RiskClassification.values()) {
-            List<Attendance> riskPatients = byRisk.getOrDefault(risk, List.of());
+            long limitWithTolerance = AnalyticsAccumulator.limitWithTolerance(risk);
 
-            long avgWeightedWait = calculateWeightedWaitTime(riskPatients);
-            long limitWithTolerance = (long) risk.getMaxMinutesWaiting() + ((risk == RiskClassification.RED) ? 5 : 0);
-
-            boolean isAverageBreached = avgWeightedWait > limitWithTolerance;
-            boolean isAnyPatientWaitingBreached = riskPatients.stream()
-                    .filter(a -> a.getStatus() == AttendanceStatus.WAITING)
-                    .anyMatch(a -> calculateEffectiveWaitMinutes(a) > limitWithTolerance);
+            boolean isAverageBreached = accumulator.isAverageBreached(risk);
+            boolean isAnyPatientWaitingBreached = liveQueueStateStore.isAnyWaitingBreached(
+                    healthUnitId, risk, limitWithTolerance, accumulator.getNowMillis());
 
             boolean slaBreached = isAverageBreached || isAnyPatientWaitingBreached;
 
             performances.add(new RiskAttendancePerformance(
                     risk,
-                    avgWeightedWait,
+                    accumulator.getAverageWait(risk),
                     risk.getMaxMinutesWaiting(),
                     slaBreached
             ));
@@ -146,33 +264,4 @@ public class AnalyticsService {
         return performances;
     }
 
-    protected long calculateWeightedWaitTime(List<Attendance> patients) {
-        if (patients.isEmpty()) return 0;
-
-        double totalWeightedTime = 0.0;
-        double totalWeights = 0.0;
-        LocalDateTime now = LocalDateTime.now();
-
-        for (Attendance p : patients) {
-            long waitMinutes = calculateEffectiveWaitMinutes(p);
-
-            double weight;
-            if (p.getStatus() == AttendanceStatus.WAITING) {
-                weight = 1.0;
-            } else {
-                LocalDateTime referenceTime = (p.getStartTime() != null) ? p.getStartTime() : p.getDischargeTime();
-                if(referenceTime == null) referenceTime = now;
-
-                double hoursAgo = Duration.between(referenceTime, now).toMinutes() / 60.0;
-                weight = 1.0 / (1.0 + hoursAgo);
-            }
-
-            totalWeightedTime += (waitMinutes * weight);
-            totalWeights += weight;
-        }
-
-        if (totalWeights == 0) return 0;
-        return (long) (totalWeightedTime / totalWeights);
-    }
-
 }
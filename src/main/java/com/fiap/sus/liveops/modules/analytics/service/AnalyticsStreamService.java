@@ -0,0 +1,137 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.event.SlaBreachEvent;
+import com.fiap.sus.liveops.modules.analytics.event.SlaBreachSink;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes {@link UnitAnalytics} to Server-Sent Events subscribers of a health unit whenever one of its attendances
+ * changes. Changes are coalesced to at most one emission per {@code analytics.stream.min-interval-ms}, and each
+ * emission is computed once and shared by every subscriber of the unit. SLA breaches of the unit are sent right away
+ * as {@value #BREACH_EVENT_NAME} events.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsStreamService implements SlaBreachSink {
+
+    public static final String EVENT_NAME = "unit-analytics";
+    public static final String BREACH_EVENT_NAME = "sla-breach";
+
+    private final AnalyticsService analyticsService;
+    private final TaskScheduler taskScheduler;
+    private final ConcurrentMap<String, UnitStream> streams = new ConcurrentHashMap<>();
+
+    @Value("${analytics.stream.min-interval-ms:2000}")
+    private long minIntervalMillis;
+
+    @Value("${analytics.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    public SseEmitter subscribe(String healthUnitId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+
+        UnitStream stream = streams.compute(healthUnitId, (id, current) -> {
+            UnitStream target = current == null ? new UnitStream(id) : current;
+            target.emitters.add(emitter);
+            return target;
+        });
+
+        emitter.onCompletion(() -> unsubscribe(healthUnitId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(healthUnitId, emitter));
+
+        log.info("New analytics stream subscriber for unit: {} ({} active)", healthUnitId, stream.emitters.size());
+
+        // Through the cached, single-flight service: fresh within its TTL even on a unit that has been quiet for hours
+        send(stream, emitter, EVENT_NAME, analyticsService.getAnalytics(healthUnitId));
+        return emitter;
+    }
+
+    // After the cache eviction, so the emission scheduled here never reads the analytics from before the change
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener
+    public void onAttendanceChanged(AttendanceChangedEvent event) {
+        UnitStream stream = streams.get(event.healthUnitId());
+        if (stream == null || stream.emitters.isEmpty()) return;
+
+        // Only the first change since the last emission schedules one; later ones ride along
+        if (stream.pending.compareAndSet(false, true)) {
+            long delay = Math.max(0, stream.lastEmitMillis + minIntervalMillis - EpochTime.now());
+            taskScheduler.schedule(() -> emit(stream), Instant.now().plusMillis(delay));
+        }
+    }
+
+    @Override
+    public void onBreach(SlaBreachEvent breach) {
+        UnitStream stream = streams.get(breach.healthUnitId());
+        if (stream == null) return;
+
+        stream.emitters.forEach(emitter -> send(stream, emitter, BREACH_EVENT_NAME, breach));
+    }
+
+    public int getSubscriberCount(String healthUnitId) {
+        UnitStream stream = streams.get(healthUnitId);
+        return stream == null ? 0 : stream.emitters.size();
+    }
+
+    private void emit(UnitStream stream) {
+        // Cleared before computing, so a change arriving meanwhile schedules the next emission
+        stream.pending.set(false);
+        stream.lastEmitMillis = EpochTime.now();
+
+        if (stream.emitters.isEmpty()) return;
+
+        UnitAnalytics analytics = analyticsService.getAnalytics(stream.healthUnitId);
+        stream.emitters.forEach(emitter -> send(stream, emitter, EVENT_NAME, analytics));
+    }
+
+    private void send(UnitStream stream, SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping analytics stream subscriber for unit {}: {}", stream.healthUnitId, e.getMessage());
+            unsubscribe(stream.healthUnitId, emitter);
+        }
+    }
+
+    private void unsubscribe(String healthUnitId, SseEmitter emitter) {
+        streams.computeIfPresent(healthUnitId, (id, stream) -> {
+            stream.emitters.remove(emitter);
+            return stream.emitters.isEmpty() ? null : stream;
+        });
+    }
+
+    private static final class UnitStream {
+
+        private final String healthUnitId;
+        private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile long lastEmitMillis;
+
+        private UnitStream(String healthUnitId) {
+            this.healthUnitId = healthUnitId;
+        }
+
+    }
+
+}
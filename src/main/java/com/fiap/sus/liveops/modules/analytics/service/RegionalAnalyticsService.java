@@ -0,0 +1,134 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.core.config.AnalyticsRegionsProperties;
+import com.fiap.sus.liveops.core.exception.ResourceNotFoundException;
+import com.fiap.sus.liveops.modules.analytics.dto.RegionAnalytics;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitStress;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.analytics.state.UnitLoad;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Analytics of a group of units merged server-side. Each unit contributes its live {@link UnitLoad} (counters and
+ * served waits weighted by the decay profile of the unit, no attendance rows) to one {@link AnalyticsAccumulator}, so the cost is a few microseconds
+ * per unit with no database access, and the top-N most stressed units are kept in a bounded heap. The windows differ
+ * from the unit analytics: the whole waiting queue counts, and served waits are kept by service start, not entry.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RegionalAnalyticsService {
+
+    public static final String ALL_UNITS = "all";
+    public static final String CUSTOM_REGION = "custom";
+    public static final int MAX_TOP = 100;
+
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+
+    // Least stressed first, so the heap head is the one to evict
+    private static final Comparator<UnitStress> BY_STRESS = Comparator
+            .comparingDouble(UnitStress::stressScore)
+            .thenComparingLong(UnitStress::waitingCount)
+            .thenComparing(UnitStress::healthUnitId, Comparator.reverseOrder());
+
+    private final LiveQueueStateStore liveQueueStateStore;
+    private final AnalyticsRegionsProperties regionsProperties;
+
+    /**
+     * @param region a configured region, or {@value #ALL_UNITS} for every unit with live state
+     */
+    public RegionAnalytics getRegion(String region, int top) {
+        Collection<String> healthUnitIds = ALL_UNITS.equals(region)
+                ? liveQueueStateStore.getHealthUnitIds()
+                : regionsProperties.regions().get(region);
+
+        if (healthUnitIds == null) {
+            throw new ResourceNotFoundException("Region not found: " + region);
+        }
+        return aggregate(region, healthUnitIds, top);
+    }
+
+    public RegionAnalytics aggregate(String region, Collection<String> healthUnitIds, int top) {
+        log.info("Aggregating analytics of region {} over {} units", region, healthUnitIds.size());
+
+        long now = EpochTime.now();
+        int limit = Math.clamp(top, 0, MAX_TOP);
+        Set<String> units = new LinkedHashSet<>(healthUnitIds);
+
+        AnalyticsAccumulator accumulator = AnalyticsAccumulator.ofLoads(now);
+        PriorityQueue<UnitStress> mostStressed = new PriorityQueue<>(BY_STRESS);
+
+        for (String healthUnitId : units) {
+            UnitLoad load = liveQueueStateStore.getLoad(healthUnitId, now);
+            if (load == null) continue;
+
+            accumulator.add(load);
+            if (limit > 0) {
+                mostStressed.offer(stress(load));
+                if (mostStressed.size() > limit) mostStressed.poll();
+            }
+        }
+
+        List<UnitStress> ranking = new ArrayList<>(mostStressed);
+        ranking.sort(BY_STRESS.reversed());
+
+        UnitAnalytics merged = accumulator.toUnitAnalytics(region);
+        return new RegionAnalytics(
+                region,
+                units.size(),
+                merged.generalAverageWaitTimeMinutes(),
+                merged.queueSnapshot(),
+                merged.riskPerformance(),
+                liveQueueStateStore.getWaitPercentiles(units),
+                ranking
+        );
+    }
+
+    /**
+     * Worst ratio, over the risks, between the wait (weighted average or longest in the queue) and the risk limit.
+     */
+    static UnitStress stress(UnitLoad load) {
+        double worstScore = 0;
+        RiskClassification worstRisk = null;
+        long waitingCount = 0;
+
+        for (RiskClassification risk : RISKS) {
+            int r = risk.ordinal();
+            waitingCount += load.waitingCount()[r];
+
+            double weights = load.waitingCount()[r] + load.servedWeights()[r];
+            double average = weights == 0 ? 0 : (load.waitingMinutes()[r] + load.servedWeightedWait()[r]) / weights;
+            double wait = Math.max(average, load.longestWaitingMinutes()[r]);
+            double score = wait / Math.max(1, AnalyticsAccumulator.limitWithTolerance(risk));
+
+            if (score > worstScore) {
+                worstScore = score;
+                worstRisk = risk;
+            }
+        }
+
+        long longestWaiting = worstRisk == null ? -1 : load.longestWaitingMinutes()[worstRisk.ordinal()];
+        return new UnitStress(
+                load.healthUnitId(),
+                Math.round(worstScore * 100) / 100.0,
+                worstRisk,
+                longestWaiting,
+                waitingCount,
+                worstScore > 1
+        );
+    }
+
+}
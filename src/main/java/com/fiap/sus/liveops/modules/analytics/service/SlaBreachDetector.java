@@ -0,0 +1,211 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.dto.QueueEntry;
+import com.fiap.sus.liveops.modules.analytics.event.LiveQueueResyncedEvent;
+import com.fiap.sus.liveops.modules.analytics.event.SlaBreachEvent;
+import com.fiap.sus.liveops.modules.analytics.event.SlaBreachSink;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.analytics.state.TimerWheel;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Raises an {@link SlaBreachEvent} as soon as a waiting patient crosses the limit of its risk, whether or not anyone
+ * is looking at the analytics. Each WAITING attendance gets one deadline in a {@link TimerWheel}, moved or cancelled
+ * on every change of the attendance, so a tick costs the deadlines due and not a scan of the waiting patients.
+ * <p>
+ * The deadline is the instant the "forgotten patient" flag of the analytics turns on: more than
+ * {@link AnalyticsAccumulator#limitWithTolerance} whole minutes of wait. Before a breach is raised, the live queue
+ * confirms the patient is still waiting, which also covers deletions and replays seen only by the live queue, and
+ * marks the breach as raised for as long as the patient waits. A fired timer is dropped on the tick that fires it.
+ * After a resync of the live queue, whose missed changes never reached the detector, every deadline is rescheduled.
+ * Enabled by default; disabled with {@code analytics.sla.enabled=false}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "analytics.sla.enabled", havingValue = "true", matchIfMissing = true)
+public class SlaBreachDetector {
+
+    private final LiveQueueStateStore liveQueueStateStore;
+    private final List<SlaBreachSink> sinks;
+    private final TaskScheduler taskScheduler;
+    private final long tickMillis;
+    private final Counter breaches;
+
+    private final TimerWheel<Deadline> wheel;
+    private final Map<String, TimerWheel.Timer<Deadline>> timersByAttendanceId = new HashMap<>();
+
+    private ScheduledFuture<?> ticker;
+
+    public SlaBreachDetector(
+            LiveQueueStateStore liveQueueStateStore,
+            List<SlaBreachSink> sinks,
+            TaskScheduler taskScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${analytics.sla.tick-ms:1000}") long tickMillis
+    ) {
+        this.liveQueueStateStore = liveQueueStateStore;
+        this.sinks = sinks;
+        this.taskScheduler = taskScheduler;
+        this.tickMillis = tickMillis;
+        this.wheel = new TimerWheel<>(tickMillis, EpochTime.now());
+
+        Gauge.builder("analytics.sla.pending", this, SlaBreachDetector::getPendingCount)
+                .description("Waiting patients with an SLA deadline scheduled")
+                .register(meterRegistry);
+        this.breaches = Counter.builder("analytics.sla.breaches")
+                .description("SLA breaches raised for waiting patients")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the patients already waiting once the live queue is rebuilt, then starts ticking.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int scheduled = scheduleWaiting();
+
+        ticker = taskScheduler.scheduleAtFixedRate(this::tick, Duration.ofMillis(tickMillis));
+        log.info("SLA breach detector started with {} waiting patients", scheduled);
+    }
+
+    @EventListener(LiveQueueResyncedEvent.class)
+    public void onLiveQueueResynced() {
+        synchronized (wheel) {
+            timersByAttendanceId.values().forEach(wheel::cancel);
+            timersByAttendanceId.clear();
+        }
+        int scheduled = scheduleWaiting();
+        log.info("SLA breach deadlines rescheduled for {} waiting patients after a live queue resync", scheduled);
+    }
+
+    private int scheduleWaiting() {
+        int scheduled = 0;
+        for (String healthUnitId : liveQueueStateStore.getHealthUnitIds()) {
+            for (QueueEntry entry : liveQueueStateStore.getNextWaiting(healthUnitId, Integer.MAX_VALUE)) {
+                synchronized (wheel) {
+                    schedule(new Deadline(entry.attendanceId(), healthUnitId, entry.riskClassification(),
+                            EpochTime.toMillis(entry.entryTime())));
+                }
+                scheduled++;
+            }
+        }
+        return scheduled;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+        }
+    }
+
+    @EventListener
+    public void onAttendanceChanged(AttendanceChangedEvent event) {
+        synchronized (wheel) {
+            for (Attendance attendance : event.attendances()) {
+                track(attendance);
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    void tick() {
+        tick(EpochTime.now());
+    }
+
+    void tick(long nowMillis) {
+        List<Deadline> due = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advance(nowMillis, deadline -> {
+                due.add(deadline);
+                // Unless it was rescheduled meanwhile, the fired timer is the one tracked for the attendance
+                TimerWheel.Timer<Deadline> timer = timersByAttendanceId.get(deadline.attendanceId());
+                if (timer != null && !timer.isPending()) timersByAttendanceId.remove(deadline.attendanceId());
+            });
+        }
+
+        // Sinks run outside the lock, so a slow one never delays status changes
+        for (Deadline deadline : due) {
+            // The live queue remembers the raised breach, so a replayed WAITING state scheduled again is not raised twice
+            if (liveQueueStateStore.markBreachRaised(deadline.healthUnitId(), deadline.attendanceId(), deadline.risk())) {
+                raise(deadline, nowMillis);
+            }
+        }
+    }
+
+    private void track(Attendance attendance) {
+        if (attendance.getId() == null) return;
+
+        if (attendance.getStatus() != AttendanceStatus.WAITING
+                || attendance.getRiskClassification() == null || attendance.getEntryTime() == null) {
+            TimerWheel.Timer<Deadline> timer = timersByAttendanceId.remove(attendance.getId());
+            if (timer != null) wheel.cancel(timer);
+            return;
+        }
+
+        schedule(new Deadline(attendance.getId(), attendance.getHealthUnitId(), attendance.getRiskClassification(),
+                attendance.getEntryTime().toEpochMilli()));
+    }
+
+    private void schedule(Deadline deadline) {
+        TimerWheel.Timer<Deadline> current = timersByAttendanceId.get(deadline.attendanceId());
+        if (current != null && current.getPayload().equals(deadline)) return;
+        if (current != null) wheel.cancel(current);
+
+        long limitMinutes = AnalyticsAccumulator.limitWithTolerance(deadline.risk());
+        long breachMillis = deadline.entryMillis() + (limitMinutes + 1) * EpochTime.MILLIS_PER_MINUTE;
+        timersByAttendanceId.put(deadline.attendanceId(), wheel.schedule(deadline, breachMillis));
+    }
+
+    private void raise(Deadline deadline, long nowMillis) {
+        SlaBreachEvent breach = new SlaBreachEvent(
+                deadline.attendanceId(),
+                deadline.healthUnitId(),
+                deadline.risk(),
+                EpochTime.toLocalDateTime(deadline.entryMillis()),
+                AnalyticsAccumulator.limitWithTolerance(deadline.risk()),
+                (nowMillis - deadline.entryMillis()) / EpochTime.MILLIS_PER_MINUTE,
+                EpochTime.toLocalDateTime(nowMillis)
+        );
+        breaches.increment();
+
+        for (SlaBreachSink sink : sinks) {
+            try {
+                sink.onBreach(breach);
+            } catch (RuntimeException e) {
+                log.error("SLA breach sink {} failed for attendance {}", sink.getClass().getSimpleName(), breach.attendanceId(), e);
+            }
+        }
+    }
+
+    private record Deadline(String attendanceId, String healthUnitId, RiskClassification risk, long entryMillis) {
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.core.exception.ResourceNotFoundException;
+import com.fiap.sus.liveops.modules.analytics.dto.QueueEntry;
+import com.fiap.sus.liveops.modules.analytics.dto.QueuePosition;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * "Who is next", "where am I in line" and "how long until I am called", answered from the live waiting queue of each
+ * unit, which follows every triage and status change through {@code AttendanceChangedEvent}s.
+ */
+@Service
+@RequiredArgsConstructor
+public class WaitingQueueService {
+
+    public static final int MAX_NEXT = 100;
+
+    private final LiveQueueStateStore liveQueueStateStore;
+
+    public List<QueueEntry> getNext(String healthUnitId, int limit) {
+        return liveQueueStateStore.getNextWaiting(healthUnitId, Math.clamp(limit, 1, MAX_NEXT));
+    }
+
+    /**
+     * Every waiting patient of the unit in call order, with its time-to-service estimate.
+     */
+    public List<QueueEntry> getEstimates(String healthUnitId) {
+        return liveQueueStateStore.getNextWaiting(healthUnitId, Integer.MAX_VALUE);
+    }
+
+    public QueuePosition getPosition(String healthUnitId, String attendanceId) {
+        return liveQueueStateStore.getQueuePosition(healthUnitId, attendanceId)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Attendance " + attendanceId + " is not waiting in health unit " + healthUnitId));
+    }
+
+}
@@ -0,0 +1,288 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.analytics.event.LiveQueueResyncedEvent;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import com.mongodb.MongoException;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tails the {@code attendances} change stream so writes made outside this service (other services, Mongock
+ * migrations, manual fixes) reach the live queue, the analytics cache and the SSE subscribers. Each change is
+ * republished as an {@link AttendanceChangedEvent}; listeners already tolerate replays and out-of-order states.
+ * <p>
+ * After applying changes, at most once per {@code analytics.change-stream.token-save-interval-ms} and on shutdown,
+ * the states of the units they touched and the resume token are saved in the {@link LiveQueueCheckpoints}. A
+ * restart restores the live queue from them and resumes right after the last change saved; without a checkpoint,
+ * the live queue is rebuilt from the database and the stream starts at the cluster time captured before that
+ * rebuild, replaying whatever was written during it. When the token has fallen off the oplog, the consumer starts
+ * from the current time, resynchronizes the live queue and publishes a {@link LiveQueueResyncedEvent}.
+ * <p>
+ * Requires a replica set. Enabled with {@code analytics.change-stream.enabled=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "analytics.change-stream.enabled", havingValue = "true")
+public class AttendanceChangeStreamConsumer {
+
+    private static final String ATTENDANCES_COLLECTION = "attendances";
+    private static final Set<Integer> RESUME_POINT_LOST_CODES = Set.of(
+            260, // InvalidResumeToken
+            280, // ChangeStreamFatalError
+            286  // ChangeStreamHistoryLost
+    );
+    private static final List<Bson> PIPELINE = List.of(Aggregates.match(Filters.in("operationType",
+            List.of("insert", "update", "replace", "delete"))));
+
+    private final MongoTemplate mongoTemplate;
+    private final LiveQueueStateStore liveQueueStateStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LiveQueueCheckpoints checkpoints;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter changes;
+
+    @Value("${analytics.change-stream.token-save-interval-ms:1000}")
+    private long tokenSaveIntervalMillis;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    private volatile BsonDocument resumeToken;
+    private BsonTimestamp startAt;
+    private boolean resyncPending;
+
+    // Units changed since the last checkpoint; all of them when the saved states no longer match the live queue
+    private final Set<String> dirtyUnits = new HashSet<>();
+    private boolean fullCheckpointPending;
+    private BsonDocument savedToken;
+    private long lastSaveMillis;
+
+    public AttendanceChangeStreamConsumer(
+            MongoTemplate mongoTemplate,
+            LiveQueueStateStore liveQueueStateStore,
+            ApplicationEventPublisher eventPublisher,
+            LiveQueueCheckpoints checkpoints,
+            MeterRegistry meterRegistry
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.liveQueueStateStore = liveQueueStateStore;
+        this.eventPublisher = eventPublisher;
+        this.checkpoints = checkpoints;
+
+        Gauge.builder("analytics.change_stream.lag", lagMillis, AtomicLong::get)
+                .description("Delay between a change being written and being applied, for the last change consumed")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.changes = Counter.builder("analytics.change_stream.changes")
+                .description("Attendance changes consumed from the change stream")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Captures the cluster time before Mongock runs and the live queue is rebuilt, so a start without a checkpoint
+     * still sees every write made from then on, including the ones the rebuild scan missed.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void captureStartTime() {
+        Document hello = mongoTemplate.executeCommand(new Document("hello", 1));
+        startAt = hello.get("operationTime", BsonTimestamp.class);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Set when the live queue was restored from the checkpoint; otherwise it was rebuilt and is saved whole
+        resumeToken = checkpoints.getRestoredToken();
+        savedToken = resumeToken;
+        fullCheckpointPending = resumeToken == null;
+
+        running = true;
+        worker = Thread.ofPlatform().name("attendance-change-stream").daemon().start(this::run);
+
+        if (resumeToken != null) {
+            log.info("Attendance change stream resumed from the saved resume token");
+        } else {
+            log.info("Attendance change stream started from cluster time {}", startAt);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // Only once the worker is done, so the states saved match the token
+        if (worker == null || !worker.isAlive()) {
+            checkpoint();
+        }
+    }
+
+    public long getLagMillis() {
+        return lagMillis.get();
+    }
+
+    private void run() {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open()) {
+                consume(cursor);
+            } catch (MongoServerException e) {
+                if (!RESUME_POINT_LOST_CODES.contains(e.getCode())) {
+                    retryLater(e);
+                    continue;
+                }
+                log.warn("Change stream resume point lost (code {}), restarting from now and resynchronizing", e.getCode());
+                resumeToken = null;
+                startAt = null;
+                resyncPending = true;
+            } catch (MongoException e) {
+                retryLater(e);
+            }
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        var stream = mongoTemplate.getCollection(ATTENDANCES_COLLECTION)
+                .watch(PIPELINE)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        } else if (startAt != null) {
+            stream = stream.startAtOperationTime(startAt);
+        }
+
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor();
+
+        // Opened first, so whatever changes during the resync is still replayed afterwards
+        if (resyncPending) {
+            liveQueueStateStore.resync();
+            resyncPending = false;
+            fullCheckpointPending = true;
+            eventPublisher.publishEvent(new LiveQueueResyncedEvent());
+        }
+        return cursor;
+    }
+
+    private void consume(MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor) {
+        while (running) {
+            ChangeStreamDocument<Document> change = cursor.tryNext();
+            if (change != null) {
+                handle(change);
+            } else if (cursor.getResumeToken() != null) {
+                // Post-batch token: keeps advancing while idle, so a reconnect does not rescan unrelated oplog entries
+                resumeToken = cursor.getResumeToken();
+            }
+
+            if (EpochTime.now() - lastSaveMillis >= tokenSaveIntervalMillis) {
+                checkpoint();
+            }
+        }
+    }
+
+    void handle(ChangeStreamDocument<Document> change) {
+        OperationType operation = change.getOperationType();
+
+        if (operation == OperationType.DELETE) {
+            liveQueueStateStore.remove(documentId(change.getDocumentKey())).ifPresent(healthUnitId -> {
+                dirtyUnits.add(healthUnitId);
+                eventPublisher.publishEvent(new AttendanceChangedEvent(healthUnitId, List.of()));
+            });
+        } else if (change.getFullDocument() != null) {
+            // A null full document means it was deleted before the lookup; its delete event follows
+            Attendance attendance = mongoTemplate.getConverter().read(Attendance.class, change.getFullDocument());
+            dirtyUnits.add(attendance.getHealthUnitId());
+            eventPublisher.publishEvent(AttendanceChangedEvent.of(attendance));
+        }
+
+        resumeToken = change.getResumeToken();
+        changes.increment();
+        lagMillis.set(Math.max(0, EpochTime.now() - writtenAtMillis(change)));
+    }
+
+    /**
+     * Saves the units changed since the last checkpoint, or all of them after a rebuild or a resync, then the
+     * resume token they are up to date with. A failure is retried on the next checkpoint.
+     */
+    void checkpoint() {
+        BsonDocument token = resumeToken;
+        lastSaveMillis = EpochTime.now();
+        if (token == null || (!fullCheckpointPending && dirtyUnits.isEmpty() && token.equals(savedToken))) return;
+
+        try {
+            if (fullCheckpointPending) {
+                checkpoints.saveAll(liveQueueStateStore.getStates(), token);
+            } else {
+                List<UnitLiveState> changed = dirtyUnits.stream()
+                        .map(liveQueueStateStore::getState)
+                        .filter(Objects::nonNull)
+                        .toList();
+                checkpoints.save(changed, token);
+            }
+            fullCheckpointPending = false;
+            dirtyUnits.clear();
+            savedToken = token;
+        } catch (MongoException e) {
+            log.warn("Could not save the live queue checkpoint: {}", e.getMessage());
+        }
+    }
+
+    private static long writtenAtMillis(ChangeStreamDocument<Document> change) {
+        if (change.getWallTime() != null) {
+            return change.getWallTime().getValue();
+        }
+        return change.getClusterTime() == null ? EpochTime.now() : change.getClusterTime().getTime() * 1000L;
+    }
+
+    private static String documentId(BsonDocument documentKey) {
+        BsonValue id = documentKey.get("_id");
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    private void retryLater(MongoException e) {
+        log.warn("Attendance change stream interrupted, retrying: {}", e.getMessage());
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+}
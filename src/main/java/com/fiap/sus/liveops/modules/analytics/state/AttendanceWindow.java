@@ -0,0 +1,293 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import lombok.Getter;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Attendances of one unit that entered within the retention (the longest analysis window, see {@link DecayProfiles}),
+ * in arrival order, kept as parallel primitive columns of a ring buffer instead of one object per attendance:
+ * <ul>
+ *     <li>{@code entryMillis} ({@code long}) and the start and discharge as {@code int} millis after the entry;</li>
+ *     <li>status and risk as their ordinal ({@code byte});</li>
+ *     <li>a 64-bit hash of the id ({@code long}), found through an open-addressing index of slots ({@code int}).</li>
+ * </ul>
+ * That is 26 bytes per slot plus 4 to 8 of index, so a scan of the window reads a few contiguous arrays.
+ * <p>
+ * Triage appends, status changes patch the slot in place and entries leave from the head once older than the
+ * retention. An entry appended out of order (e.g. replayed by the change stream) only leaves when the head reaches it,
+ * so scans compare each entry time with their cutoff, which also serves units whose window is shorter. Not thread safe: guarded by the lock of {@link UnitLiveState}.
+ */
+public final class AttendanceWindow implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // Timestamp not set (e.g. start of a patient still waiting)
+    public static final long ABSENT = Long.MIN_VALUE;
+
+    static final int BYTES_PER_SLOT = Long.BYTES + 2 * Integer.BYTES + 2 * Byte.BYTES + Long.BYTES;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+    private static final byte REMOVED = -1;
+    private static final int EMPTY = -1;
+    private static final AttendanceStatus[] STATUSES = AttendanceStatus.values();
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+
+    /**
+     * Receives the entries of a scan. Absent timestamps are {@link #ABSENT}.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(AttendanceStatus status, RiskClassification risk, long entryMillis, long startMillis, long dischargeMillis);
+    }
+
+    private long[] keys;
+    private long[] entryMillis;
+    private int[] startOffsets;
+    private int[] dischargeOffsets;
+    private byte[] statuses;
+    private byte[] risks;
+
+    // Physical slot of each key, EMPTY when free; linear probing
+    private int[] index;
+
+    @Getter
+    private final long retentionMillis;
+
+    private int head;
+    private int size;
+    private int live;
+
+    AttendanceWindow(long retentionMillis) {
+        this.retentionMillis = retentionMillis;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Appends a new attendance or patches the known one. A status older than the one already stored (e.g. WAITING
+     * after IN_PROGRESS) is ignored, as are attendances that entered before the window.
+     */
+    void apply(Attendance attendance, long nowMillis) {
+        trim(nowMillis);
+
+        long key = keyOf(attendance.getId());
+        int slot = find(key);
+        if (slot != EMPTY) {
+            if (attendance.getStatus().ordinal() < statuses[slot]) return;
+            write(slot, attendance);
+            return;
+        }
+
+        long entry = attendance.getEntryTime().toEpochMilli();
+        if (entry <= nowMillis - retentionMillis) return;
+
+        if (size == keys.length) allocate(keys.length + (keys.length >> 1));
+        slot = physical(size);
+        keys[slot] = key;
+        entryMillis[slot] = entry;
+        write(slot, attendance);
+        insertIndex(key, slot);
+        size++;
+        live++;
+    }
+
+    /**
+     * Forgets a deleted attendance; its slot is reclaimed when it reaches the head.
+     *
+     * @return whether it was in the window
+     */
+    boolean remove(String attendanceId) {
+        long key = keyOf(attendanceId);
+        int slot = find(key);
+        if (slot == EMPTY) return false;
+
+        statuses[slot] = REMOVED;
+        deleteIndex(key);
+        live--;
+        return true;
+    }
+
+    /**
+     * Visits every attendance that entered after {@code cutoffMillis}, in arrival order.
+     *
+     * @return how many were visited
+     */
+    int scan(long nowMillis, long cutoffMillis, Visitor visitor) {
+        trim(nowMillis);
+
+        int visited = 0;
+        int slot = head;
+        for (int i = 0; i < size; i++) {
+            long entry = entryMillis[slot];
+            byte status = statuses[slot];
+            if (status != REMOVED && entry > cutoffMillis) {
+                visitor.visit(STATUSES[status], RISKS[risks[slot]], entry,
+                        restore(entry, startOffsets[slot]), restore(entry, dischargeOffsets[slot]));
+                visited++;
+            }
+            if (++slot == keys.length) slot = 0;
+        }
+        return visited;
+    }
+
+    /**
+     * Attendances held, removed ones excluded.
+     */
+    int size() {
+        return live;
+    }
+
+    /**
+     * Heap taken by the columns and the index, array headers aside.
+     */
+    long footprintBytes() {
+        return (long) keys.length * BYTES_PER_SLOT + (long) index.length * Integer.BYTES;
+    }
+
+    private void write(int slot, Attendance attendance) {
+        long entry = entryMillis[slot];
+        statuses[slot] = (byte) attendance.getStatus().ordinal();
+        risks[slot] = (byte) attendance.getRiskClassification().ordinal();
+        startOffsets[slot] = offset(entry, attendance.getStartTime());
+        dischargeOffsets[slot] = offset(entry, attendance.getDischargeTime());
+    }
+
+    // Drops the head while it is removed or older than the retention
+    private void trim(long nowMillis) {
+        long cutoff = nowMillis - retentionMillis;
+        int trimmed = 0;
+        while (size > 0 && (statuses[head] == REMOVED || entryMillis[head] <= cutoff)) {
+            if (statuses[head] != REMOVED) {
+                deleteIndex(keys[head]);
+                live--;
+            }
+            if (++head == keys.length) head = 0;
+            size--;
+            trimmed++;
+        }
+        if (trimmed == 0) return;
+
+        // Halves while less than a quarter full, so a quiet night gives the memory back at once
+        int capacity = keys.length;
+        while (capacity > MIN_CAPACITY && size < capacity / 4) capacity = Math.max(MIN_CAPACITY, capacity / 2);
+        if (capacity < keys.length) allocate(capacity);
+    }
+
+    private int physical(int position) {
+        int slot = head + position;
+        return slot >= keys.length ? slot - keys.length : slot;
+    }
+
+    // Moves the entries, oldest first, into new columns and re-indexes them
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldEntries = entryMillis;
+        int[] oldStarts = startOffsets;
+        int[] oldDischarges = dischargeOffsets;
+        byte[] oldStatuses = statuses;
+        byte[] oldRisks = risks;
+        int oldHead = head;
+
+        keys = new long[capacity];
+        entryMillis = new long[capacity];
+        startOffsets = new int[capacity];
+        dischargeOffsets = new int[capacity];
+        statuses = new byte[capacity];
+        risks = new byte[capacity];
+        // Load factor of at most 3/4 when the ring is full
+        index = new int[Integer.highestOneBit(capacity * 4 / 3 + 1) << 1];
+        Arrays.fill(index, EMPTY);
+        head = 0;
+
+        if (oldKeys == null) return;
+
+        int moved = 0;
+        int slot = oldHead;
+        for (int i = 0; i < size; i++) {
+            if (oldStatuses[slot] != REMOVED) {
+                keys[moved] = oldKeys[slot];
+                entryMillis[moved] = oldEntries[slot];
+                startOffsets[moved] = oldStarts[slot];
+                dischargeOffsets[moved] = oldDischarges[slot];
+                statuses[moved] = oldStatuses[slot];
+                risks[moved] = oldRisks[slot];
+                insertIndex(keys[moved], moved);
+                moved++;
+            }
+            if (++slot == oldKeys.length) slot = 0;
+        }
+        size = moved;
+    }
+
+    private int find(long key) {
+        int mask = index.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            int slot = index[i];
+            if (slot == EMPTY) return EMPTY;
+            if (keys[slot] == key) return slot;
+        }
+    }
+
+    private void insertIndex(long key, int slot) {
+        int mask = index.length - 1;
+        int i = hash(key) & mask;
+        while (index[i] != EMPTY) i = (i + 1) & mask;
+        index[i] = slot;
+    }
+
+    // Backward-shift deletion, so probes never stop at a hole left by a deleted key
+    private void deleteIndex(long key) {
+        int mask = index.length - 1;
+        int i = hash(key) & mask;
+        while (index[i] != EMPTY && keys[index[i]] != key) i = (i + 1) & mask;
+        if (index[i] == EMPTY) return;
+
+        int hole = i;
+        for (int j = (hole + 1) & mask; index[j] != EMPTY; j = (j + 1) & mask) {
+            int home = hash(keys[index[j]]) & mask;
+            // Shift j into the hole unless its home lies cyclically in (hole, j]
+            boolean stays = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (!stays) {
+                index[hole] = index[j];
+                hole = j;
+            }
+        }
+        index[hole] = EMPTY;
+    }
+
+    private static int offset(long entryMillis, Instant time) {
+        if (time == null) return NO_OFFSET;
+        long offset = time.toEpochMilli() - entryMillis;
+        // About 24 days either way, far beyond an attendance that is still in the window
+        return (int) Math.max(NO_OFFSET + 1, Math.min(Integer.MAX_VALUE, offset));
+    }
+
+    private static long restore(long entryMillis, int offset) {
+        return offset == NO_OFFSET ? ABSENT : entryMillis + offset;
+    }
+
+    private static int hash(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+
+    // 64-bit FNV-1a of the id, finalized with the SplitMix64 mixer; collisions are negligible at window sizes
+    static long keyOf(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.shared.enums.DecayFunction;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * Analysis window and decay curve of a unit, with the weight of every whole minute of the window precomputed, so
+ * weighting an attendance is an array read instead of a floating-point division (or {@code Math.pow}) per row.
+ * A 12-hour window is a table of 721 doubles, about 6 KB, shared by every unit of the class.
+ */
+@EqualsAndHashCode
+public final class DecayProfile implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The original analytics: a 12-hour window weighted by {@code 1 / (1 + hoursAgo)}.
+     */
+    public static final DecayProfile DEFAULT = new DecayProfile(12, DecayFunction.HYPERBOLIC, 60);
+
+    @Getter
+    private final DecayFunction function;
+    @Getter
+    private final int halfLifeMinutes;
+    @Getter
+    private final long windowMillis;
+
+    // Derived from the three fields above
+    @EqualsAndHashCode.Exclude
+    private final double[] weightByMinute;
+
+    public DecayProfile(int windowHours, DecayFunction function, int halfLifeMinutes) {
+        if (windowHours <= 0) throw new IllegalArgumentException("Analysis window must be positive: " + windowHours);
+        if (halfLifeMinutes <= 0) throw new IllegalArgumentException("Half-life must be positive: " + halfLifeMinutes);
+
+        this.function = function;
+        this.halfLifeMinutes = halfLifeMinutes;
+        this.windowMillis = Duration.ofHours(windowHours).toMillis();
+
+        this.weightByMinute = new double[windowHours * 60 + 1];
+        for (int minute = 0; minute < weightByMinute.length; minute++) {
+            weightByMinute[minute] = function.weight(minute, halfLifeMinutes);
+        }
+    }
+
+    /**
+     * Weight of an attendance served {@code minutesAgo} whole minutes ago; 1 for a time ahead of "now" (clock skew).
+     */
+    public double weight(long minutesAgo) {
+        if (minutesAgo <= 0) return 1.0;
+        return minutesAgo < weightByMinute.length ? weightByMinute[(int) minutesAgo] : function.weight(minutesAgo, halfLifeMinutes);
+    }
+
+    /**
+     * Entries at or before this instant are out of the window.
+     */
+    public long windowStart(long nowMillis) {
+        return nowMillis - windowMillis;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.core.config.AnalyticsDecayProperties;
+import com.fiap.sus.liveops.shared.enums.UnitClass;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link DecayProfile} of every unit, from its {@link UnitClass} in {@link AnalyticsDecayProperties}. The in-memory
+ * analysis windows keep the longest configured window, so every class can be answered from them.
+ */
+@Component
+public class DecayProfiles {
+
+    private final Map<UnitClass, DecayProfile> profileByClass = new EnumMap<>(UnitClass.class);
+    private final Map<String, UnitClass> classByUnit = new HashMap<>();
+    private final UnitClass defaultClass;
+    private final long maxWindowMillis;
+
+    public DecayProfiles(AnalyticsDecayProperties properties) {
+        this.defaultClass = properties.defaultClass();
+
+        properties.classes().forEach((unitClass, curve) -> profileByClass.put(unitClass,
+                new DecayProfile(curve.windowHours(), curve.function(), curve.halfLifeMinutes())));
+
+        properties.units().forEach((unitClass, healthUnitIds) -> {
+            for (String healthUnitId : healthUnitIds) {
+                UnitClass previous = classByUnit.put(healthUnitId, unitClass);
+                if (previous != null && previous != unitClass) {
+                    throw new IllegalArgumentException("Unit " + healthUnitId + " is both " + previous + " and " + unitClass);
+                }
+            }
+        });
+
+        this.maxWindowMillis = profileByClass.values().stream().mapToLong(DecayProfile::getWindowMillis).max().orElseThrow();
+    }
+
+    /**
+     * Every class with the original 12-hour window and {@code 1 / (1 + hoursAgo)}.
+     */
+    public static DecayProfiles defaults() {
+        return new DecayProfiles(new AnalyticsDecayProperties(null, null, null));
+    }
+
+    public UnitClass classOf(String healthUnitId) {
+        return classByUnit.getOrDefault(healthUnitId, defaultClass);
+    }
+
+    public DecayProfile of(String healthUnitId) {
+        return profileByClass.get(classOf(healthUnitId));
+    }
+
+    public long getMaxWindowMillis() {
+        return maxWindowMillis;
+    }
+
+}
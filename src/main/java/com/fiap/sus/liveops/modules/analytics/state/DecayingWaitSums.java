@@ -0,0 +1,176 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Recency-weighted sums of the served waits per risk under exponential decay: since
+ * {@code 0.5 ^ ((now - t) / h) = 0.5 ^ ((now - last) / h) * 0.5 ^ ((last - t) / h)}, decaying the sums as a whole
+ * is the same as re-weighting every wait, so each wait is added once and the weighted average is read in O(1),
+ * with no slots to walk. The waits are also kept per 15-minute slot of their service start, weighted at the start
+ * of the slot, so a slot that falls out of the window is subtracted from the sums, as {@link ServedWaitSlots} drops
+ * it. Not thread safe: guarded by {@link UnitLiveState}.
+ */
+final class DecayingWaitSums implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+
+    private final double lambdaPerMilli;
+    private final int slots;
+
+    private final double[] weightedWaitByRisk = new double[RISKS.length];
+    private final double[] weightsByRisk = new double[RISKS.length];
+
+    // Each slot weighted at its own start, so the factor stays within one slot of decay
+    private final long[] slotIds;
+    private final double[][] slotWeightedWait;
+    private final double[][] slotWeights;
+    private int liveSlots;
+
+    // Instant the sums are weighted at
+    private long referenceMillis = Long.MIN_VALUE;
+    // Slots before this one were already subtracted
+    private long oldestLiveSlotId = Long.MIN_VALUE;
+
+    DecayingWaitSums(int halfLifeMinutes, long windowMillis) {
+        this(Math.log(2) / (halfLifeMinutes * (double) EpochTime.MILLIS_PER_MINUTE),
+                (int) Math.ceilDiv(windowMillis, ServedWaitSlots.SLOT_MILLIS));
+    }
+
+    private DecayingWaitSums(double lambdaPerMilli, int slots) {
+        this.lambdaPerMilli = lambdaPerMilli;
+        this.slots = slots;
+        this.slotIds = new long[slots];
+        this.slotWeightedWait = new double[RISKS.length][slots];
+        this.slotWeights = new double[RISKS.length][slots];
+        Arrays.fill(slotIds, -1);
+    }
+
+    void record(RiskClassification risk, long waitMinutes, long startMillis) {
+        long slotId = startMillis / ServedWaitSlots.SLOT_MILLIS;
+        if (referenceMillis == Long.MIN_VALUE) {
+            referenceMillis = startMillis;
+            oldestLiveSlotId = slotId - slots + 1;
+        }
+        if (startMillis > referenceMillis) {
+            decayTo(startMillis);
+            expireBefore(slotId - slots + 1);
+        }
+        // Already out of the window
+        if (slotId < oldestLiveSlotId) return;
+
+        int position = (int) (slotId % slots);
+        if (slotIds[position] != slotId) {
+            slotIds[position] = slotId;
+            liveSlots++;
+        }
+
+        double wait = Math.max(0, waitMinutes);
+        double inSlotWeight = Math.exp(lambdaPerMilli * (startMillis - slotStartMillis(slotId)));
+        slotWeightedWait[risk.ordinal()][position] += wait * inSlotWeight;
+        slotWeights[risk.ordinal()][position] += inSlotWeight;
+
+        // A start older than the reference (out of order) enters already decayed
+        double weight = Math.exp(-lambdaPerMilli * (referenceMillis - startMillis));
+        weightedWaitByRisk[risk.ordinal()] += wait * weight;
+        weightsByRisk[risk.ordinal()] += weight;
+    }
+
+    /**
+     * Adds the sums weighted at {@code nowMillis}, without moving the reference. Slots that left the window since the
+     * last record are left out here and subtracted by the next one.
+     */
+    void addWeighted(long nowMillis, double[] weightedWait, double[] weights) {
+        if (referenceMillis == Long.MIN_VALUE) return;
+
+        long oldestSlotId = nowMillis / ServedWaitSlots.SLOT_MILLIS - slots + 1;
+        if (oldestSlotId - oldestLiveSlotId >= slots) return;
+
+        double factor = Math.exp(-lambdaPerMilli * Math.max(0, nowMillis - referenceMillis));
+        for (int r = 0; r < RISKS.length; r++) {
+            double weightedWaitAtReference = weightedWaitByRisk[r];
+            double weightsAtReference = weightsByRisk[r];
+            for (long slotId = oldestLiveSlotId; slotId < oldestSlotId; slotId++) {
+                int position = (int) (slotId % slots);
+                if (slotIds[position] != slotId) continue;
+
+                double slotFactor = slotFactor(slotId);
+                weightedWaitAtReference -= slotWeightedWait[r][position] * slotFactor;
+                weightsAtReference -= slotWeights[r][position] * slotFactor;
+            }
+            weightedWait[r] += Math.max(0, weightedWaitAtReference) * factor;
+            weights[r] += Math.max(0, weightsAtReference) * factor;
+        }
+    }
+
+    private void decayTo(long millis) {
+        double factor = Math.exp(-lambdaPerMilli * (millis - referenceMillis));
+        for (int r = 0; r < RISKS.length; r++) {
+            weightedWaitByRisk[r] *= factor;
+            weightsByRisk[r] *= factor;
+        }
+        referenceMillis = millis;
+    }
+
+    private void expireBefore(long oldestSlotId) {
+        if (oldestSlotId <= oldestLiveSlotId) return;
+
+        // Past a full ring every slot is expired, whatever its id
+        long firstSlotId = Math.max(oldestLiveSlotId, oldestSlotId - slots);
+        for (long slotId = firstSlotId; slotId < oldestSlotId && liveSlots > 0; slotId++) {
+            int position = (int) (slotId % slots);
+            if (slotIds[position] == slotId) subtract(position);
+        }
+        oldestLiveSlotId = oldestSlotId;
+
+        // Nothing left to weigh: drop the rounding the subtractions leave behind
+        if (liveSlots == 0) {
+            Arrays.fill(weightedWaitByRisk, 0);
+            Arrays.fill(weightsByRisk, 0);
+        }
+    }
+
+    private void subtract(int position) {
+        double slotFactor = slotFactor(slotIds[position]);
+        for (int r = 0; r < RISKS.length; r++) {
+            weightedWaitByRisk[r] = Math.max(0, weightedWaitByRisk[r] - slotWeightedWait[r][position] * slotFactor);
+            weightsByRisk[r] = Math.max(0, weightsByRisk[r] - slotWeights[r][position] * slotFactor);
+            slotWeightedWait[r][position] = 0;
+            slotWeights[r][position] = 0;
+        }
+        slotIds[position] = -1;
+        liveSlots--;
+    }
+
+    // Weight at the reference of a wait that started at the start of the slot
+    private double slotFactor(long slotId) {
+        return Math.exp(-lambdaPerMilli * (referenceMillis - slotStartMillis(slotId)));
+    }
+
+    private static long slotStartMillis(long slotId) {
+        return slotId * ServedWaitSlots.SLOT_MILLIS;
+    }
+
+    DecayingWaitSums copy() {
+        DecayingWaitSums copy = new DecayingWaitSums(lambdaPerMilli, slots);
+        System.arraycopy(weightedWaitByRisk, 0, copy.weightedWaitByRisk, 0, RISKS.length);
+        System.arraycopy(weightsByRisk, 0, copy.weightsByRisk, 0, RISKS.length);
+        System.arraycopy(slotIds, 0, copy.slotIds, 0, slots);
+        for (int r = 0; r < RISKS.length; r++) {
+            System.arraycopy(slotWeightedWait[r], 0, copy.slotWeightedWait[r], 0, slots);
+            System.arraycopy(slotWeights[r], 0, copy.slotWeights[r], 0, slots);
+        }
+        copy.liveSlots = liveSlots;
+        copy.referenceMillis = referenceMillis;
+        copy.oldestLiveSlotId = oldestLiveSlotId;
+        return copy;
+    }
+
+}
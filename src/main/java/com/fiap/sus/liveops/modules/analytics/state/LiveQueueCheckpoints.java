@@ -0,0 +1,173 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Durable copy of the live queue for the change stream consumer: the resume token of the last change applied, in
+ * {@value #TOKENS_COLLECTION}, and the serialized {@link UnitLiveState} of every unit as of that change, in
+ * {@value #STATES_COLLECTION}. A restart restores the states and resumes the stream from the token, replaying only
+ * the changes made since, instead of rescanning the analysis windows.
+ * <p>
+ * The states of a partial save are written before the token, so after a crash in between the stream replays
+ * changes the states already hold, which the live queue ignores. A full save removes the token first: until it
+ * completes, the next start rebuilds from the database.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "analytics.change-stream.enabled", havingValue = "true")
+public class LiveQueueCheckpoints {
+
+    public static final String TOKENS_COLLECTION = "change_stream_resume_tokens";
+    public static final String STATES_COLLECTION = "live_queue_checkpoints";
+    public static final String CONSUMER_ID = "attendances-live-state";
+
+    // Only the classes of the live state are ever read back
+    private static final ObjectInputFilter STATE_CLASSES = ObjectInputFilter.Config.createFilter(
+            "com.fiap.sus.liveops.modules.analytics.state.*;com.fiap.sus.liveops.shared.enums.*;"
+                    + "java.util.HashMap;java.util.HashSet;java.util.Map$Entry;java.lang.String;java.lang.Enum;java.lang.Record;!*");
+
+    private final MongoCollection<BsonDocument> tokens;
+    private final MongoCollection<Document> states;
+
+    private volatile BsonDocument restoredToken;
+
+    public LiveQueueCheckpoints(MongoTemplate mongoTemplate) {
+        this.tokens = mongoTemplate.getDb().getCollection(TOKENS_COLLECTION, BsonDocument.class);
+        this.states = mongoTemplate.getCollection(STATES_COLLECTION);
+    }
+
+    /**
+     * Reads the last checkpoint into the live queue.
+     *
+     * @return whether it was restored; false when there is none, it cannot be read or it was taken with another
+     * decay configuration, in which case the live queue is left untouched
+     */
+    public boolean restoreInto(LiveQueueStateStore store) {
+        try {
+            BsonDocument saved = tokens.find(Filters.eq("_id", CONSUMER_ID)).first();
+            if (saved == null) return false;
+
+            List<UnitLiveState> restored = new ArrayList<>();
+            for (Document document : states.find()) {
+                restored.add(deserialize(document.get("state", Binary.class).getData()));
+            }
+            if (!store.restore(restored)) {
+                log.info("Live queue checkpoint ignored: the decay configuration changed since it was taken");
+                return false;
+            }
+
+            restoredToken = saved.getDocument("token");
+            log.info("Live queue restored from the checkpoint of {} units", restored.size());
+            return true;
+        } catch (MongoException | UncheckedIOException | ClassCastException e) {
+            log.warn("Could not restore the live queue checkpoint, rebuilding: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return the token of the restored checkpoint, or {@code null} when the live queue was rebuilt instead
+     */
+    public BsonDocument getRestoredToken() {
+        return restoredToken;
+    }
+
+    /**
+     * Saves the given states, then the token they are up to date with.
+     */
+    public void save(Collection<UnitLiveState> changed, BsonDocument token) {
+        if (!changed.isEmpty()) {
+            states.bulkWrite(replacements(changed));
+        }
+        saveToken(token);
+    }
+
+    /**
+     * Replaces the whole checkpoint, e.g. after a rebuild or a resync.
+     */
+    public void saveAll(Collection<UnitLiveState> all, BsonDocument token) {
+        tokens.deleteOne(Filters.eq("_id", CONSUMER_ID));
+
+        List<String> healthUnitIds = all.stream().map(UnitLiveState::getHealthUnitId).toList();
+        states.deleteMany(Filters.nin("_id", healthUnitIds));
+        if (!all.isEmpty()) {
+            states.bulkWrite(replacements(all));
+        }
+        saveToken(token);
+    }
+
+    public void saveToken(BsonDocument token) {
+        if (token == null) return;
+
+        tokens.replaceOne(
+                Filters.eq("_id", CONSUMER_ID),
+                new BsonDocument("_id", new BsonString(CONSUMER_ID))
+                        .append("token", token)
+                        .append("updatedAt", new BsonDateTime(System.currentTimeMillis())),
+                new ReplaceOptions().upsert(true)
+        );
+    }
+
+    private static List<WriteModel<Document>> replacements(Collection<UnitLiveState> changed) {
+        Date now = new Date();
+        List<WriteModel<Document>> writes = new ArrayList<>(changed.size());
+        for (UnitLiveState state : changed) {
+            writes.add(new ReplaceOneModel<>(
+                    Filters.eq("_id", state.getHealthUnitId()),
+                    new Document("_id", state.getHealthUnitId())
+                            .append("state", new Binary(serialize(state)))
+                            .append("updatedAt", now),
+                    new ReplaceOptions().upsert(true)
+            ));
+        }
+        return writes;
+    }
+
+    static byte[] serialize(UnitLiveState state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static UnitLiveState deserialize(byte[] data) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            in.setObjectInputFilter(STATE_CLASSES);
+            return (UnitLiveState) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new UncheckedIOException(new IOException(e));
+        }
+    }
+
+}
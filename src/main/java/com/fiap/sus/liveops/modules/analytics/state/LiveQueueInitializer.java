@@ -0,0 +1,32 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the live queue once the application is ready, before the listeners that read it: from the last checkpoint
+ * of the change stream consumer when there is one ({@link LiveQueueCheckpoints}), otherwise by a full rebuild from
+ * the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class LiveQueueInitializer {
+
+    private final LiveQueueStateStore liveQueueStateStore;
+    private final ObjectProvider<LiveQueueCheckpoints> checkpoints;
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        LiveQueueCheckpoints available = checkpoints.getIfAvailable();
+        if (available == null || !available.restoreInto(liveQueueStateStore)) {
+            liveQueueStateStore.rebuild();
+        }
+    }
+
+}
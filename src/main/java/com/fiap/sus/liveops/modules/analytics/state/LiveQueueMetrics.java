@@ -0,0 +1,141 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Live queue gauges with bounded cardinality, refreshed every {@code analytics.metrics.refresh-ms} from the live
+ * state instead of one gauge per unit:
+ * <ul>
+ *     <li>{@code analytics.queue.waiting{risk}}: patients waiting in the whole network, one series per risk.</li>
+ *     <li>{@code analytics.unit.waiting{unit,risk}} and {@code analytics.unit.longest_wait{unit,risk}}: only for the
+ *     {@code analytics.metrics.top-units} units with the most patients waiting. Units leaving the top are removed,
+ *     so the number of series never exceeds top-units × risks.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class LiveQueueMetrics {
+
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+    private static final Comparator<UnitLoad> BY_WAITING = Comparator.comparingLong(LiveQueueMetrics::totalWaiting);
+
+    private final LiveQueueStateStore liveQueueStateStore;
+    private final TaskScheduler taskScheduler;
+    private final int topUnits;
+    private final long refreshMillis;
+
+    private final long[] waitingByRisk = new long[RISKS.length];
+    private final MultiGauge unitWaiting;
+    private final MultiGauge unitLongestWait;
+
+    private ScheduledFuture<?> refresher;
+
+    public LiveQueueMetrics(
+            LiveQueueStateStore liveQueueStateStore,
+            TaskScheduler taskScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${analytics.metrics.top-units:20}") int topUnits,
+            @Value("${analytics.metrics.refresh-ms:15000}") long refreshMillis
+    ) {
+        this.liveQueueStateStore = liveQueueStateStore;
+        this.taskScheduler = taskScheduler;
+        this.topUnits = topUnits;
+        this.refreshMillis = refreshMillis;
+
+        for (RiskClassification risk : RISKS) {
+            Gauge.builder("analytics.queue.waiting", this, metrics -> metrics.getWaiting(risk))
+                    .description("Patients waiting in every unit")
+                    .tag("risk", risk.name())
+                    .register(meterRegistry);
+        }
+        this.unitWaiting = MultiGauge.builder("analytics.unit.waiting")
+                .description("Patients waiting in the units with the longest queues")
+                .register(meterRegistry);
+        this.unitLongestWait = MultiGauge.builder("analytics.unit.longest_wait")
+                .description("Wait of the patient waiting the longest, in the units with the longest queues")
+                .baseUnit("minutes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        refresher = taskScheduler.scheduleAtFixedRate(this::refresh, Duration.ofMillis(refreshMillis));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.cancel(false);
+        }
+    }
+
+    void refresh() {
+        long nowMillis = EpochTime.now();
+        long[] totals = new long[RISKS.length];
+
+        // Bounded min-heap: the unit with the shortest queue among the top is evicted first
+        PriorityQueue<UnitLoad> top = new PriorityQueue<>(topUnits + 1, BY_WAITING);
+        for (String healthUnitId : liveQueueStateStore.getHealthUnitIds()) {
+            UnitLoad load = liveQueueStateStore.getLoad(healthUnitId, nowMillis);
+            if (load == null) continue;
+
+            for (int r = 0; r < RISKS.length; r++) {
+                totals[r] += load.waitingCount()[r];
+            }
+            if (topUnits > 0 && totalWaiting(load) > 0) {
+                top.add(load);
+                if (top.size() > topUnits) top.poll();
+            }
+        }
+
+        synchronized (waitingByRisk) {
+            System.arraycopy(totals, 0, waitingByRisk, 0, totals.length);
+        }
+
+        List<MultiGauge.Row<?>> waitingRows = new ArrayList<>(top.size() * RISKS.length);
+        List<MultiGauge.Row<?>> longestWaitRows = new ArrayList<>(top.size() * RISKS.length);
+        for (UnitLoad load : top) {
+            for (RiskClassification risk : RISKS) {
+                Tags tags = Tags.of("unit", load.healthUnitId(), "risk", risk.name());
+                waitingRows.add(MultiGauge.Row.of(tags, load.waitingCount()[risk.ordinal()]));
+                longestWaitRows.add(MultiGauge.Row.of(tags, Math.max(0, load.longestWaitingMinutes()[risk.ordinal()])));
+            }
+        }
+        // Overwriting drops the series of units that left the top
+        unitWaiting.register(waitingRows, true);
+        unitLongestWait.register(longestWaitRows, true);
+    }
+
+    public long getWaiting(RiskClassification risk) {
+        synchronized (waitingByRisk) {
+            return waitingByRisk[risk.ordinal()];
+        }
+    }
+
+    private static long totalWaiting(UnitLoad load) {
+        long total = 0;
+        for (long count : load.waitingCount()) total += count;
+        return total;
+    }
+
+}
@@ -0,0 +1,354 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.QueueEntry;
+import com.fiap.sus.liveops.modules.analytics.dto.QueuePosition;
+import com.fiap.sus.liveops.modules.analytics.dto.WaitPercentiles;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory live queue of every health unit, fed by {@link AttendanceChangedEvent}s (from this service and, when
+ * enabled, from the {@link AttendanceChangeStreamConsumer}) and filled on startup by the {@link LiveQueueInitializer}.
+ * Answers queue, SLA and wait percentile questions without touching the database, and holds the analysis window
+ * of each unit ({@link AttendanceWindow}) for the unit analytics, weighted by its {@link DecayProfile}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LiveQueueStateStore {
+
+    private static final LiveQueueSnapshot EMPTY_SNAPSHOT = new LiveQueueSnapshot(0, 0, 0);
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+
+    private final AttendanceRepository repository;
+    private final DecayProfiles decayProfiles;
+    private final ConcurrentMap<String, UnitLiveState> units = new ConcurrentHashMap<>();
+    // Unit of every active attendance, for deletions, which only carry the attendance id
+    private final ConcurrentMap<String, String> unitByAttendanceId = new ConcurrentHashMap<>();
+
+    // Changes are applied under the read lock; a rebuild swaps its fresh state in under the write lock
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    // Changes seen while a rebuild reads MongoDB, replayed onto its fresh state; null when no rebuild runs
+    private Queue<Consumer<Map<String, UnitLiveState>>> changesDuringRebuild;
+
+    /**
+     * Loads the live queue from the active attendances, the analysis windows and the waits that ended recently.
+     * Called on startup by {@link LiveQueueInitializer} when no checkpoint can be restored.
+     */
+    public void rebuild() {
+        startRecording();
+        Map<String, UnitLiveState> fresh = new HashMap<>();
+        List<Attendance> active = findActive();
+        active.forEach(attendance -> fresh.computeIfAbsent(attendance.getHealthUnitId(), this::newState).apply(attendance));
+        int windowed = loadWindows(fresh);
+
+        // Waits that ended before the restart, so the percentiles, served waits and service rates do not start empty
+        long seedMillis = Math.max(Duration.ofHours(RollingWaitSketches.WINDOW_HOURS).toMillis(), decayProfiles.getMaxWindowMillis());
+        Instant cutoff = Instant.ofEpochMilli(EpochTime.now() - seedMillis);
+        try (Stream<Attendance> started = repository.findByStartTimeAfter(cutoff)) {
+            started.forEach(attendance -> fresh.computeIfAbsent(attendance.getHealthUnitId(), this::newState).seedServed(attendance));
+        }
+        swapIn(fresh, false);
+
+        log.info("Live queue state rebuilt with {} active attendances and {} in the analysis windows across {} units",
+                active.size(), windowed, units.size());
+    }
+
+    /**
+     * Replaces the state of every unit with a fresh read of the active attendances and of the analysis windows,
+     * dropping entries whose discharge or deletion was never observed. Wait sketches are kept.
+     */
+    public void resync() {
+        startRecording();
+        Map<String, UnitLiveState> fresh = new HashMap<>();
+        List<Attendance> active = findActive();
+        active.forEach(attendance -> fresh.computeIfAbsent(attendance.getHealthUnitId(), this::newState).apply(attendance));
+        loadWindows(fresh);
+        swapIn(fresh, true);
+
+        log.info("Live queue state resynchronized with {} active attendances across {} units", active.size(), units.size());
+    }
+
+    private void startRecording() {
+        rebuildLock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ConcurrentLinkedQueue<>();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the state of the units read by a rebuild. Changes applied while MongoDB was being read are replayed
+     * onto the fresh state first, so e.g. an attendance discharged after the scan saw it waiting is not queued again.
+     */
+    private void swapIn(Map<String, UnitLiveState> fresh, boolean keepWaitSketches) {
+        rebuildLock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(fresh));
+            changesDuringRebuild = null;
+
+            // After the replay: the replaced sketches already hold the waits of the replayed changes
+            if (keepWaitSketches) {
+                units.forEach((healthUnitId, replaced) ->
+                        fresh.computeIfAbsent(healthUnitId, this::newState).inheritWaitSketches(replaced));
+            }
+            units.putAll(fresh);
+
+            unitByAttendanceId.clear();
+            units.values().forEach(state ->
+                    state.forEachActiveId(attendanceId -> unitByAttendanceId.put(attendanceId, state.getHealthUnitId())));
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    // First listener of a change: the cache eviction and the SSE emission that follow recompute from this state
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onAttendanceChanged(AttendanceChangedEvent event) {
+        rebuildLock.readLock().lock();
+        try {
+            UnitLiveState state = units.computeIfAbsent(event.healthUnitId(), this::newState);
+            state.applyAll(event.attendances());
+            event.attendances().forEach(attendance -> index(state, attendance));
+
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(target ->
+                        target.computeIfAbsent(event.healthUnitId(), this::newState).applyAll(event.attendances()));
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public void apply(Attendance attendance) {
+        onAttendanceChanged(AttendanceChangedEvent.of(attendance));
+    }
+
+    private void index(UnitLiveState state, Attendance attendance) {
+        if (attendance.getId() == null) return;
+
+        if (state.isActive(attendance.getId())) {
+            unitByAttendanceId.put(attendance.getId(), state.getHealthUnitId());
+        } else {
+            unitByAttendanceId.remove(attendance.getId(), state.getHealthUnitId());
+        }
+    }
+
+    /**
+     * Drops a deleted attendance, whose unit is unknown to the caller. Looked up among the active attendances only:
+     * a discharged one that is deleted stays in the analysis window of its unit until it ages out.
+     *
+     * @return the unit it was queued in, or empty when it was not active
+     */
+    public Optional<String> remove(String attendanceId) {
+        rebuildLock.readLock().lock();
+        try {
+            String healthUnitId = unitByAttendanceId.remove(attendanceId);
+            if (changesDuringRebuild != null) {
+                // The fresh state may have read it before the deletion, under a unit not known here yet
+                changesDuringRebuild.add(target -> target.values().forEach(state -> state.remove(attendanceId)));
+            }
+            if (healthUnitId == null) return Optional.empty();
+
+            UnitLiveState state = units.get(healthUnitId);
+            if (state != null) state.remove(attendanceId);
+            return Optional.of(healthUnitId);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private List<Attendance> findActive() {
+        return repository.findByStatusIn(EnumSet.of(AttendanceStatus.WAITING, AttendanceStatus.IN_PROGRESS));
+    }
+
+    // Discharged attendances too: the unit analytics weigh every attendance of the window
+    private int loadWindows(Map<String, UnitLiveState> target) {
+        long nowMillis = EpochTime.now();
+        Instant cutoff = Instant.ofEpochMilli(nowMillis - decayProfiles.getMaxWindowMillis());
+        int loaded = 0;
+        try (Stream<Attendance> window = repository.findByEntryTimeAfter(cutoff)) {
+            for (Attendance attendance : (Iterable<Attendance>) window::iterator) {
+                target.computeIfAbsent(attendance.getHealthUnitId(), this::newState).addToWindow(attendance, nowMillis);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Installs the states of a checkpoint in place of the current ones.
+     *
+     * @return false, leaving the live queue untouched, when a state was built with another decay profile or window
+     * retention than the ones configured now
+     */
+    boolean restore(Collection<UnitLiveState> states) {
+        for (UnitLiveState state : states) {
+            if (!state.hasConfiguration(decayProfiles.of(state.getHealthUnitId()), decayProfiles.getMaxWindowMillis())) {
+                return false;
+            }
+        }
+
+        Map<String, UnitLiveState> restored = new HashMap<>();
+        states.forEach(state -> restored.put(state.getHealthUnitId(), state));
+        startRecording();
+        swapIn(restored, false);
+        return true;
+    }
+
+    UnitLiveState getState(String healthUnitId) {
+        return units.get(healthUnitId);
+    }
+
+    Collection<UnitLiveState> getStates() {
+        return List.copyOf(units.values());
+    }
+
+    private UnitLiveState newState(String healthUnitId) {
+        return new UnitLiveState(healthUnitId, decayProfiles.of(healthUnitId), decayProfiles.getMaxWindowMillis());
+    }
+
+    public DecayProfile getDecayProfile(String healthUnitId) {
+        return decayProfiles.of(healthUnitId);
+    }
+
+    /**
+     * Every unit with live state, i.e. seen since the application started.
+     */
+    public Set<String> getHealthUnitIds() {
+        return Set.copyOf(units.keySet());
+    }
+
+    /**
+     * @return the current load of the unit, or {@code null} when the unit has no live state
+     */
+    public UnitLoad getLoad(String healthUnitId, long nowMillis) {
+        UnitLiveState state = units.get(healthUnitId);
+        return state == null ? null : state.load(nowMillis);
+    }
+
+    /**
+     * Visits the attendances of the unit that entered after {@code cutoffMillis}, from its in-memory analysis window.
+     *
+     * @return how many were visited
+     */
+    public int scanWindow(String healthUnitId, long cutoffMillis, AttendanceWindow.Visitor visitor) {
+        UnitLiveState state = units.get(healthUnitId);
+        return state == null ? 0 : state.scanWindow(EpochTime.now(), cutoffMillis, visitor);
+    }
+
+    public LiveQueueSnapshot getSnapshot(String healthUnitId) {
+        UnitLiveState state = units.get(healthUnitId);
+        return state == null ? EMPTY_SNAPSHOT : state.snapshot();
+    }
+
+    public List<QueueEntry> getNextWaiting(String healthUnitId, int limit) {
+        UnitLiveState state = units.get(healthUnitId);
+        return state == null ? List.of() : state.nextWaiting(limit, EpochTime.now());
+    }
+
+    /**
+     * @return the position of the attendance in the waiting queue of the unit, or empty when it is not waiting there
+     */
+    public Optional<QueuePosition> getQueuePosition(String healthUnitId, String attendanceId) {
+        UnitLiveState state = units.get(healthUnitId);
+        return Optional.ofNullable(state == null ? null : state.positionOf(attendanceId, EpochTime.now()));
+    }
+
+    /**
+     * Marks the SLA breach of a waiting patient as raised; the mark lasts until the patient leaves the waiting queue.
+     *
+     * @return whether the patient is waiting with this risk and its breach was not raised yet
+     */
+    public boolean markBreachRaised(String healthUnitId, String attendanceId, RiskClassification risk) {
+        UnitLiveState state = units.get(healthUnitId);
+        return state != null && state.markBreachRaised(attendanceId, risk);
+    }
+
+    /**
+     * Whether any patient of the given risk has been waiting longer than {@code limitMinutes} ("forgotten patient").
+     */
+    public boolean isAnyWaitingBreached(String healthUnitId, RiskClassification risk, long limitMinutes) {
+        return isAnyWaitingBreached(healthUnitId, risk, limitMinutes, EpochTime.now());
+    }
+
+    public boolean isAnyWaitingBreached(String healthUnitId, RiskClassification risk, long limitMinutes, long nowMillis) {
+        UnitLiveState state = units.get(healthUnitId);
+        if (state == null) return false;
+
+        long oldestEntry = state.getOldestWaitingEntryMillis(risk);
+        if (oldestEntry < 0) return false;
+
+        return (nowMillis - oldestEntry) / EpochTime.MILLIS_PER_MINUTE > limitMinutes;
+    }
+
+    public List<WaitPercentiles> getWaitPercentiles(String healthUnitId) {
+        return getWaitPercentiles(List.of(healthUnitId));
+    }
+
+    /**
+     * Wait percentiles per risk over the recent window, with the sketches of all given units merged (e.g. a region).
+     */
+    public List<WaitPercentiles> getWaitPercentiles(Collection<String> healthUnitIds) {
+        long now = EpochTime.now();
+        WaitTimeSketch[] merged = null;
+
+        for (String healthUnitId : healthUnitIds) {
+            UnitLiveState state = units.get(healthUnitId);
+            if (state == null) continue;
+
+            WaitTimeSketch[] sketches = state.getWaitSketches(now);
+            if (merged == null) {
+                merged = sketches;
+            } else {
+                for (int risk = 0; risk < RISKS.length; risk++) merged[risk].merge(sketches[risk]);
+            }
+        }
+
+        List<WaitPercentiles> percentiles = new ArrayList<>(RISKS.length);
+        for (RiskClassification risk : RISKS) {
+            WaitTimeSketch sketch = merged == null ? new WaitTimeSketch() : merged[risk.ordinal()];
+            percentiles.add(new WaitPercentiles(
+                    risk,
+                    sketch.count(),
+                    sketch.quantile(0.50),
+                    sketch.quantile(0.90),
+                    sketch.quantile(0.99)
+            ));
+        }
+        return percentiles;
+    }
+
+}
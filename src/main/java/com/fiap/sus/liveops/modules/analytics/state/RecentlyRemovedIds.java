@@ -0,0 +1,41 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The last {@code capacity} attendances discharged or deleted in one unit, so a late WAITING or IN_PROGRESS event of
+ * one of them (e.g. the change stream delivering an older write after the discharge) does not queue it again.
+ * A ring of ids plus a set for O(1) lookups; the oldest id is forgotten when the ring is full.
+ * Not thread safe: guarded by the lock of {@link UnitLiveState}.
+ */
+final class RecentlyRemovedIds implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String[] ring;
+    private final Set<String> ids;
+    private int next;
+
+    RecentlyRemovedIds(int capacity) {
+        this.ring = new String[capacity];
+        this.ids = new HashSet<>(capacity * 4 / 3 + 1);
+    }
+
+    void add(String attendanceId) {
+        if (!ids.add(attendanceId)) return;
+
+        String evicted = ring[next];
+        if (evicted != null) ids.remove(evicted);
+        ring[next] = attendanceId;
+        next = (next + 1) % ring.length;
+    }
+
+    boolean contains(String attendanceId) {
+        return ids.contains(attendanceId);
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * {@link WaitTimeSketch}es of one unit per risk over a sliding window, kept as two generations aligned on multiples
+ * of half the window: waits go to the generation of the time they ended, and the older generation is dropped when a
+ * new one begins. Reads merge both, so they cover between half and the whole window at a fixed memory cost
+ * (2 x 5 sketches, about 7 KB).
+ */
+final class RollingWaitSketches implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    static final int WINDOW_HOURS = 12;
+    static final long GENERATION_MILLIS = Duration.ofHours(WINDOW_HOURS).toMillis() / 2;
+
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+
+    private WaitTimeSketch[] current = newGeneration();
+    private WaitTimeSketch[] previous = newGeneration();
+    private long currentGeneration;
+
+    /**
+     * @param endedAtMillis when the wait ended (service started); waits older than the previous generation are dropped
+     */
+    void record(RiskClassification risk, long waitMinutes, long endedAtMillis) {
+        long generation = endedAtMillis / GENERATION_MILLIS;
+        advanceTo(generation);
+
+        if (generation == currentGeneration) {
+            current[risk.ordinal()].record(waitMinutes);
+        } else if (generation == currentGeneration - 1) {
+            previous[risk.ordinal()].record(waitMinutes);
+        }
+    }
+
+    /**
+     * Both generations merged, one new sketch per risk in {@link RiskClassification} order.
+     */
+    WaitTimeSketch[] merged(long nowMillis) {
+        advanceTo(nowMillis / GENERATION_MILLIS);
+
+        WaitTimeSketch[] merged = new WaitTimeSketch[RISKS.length];
+        for (int risk = 0; risk < RISKS.length; risk++) {
+            merged[risk] = current[risk].copy().merge(previous[risk]);
+        }
+        return merged;
+    }
+
+    RollingWaitSketches copy() {
+        RollingWaitSketches copy = new RollingWaitSketches();
+        copy.currentGeneration = currentGeneration;
+        for (int risk = 0; risk < RISKS.length; risk++) {
+            copy.current[risk].merge(current[risk]);
+            copy.previous[risk].merge(previous[risk]);
+        }
+        return copy;
+    }
+
+    private void advanceTo(long generation) {
+        if (generation <= currentGeneration) return;
+
+        if (generation == currentGeneration + 1) {
+            WaitTimeSketch[] recycled = previous;
+            previous = current;
+            current = recycled;
+            for (WaitTimeSketch sketch : current) sketch.clear();
+        } else {
+            for (WaitTimeSketch sketch : current) sketch.clear();
+            for (WaitTimeSketch sketch : previous) sketch.clear();
+        }
+        currentGeneration = generation;
+    }
+
+    private static WaitTimeSketch[] newGeneration() {
+        WaitTimeSketch[] generation = new WaitTimeSketch[RISKS.length];
+        for (int risk = 0; risk < RISKS.length; risk++) {
+            generation[risk] = new WaitTimeSketch();
+        }
+        return generation;
+    }
+
+}
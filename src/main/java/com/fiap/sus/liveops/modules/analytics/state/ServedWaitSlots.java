@@ -0,0 +1,86 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Waits of the attendances served in the analysis window, summed per risk into 15-minute slots of their service start
+ * (a ring of 48 slots for 12 hours, about 3 KB). Enough to rebuild the recency-weighted average of the served side
+ * without the attendances: every wait of a slot is weighted as if it started in the middle of the slot.
+ */
+final class ServedWaitSlots implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    static final long SLOT_MILLIS = Duration.ofMinutes(15).toMillis();
+
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+
+    private final int slots;
+    private final long[] slotIds;
+    private final long[][] sumWaitMinutes;
+    private final int[][] counts;
+
+    ServedWaitSlots(long windowMillis) {
+        this.slots = (int) Math.ceilDiv(windowMillis, SLOT_MILLIS);
+        this.slotIds = new long[slots];
+        this.sumWaitMinutes = new long[RISKS.length][slots];
+        this.counts = new int[RISKS.length][slots];
+        Arrays.fill(slotIds, -1);
+    }
+
+    void record(RiskClassification risk, long waitMinutes, long startMillis) {
+        long slotId = startMillis / SLOT_MILLIS;
+        int position = (int) (slotId % slots);
+
+        if (slotIds[position] != slotId) {
+            // Older than the ring, or a slot that fell out of the window and is reused
+            if (slotId < slotIds[position]) return;
+            slotIds[position] = slotId;
+            for (int r = 0; r < RISKS.length; r++) {
+                sumWaitMinutes[r][position] = 0;
+                counts[r][position] = 0;
+            }
+        }
+
+        sumWaitMinutes[risk.ordinal()][position] += Math.max(0, waitMinutes);
+        counts[risk.ordinal()][position]++;
+    }
+
+    /**
+     * Adds the weighted waits and weights of every slot still in the window, with the weights of the unit analytics.
+     */
+    void addWeighted(long nowMillis, DecayProfile profile, double[] weightedWaitByRisk, double[] weightsByRisk) {
+        long oldestSlotId = nowMillis / SLOT_MILLIS - slots + 1;
+
+        for (int position = 0; position < slots; position++) {
+            long slotId = slotIds[position];
+            if (slotId < oldestSlotId) continue;
+
+            long middleMillis = slotId * SLOT_MILLIS + SLOT_MILLIS / 2;
+            double weight = profile.weight((nowMillis - middleMillis) / EpochTime.MILLIS_PER_MINUTE);
+
+            for (int r = 0; r < RISKS.length; r++) {
+                weightedWaitByRisk[r] += sumWaitMinutes[r][position] * weight;
+                weightsByRisk[r] += counts[r][position] * weight;
+            }
+        }
+    }
+
+    ServedWaitSlots copy() {
+        ServedWaitSlots copy = new ServedWaitSlots(slots * SLOT_MILLIS);
+        System.arraycopy(slotIds, 0, copy.slotIds, 0, slots);
+        for (int r = 0; r < RISKS.length; r++) {
+            System.arraycopy(sumWaitMinutes[r], 0, copy.sumWaitMinutes[r], 0, slots);
+            System.arraycopy(counts[r], 0, copy.counts[r], 0, slots);
+        }
+        return copy;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Recent service rate of one unit, for time-to-service estimates. Service starts and arrivals per risk are kept as
+ * exponentially decaying counts (time constant {@value #TIME_CONSTANT_MINUTES} minutes), so each event is O(1) and
+ * the state is a few numbers.
+ * <p>
+ * Patients are called by risk, so a waiting patient only gets the share of the unit's service rate that is not taken
+ * by more urgent arrivals: {@code minutes per start = 1 / (start rate - more urgent arrival rate)}, floored at
+ * {@value #MIN_SERVICE_SHARE} of the start rate when the more urgent risks arrive as fast as they are served.
+ * An idle unit (no start in roughly the last 40 minutes) has no rate, rather than one decayed towards zero.
+ */
+final class ServiceRateEstimator implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    static final int TIME_CONSTANT_MINUTES = 60;
+    static final double MIN_SERVICE_SHARE = 0.1;
+    static final double MIN_RECENT_STARTS = 0.5;
+
+    private static final long TIME_CONSTANT_MILLIS = Duration.ofMinutes(TIME_CONSTANT_MINUTES).toMillis();
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+
+    private final DecayingCount starts = new DecayingCount();
+    private final DecayingCount[] arrivalsByRisk = new DecayingCount[RISKS.length];
+
+    ServiceRateEstimator() {
+        for (int r = 0; r < RISKS.length; r++) arrivalsByRisk[r] = new DecayingCount();
+    }
+
+    void recordStart(long startMillis) {
+        starts.add(startMillis);
+    }
+
+    void recordArrival(RiskClassification risk, long entryMillis) {
+        arrivalsByRisk[risk.ordinal()].add(entryMillis);
+    }
+
+    /**
+     * Expected minutes between two calls of a patient of each risk, in {@link RiskClassification} order;
+     * {@code NaN} while there are too few recent service starts.
+     */
+    double[] minutesPerStart(long nowMillis) {
+        double[] minutesPerStart = new double[RISKS.length];
+        if (starts.valueAt(nowMillis) < MIN_RECENT_STARTS) {
+            Arrays.fill(minutesPerStart, Double.NaN);
+            return minutesPerStart;
+        }
+
+        // Every rate over the same observation, so a risk first seen a minute ago is not read as a burst
+        long firstEventMillis = starts.firstEventMillis;
+        for (DecayingCount arrivals : arrivalsByRisk) firstEventMillis = Math.min(firstEventMillis, arrivals.firstEventMillis);
+        long observedMillis = nowMillis - firstEventMillis;
+
+        double startRate = starts.perMinute(nowMillis, observedMillis);
+
+        double moreUrgentArrivalRate = 0;
+        for (int r = 0; r < RISKS.length; r++) {
+            double available = Math.max(startRate - moreUrgentArrivalRate, startRate * MIN_SERVICE_SHARE);
+            minutesPerStart[r] = 1 / available;
+            moreUrgentArrivalRate += arrivalsByRisk[r].perMinute(nowMillis, observedMillis);
+        }
+        return minutesPerStart;
+    }
+
+    ServiceRateEstimator copy() {
+        ServiceRateEstimator copy = new ServiceRateEstimator();
+        copy.starts.copyFrom(starts);
+        for (int r = 0; r < RISKS.length; r++) copy.arrivalsByRisk[r].copyFrom(arrivalsByRisk[r]);
+        return copy;
+    }
+
+    /**
+     * Sum of {@code e^(-age / time constant)} over the events: about {@code rate x time constant} in steady state.
+     */
+    private static final class DecayingCount implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private double value;
+        private long referenceMillis = Long.MIN_VALUE;
+        private long firstEventMillis = Long.MAX_VALUE;
+
+        void add(long atMillis) {
+            if (referenceMillis == Long.MIN_VALUE) {
+                referenceMillis = atMillis;
+            }
+            if (atMillis >= referenceMillis) {
+                value = value * decay(atMillis - referenceMillis) + 1;
+                referenceMillis = atMillis;
+            } else {
+                // Late or replayed event (e.g. seeded on rebuild), decayed to the reference time
+                value += decay(referenceMillis - atMillis);
+            }
+            firstEventMillis = Math.min(firstEventMillis, atMillis);
+        }
+
+        /**
+         * Events per minute, corrected for an observation shorter than the time constant (e.g. right after a restart).
+         */
+        double perMinute(long nowMillis, long observedMillis) {
+            double current = valueAt(nowMillis);
+            if (current == 0) return 0;
+
+            return current / (TIME_CONSTANT_MINUTES * (1 - decay(Math.max(EpochTime.MILLIS_PER_MINUTE, observedMillis))));
+        }
+
+        double valueAt(long nowMillis) {
+            if (value == 0) return 0;
+            return nowMillis > referenceMillis ? value * decay(nowMillis - referenceMillis) : value;
+        }
+
+        void copyFrom(DecayingCount other) {
+            value = other.value;
+            referenceMillis = other.referenceMillis;
+            firstEventMillis = other.firstEventMillis;
+        }
+
+        private static double decay(long elapsedMillis) {
+            return Math.exp(-(double) elapsedMillis / TIME_CONSTANT_MILLIS);
+        }
+
+    }
+
+}
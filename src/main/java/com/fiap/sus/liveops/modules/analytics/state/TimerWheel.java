@@ -0,0 +1,173 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel: {@value #LEVELS} levels of {@value #SLOTS} slots, each level {@value #SLOTS} times coarser
+ * than the one below (with one-second ticks: about 1 minute, 1 hour, 3 days and 194 days). Scheduling and cancelling
+ * are O(1); a timer is moved down a level at most {@value #LEVELS} - 1 times before it expires, so the cost of a tick
+ * depends on the timers due, never on how many are pending.
+ * <p>
+ * Not thread-safe. Deadlines beyond the top level are parked in it and placed again as they come closer.
+ */
+public final class TimerWheel<T> {
+
+    static final int LEVELS = 4;
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELTA_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Timer<T>[][] heads;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.heads = new Timer[LEVELS][SLOTS];
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules {@code payload} to expire at the first tick at or after {@code deadlineMillis}; a deadline already
+     * passed expires on the next tick.
+     */
+    public Timer<T> schedule(T payload, long deadlineMillis) {
+        long deadlineTick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        Timer<T> timer = new Timer<>(payload, deadlineTick);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * @return whether the timer was still pending
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (timer.level < 0) return false;
+
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes every tick up to {@code nowMillis}, handing the payload of each expired timer to {@code expired}.
+     *
+     * @return how many timers expired
+     */
+    public int advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        int fired = 0;
+
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+
+            // Higher levels first, so timers they hand down to a level due now are handed down again
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+                }
+            }
+
+            Timer<T> timer = detach(0, (int) (currentTick & SLOT_MASK));
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                timer.next = null;
+                size--;
+                fired++;
+                expired.accept(timer.payload);
+                timer = next;
+            }
+        }
+        return fired;
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> timer = detach(level, slot);
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.next = null;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = Math.min(timer.deadlineTick - currentTick, MAX_DELTA_TICKS);
+        long tick = currentTick + delta;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        timer.level = level;
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = heads[level][slot];
+        if (timer.next != null) timer.next.previous = timer;
+        heads[level][slot] = timer;
+    }
+
+    // Empties a slot; the returned timers are still chained through next and marked as not pending
+    private Timer<T> detach(int level, int slot) {
+        Timer<T> first = heads[level][slot];
+        heads[level][slot] = null;
+        for (Timer<T> timer = first; timer != null; timer = timer.next) {
+            timer.level = -1;
+            timer.previous = null;
+        }
+        return first;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            heads[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) timer.next.previous = timer.previous;
+
+        timer.previous = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+
+    public static final class Timer<T> {
+
+        private final T payload;
+        private final long deadlineTick;
+        private Timer<T> previous;
+        private Timer<T> next;
+        private int level = -1;
+        private int slot;
+
+        private Timer(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public boolean isPending() {
+            return level >= 0;
+        }
+
+    }
+
+}
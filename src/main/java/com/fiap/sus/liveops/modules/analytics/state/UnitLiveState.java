@@ -0,0 +1,431 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.QueueEntry;
+import com.fiap.sus.liveops.modules.analytics.dto.QueuePosition;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.DecayFunction;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Live queue of a single health unit: every attendance that is not yet discharged, with counters
+ * per {@link RiskClassification} kept up to date on each write so reads never scan the queue.
+ * Waiting patients are also kept in call order (risk, then entry time) for "who is next" and "where am I" lookups,
+ * with a time-to-service estimate from the position and the recent service rate ({@link ServiceRateEstimator}).
+ * Each wait that ends (WAITING to IN_PROGRESS) is also added to fixed-size per-risk sketches for wait percentiles
+ * and to the served side of {@link #load(long)}, weighted by the {@link DecayProfile} of the unit: 15-minute slots
+ * re-weighted on each read or, for an exponential decay, sums decayed incrementally ({@link DecayingWaitSums}).
+ * Every attendance of the analysis window, discharged ones included, is kept in an {@link AttendanceWindow} for
+ * the unit analytics.
+ */
+public class UnitLiveState implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+    static final int RECENTLY_REMOVED_CAPACITY = 1_024;
+
+    @Getter
+    private final String healthUnitId;
+
+    private final Map<String, ActiveAttendance> activeById = new HashMap<>();
+    // Risk of the SLA breach raised for a waiting patient, kept while it waits
+    private final Map<String, RiskClassification> breachRaisedRiskById = new HashMap<>();
+    private final RecentlyRemovedIds recentlyRemoved = new RecentlyRemovedIds(RECENTLY_REMOVED_CAPACITY);
+    private final long[] waitingByRisk = new long[RISKS.length];
+    private final long[] inProgressByRisk = new long[RISKS.length];
+    private final WaitingQueue[] waitingQueueByRisk;
+    private final long[] waitingEntryMillisByRisk = new long[RISKS.length];
+
+    private long waiting;
+    private long inProgress;
+
+    @Getter
+    private final DecayProfile decayProfile;
+
+    private RollingWaitSketches waitSketches = new RollingWaitSketches();
+    // Exactly one of the two, depending on the decay function
+    private ServedWaitSlots servedWaits;
+    private DecayingWaitSums decayingWaits;
+    private ServiceRateEstimator serviceRates = new ServiceRateEstimator();
+    private final AttendanceWindow window;
+
+    /**
+     * @param windowRetentionMillis how long the analysis window keeps an attendance, at least the window of the profile
+     */
+    public UnitLiveState(String healthUnitId, DecayProfile decayProfile, long windowRetentionMillis) {
+        this.healthUnitId = healthUnitId;
+        this.decayProfile = decayProfile;
+        this.window = new AttendanceWindow(windowRetentionMillis);
+        if (decayProfile.getFunction() == DecayFunction.EXPONENTIAL) {
+            this.decayingWaits = new DecayingWaitSums(decayProfile.getHalfLifeMinutes(), decayProfile.getWindowMillis());
+        } else {
+            this.servedWaits = new ServedWaitSlots(decayProfile.getWindowMillis());
+        }
+        this.waitingQueueByRisk = new WaitingQueue[RISKS.length];
+        for (int i = 0; i < RISKS.length; i++) {
+            waitingQueueByRisk[i] = new WaitingQueue();
+        }
+    }
+
+    /**
+     * Applies the persisted state of an attendance. Applying the same state twice is a no-op, and a
+     * state older than the one already known (e.g. WAITING after IN_PROGRESS) is ignored, including for the last
+     * {@value #RECENTLY_REMOVED_CAPACITY} attendances discharged or deleted, which are no longer in the live queue.
+     */
+    public synchronized void apply(Attendance attendance) {
+        if (attendance.getId() == null || attendance.getStatus() == null
+                || attendance.getRiskClassification() == null || attendance.getEntryTime() == null) {
+            return;
+        }
+
+        window.apply(attendance, EpochTime.now());
+
+        ActiveAttendance previous = activeById.get(attendance.getId());
+        if (previous != null && attendance.getStatus().ordinal() < previous.status().ordinal()) {
+            return;
+        }
+        if (attendance.getStatus() == AttendanceStatus.DISCHARGED) {
+            recentlyRemoved.add(attendance.getId());
+        } else if (previous == null && recentlyRemoved.contains(attendance.getId())) {
+            return;
+        }
+
+        if (previous != null) {
+            remove(previous);
+
+            if (previous.status() == AttendanceStatus.WAITING && attendance.getStatus() != AttendanceStatus.WAITING) {
+                recordWait(attendance);
+            }
+        }
+
+        if (previous == null && attendance.getStatus() == AttendanceStatus.WAITING) {
+            serviceRates.recordArrival(attendance.getRiskClassification(), attendance.getEntryTime().toEpochMilli());
+        }
+
+        if (attendance.getStatus() != AttendanceStatus.DISCHARGED) {
+            add(new ActiveAttendance(
+                    attendance.getId(),
+                    attendance.getRiskClassification(),
+                    attendance.getStatus(),
+                    attendance.getEntryTime().toEpochMilli()
+            ));
+        }
+        if (attendance.getStatus() != AttendanceStatus.WAITING) {
+            breachRaisedRiskById.remove(attendance.getId());
+        }
+    }
+
+    /**
+     * Applies a batch of attendances under a single lock, so readers never see a half-applied batch.
+     */
+    public synchronized void applyAll(Collection<Attendance> attendances) {
+        attendances.forEach(this::apply);
+    }
+
+    /**
+     * Forgets an attendance that no longer exists (e.g. deleted by another service).
+     *
+     * @return whether it was part of the live queue
+     */
+    public synchronized boolean remove(String attendanceId) {
+        boolean windowed = window.remove(attendanceId);
+        recentlyRemoved.add(attendanceId);
+        ActiveAttendance previous = activeById.get(attendanceId);
+        if (previous == null) return windowed;
+
+        remove(previous);
+        breachRaisedRiskById.remove(attendanceId);
+        return true;
+    }
+
+    /**
+     * @return whether the patient is waiting with this risk and its breach was not raised for this risk yet
+     */
+    public synchronized boolean markBreachRaised(String attendanceId, RiskClassification risk) {
+        ActiveAttendance entry = activeById.get(attendanceId);
+        if (entry == null || entry.status() != AttendanceStatus.WAITING || entry.risk() != risk) return false;
+
+        return breachRaisedRiskById.put(attendanceId, risk) != risk;
+    }
+
+    /**
+     * Whether this state was built with the given profile and window retention, e.g. before restoring a checkpoint.
+     */
+    synchronized boolean hasConfiguration(DecayProfile profile, long windowRetentionMillis) {
+        return decayProfile.equals(profile) && window.getRetentionMillis() == windowRetentionMillis;
+    }
+
+    // Serialized under the lock, so a checkpoint never sees a change half-applied
+    @Serial
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+
+    public synchronized boolean isActive(String attendanceId) {
+        return activeById.containsKey(attendanceId);
+    }
+
+    synchronized void forEachActiveId(Consumer<String> action) {
+        activeById.keySet().forEach(action);
+    }
+
+    /**
+     * Adds an attendance to the analysis window only, e.g. one discharged before the state was rebuilt.
+     */
+    public synchronized void addToWindow(Attendance attendance, long nowMillis) {
+        if (attendance.getId() == null || attendance.getStatus() == null
+                || attendance.getRiskClassification() == null || attendance.getEntryTime() == null) {
+            return;
+        }
+        window.apply(attendance, nowMillis);
+    }
+
+    /**
+     * Visits the attendances of the analysis window that entered after {@code cutoffMillis}.
+     *
+     * @return how many were visited
+     */
+    public synchronized int scanWindow(long nowMillis, long cutoffMillis, AttendanceWindow.Visitor visitor) {
+        return window.scan(nowMillis, cutoffMillis, visitor);
+    }
+
+    public synchronized int getWindowSize() {
+        return window.size();
+    }
+
+    /**
+     * Adds the wait of an attendance whose service already started, e.g. one started before the state was rebuilt.
+     */
+    public synchronized void recordWait(Attendance attendance) {
+        Instant waitEnd = attendance.getStartTime() != null ? attendance.getStartTime() : attendance.getDischargeTime();
+        if (waitEnd == null || attendance.getEntryTime() == null || attendance.getRiskClassification() == null) return;
+
+        long waitEndMillis = waitEnd.toEpochMilli();
+        long waitMinutes = (waitEndMillis - attendance.getEntryTime().toEpochMilli()) / EpochTime.MILLIS_PER_MINUTE;
+        waitSketches.record(attendance.getRiskClassification(), waitMinutes, waitEndMillis);
+        if (decayingWaits != null) {
+            decayingWaits.record(attendance.getRiskClassification(), waitMinutes, waitEndMillis);
+        } else {
+            servedWaits.record(attendance.getRiskClassification(), waitMinutes, waitEndMillis);
+        }
+        serviceRates.recordStart(waitEndMillis);
+    }
+
+    /**
+     * Seeds the wait statistics and service rates with an attendance served before the state was rebuilt.
+     */
+    public synchronized void seedServed(Attendance attendance) {
+        if (attendance.getEntryTime() == null || attendance.getRiskClassification() == null) return;
+
+        serviceRates.recordArrival(attendance.getRiskClassification(), attendance.getEntryTime().toEpochMilli());
+        recordWait(attendance);
+    }
+
+    /**
+     * Current load of the unit, computed from counters and the served side only (no attendance is visited).
+     */
+    public synchronized UnitLoad load(long nowMillis) {
+        long[] longestWaiting = new long[RISKS.length];
+        double[] waitingMinutes = new double[RISKS.length];
+        for (int r = 0; r < RISKS.length; r++) {
+            WaitingQueue queue = waitingQueueByRisk[r];
+            longestWaiting[r] = queue.isEmpty() ? -1 : (nowMillis - queue.first().entryMillis()) / EpochTime.MILLIS_PER_MINUTE;
+            waitingMinutes[r] = (waitingByRisk[r] * (double) nowMillis - waitingEntryMillisByRisk[r]) / EpochTime.MILLIS_PER_MINUTE;
+        }
+
+        double[] servedWeightedWait = new double[RISKS.length];
+        double[] servedWeights = new double[RISKS.length];
+        addServedWeighted(nowMillis, servedWeightedWait, servedWeights);
+
+        return new UnitLoad(healthUnitId, waitingByRisk.clone(), waitingMinutes, longestWaiting,
+                inProgressByRisk.clone(), servedWeightedWait, servedWeights);
+    }
+
+    /**
+     * Wait sketches of the recent window, one copy per risk in {@link RiskClassification} order.
+     */
+    public synchronized WaitTimeSketch[] getWaitSketches(long nowMillis) {
+        return waitSketches.merged(nowMillis);
+    }
+
+    /**
+     * Carries the wait sketches, served waits and service rates over from the state this one replaces.
+     */
+    synchronized void inheritWaitSketches(UnitLiveState replaced) {
+        synchronized (replaced) {
+            this.waitSketches = replaced.waitSketches.copy();
+            this.servedWaits = replaced.servedWaits == null ? null : replaced.servedWaits.copy();
+            this.decayingWaits = replaced.decayingWaits == null ? null : replaced.decayingWaits.copy();
+            this.serviceRates = replaced.serviceRates.copy();
+        }
+    }
+
+    public synchronized LiveQueueSnapshot snapshot() {
+        return new LiveQueueSnapshot(waiting + inProgress, waiting, inProgress);
+    }
+
+    public synchronized long getWaitingCount(RiskClassification risk) {
+        return waitingByRisk[risk.ordinal()];
+    }
+
+    public synchronized long getInProgressCount(RiskClassification risk) {
+        return inProgressByRisk[risk.ordinal()];
+    }
+
+    /**
+     * Entry time (epoch millis) of the patient waiting the longest for the given risk, or -1 when nobody is waiting.
+     */
+    public synchronized long getOldestWaitingEntryMillis(RiskClassification risk) {
+        WaitingQueue queue = waitingQueueByRisk[risk.ordinal()];
+        return queue.isEmpty() ? -1 : queue.first().entryMillis();
+    }
+
+    /**
+     * The next {@code limit} patients to be called, most urgent risk first and, within a risk, by arrival.
+     */
+    public synchronized List<QueueEntry> nextWaiting(int limit, long nowMillis) {
+        List<ActiveAttendance> next = new ArrayList<>(Math.min(limit, (int) waiting));
+        for (WaitingQueue queue : waitingQueueByRisk) {
+            if (next.size() >= limit) break;
+            queue.addFirst(limit - next.size(), next);
+        }
+
+        TimeToService estimator = timeToService(nowMillis);
+        List<QueueEntry> entries = new ArrayList<>(next.size());
+        int sameRiskAhead = 0;
+        for (int i = 0; i < next.size(); i++) {
+            ActiveAttendance entry = next.get(i);
+            // Listed by risk, so the same-risk patients ahead are the ones listed since the risk changed
+            sameRiskAhead = i > 0 && next.get(i - 1).risk() == entry.risk() ? sameRiskAhead + 1 : 0;
+            long waited = (nowMillis - entry.entryMillis()) / EpochTime.MILLIS_PER_MINUTE;
+            entries.add(new QueueEntry(
+                    i + 1,
+                    entry.id(),
+                    entry.risk(),
+                    EpochTime.toLocalDateTime(entry.entryMillis()),
+                    waited,
+                    estimator.minutes(entry.risk(), sameRiskAhead, waited)
+            ));
+        }
+        return entries;
+    }
+
+    /**
+     * Position of a waiting patient in call order, in O(log n).
+     *
+     * @return the position, or {@code null} when the attendance is not waiting in this unit
+     */
+    public synchronized QueuePosition positionOf(String attendanceId, long nowMillis) {
+        ActiveAttendance entry = activeById.get(attendanceId);
+        if (entry == null || entry.status() != AttendanceStatus.WAITING) return null;
+
+        int risk = entry.risk().ordinal();
+        long moreUrgent = 0;
+        for (int r = 0; r < risk; r++) moreUrgent += waitingByRisk[r];
+        int sameRiskAhead = waitingQueueByRisk[risk].rankOf(entry);
+        int position = (int) moreUrgent + sameRiskAhead + 1;
+        long waited = (nowMillis - entry.entryMillis()) / EpochTime.MILLIS_PER_MINUTE;
+
+        return new QueuePosition(
+                attendanceId,
+                healthUnitId,
+                entry.risk(),
+                position,
+                sameRiskAhead,
+                waiting,
+                waited,
+                timeToService(nowMillis).minutes(entry.risk(), sameRiskAhead, waited)
+        );
+    }
+
+    private TimeToService timeToService(long nowMillis) {
+        double[] servedWeightedWait = new double[RISKS.length];
+        double[] servedWeights = new double[RISKS.length];
+        addServedWeighted(nowMillis, servedWeightedWait, servedWeights);
+        return new TimeToService(serviceRates.minutesPerStart(nowMillis), servedWeightedWait, servedWeights);
+    }
+
+    private void addServedWeighted(long nowMillis, double[] weightedWaitByRisk, double[] weightsByRisk) {
+        if (decayingWaits != null) {
+            decayingWaits.addWeighted(nowMillis, weightedWaitByRisk, weightsByRisk);
+        } else {
+            servedWaits.addWeighted(nowMillis, decayProfile, weightedWaitByRisk, weightsByRisk);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return activeById.isEmpty();
+    }
+
+    private void add(ActiveAttendance entry) {
+        activeById.put(entry.id(), entry);
+        int risk = entry.risk().ordinal();
+
+        if (entry.status() == AttendanceStatus.WAITING) {
+            waitingByRisk[risk]++;
+            waiting++;
+            waitingQueueByRisk[risk].add(entry);
+            waitingEntryMillisByRisk[risk] += entry.entryMillis();
+        } else {
+            inProgressByRisk[risk]++;
+            inProgress++;
+        }
+    }
+
+    private void remove(ActiveAttendance entry) {
+        activeById.remove(entry.id());
+        int risk = entry.risk().ordinal();
+
+        if (entry.status() == AttendanceStatus.WAITING) {
+            waitingByRisk[risk]--;
+            waiting--;
+            waitingQueueByRisk[risk].remove(entry);
+            waitingEntryMillisByRisk[risk] -= entry.entryMillis();
+        } else {
+            inProgressByRisk[risk]--;
+            inProgress--;
+        }
+    }
+
+    record ActiveAttendance(String id, RiskClassification risk, AttendanceStatus status, long entryMillis) implements Serializable {
+    }
+
+    /**
+     * Time-to-service estimate of a waiting patient: the patients of its risk ahead of it, plus itself, times the
+     * minutes between two calls of its risk. That interval already covers the time spent on more urgent patients, so
+     * they are not counted again. Before any call has been observed, the remaining part of the recency-weighted
+     * average wait of the risk.
+     */
+    private record TimeToService(double[] minutesPerStart, double[] servedWeightedWait, double[] servedWeights) {
+
+        Long minutes(RiskClassification risk, int sameRiskAhead, long waitedMinutes) {
+            int r = risk.ordinal();
+            if (!Double.isNaN(minutesPerStart[r])) {
+                return Math.round((sameRiskAhead + 1) * minutesPerStart[r]);
+            }
+            if (servedWeights[r] > 0) {
+                return Math.max(0, Math.round(servedWeightedWait[r] / servedWeights[r]) - waitedMinutes);
+            }
+            return null;
+        }
+
+    }
+
+}
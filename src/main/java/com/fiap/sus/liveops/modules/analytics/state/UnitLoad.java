@@ -0,0 +1,18 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+/**
+ * Load of one unit at an instant, as primitive sums indexed by {@code RiskClassification.ordinal()} that add up
+ * across units: the waiting queue (weight 1 each) and the recency-weighted waits of the patients already served.
+ *
+ * @param longestWaitingMinutes wait of the patient waiting the longest, or -1 when nobody is waiting
+ */
+public record UnitLoad(
+        String healthUnitId,
+        long[] waitingCount,
+        double[] waitingMinutes,
+        long[] longestWaitingMinutes,
+        long[] inProgressCount,
+        double[] servedWeightedWait,
+        double[] servedWeights
+) {
+}
@@ -0,0 +1,100 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of wait times in minutes, in the style of HDR histograms: exact below 16 minutes, then 16
+ * buckets per power of two, so every quantile is within about 3% of the true wait. Its size is fixed (176 counters)
+ * whatever the volume, and two sketches merge by adding their counters, so units can be combined into regions.
+ * <p>
+ * Not thread-safe; {@link UnitLiveState} guards its sketches with its own lock.
+ */
+public final class WaitTimeSketch implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 14;
+
+    /** Longer waits (about 11 days) are recorded as this value. */
+    public static final long MAX_TRACKED_MINUTES = (1L << MAX_EXPONENT) - 1;
+
+    static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final int[] counts = new int[BUCKETS];
+    private long count;
+    private long max;
+
+    public void record(long waitMinutes) {
+        long value = Math.clamp(waitMinutes, 0, MAX_TRACKED_MINUTES);
+        counts[bucketOf(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    public WaitTimeSketch merge(WaitTimeSketch other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public WaitTimeSketch copy() {
+        return new WaitTimeSketch().merge(this);
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Wait in minutes that {@code quantile} of the recorded waits do not exceed: the middle of the bucket holding
+     * that rank, never above the longest wait recorded. Zero when empty.
+     */
+    public long quantile(double quantile) {
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(max, lowerBound(bucket) + (width(bucket) - 1) / 2);
+            }
+        }
+        return max;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    private static long width(int bucket) {
+        return bucket < SUB_BUCKETS ? 1 : 1L << ((bucket - SUB_BUCKETS) / SUB_BUCKETS);
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.analytics.state.UnitLiveState.ActiveAttendance;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Waiting patients of one risk, in call order (entry time, then ID), as a treap whose nodes also count their subtree.
+ * Insertion, removal and the rank of a patient are O(log n); unlike {@code TreeSet.headSet(..).size()}, the rank does
+ * not walk the patients ahead.
+ */
+final class WaitingQueue implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    static final Comparator<ActiveAttendance> CALL_ORDER = Comparator
+            .comparingLong(ActiveAttendance::entryMillis)
+            .thenComparing(ActiveAttendance::id);
+
+    private Node root;
+
+    // Heap priorities only shape the tree, so a cheap deterministic sequence is enough
+    private int nextPriority = 0x9E3779B9;
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return the patient waiting the longest, or {@code null} when the queue is empty
+     */
+    ActiveAttendance first() {
+        Node node = root;
+        if (node == null) return null;
+        while (node.left != null) node = node.left;
+        return node.entry;
+    }
+
+    void add(ActiveAttendance entry) {
+        root = insert(root, new Node(entry, nextPriority()));
+    }
+
+    void remove(ActiveAttendance entry) {
+        root = delete(root, entry);
+    }
+
+    /**
+     * @return how many patients are ahead of the given one, or -1 when it is not in the queue
+     */
+    int rankOf(ActiveAttendance entry) {
+        int ahead = 0;
+        Node node = root;
+        while (node != null) {
+            int comparison = CALL_ORDER.compare(entry, node.entry);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison > 0) {
+                ahead += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return ahead + size(node.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the first {@code limit} patients, in call order, to {@code into}.
+     *
+     * @return how many were added
+     */
+    int addFirst(int limit, List<ActiveAttendance> into) {
+        int before = into.size();
+        addInOrder(root, limit, into, before);
+        return into.size() - before;
+    }
+
+    private static void addInOrder(Node node, int limit, List<ActiveAttendance> into, int start) {
+        if (node == null || into.size() - start >= limit) return;
+
+        addInOrder(node.left, limit, into, start);
+        if (into.size() - start >= limit) return;
+        into.add(node.entry);
+        addInOrder(node.right, limit, into, start);
+    }
+
+    private int nextPriority() {
+        // xorshift32
+        int x = nextPriority;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        nextPriority = x;
+        return x;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null) return inserted;
+
+        if (CALL_ORDER.compare(inserted.entry, node.entry) < 0) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node delete(Node node, ActiveAttendance entry) {
+        if (node == null) return null;
+
+        int comparison = CALL_ORDER.compare(entry, node.entry);
+        if (comparison < 0) {
+            node.left = delete(node.left, entry);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, entry);
+        } else {
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    // Every key of left is smaller than every key of right
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static final class Node implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final ActiveAttendance entry;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(ActiveAttendance entry, int priority) {
+            this.entry = entry;
+            this.priority = priority;
+        }
+
+        private void update() {
+            size = 1 + WaitingQueue.size(left) + WaitingQueue.size(right);
+        }
+
+    }
+
+}
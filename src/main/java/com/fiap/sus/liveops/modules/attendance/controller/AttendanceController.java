@@ -1,23 +1,45 @@
 package com.fiap.sus.liveops.modules.attendance.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.dto.AttendanceFilter;
 import com.fiap.sus.liveops.modules.attendance.dto.AttendanceResponse;
+import com.fiap.sus.liveops.modules.attendance.dto.BulkResponse;
+import com.fiap.sus.liveops.modules.attendance.dto.BulkStatusUpdateRequest;
 import com.fiap.sus.liveops.modules.attendance.dto.CompleteAttendanceResponse;
 import com.fiap.sus.liveops.modules.attendance.dto.StatusUpdateRequest;
 import com.fiap.sus.liveops.modules.attendance.dto.TriageRequest;
 import com.fiap.sus.liveops.modules.attendance.mapper.AttendanceMapper;
+import com.fiap.sus.liveops.modules.attendance.service.AttendanceBulkService;
 import com.fiap.sus.liveops.modules.attendance.service.AttendanceService;
+import com.fiap.sus.liveops.shared.pagination.CursorPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
 import java.net.URI;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
@@ -26,7 +48,9 @@ import java.net.URI;
 public class AttendanceController {
 
     private final AttendanceService attendanceService;
+    private final AttendanceBulkService attendanceBulkService;
     private final AttendanceMapper mapper;
+    private final ObjectMapper objectMapper;
 
     @Operation(
             summary = "Iniciar processo de atendimento de um paciente",
@@ -48,12 +72,70 @@ public class AttendanceController {
         return ResponseEntity.created(uri).body(response);
     }
 
+    @Operation(
+            summary = "Iniciar atendimentos em lote",
+            description = """
+                Recebe um array JSON de triagens e as grava em lotes, sem interromper o processamento quando um item é inválido ou falha.
+                Retorna o resultado de cada item na ordem recebida: CREATED, REJECTED (validação) ou FAILED (erro de escrita).
+                O array é lido inteiro em memória e aceita até 1000 triagens; lotes maiores devem ser enviados em NDJSON.
+             """
+    )
+    @PostMapping(value = "/triage/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkResponse> startTriageBulk(
+            @RequestBody @Size(max = 1000, message = "At most 1000 triages per JSON array; send larger batches as NDJSON")
+            List<JsonNode> requests
+    ) {
+        // Bound as raw nodes so that one item of the wrong shape is rejected alone, not the whole array
+        Iterator<TriageRequest> triageRequests = requests.stream()
+                .map(this::parseTriageItem)
+                .iterator();
+
+        return ResponseEntity.ok(attendanceBulkService.startTriageBulk(triageRequests));
+    }
+
+    @Operation(
+            summary = "Iniciar atendimentos em lote a partir de NDJSON",
+            description = """
+                Recebe uma triagem por linha (NDJSON) e as grava em lotes à medida que são lidas, sem carregar o corpo inteiro em memória.
+                Linhas em branco são ignoradas e linhas malformadas são rejeitadas individualmente.
+             """
+    )
+    @PostMapping(value = "/triage/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkResponse> startTriageBulkNdjson(InputStream body) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Iterator<TriageRequest> requests = reader.lines()
+                    .filter(line -> !line.isBlank())
+                    .map(this::parseTriageLine)
+                    .iterator();
+
+            return ResponseEntity.ok(attendanceBulkService.startTriageBulk(requests));
+        }
+    }
+
+    private TriageRequest parseTriageLine(String line) {
+        try {
+            return objectMapper.readValue(line, TriageRequest.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private TriageRequest parseTriageItem(JsonNode item) {
+        try {
+            return objectMapper.treeToValue(item, TriageRequest.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
     @Operation(
             summary = "Listar atendimentos por unidade de saúde",
             description = """
                 Retorna uma lista de atendimentos associados a uma unidade de saúde específica.
+                Obsoleto: carrega todo o histórico da unidade. Utilize '/unit/{unitId}/page' ou '/unit/{unitId}/stream'.
              """
     )
+    @Deprecated
     @GetMapping("/unit/{unitId}")
     public ResponseEntity<List<AttendanceResponse>> listByUnitId(@PathVariable String unitId) {
         return ResponseEntity.ok(
@@ -63,6 +145,58 @@ public class AttendanceController {
         );
     }
 
+    @Operation(
+            summary = "Listar atendimentos por unidade de saúde com paginação por cursor",
+            description = """
+                Retorna uma página de atendimentos da unidade, do mais recente para o mais antigo, com filtros opcionais de status, risco e intervalo de entrada.
+                Para obter a próxima página, envie o 'nextCursor' recebido no parâmetro 'cursor'.
+             """
+    )
+    @GetMapping("/unit/{unitId}/page")
+    public ResponseEntity<CursorPage<AttendanceResponse>> listPageByUnitId(
+            @PathVariable String unitId,
+            @ParameterObject AttendanceFilter filter,
+            @Schema(description = "Cursor retornado pela página anterior")
+            @RequestParam(required = false) String cursor,
+            @Schema(description = "Tamanho da página (máximo 500)", example = "50")
+            @RequestParam(defaultValue = "50") int size
+    ) {
+        CursorPage<Attendance> page = attendanceService.listPageByHealthUnitId(unitId, filter, cursor, size);
+        return ResponseEntity.ok(page.map(mapper::toResponse));
+    }
+
+    @Operation(
+            summary = "Exportar atendimentos por unidade de saúde em NDJSON",
+            description = """
+                Transmite todos os atendimentos da unidade que atendem aos filtros, um JSON por linha, diretamente do cursor do banco de dados, sem carregar a lista em memória.
+             """
+    )
+    @GetMapping(value = "/unit/{unitId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamByUnitId(
+            @PathVariable String unitId,
+            @ParameterObject AttendanceFilter filter
+    ) {
+        // Flushing is left to the servlet buffer instead of once per row
+        ObjectWriter writer = objectMapper.writerFor(AttendanceResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = output -> {
+            try (Stream<Attendance> rows = attendanceService.streamByHealthUnitId(unitId, filter);
+                 JsonGenerator generator = objectMapper.createGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.setRootValueSeparator(null);
+
+                for (Attendance attendance : (Iterable<Attendance>) rows::iterator) {
+                    writer.writeValue(generator, mapper.toResponse(attendance));
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @Operation(
             summary = "Obter detalhes de um atendimento",
             description = """
@@ -96,4 +230,17 @@ public class AttendanceController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Atualizar status de vários atendimentos",
+            description = """
+                Aplica a mesma mudança de status a uma lista de atendimentos (até 1000), como na passagem de plantão ou em altas em massa.
+                As regras de transição são as mesmas da atualização individual, e todos os atendimentos são gravados em uma única operação.
+                Retorna o resultado de cada ID na ordem recebida: UPDATED ou REJECTED, com o motivo.
+             """
+    )
+    @PatchMapping("/status/bulk")
+    public ResponseEntity<BulkResponse> updateStatusBulk(@RequestBody @Valid BulkStatusUpdateRequest request) {
+        return ResponseEntity.ok(attendanceBulkService.updateStatusBulk(request.ids(), request.status()));
+    }
+
 }
@@ -1,14 +1,16 @@
 package com.fiap.sus.liveops.modules.attendance.document;
 
+import com.fiap.sus.liveops.core.config.MongoConfig;
 import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
 import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
 import com.fiap.sus.liveops.shared.enums.RiskClassification;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
 
 @Data
 @NoArgsConstructor
@@ -26,18 +28,22 @@ public class Attendance {
 
     private RiskClassification riskClassification;
 
-    private LocalDateTime entryTime;
+    // Instants, stored as epoch millis (see MongoConfig)
+    @ValueConverter(MongoConfig.InstantAsEpochMillis.class)
+    private Instant entryTime;
 
-    private LocalDateTime startTime;
+    @ValueConverter(MongoConfig.InstantAsEpochMillis.class)
+    private Instant startTime;
 
-    private LocalDateTime dischargeTime;
+    @ValueConverter(MongoConfig.InstantAsEpochMillis.class)
+    private Instant dischargeTime;
 
     public Attendance(String healthUnitId, RiskClassification riskClassification, Patient patient) {
         this.healthUnitId = healthUnitId;
         this.riskClassification = riskClassification;
         this.patient = patient;
         this.status = AttendanceStatus.WAITING;
-        this.entryTime = LocalDateTime.now();
+        this.entryTime = Instant.now();
     }
 
 }
@@ -0,0 +1,28 @@
+package com.fiap.sus.liveops.modules.attendance.dto;
+
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+public record AttendanceFilter(
+        @Schema(description = "Filtra pelo status do atendimento", example = "WAITING")
+        AttendanceStatus status,
+
+        @Schema(description = "Filtra pela classificação de risco", example = "RED")
+        RiskClassification risk,
+
+        @Schema(description = "Início do intervalo de entrada (inclusivo)", example = "2026-02-12T08:00:00")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime from,
+
+        @Schema(description = "Fim do intervalo de entrada (exclusivo)", example = "2026-02-12T20:00:00")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime to
+) {
+
+    public static final AttendanceFilter NONE = new AttendanceFilter(null, null, null, null);
+
+}
@@ -0,0 +1,24 @@
+package com.fiap.sus.liveops.modules.attendance.dto;
+
+import com.fiap.sus.liveops.shared.enums.BulkItemOutcome;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record BulkItemResult(
+        @Schema(description = "Posição do item na requisição (base 0)", example = "0")
+        int index,
+
+        @Schema(description = "ID do atendimento criado ou alterado", example = "698e65898661ef045bf53603")
+        String id,
+
+        @Schema(description = "Resultado do item: CREATED, UPDATED, REJECTED (validação) ou FAILED (erro de escrita)", example = "CREATED")
+        BulkItemOutcome outcome,
+
+        @Schema(description = "Motivo da rejeição ou falha", example = "patientName: Patient name is required")
+        String message
+) {
+
+    public boolean succeeded() {
+        return outcome == BulkItemOutcome.CREATED || outcome == BulkItemOutcome.UPDATED;
+    }
+
+}
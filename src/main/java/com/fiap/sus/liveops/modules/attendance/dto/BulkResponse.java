@@ -0,0 +1,26 @@
+package com.fiap.sus.liveops.modules.attendance.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record BulkResponse(
+        @Schema(description = "Quantidade de itens recebidos", example = "3")
+        int total,
+
+        @Schema(description = "Quantidade de itens gravados com sucesso", example = "2")
+        int succeeded,
+
+        @Schema(description = "Quantidade de itens rejeitados ou com falha", example = "1")
+        int failed,
+
+        @Schema(description = "Resultado de cada item, na ordem da requisição")
+        List<BulkItemResult> items
+) {
+
+    public static BulkResponse of(List<BulkItemResult> items) {
+        int succeeded = (int) items.stream().filter(BulkItemResult::succeeded).count();
+        return new BulkResponse(items.size(), succeeded, items.size() - succeeded, items);
+    }
+
+}
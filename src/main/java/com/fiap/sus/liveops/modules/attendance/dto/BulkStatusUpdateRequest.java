@@ -0,0 +1,21 @@
+package com.fiap.sus.liveops.modules.attendance.dto;
+
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkStatusUpdateRequest(
+        @NotEmpty(message = "At least one attendance ID is required")
+        @Size(max = 1000, message = "At most 1000 attendances per request")
+        @Schema(description = "IDs dos atendimentos a serem atualizados", example = "[\"698e65898661ef045bf53603\", \"698e65898661ef045bf53604\"]")
+        List<@NotBlank String> ids,
+
+        @NotNull(message = "Status is required")
+        @Schema(description = "Novo status dos atendimentos", example = "DISCHARGED")
+        AttendanceStatus status
+) {}
@@ -0,0 +1,20 @@
+package com.fiap.sus.liveops.modules.attendance.event;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+
+import java.util.List;
+
+/**
+ * Published after attendances of a single health unit are written, carrying their persisted state.
+ * Listeners run synchronously on the writer thread and must treat the attendances as read-only.
+ */
+public record AttendanceChangedEvent(
+        String healthUnitId,
+        List<Attendance> attendances
+) {
+
+    public static AttendanceChangedEvent of(Attendance attendance) {
+        return new AttendanceChangedEvent(attendance.getHealthUnitId(), List.of(attendance));
+    }
+
+}
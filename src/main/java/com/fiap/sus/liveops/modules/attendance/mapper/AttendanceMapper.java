@@ -3,9 +3,13 @@ package com.fiap.sus.liveops.modules.attendance.mapper;
 import com.fiap.sus.liveops.modules.attendance.document.Attendance;
 import com.fiap.sus.liveops.modules.attendance.dto.AttendanceResponse;
 import com.fiap.sus.liveops.modules.attendance.dto.CompleteAttendanceResponse;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+
 @Mapper(componentModel = "spring")
 public interface AttendanceMapper {
 
@@ -16,4 +20,9 @@ public interface AttendanceMapper {
     @Mapping(source = "patient.cpf", target = "patientCpf")
     CompleteAttendanceResponse toCompleteResponse(Attendance entity);
 
+    // Responses keep the wall-clock times of the host
+    default LocalDateTime toLocalDateTime(Instant instant) {
+        return EpochTime.toLocalDateTime(instant);
+    }
+
 }
@@ -0,0 +1,41 @@
+package com.fiap.sus.liveops.modules.attendance.repository;
+
+import com.fiap.sus.liveops.core.exception.InvalidCursorException;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in a unit's attendance history, ordered by {@code (entryTime, id)} descending.
+ * Travels to clients as an opaque Base64 token.
+ */
+public record AttendanceCursor(Instant entryTime, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static AttendanceCursor of(Attendance attendance) {
+        return new AttendanceCursor(attendance.getEntryTime(), attendance.getId());
+    }
+
+    public String encode() {
+        String raw = entryTime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AttendanceCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException("Invalid pagination cursor: " + token);
+            }
+            return new AttendanceCursor(Instant.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid pagination cursor: " + token);
+        }
+    }
+
+}
@@ -3,13 +3,24 @@ package com.fiap.sus.liveops.modules.attendance.repository;
 import com.fiap.sus.liveops.modules.attendance.document.Attendance;
 import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface AttendanceRepository extends MongoRepository<Attendance, String> {
+public interface AttendanceRepository extends MongoRepository<Attendance, String>, AttendanceRepositoryCustom {
+
+    // Fields of AttendanceTimes; the server leaves out the patient and the id
+    String ANALYTICS_FIELDS = "{ '_id': 0, 'healthUnitId': 1, 'status': 1, 'riskClassification': 1,"
+            + " 'entryTime': 1, 'startTime': 1, 'dischargeTime': 1 }";
+
+    // Same fields with the id, for the in-memory analysis windows and the live queue rebuild
+    String WINDOW_FIELDS = "{ 'healthUnitId': 1, 'status': 1, 'riskClassification': 1,"
+            + " 'entryTime': 1, 'startTime': 1, 'dischargeTime': 1 }";
 
     List<Attendance> findByHealthUnitIdAndStatus(String healthUnitId, AttendanceStatus attendanceStatus);
 
@@ -17,6 +28,19 @@ public interface AttendanceRepository extends MongoRepository<Attendance, String
 
     List<Attendance> findByHealthUnitId(String healthUnitId);
 
-    List<Attendance> findByHealthUnitIdAndEntryTimeAfter(String healthUnitId, LocalDateTime cutoffDate);
+    @Query(fields = ANALYTICS_FIELDS)
+    List<AttendanceTimes> findByHealthUnitIdAndEntryTimeAfter(String healthUnitId, Instant cutoffDate);
+
+    @Query(fields = ANALYTICS_FIELDS)
+    Stream<AttendanceTimes> findByHealthUnitIdInAndEntryTimeAfter(Collection<String> healthUnitIds, Instant cutoffDate);
+
+    @Query(fields = WINDOW_FIELDS)
+    List<Attendance> findByStatusIn(Collection<AttendanceStatus> statuses);
+
+    @Query(fields = WINDOW_FIELDS)
+    Stream<Attendance> findByStartTimeAfter(Instant cutoffDate);
+
+    @Query(fields = WINDOW_FIELDS)
+    Stream<Attendance> findByEntryTimeAfter(Instant cutoffDate);
 
 }
@@ -0,0 +1,44 @@
+package com.fiap.sus.liveops.modules.attendance.repository;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.dto.AttendanceFilter;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface AttendanceRepositoryCustom {
+
+    /**
+     * Up to {@code limit} attendances of the unit strictly after {@code after} (or from the most recent one when
+     * {@code null}), ordered by {@code (entryTime, id)} descending.
+     */
+    List<Attendance> findPage(String healthUnitId, AttendanceFilter filter, AttendanceCursor after, int limit);
+
+    /**
+     * Same ordering as {@link #findPage}, backed by an open cursor. Must be closed by the caller.
+     */
+    Stream<Attendance> streamAll(String healthUnitId, AttendanceFilter filter);
+
+    /**
+     * Inserts the attendances in one unordered bulk write, so a failing document does not stop the others.
+     * Ids must already be assigned.
+     *
+     * @return error message by position in {@code attendances}, empty when every insert succeeded
+     */
+    Map<Integer, String> insertUnordered(List<Attendance> attendances);
+
+    /**
+     * Atomically moves the attendance to {@code newStatus} if its current status is one of {@code allowedCurrent},
+     * stamping {@code startTime} (IN_PROGRESS) or {@code dischargeTime} (DISCHARGED) with {@code at}.
+     *
+     * @return the updated attendance, or empty when it does not exist or its status did not match
+     */
+    Optional<Attendance> transitionStatus(String id, Collection<AttendanceStatus> allowedCurrent,
+                                          AttendanceStatus newStatus, Instant at);
+
+}
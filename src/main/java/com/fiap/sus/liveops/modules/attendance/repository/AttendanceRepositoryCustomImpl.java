@@ -0,0 +1,117 @@
+package com.fiap.sus.liveops.modules.attendance.repository;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.dto.AttendanceFilter;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class AttendanceRepositoryCustomImpl implements AttendanceRepositoryCustom {
+
+    // Served by the healthUnitId_entryTime_id index without an in-memory sort
+    private static final Sort KEYSET_ORDER = Sort.by(Sort.Direction.DESC, "entryTime", "id");
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Attendance> findPage(String healthUnitId, AttendanceFilter filter, AttendanceCursor after, int limit) {
+        Query query = new Query(criteria(healthUnitId, filter, after))
+                .with(KEYSET_ORDER)
+                .limit(limit);
+
+        return mongoTemplate.find(query, Attendance.class);
+    }
+
+    @Override
+    public Stream<Attendance> streamAll(String healthUnitId, AttendanceFilter filter) {
+        Query query = new Query(criteria(healthUnitId, filter, null)).with(KEYSET_ORDER);
+
+        return mongoTemplate.stream(query, Attendance.class);
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<Attendance> attendances) {
+        if (attendances.isEmpty()) return Map.of();
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Attendance.class)
+                    .insert(attendances)
+                    .execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage));
+        }
+    }
+
+    @Override
+    public Optional<Attendance> transitionStatus(String id, Collection<AttendanceStatus> allowedCurrent,
+                                                 AttendanceStatus newStatus, Instant at) {
+        Query query = new Query(Criteria.where("id").is(id).and("status").in(allowedCurrent));
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query,
+                statusUpdate(newStatus, at),
+                FindAndModifyOptions.options().returnNew(true),
+                Attendance.class
+        ));
+    }
+
+    private static Update statusUpdate(AttendanceStatus newStatus, Instant at) {
+        Update update = new Update().set("status", newStatus);
+
+        if (newStatus == AttendanceStatus.IN_PROGRESS) {
+            update.set("startTime", at);
+        } else if (newStatus == AttendanceStatus.DISCHARGED) {
+            update.set("dischargeTime", at);
+        }
+
+        return update;
+    }
+
+    private static Criteria criteria(String healthUnitId, AttendanceFilter filter, AttendanceCursor after) {
+        List<Criteria> conditions = new ArrayList<>();
+        conditions.add(Criteria.where("healthUnitId").is(healthUnitId));
+
+        if (filter.status() != null) {
+            conditions.add(Criteria.where("status").is(filter.status()));
+        }
+        if (filter.risk() != null) {
+            conditions.add(Criteria.where("riskClassification").is(filter.risk()));
+        }
+        if (filter.from() != null) {
+            conditions.add(Criteria.where("entryTime").gte(EpochTime.toInstant(filter.from())));
+        }
+        if (filter.to() != null) {
+            conditions.add(Criteria.where("entryTime").lt(EpochTime.toInstant(filter.to())));
+        }
+        if (after != null) {
+            conditions.add(new Criteria().orOperator(
+                    Criteria.where("entryTime").lt(after.entryTime()),
+                    Criteria.where("entryTime").is(after.entryTime()).and("id").lt(after.id())
+            ));
+        }
+
+        return new Criteria().andOperator(conditions);
+    }
+
+}
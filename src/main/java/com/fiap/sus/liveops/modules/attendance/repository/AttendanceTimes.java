@@ -0,0 +1,40 @@
+package com.fiap.sus.liveops.modules.attendance.repository;
+
+import com.fiap.sus.liveops.core.config.MongoConfig;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import org.springframework.data.convert.ValueConverter;
+
+import java.time.Instant;
+
+/**
+ * Read-only projection of an attendance with just what the analytics window needs. The patient (name and CPF)
+ * and the id are never read from MongoDB, so analytics queries neither transfer nor decode them. Timestamps are
+ * the stored epoch millis, read as is without building date objects.
+ */
+public record AttendanceTimes(
+        String healthUnitId,
+        AttendanceStatus status,
+        RiskClassification riskClassification,
+        @ValueConverter(MongoConfig.EpochMillis.class) Long entryTime,
+        @ValueConverter(MongoConfig.EpochMillis.class) Long startTime,
+        @ValueConverter(MongoConfig.EpochMillis.class) Long dischargeTime
+) {
+
+    public static AttendanceTimes of(Attendance attendance) {
+        return new AttendanceTimes(
+                attendance.getHealthUnitId(),
+                attendance.getStatus(),
+                attendance.getRiskClassification(),
+                millis(attendance.getEntryTime()),
+                millis(attendance.getStartTime()),
+                millis(attendance.getDischargeTime())
+        );
+    }
+
+    private static Long millis(Instant instant) {
+        return instant == null ? null : instant.toEpochMilli();
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.fiap.sus.liveops.modules.attendance.service;
+
+import com.fiap.sus.liveops.core.exception.InvalidAttendanceStatusException;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.modules.attendance.dto.BulkItemResult;
+import com.fiap.sus.liveops.modules.attendance.dto.BulkResponse;
+import com.fiap.sus.liveops.modules.attendance.dto.TriageRequest;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.BulkItemOutcome;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk writes of attendances, reporting one {@link BulkItemResult} per item so a rejected or failing item never
+ * blocks the others. The live state is updated once per unit per write instead of once per attendance.
+ * <ul>
+ *     <li>Triage: items are validated one by one and the valid ones are inserted in chunks of
+ *     {@code attendance.bulk.chunk-size}, with a single unordered bulk insert each.</li>
+ *     <li>Status: each ID is moved by its own atomic conditional update, as in {@link AttendanceService}, which
+ *     returns the moved attendance, so the outcome never depends on a read-back that a concurrent write may have
+ *     changed. The rejected ones are read back once to report why.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AttendanceBulkService {
+
+    public static final String MALFORMED_ITEM = "Malformed or empty triage request";
+
+    private final AttendanceRepository attendanceRepository;
+    private final AttendanceService attendanceService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+
+    @Value("${attendance.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * With the change stream on, the writes are published when they come back through it instead.
+     */
+    @Value("${analytics.change-stream.enabled:false}")
+    private boolean changeStreamEnabled;
+
+    /**
+     * @param requests triage requests in arrival order; a {@code null} element stands for an item that could not be parsed
+     */
+    public BulkResponse startTriageBulk(Iterator<TriageRequest> requests) {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<Attendance> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+
+        int index = 0;
+        while (requests.hasNext()) {
+            TriageRequest request = requests.next();
+            String violation = validate(request);
+
+            if (violation != null) {
+                results.add(new BulkItemResult(index, null, BulkItemOutcome.REJECTED, violation));
+            } else {
+                chunk.add(toAttendance(request));
+                chunkIndexes.add(index);
+            }
+
+            if (chunk.size() >= chunkSize) {
+                flush(chunk, chunkIndexes, results);
+            }
+            index++;
+        }
+        flush(chunk, chunkIndexes, results);
+
+        results.sort(Comparator.comparingInt(BulkItemResult::index));
+        BulkResponse response = BulkResponse.of(results);
+
+        log.info("Bulk triage finished: {} received, {} created, {} rejected or failed",
+                response.total(), response.succeeded(), response.failed());
+        return response;
+    }
+
+    public BulkResponse updateStatusBulk(List<String> ids, AttendanceStatus newStatus) {
+        log.info("Bulk updating {} attendances to status {}", ids.size(), newStatus);
+
+        Instant at = Instant.now();
+        Set<AttendanceStatus> allowedCurrent = AttendanceService.allowedCurrentStatuses(newStatus);
+
+        // The update itself tells whether this request moved the attendance, whatever happens to it afterwards
+        Map<String, Attendance> transitioned = new HashMap<>();
+        Set<String> notTransitioned = new LinkedHashSet<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            attendanceRepository.transitionStatus(id, allowedCurrent, newStatus, at)
+                    .ifPresentOrElse(attendance -> transitioned.put(id, attendance), () -> notTransitioned.add(id));
+        }
+
+        Map<String, Attendance> stored = new HashMap<>();
+        if (!notTransitioned.isEmpty()) {
+            attendanceRepository.findAllById(notTransitioned).forEach(attendance -> stored.put(attendance.getId(), attendance));
+        }
+
+        List<BulkItemResult> results = new ArrayList<>(ids.size());
+        Map<String, List<Attendance>> updatedByUnit = new LinkedHashMap<>();
+        Set<String> published = new HashSet<>();
+
+        for (int index = 0; index < ids.size(); index++) {
+            String id = ids.get(index);
+            Attendance updated = transitioned.get(id);
+            Attendance current = stored.get(id);
+
+            if (updated != null) {
+                results.add(new BulkItemResult(index, id, BulkItemOutcome.UPDATED, null));
+                if (published.add(id)) {
+                    updatedByUnit.computeIfAbsent(updated.getHealthUnitId(), unit -> new ArrayList<>()).add(updated);
+                }
+            } else if (current == null) {
+                results.add(new BulkItemResult(index, id, BulkItemOutcome.REJECTED, "Attendance not found with ID: " + id));
+            } else {
+                results.add(new BulkItemResult(index, id, BulkItemOutcome.REJECTED, rejection(current, newStatus)));
+            }
+        }
+
+        updatedByUnit.forEach((healthUnitId, updated) -> publish(new AttendanceChangedEvent(healthUnitId, List.copyOf(updated))));
+
+        BulkResponse response = BulkResponse.of(results);
+        log.info("Bulk status update finished: {} received, {} updated, {} rejected",
+                response.total(), response.succeeded(), response.failed());
+        return response;
+    }
+
+    private void publish(AttendanceChangedEvent event) {
+        if (!changeStreamEnabled) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    private String rejection(Attendance attendance, AttendanceStatus newStatus) {
+        try {
+            attendanceService.validateStatusTransition(attendance.getStatus(), newStatus);
+        } catch (InvalidAttendanceStatusException e) {
+            return e.getMessage();
+        }
+        // Allowed now, so the status was changed by a concurrent request after the precondition was evaluated
+        return "Attendance " + attendance.getId() + " was changed concurrently to " + attendance.getStatus() + ". Retry the operation.";
+    }
+
+    private String validate(TriageRequest request) {
+        if (request == null) return MALFORMED_ITEM;
+
+        Set<ConstraintViolation<TriageRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) return null;
+
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static Attendance toAttendance(TriageRequest request) {
+        Attendance attendance = new Attendance(
+                request.healthUnitId(),
+                request.riskClassification(),
+                new Patient(request.patientCpf(), request.patientName())
+        );
+        // Assigned up front so each result can report its id even when the insert is unordered
+        attendance.setId(new ObjectId().toHexString());
+        return attendance;
+    }
+
+    private void flush(List<Attendance> chunk, List<Integer> chunkIndexes, List<BulkItemResult> results) {
+        if (chunk.isEmpty()) return;
+
+        Map<Integer, String> errors;
+        try {
+            errors = attendanceRepository.insertUnordered(chunk);
+        } catch (DataAccessException e) {
+            log.error("Bulk triage chunk of {} items failed: {}", chunk.size(), e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(new BulkItemResult(chunkIndexes.get(i), null, BulkItemOutcome.FAILED, e.getMessage()));
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+            return;
+        }
+
+        Map<String, List<Attendance>> createdByUnit = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Attendance attendance = chunk.get(i);
+            String error = errors.get(i);
+
+            if (error != null) {
+                results.add(new BulkItemResult(chunkIndexes.get(i), null, BulkItemOutcome.FAILED, error));
+            } else {
+                results.add(new BulkItemResult(chunkIndexes.get(i), attendance.getId(), BulkItemOutcome.CREATED, null));
+                createdByUnit.computeIfAbsent(attendance.getHealthUnitId(), id -> new ArrayList<>()).add(attendance);
+            }
+        }
+
+        createdByUnit.forEach((healthUnitId, created) -> publish(new AttendanceChangedEvent(healthUnitId, List.copyOf(created))));
+
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+}
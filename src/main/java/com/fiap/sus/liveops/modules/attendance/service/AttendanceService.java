@@ -4,16 +4,25 @@ import com.fiap.sus.liveops.core.exception.InvalidAttendanceStatusException;
 import com.fiap.sus.liveops.core.exception.ResourceNotFoundException;
 import com.fiap.sus.liveops.modules.attendance.document.Attendance;
 import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.modules.attendance.dto.AttendanceFilter;
 import com.fiap.sus.liveops.modules.attendance.dto.StatusUpdateRequest;
 import com.fiap.sus.liveops.modules.attendance.dto.TriageRequest;
-import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceCursor;
 import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.pagination.CursorPage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.EnumSet;
 import java.util.List;
-import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -21,6 +30,15 @@ import java.time.LocalDateTime;
 public class AttendanceService {
 
     private final AttendanceRepository attendanceRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * With the change stream on, every write comes back through it, so publishing here too would run each listener twice.
+     */
+    @Value("${analytics.change-stream.enabled:false}")
+    private boolean changeStreamEnabled;
 
     public Attendance startTriage(TriageRequest request) {
         log.info("Starting triage for patient {} at unit {}", request.patientName(), request.healthUnitId());
@@ -33,36 +51,85 @@ public class AttendanceService {
                 patient
         );
 
-        return attendanceRepository.save(attendance);
+        Attendance saved = attendanceRepository.save(attendance);
+        publish(AttendanceChangedEvent.of(saved));
+
+        return saved;
     }
 
     public List<Attendance> listByHealthUnitId(String healthUnitId) {
         return attendanceRepository.findByHealthUnitId(healthUnitId);
     }
 
+    public CursorPage<Attendance> listPageByHealthUnitId(String healthUnitId, AttendanceFilter filter, String cursor, int size) {
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        AttendanceCursor after = cursor == null || cursor.isBlank() ? null : AttendanceCursor.decode(cursor);
+
+        // One extra row tells whether there is a next page
+        List<Attendance> rows = attendanceRepository.findPage(healthUnitId, filter, after, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+
+        List<Attendance> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, AttendanceCursor.of(items.getLast()).encode());
+    }
+
+    /**
+     * Full filtered history of the unit read from an open MongoDB cursor. Must be closed by the caller.
+     */
+    public Stream<Attendance> streamByHealthUnitId(String healthUnitId, AttendanceFilter filter) {
+        return attendanceRepository.streamAll(healthUnitId, filter);
+    }
+
     public Attendance getAttendanceById(String id) {
         return attendanceRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Attendance not found with ID: " + id));
     }
 
     public Attendance updateStatus(String id, StatusUpdateRequest request) {
-        log.info("Updating attendance {} to status {}", id, request.status());
+        AttendanceStatus newStatus = request.status();
+        log.info("Updating attendance {} to status {}", id, newStatus);
 
-        Attendance attendance = attendanceRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Attendance not found with ID: " + id));
+        // The precondition on the current status makes the check and the write a single atomic round trip
+        Attendance updated = attendanceRepository
+                .transitionStatus(id, allowedCurrentStatuses(newStatus), newStatus, Instant.now())
+                .orElseThrow(() -> rejectedTransition(id, newStatus));
 
-        validateStatusTransition(attendance.getStatus(), request.status());
+        publish(AttendanceChangedEvent.of(updated));
 
-        AttendanceStatus newStatus = request.status();
-        attendance.setStatus(newStatus);
+        return updated;
+    }
 
-        if (newStatus == AttendanceStatus.IN_PROGRESS) {
-            attendance.setStartTime(LocalDateTime.now());
-        } else if (newStatus == AttendanceStatus.DISCHARGED) {
-            attendance.setDischargeTime(LocalDateTime.now());
+    private void publish(AttendanceChangedEvent event) {
+        if (!changeStreamEnabled) {
+            eventPublisher.publishEvent(event);
         }
+    }
+
+    /**
+     * Statuses an attendance may be in to move to {@code newStatus}; the same rules as {@link #validateStatusTransition}.
+     */
+    public static Set<AttendanceStatus> allowedCurrentStatuses(AttendanceStatus newStatus) {
+        return switch (newStatus) {
+            case WAITING -> EnumSet.of(AttendanceStatus.WAITING);
+            case IN_PROGRESS -> EnumSet.of(AttendanceStatus.WAITING, AttendanceStatus.IN_PROGRESS);
+            case DISCHARGED -> EnumSet.of(AttendanceStatus.IN_PROGRESS);
+        };
+    }
+
+    /**
+     * Only reached when the conditional update matched nothing: reads the attendance once to report why.
+     */
+    private RuntimeException rejectedTransition(String id, AttendanceStatus newStatus) {
+        Attendance current = attendanceRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Attendance not found with ID: " + id));
+
+        validateStatusTransition(current.getStatus(), newStatus);
 
-        return attendanceRepository.save(attendance);
+        // The status was changed by a concurrent request between the update and this read
+        return new InvalidAttendanceStatusException(
+                "Attendance " + id + " was changed concurrently to " + current.getStatus() + ". Retry the operation.");
     }
 
     protected void validateStatusTransition(AttendanceStatus actualStatus, AttendanceStatus newStatus) {
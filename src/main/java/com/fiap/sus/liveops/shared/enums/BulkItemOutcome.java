@@ -0,0 +1,8 @@
+package com.fiap.sus.liveops.shared.enums;
+
+public enum BulkItemOutcome {
+    CREATED,
+    UPDATED,
+    REJECTED,
+    FAILED
+}
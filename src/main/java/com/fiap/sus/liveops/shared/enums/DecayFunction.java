@@ -0,0 +1,42 @@
+package com.fiap.sus.liveops.shared.enums;
+
+/**
+ * Weight of an attendance served {@code minutesAgo} minutes ago in the recency-weighted averages. Every curve starts
+ * at 1 and is down to 1/2 after {@code halfLifeMinutes}.
+ */
+public enum DecayFunction {
+
+    /**
+     * {@code 1 / (1 + minutesAgo / halfLife)}: long tail, the original {@code 1 / (1 + hoursAgo)} with a 60-minute half-life.
+     */
+    HYPERBOLIC {
+        @Override
+        public double weight(long minutesAgo, int halfLifeMinutes) {
+            return 1.0 / (1.0 + minutesAgo / (double) halfLifeMinutes);
+        }
+    },
+
+    /**
+     * {@code 0.5 ^ (minutesAgo / halfLife)}: the only curve whose sums can be decayed as a whole, see
+     * {@code DecayingWaitSums}.
+     */
+    EXPONENTIAL {
+        @Override
+        public double weight(long minutesAgo, int halfLifeMinutes) {
+            return Math.pow(0.5, minutesAgo / (double) halfLifeMinutes);
+        }
+    },
+
+    /**
+     * {@code 0.5 ^ floor(minutesAgo / halfLife)}: constant within each half-life, halved at the end of it.
+     */
+    STEP {
+        @Override
+        public double weight(long minutesAgo, int halfLifeMinutes) {
+            return Math.pow(0.5, (double) (minutesAgo / halfLifeMinutes));
+        }
+    };
+
+    public abstract double weight(long minutesAgo, int halfLifeMinutes);
+
+}
@@ -0,0 +1,18 @@
+package com.fiap.sus.liveops.shared.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Kind of health unit, which decides how far back and how steeply its analytics weigh past attendances.
+ */
+@Getter
+@AllArgsConstructor
+public enum UnitClass {
+
+    UPA("Unidade de Pronto Atendimento"),
+    UBS("Unidade Básica de Saúde");
+
+    private final String description;
+
+}
@@ -0,0 +1,20 @@
+package com.fiap.sus.liveops.shared.pagination;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record CursorPage<T>(
+        @Schema(description = "Itens da página atual")
+        List<T> items,
+
+        @Schema(description = "Cursor opaco para a próxima página, ausente na última página", example = "MjAyNi0wMi0xMlQyMDowMzowNS40NTh8Njk4ZTY1ODk4NjYxZWYwNDViZjUzNjAz")
+        String nextCursor
+) {
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(items.stream().<R>map(mapper).toList(), nextCursor);
+    }
+
+}
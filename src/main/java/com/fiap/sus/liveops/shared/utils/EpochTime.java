@@ -0,0 +1,39 @@
+package com.fiap.sus.liveops.shared.utils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Epoch millis helpers. Attendance timestamps are {@link Instant}s stored as epoch millis, so the analytics only
+ * subtract longs; {@link LocalDateTime} appears only at the API boundary, in the zone of the host, as it did when
+ * the documents held wall-clock times.
+ */
+public final class EpochTime {
+
+    public static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private EpochTime() {
+    }
+
+    public static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    public static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    public static LocalDateTime toLocalDateTime(Instant instant) {
+        return instant == null ? null : LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    public static long now() {
+        return System.currentTimeMillis();
+    }
+
+}
@@ -1,16 +1,24 @@
 package com.fiap.sus.liveops.core.config;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -102,6 +110,67 @@ class AsyncConfigTest {
         executor.shutdown();
     }
 
+    @Test
+    void taskExecutorRejectionMetrics_ShouldCountRejectedTasks() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        asyncConfig.taskExecutorRejectionMetrics().bindTo(registry);
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) asyncConfig.getAsyncExecutor();
+        executor.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+
+        assertEquals(1.0, registry.get("executor.rejected").tag("name", "taskExecutor").functionCounter().count());
+    }
+
+    @Test
+    void getAsyncExecutor_WithVirtualThreadsEnabled_ShouldReturnConcurrencyLimitedVirtualExecutor() {
+        ReflectionTestUtils.setField(asyncConfig, "virtualThreads", true);
+        ReflectionTestUtils.setField(asyncConfig, "virtualMaxConcurrency", 50);
+
+        SimpleAsyncTaskExecutor executor = (SimpleAsyncTaskExecutor) asyncConfig.getAsyncExecutor();
+
+        assertNotNull(executor);
+        assertTrue(executor.isThrottleActive());
+        assertEquals(50, executor.getConcurrencyLimit());
+        assertEquals("Async-VT-", executor.getThreadNamePrefix());
+    }
+
+    @Test
+    void getAsyncExecutor_WithVirtualThreadsEnabled_ShouldRunFiveHundredTasksWithoutRejection() {
+        ReflectionTestUtils.setField(asyncConfig, "virtualThreads", true);
+        ReflectionTestUtils.setField(asyncConfig, "virtualMaxConcurrency", 50);
+        Executor executor = asyncConfig.getAsyncExecutor();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<CompletableFuture<Boolean>> futures = IntStream.range(0, 500)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return Thread.currentThread().isVirtual();
+                }, executor))
+                .toList();
+
+        assertTrue(futures.stream().allMatch(CompletableFuture::join));
+        assertTrue(peak.get() <= 50);
+    }
+
+    @Test
+    void taskScheduler_ShouldReturnInitializedSchedulerWithTwoThreads() {
+        ThreadPoolTaskScheduler scheduler = asyncConfig.taskScheduler();
+
+        assertNotNull(scheduler.getScheduledExecutor());
+        assertEquals(2, scheduler.getScheduledThreadPoolExecutor().getCorePoolSize());
+        assertEquals("Scheduler-", scheduler.getThreadNamePrefix());
+
+        scheduler.shutdown();
+    }
+
     @Test
     void getAsyncUncaughtExceptionHandler_ShouldReturnNonNullHandler() {
         AsyncUncaughtExceptionHandler handler = asyncConfig.getAsyncUncaughtExceptionHandler();
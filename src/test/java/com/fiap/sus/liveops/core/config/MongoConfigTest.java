@@ -0,0 +1,107 @@
+package com.fiap.sus.liveops.core.config;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceTimes;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoConfigTest {
+
+    private static final Instant ENTRY = Instant.parse("2026-01-10T08:00:00.123Z");
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = MongoConfig.conversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    private static Document stored(Object entryTime) {
+        return new Document("_id", "65f0c0ffee0000000000abcd")
+                .append("healthUnitId", "US-VILA-MARIANA")
+                .append("status", "WAITING")
+                .append("riskClassification", "RED")
+                .append("entryTime", entryTime);
+    }
+
+    @Test
+    @DisplayName("Should store instants as epoch millis and read them back")
+    void shouldRoundTripInstantsAsEpochMillis() {
+        Attendance attendance = new Attendance("US-VILA-MARIANA", RiskClassification.RED, null);
+        attendance.setEntryTime(ENTRY);
+
+        Document document = new Document();
+        converter.write(attendance, document);
+
+        assertEquals(ENTRY.toEpochMilli(), document.get("entryTime"));
+        assertNull(document.get("startTime"));
+        assertEquals(ENTRY, converter.read(Attendance.class, document).getEntryTime());
+    }
+
+    @Test
+    @DisplayName("Should compare attendance timestamps in queries as epoch millis")
+    void shouldMapInstantsInQueries() {
+        Criteria criteria = new Criteria().orOperator(
+                Criteria.where("entryTime").lt(ENTRY),
+                Criteria.where("startTime").gte(ENTRY)
+        );
+
+        Document mapped = new QueryMapper(converter).getMappedObject(criteria.getCriteriaObject(),
+                converter.getMappingContext().getPersistentEntity(Attendance.class));
+
+        assertEquals(Document.parse("{ '$or': [ { 'entryTime': { '$lt': " + ENTRY.toEpochMilli() + " } },"
+                + " { 'startTime': { '$gte': " + ENTRY.toEpochMilli() + " } } ] }"), mapped);
+    }
+
+    @Test
+    @DisplayName("Should leave the instants and longs of other documents to the default mapping")
+    void shouldNotConvertOtherDocuments() {
+        Checkpoint checkpoint = new Checkpoint("attendances", 42L, ENTRY);
+
+        Document document = new Document();
+        converter.write(checkpoint, document);
+
+        assertEquals(42L, document.get("sequence"));
+        assertEquals(Date.from(ENTRY), document.get("savedAt"));
+        assertEquals(checkpoint, converter.read(Checkpoint.class, document));
+    }
+
+    @org.springframework.data.mongodb.core.mapping.Document("checkpoints")
+    record Checkpoint(@Id String id, Long sequence, Instant savedAt) {
+    }
+
+    @Test
+    @DisplayName("Should still read documents that hold BSON dates")
+    void shouldReadLegacyDates() {
+        Document legacy = stored(Date.from(ENTRY));
+
+        assertEquals(ENTRY, converter.read(Attendance.class, legacy).getEntryTime());
+
+        AttendanceTimes times = converter.read(AttendanceTimes.class, legacy);
+        assertEquals(ENTRY.toEpochMilli(), times.entryTime());
+        assertEquals(AttendanceStatus.WAITING, times.status());
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.fiap.sus.liveops.core.config;
+
+import com.mongodb.client.MongoClient;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+/**
+ * {@link MongoTemplate} for the Testcontainers tests, with the conversions of {@link MongoConfig} so documents are
+ * stored exactly as the application stores them.
+ */
+public final class MongoTemplates {
+
+    private MongoTemplates() {
+    }
+
+    public static MongoTemplate create(MongoClient client, String databaseName) {
+        MongoTemplate mongoTemplate = new MongoTemplate(client, databaseName);
+        MappingMongoConverter converter = (MappingMongoConverter) mongoTemplate.getConverter();
+        converter.setCustomConversions(MongoConfig.conversions());
+        converter.afterPropertiesSet();
+        return mongoTemplate;
+    }
+
+}
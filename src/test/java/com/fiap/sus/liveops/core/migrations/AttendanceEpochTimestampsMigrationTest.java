@@ -0,0 +1,128 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepositoryCustomImpl;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Against a real MongoDB: legacy date timestamps become epoch millis across several batches, the analytics window
+ * only sees them afterwards, and the rollback restores the dates.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AttendanceEpochTimestampsMigrationTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static final String UNIT_ID = "US-EPOCH";
+    private static final int LEGACY_COUNT = 2_500;
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static MongoCollection<Document> attendances;
+    private static AttendanceRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = MongoTemplates.create(client, "liveops_test");
+        attendances = mongoTemplate.getCollection("attendances");
+        repository = new MongoRepositoryFactory(mongoTemplate).getRepository(
+                AttendanceRepository.class,
+                RepositoryFragments.just(new AttendanceRepositoryCustomImpl(mongoTemplate))
+        );
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @BeforeEach
+    void seedLegacyDocuments() {
+        attendances.drop();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Document> documents = new ArrayList<>(LEGACY_COUNT + 1);
+        for (int i = 0; i < LEGACY_COUNT; i++) {
+            Instant entry = now.minus(i % 600, ChronoUnit.MINUTES);
+            Document document = new Document("healthUnitId", UNIT_ID)
+                    .append("status", i % 2 == 0 ? "WAITING" : "IN_PROGRESS")
+                    .append("riskClassification", "GREEN")
+                    .append("entryTime", Date.from(entry));
+            if (i % 2 == 1) document.append("startTime", Date.from(entry.plus(5, ChronoUnit.MINUTES)));
+            documents.add(document);
+        }
+        // Already written by the new code
+        documents.add(new Document("healthUnitId", UNIT_ID)
+                .append("status", "WAITING")
+                .append("riskClassification", "RED")
+                .append("entryTime", now.toEpochMilli()));
+        attendances.insertMany(documents);
+    }
+
+    private static long countOfType(String field, String type) {
+        return attendances.countDocuments(new Document(field, new Document("$type", type)));
+    }
+
+    private static Instant windowStart() {
+        return Instant.now().minus(12, ChronoUnit.HOURS);
+    }
+
+    @Test
+    @DisplayName("Should convert every date to epoch millis and bring legacy documents into the analytics window")
+    void shouldConvertDatesToEpochMillis() {
+        assertEquals(1, repository.findByHealthUnitIdAndEntryTimeAfter(UNIT_ID, windowStart()).size());
+
+        AttendanceEpochTimestampsMigration migration = new AttendanceEpochTimestampsMigration(mongoTemplate);
+        migration.execute();
+        migration.execute();
+
+        for (String field : AttendanceEpochTimestampsMigration.TIMESTAMP_FIELDS) {
+            assertEquals(0, countOfType(field, "date"), field);
+        }
+        assertEquals(LEGACY_COUNT + 1, countOfType("entryTime", "long"));
+        assertEquals(LEGACY_COUNT / 2, countOfType("startTime", "long"));
+        assertEquals(0, attendances.countDocuments(new Document("dischargeTime", new Document("$exists", true))));
+        assertEquals(LEGACY_COUNT + 1, repository.findByHealthUnitIdAndEntryTimeAfter(UNIT_ID, windowStart()).size());
+    }
+
+    @Test
+    @DisplayName("Rollback should restore the timestamps as dates")
+    void rollbackShouldRestoreDates() {
+        Document before = attendances.find(new Document("startTime", new Document("$exists", true))).first();
+        assertNotNull(before);
+
+        AttendanceEpochTimestampsMigration migration = new AttendanceEpochTimestampsMigration(mongoTemplate);
+        migration.execute();
+        migration.rollback();
+
+        assertEquals(LEGACY_COUNT + 1, countOfType("entryTime", "date"));
+        Document after = attendances.find(new Document("_id", before.get("_id"))).first();
+        assertEquals(before.getDate("entryTime"), after.getDate("entryTime"));
+        assertEquals(before.getDate("startTime"), after.getDate("startTime"));
+    }
+
+}
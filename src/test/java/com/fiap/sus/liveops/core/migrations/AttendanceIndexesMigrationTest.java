@@ -0,0 +1,138 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asserts that every {@code AttendanceRepository} finder is served by an index once the migration runs.
+ * The filters below mirror the queries Spring Data derives from the finder names.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AttendanceIndexesMigrationTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoCollection<Document> attendances;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        MongoTemplate mongoTemplate = MongoTemplates.create(client, "liveops_test");
+
+        new AttendanceIndexesMigration(mongoTemplate).execute();
+
+        attendances = mongoTemplate.getCollection("attendances");
+        List<Document> documents = new ArrayList<>();
+        Instant now = Instant.now();
+        String[] statuses = {"WAITING", "IN_PROGRESS", "DISCHARGED"};
+        for (int i = 0; i < 300; i++) {
+            documents.add(new Document("healthUnitId", "US-" + (i % 10))
+                    .append("status", statuses[i % 3])
+                    .append("riskClassification", "GREEN")
+                    .append("entryTime", now.minus(i, ChronoUnit.MINUTES).toEpochMilli()));
+        }
+        attendances.insertMany(documents);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    private static String winningPlanStages(Document filter) {
+        Document explain = attendances.find(filter).explain();
+        Document queryPlanner = explain.get("queryPlanner", Document.class);
+        return queryPlanner.get("winningPlan", Document.class).toJson();
+    }
+
+    private static void assertIndexScan(Document filter, String expectedIndex) {
+        String plan = winningPlanStages(filter);
+
+        assertTrue(plan.contains("\"IXSCAN\""), "Expected IXSCAN but got: " + plan);
+        assertFalse(plan.contains("\"COLLSCAN\""), "Unexpected COLLSCAN: " + plan);
+        assertTrue(plan.contains(expectedIndex), "Expected index " + expectedIndex + " but got: " + plan);
+    }
+
+    @Test
+    @DisplayName("findByHealthUnitIdAndStatus should use the unit/status/entry index")
+    void findByHealthUnitIdAndStatusShouldUseIndex() {
+        assertIndexScan(
+                new Document("healthUnitId", "US-1").append("status", "DISCHARGED"),
+                AttendanceIndexesMigration.UNIT_STATUS_ENTRY_INDEX
+        );
+    }
+
+    @Test
+    @DisplayName("findByHealthUnitIdAndStatusNot should use the unit/status/entry index")
+    void findByHealthUnitIdAndStatusNotShouldUseIndex() {
+        assertIndexScan(
+                new Document("healthUnitId", "US-1").append("status", new Document("$ne", "DISCHARGED")),
+                AttendanceIndexesMigration.UNIT_STATUS_ENTRY_INDEX
+        );
+    }
+
+    @Test
+    @DisplayName("findByHealthUnitIdAndEntryTimeAfter should use the unit/entry index")
+    void findByHealthUnitIdAndEntryTimeAfterShouldUseIndex() {
+        long cutoff = Instant.now().minus(12, ChronoUnit.HOURS).toEpochMilli();
+
+        assertIndexScan(
+                new Document("healthUnitId", "US-1").append("entryTime", new Document("$gt", cutoff)),
+                AttendanceIndexesMigration.UNIT_ENTRY_INDEX
+        );
+    }
+
+    @Test
+    @DisplayName("findByHealthUnitId should use an index")
+    void findByHealthUnitIdShouldUseIndex() {
+        String plan = winningPlanStages(new Document("healthUnitId", "US-1"));
+
+        assertTrue(plan.contains("\"IXSCAN\""), "Expected IXSCAN but got: " + plan);
+        assertFalse(plan.contains("\"COLLSCAN\""), "Unexpected COLLSCAN: " + plan);
+    }
+
+    @Test
+    @DisplayName("findByStatusIn(active) should use the partial live queue index")
+    void findByStatusInShouldUsePartialIndex() {
+        assertIndexScan(
+                new Document("status", new Document("$in", List.of("WAITING", "IN_PROGRESS"))),
+                AttendanceIndexesMigration.ACTIVE_QUEUE_INDEX
+        );
+    }
+
+    @Test
+    @DisplayName("Rollback should drop the managed indexes and be re-runnable")
+    void rollbackShouldDropManagedIndexes() {
+        MongoTemplate mongoTemplate = MongoTemplates.create(client, "liveops_rollback_test");
+        AttendanceIndexesMigration migration = new AttendanceIndexesMigration(mongoTemplate);
+
+        migration.execute();
+        migration.rollback();
+        migration.rollback();
+
+        List<String> remaining = new ArrayList<>();
+        mongoTemplate.getCollection("attendances").listIndexes().forEach(index -> remaining.add(index.getString("name")));
+        assertEquals(List.of("_id_"), remaining);
+    }
+
+}
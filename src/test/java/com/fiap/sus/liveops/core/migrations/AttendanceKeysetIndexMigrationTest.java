@@ -0,0 +1,127 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.modules.attendance.dto.AttendanceFilter;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceCursor;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepositoryCustomImpl;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset listing over the {@code healthUnitId_entryTime_id} index: every row is visited exactly once across
+ * pages, including rows sharing the same {@code entryTime}, and no in-memory sort is needed.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AttendanceKeysetIndexMigrationTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static final String UNIT_ID = "US-KEYSET";
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static AttendanceRepositoryCustomImpl repository;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = MongoTemplates.create(client, "liveops_test");
+
+        new AttendanceIndexesMigration(mongoTemplate).execute();
+        new AttendanceKeysetIndexMigration(mongoTemplate).execute();
+
+        // Five rows per minute, so pages cut through groups of equal entryTime
+        Instant base = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        List<Attendance> attendances = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Attendance attendance = new Attendance(UNIT_ID, RiskClassification.values()[i % 5], new Patient("000.000.000-00", "Paciente " + i));
+            attendance.setEntryTime(base.minus(i / 5, ChronoUnit.MINUTES));
+            attendance.setStatus(i % 2 == 0 ? AttendanceStatus.WAITING : AttendanceStatus.DISCHARGED);
+            attendances.add(attendance);
+        }
+        mongoTemplate.insertAll(attendances);
+
+        repository = new AttendanceRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    private static List<String> walk(AttendanceFilter filter, int pageSize) {
+        List<String> visited = new ArrayList<>();
+        AttendanceCursor after = null;
+
+        while (true) {
+            List<Attendance> page = repository.findPage(UNIT_ID, filter, after, pageSize);
+            page.forEach(attendance -> visited.add(attendance.getId()));
+            if (page.size() < pageSize) return visited;
+            after = AttendanceCursor.decode(AttendanceCursor.of(page.getLast()).encode());
+        }
+    }
+
+    @Test
+    @DisplayName("Pages should visit every row once, in stream order")
+    void pagesShouldMatchStreamOrder() {
+        List<String> streamed;
+        try (var rows = repository.streamAll(UNIT_ID, AttendanceFilter.NONE)) {
+            streamed = rows.map(Attendance::getId).toList();
+        }
+
+        assertEquals(100, streamed.size());
+        assertEquals(streamed, walk(AttendanceFilter.NONE, 7));
+    }
+
+    @Test
+    @DisplayName("Filters should apply to every page")
+    void filtersShouldApplyToEveryPage() {
+        AttendanceFilter filter = new AttendanceFilter(AttendanceStatus.WAITING, RiskClassification.RED, null, null);
+
+        List<String> visited = walk(filter, 3);
+
+        assertEquals(10, visited.size());
+        visited.forEach(id -> {
+            Attendance attendance = mongoTemplate.findById(id, Attendance.class);
+            assertNotNull(attendance);
+            assertEquals(AttendanceStatus.WAITING, attendance.getStatus());
+            assertEquals(RiskClassification.RED, attendance.getRiskClassification());
+        });
+    }
+
+    @Test
+    @DisplayName("Keyset query should be an index scan without a SORT stage")
+    void keysetQueryShouldNotSortInMemory() {
+        Document explain = mongoTemplate.getCollection("attendances")
+                .find(new Document("healthUnitId", UNIT_ID))
+                .sort(new Document("entryTime", -1).append("_id", -1))
+                .limit(20)
+                .explain();
+        String plan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+
+        assertTrue(plan.contains(AttendanceKeysetIndexMigration.UNIT_ENTRY_ID_INDEX), "Unexpected plan: " + plan);
+        assertFalse(plan.contains("\"SORT\""), "Unexpected in-memory sort: " + plan);
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+import com.fiap.sus.liveops.modules.analytics.repository.AttendanceRollupRepositoryCustomImpl;
+import com.fiap.sus.liveops.modules.analytics.repository.RollupTotals;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rollup buckets against a real MongoDB: the backfill counts every discharge once, however often it or the live
+ * recording runs, and the bucket totals match the attendances they summarise.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AttendanceRollupBackfillMigrationTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static final String UNIT_ID = "US-ROLLUP";
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 1, 10, 0, 0);
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static AttendanceRollupRepositoryCustomImpl rollups;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = MongoTemplates.create(client, "liveops_test");
+        rollups = new AttendanceRollupRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        mongoTemplate.dropCollection(Attendance.class);
+        mongoTemplate.dropCollection(AttendanceRollup.class);
+    }
+
+    private static Attendance attendance(int i, AttendanceStatus status) {
+        Attendance attendance = new Attendance(UNIT_ID, RiskClassification.values()[i % 5], new Patient("000.000.000-00", "Paciente " + i));
+        attendance.setId(new ObjectId().toHexString());
+        attendance.setEntryTime(EpochTime.toInstant(DAY.plusMinutes(7L * i)));
+        attendance.setStatus(status);
+        if (status != AttendanceStatus.WAITING) {
+            attendance.setStartTime(attendance.getEntryTime().plus(i % 130, ChronoUnit.MINUTES));
+        }
+        if (status == AttendanceStatus.DISCHARGED) {
+            attendance.setDischargeTime(attendance.getStartTime().plus(15 + i % 20, ChronoUnit.MINUTES));
+        }
+        return attendance;
+    }
+
+    private static List<Attendance> seed(int count) {
+        List<Attendance> attendances = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            attendances.add(attendance(i, i % 4 == 0 ? AttendanceStatus.IN_PROGRESS : AttendanceStatus.DISCHARGED));
+        }
+        mongoTemplate.insertAll(attendances);
+        return attendances.stream().filter(a -> a.getStatus() == AttendanceStatus.DISCHARGED).toList();
+    }
+
+    private static RollupTotals allTime() {
+        RollupTotals merged = new RollupTotals();
+        rollups.totalsByRisk(UNIT_ID, null, null).values().forEach(merged::merge);
+        return merged;
+    }
+
+    @Test
+    @DisplayName("Backfill should count every discharge once, even when run again")
+    void backfillShouldBeIdempotent() {
+        List<Attendance> discharged = seed(2_500);
+        AttendanceRollupBackfillMigration migration = new AttendanceRollupBackfillMigration(mongoTemplate);
+
+        migration.execute();
+        migration.execute();
+
+        RollupTotals totals = allTime();
+        long expectedTotal = discharged.stream()
+                .mapToLong(a -> Duration.between(a.getEntryTime(), a.getDischargeTime()).toMinutes())
+                .sum();
+        assertEquals(discharged.size(), totals.count());
+        assertEquals(expectedTotal / discharged.size(), totals.averageTotalMinutes());
+        assertEquals(discharged.stream().mapToLong(AttendanceRollup::waitMinutes).max().orElseThrow(), totals.maxWaitMinutes());
+        assertTrue(mongoTemplate.indexOps(AttendanceRollup.class).getIndexInfo().stream()
+                .map(IndexInfo::getName)
+                .anyMatch(AttendanceRollupBackfillMigration.UNIT_BUCKET_INDEX::equals));
+    }
+
+    @Test
+    @DisplayName("Live recording should skip discharges the backfill already counted")
+    void recordAllShouldSkipCountedDischarges() {
+        List<Attendance> discharged = seed(40);
+        new AttendanceRollupBackfillMigration(mongoTemplate).execute();
+
+        assertEquals(0, rollups.recordAll(discharged));
+
+        Attendance late = attendance(41, AttendanceStatus.DISCHARGED);
+        assertEquals(1, rollups.recordAll(List.of(late, late)));
+        assertEquals(discharged.size() + 1, allTime().count());
+    }
+
+    @Test
+    @DisplayName("Concurrent recording into new buckets should lose no discharge")
+    void concurrentRecordingShouldCountEachDischargeOnce() throws Exception {
+        List<Attendance> discharged = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            discharged.add(attendance(i % 10, AttendanceStatus.DISCHARGED));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> rollups.recordAll(discharged)));
+            }
+            int recorded = 0;
+            for (Future<Integer> result : results) {
+                recorded += result.get();
+            }
+            assertEquals(discharged.size(), recorded);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(discharged.size(), allTime().count());
+    }
+
+    @Test
+    @DisplayName("Totals should only read the buckets inside the range")
+    void totalsShouldHonourRange() {
+        seed(100);
+        new AttendanceRollupBackfillMigration(mongoTemplate).execute();
+
+        Instant from = EpochTime.toInstant(DAY.plusHours(3));
+        Instant to = EpochTime.toInstant(DAY.plusHours(6));
+        Map<RiskClassification, RollupTotals> inRange = rollups.totalsByRisk(UNIT_ID, from, to);
+
+        long expected = mongoTemplate.findAll(AttendanceRollup.class).stream()
+                .filter(bucket -> !bucket.getBucketStart().isBefore(from) && bucket.getBucketStart().isBefore(to))
+                .mapToLong(AttendanceRollup::getCount)
+                .sum();
+        assertEquals(expected, inRange.values().stream().mapToLong(RollupTotals::count).sum());
+        assertTrue(expected > 0);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.fiap.sus.liveops.core.migrations;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The time-only reads of the live state rebuild are index scans instead of collection scans.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AttendanceTimeIndexesMigrationTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = MongoTemplates.create(client, "liveops_test");
+
+        new AttendanceIndexesMigration(mongoTemplate).execute();
+        new AttendanceKeysetIndexMigration(mongoTemplate).execute();
+        new AttendanceTimeIndexesMigration(mongoTemplate).execute();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    private static String winningPlan(String field) {
+        Document explain = mongoTemplate.getCollection("attendances")
+                .find(new Document(field, new Document("$gt", 0L)))
+                .explain();
+        return explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+    }
+
+    @Test
+    @DisplayName("Window and served wait reads across units should use the time indexes")
+    void timeOnlyReadsShouldUseIndexes() {
+        String entryPlan = winningPlan("entryTime");
+        String startPlan = winningPlan("startTime");
+
+        assertTrue(entryPlan.contains("\"" + AttendanceTimeIndexesMigration.ENTRY_TIME_INDEX + "\""), "Unexpected plan: " + entryPlan);
+        assertTrue(startPlan.contains("\"" + AttendanceTimeIndexesMigration.START_TIME_INDEX + "\""), "Unexpected plan: " + startPlan);
+    }
+
+}
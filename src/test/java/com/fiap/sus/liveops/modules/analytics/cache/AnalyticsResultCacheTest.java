@@ -0,0 +1,192 @@
+package com.fiap.sus.liveops.modules.analytics.cache;
+
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsResultCacheTest {
+
+    private static final String UNIT_ID = "US-VILA-MARIANA";
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnalyticsResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AnalyticsResultCache(meterRegistry, 100, 60_000);
+    }
+
+    private static UnitAnalytics analytics(String healthUnitId) {
+        return new UnitAnalytics(healthUnitId, 10L, new LiveQueueSnapshot(1, 1, 0), List.of());
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tags("cache", AnalyticsResultCache.ANALYTICS_CACHE, "result", result)
+                .functionCounter()
+                .count();
+    }
+
+    @Nested
+    class Lookup {
+
+        @Test
+        @DisplayName("Should compute once and record hits and misses")
+        void shouldComputeOnceAndRecordHitsAndMisses() {
+            AtomicInteger computations = new AtomicInteger();
+
+            for (int i = 0; i < 3; i++) {
+                cache.getAnalytics(UNIT_ID, id -> {
+                    computations.incrementAndGet();
+                    return analytics(id);
+                });
+            }
+
+            assertEquals(1, computations.get());
+            assertEquals(2.0, gets("hit"));
+            assertEquals(1.0, gets("miss"));
+        }
+
+        @Test
+        @DisplayName("Should expire entries after the TTL")
+        void shouldExpireEntriesAfterTtl() throws InterruptedException {
+            AnalyticsResultCache shortLived = new AnalyticsResultCache(meterRegistry, 100, 20);
+            AtomicInteger computations = new AtomicInteger();
+
+            shortLived.getAnalytics(UNIT_ID, id -> analytics(id + computations.incrementAndGet()));
+            Thread.sleep(50);
+            shortLived.getAnalytics(UNIT_ID, id -> analytics(id + computations.incrementAndGet()));
+
+            assertEquals(2, computations.get());
+        }
+
+        @Test
+        @DisplayName("Should collapse concurrent misses on the same unit into a single computation")
+        void shouldCollapseConcurrentMisses() throws Exception {
+            AtomicInteger computations = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+
+            try {
+                List<CompletableFuture<UnitAnalytics>> futures = IntStream.range(0, 8)
+                        .mapToObj(i -> CompletableFuture.supplyAsync(() -> cache.getAnalytics(UNIT_ID, id -> {
+                            computations.incrementAndGet();
+                            try {
+                                release.await(1, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return analytics(id);
+                        }), pool))
+                        .toList();
+
+                Thread.sleep(100);
+                release.countDown();
+
+                futures.forEach(future -> assertEquals(UNIT_ID, future.join().healthUnitId()));
+                assertEquals(1, computations.get());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+    }
+
+    @Nested
+    class Invalidation {
+
+        @Test
+        @DisplayName("Should drop only the unit touched by an attendance change")
+        void shouldDropOnlyChangedUnit() {
+            cache.putAnalyticsIfCurrent(UNIT_ID, analytics(UNIT_ID), cache.getGeneration(UNIT_ID));
+            cache.putAnalyticsIfCurrent("US-TATUAPE", analytics("US-TATUAPE"), cache.getGeneration("US-TATUAPE"));
+
+            cache.onAttendanceChanged(AttendanceChangedEvent.of(
+                    new Attendance(UNIT_ID, RiskClassification.RED, new Patient("000.000.000-00", "Paciente"))));
+
+            assertNull(cache.getAnalyticsIfPresent(UNIT_ID));
+            assertNotNull(cache.getAnalyticsIfPresent("US-TATUAPE"));
+            assertEquals(1.0, meterRegistry.get("analytics.cache.invalidations").counter().count());
+        }
+
+        @Test
+        @DisplayName("Should not hand a computation started before an invalidation to later misses")
+        void shouldNotJoinComputationStartedBeforeInvalidation() throws Exception {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService pool = Executors.newSingleThreadExecutor();
+
+            try {
+                CompletableFuture<UnitAnalytics> stale = CompletableFuture.supplyAsync(() -> cache.getAnalytics(UNIT_ID, id -> {
+                    started.countDown();
+                    try {
+                        release.await(1, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return analytics("stale");
+                }), pool);
+                assertTrue(started.await(1, TimeUnit.SECONDS));
+
+                cache.invalidate(UNIT_ID);
+                UnitAnalytics fresh = cache.getAnalytics(UNIT_ID, id -> analytics("fresh"));
+                release.countDown();
+
+                assertEquals("fresh", fresh.healthUnitId());
+                assertEquals("stale", stale.get(1, TimeUnit.SECONDS).healthUnitId());
+                assertEquals("fresh", cache.getAnalyticsIfPresent(UNIT_ID).healthUnitId());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("Should not store a value computed from data read before an invalidation")
+        void shouldDiscardValueReadBeforeInvalidation() {
+            long generation = cache.getGeneration(UNIT_ID);
+
+            cache.invalidate(UNIT_ID);
+            cache.putAnalyticsIfCurrent(UNIT_ID, analytics(UNIT_ID), generation);
+            assertNull(cache.getAnalyticsIfPresent(UNIT_ID));
+
+            cache.putAnalyticsIfCurrent(UNIT_ID, analytics(UNIT_ID), cache.getGeneration(UNIT_ID));
+            assertNotNull(cache.getAnalyticsIfPresent(UNIT_ID));
+        }
+
+        @Test
+        @DisplayName("Should bound the generations kept and still discard values read before an evicted invalidation")
+        void shouldBoundGenerations() {
+            AnalyticsResultCache small = new AnalyticsResultCache(meterRegistry, 2, 60_000);
+            long generation = small.getGeneration(UNIT_ID);
+
+            small.invalidate(UNIT_ID);
+            IntStream.range(0, 100).forEach(i -> small.invalidate("US-" + i));
+            small.putAnalyticsIfCurrent(UNIT_ID, analytics(UNIT_ID), generation);
+
+            assertTrue(small.trackedUnits() <= 2);
+            assertNull(small.getAnalyticsIfPresent(UNIT_ID));
+        }
+
+    }
+
+}
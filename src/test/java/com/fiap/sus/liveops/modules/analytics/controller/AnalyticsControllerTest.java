@@ -1,11 +1,22 @@
 package com.fiap.sus.liveops.modules.analytics.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiap.sus.liveops.core.exception.ResourceNotFoundException;
 import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.QueueEntry;
+import com.fiap.sus.liveops.modules.analytics.dto.QueuePosition;
+import com.fiap.sus.liveops.modules.analytics.dto.RegionAnalytics;
 import com.fiap.sus.liveops.modules.analytics.dto.RiskAttendancePerformance;
 import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitHistory;
 import com.fiap.sus.liveops.modules.analytics.dto.UnitMetrics;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitStress;
+import com.fiap.sus.liveops.modules.analytics.dto.WaitStatistics;
+import com.fiap.sus.liveops.modules.analytics.service.AnalyticsHistoryService;
 import com.fiap.sus.liveops.modules.analytics.service.AnalyticsService;
+import com.fiap.sus.liveops.modules.analytics.service.AnalyticsStreamService;
+import com.fiap.sus.liveops.modules.analytics.service.RegionalAnalyticsService;
+import com.fiap.sus.liveops.modules.analytics.service.WaitingQueueService;
 import com.fiap.sus.liveops.shared.enums.RiskClassification;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,13 +27,18 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -42,12 +58,24 @@ class AnalyticsControllerTest {
     @MockitoBean
     private AnalyticsService analyticsService;
 
+    @MockitoBean
+    private AnalyticsStreamService analyticsStreamService;
+
+    @MockitoBean
+    private AnalyticsHistoryService analyticsHistoryService;
+
+    @MockitoBean
+    private RegionalAnalyticsService regionalAnalyticsService;
+
+    @MockitoBean
+    private WaitingQueueService waitingQueueService;
+
     @Test
     void getBasicUnitMetrics_ShouldReturnMetrics() throws Exception {
         String healthUnitId = "US-VILA-MARIANA";
         UnitMetrics metrics = new UnitMetrics(healthUnitId, 15L, 30L);
 
-        when(analyticsService.getBasicMetrics(eq(healthUnitId))).thenReturn(metrics);
+        when(analyticsHistoryService.getBasicMetrics(eq(healthUnitId))).thenReturn(metrics);
 
         mockMvc.perform(get("/analytics/units/{healthUnitId}", healthUnitId))
                 .andExpect(status().isOk())
@@ -61,7 +89,7 @@ class AnalyticsControllerTest {
         String healthUnitId = "US-EMPTY";
         UnitMetrics metrics = new UnitMetrics(healthUnitId, 0L, 0L);
 
-        when(analyticsService.getBasicMetrics(eq(healthUnitId))).thenReturn(metrics);
+        when(analyticsHistoryService.getBasicMetrics(eq(healthUnitId))).thenReturn(metrics);
 
         mockMvc.perform(get("/analytics/units/{healthUnitId}", healthUnitId))
                 .andExpect(status().isOk())
@@ -70,6 +98,54 @@ class AnalyticsControllerTest {
                 .andExpect(jsonPath("$.averageMinutes").value(0));
     }
 
+    @Test
+    void getUnitHistory_ShouldReturnStatisticsForRange() throws Exception {
+        String healthUnitId = "US-VILA-MARIANA";
+        LocalDateTime from = LocalDateTime.of(2026, 1, 10, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 1, 11, 8, 0);
+        WaitStatistics overall = new WaitStatistics(null, 12, 40, 20, 95, 35, 80, 95);
+        WaitStatistics yellow = new WaitStatistics(RiskClassification.YELLOW, 12, 40, 20, 95, 35, 80, 95);
+
+        when(analyticsHistoryService.getHistory(healthUnitId, from, to))
+                .thenReturn(new UnitHistory(healthUnitId, from, to, overall, List.of(yellow)));
+
+        mockMvc.perform(get("/analytics/units/{healthUnitId}/history", healthUnitId)
+                        .param("from", "2026-01-10T08:00:00")
+                        .param("to", "2026-01-11T08:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.overall.attendedCount").value(12))
+                .andExpect(jsonPath("$.overall.p90WaitMinutes").value(80))
+                .andExpect(jsonPath("$.riskStatistics[0].risk").value("YELLOW"));
+    }
+
+    @Test
+    void getUnitHistory_WithoutRange_ShouldDefaultToLastDay() throws Exception {
+        String healthUnitId = "US-VILA-MARIANA";
+        when(analyticsHistoryService.getHistory(eq(healthUnitId), any(), any()))
+                .thenAnswer(invocation -> {
+                    LocalDateTime from = invocation.getArgument(1);
+                    LocalDateTime to = invocation.getArgument(2);
+                    return new UnitHistory(healthUnitId, from, to, null, List.of());
+                });
+
+        mockMvc.perform(get("/analytics/units/{healthUnitId}/history", healthUnitId))
+                .andExpect(status().isOk())
+                .andExpect(result -> {
+                    UnitHistory history = objectMapper.readValue(result.getResponse().getContentAsString(), UnitHistory.class);
+                    assertEquals(history.to().minusHours(24), history.from());
+                });
+    }
+
+    @Test
+    void getUnitHistory_WithInvertedRange_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/analytics/units/{healthUnitId}/history", "US-VILA-MARIANA")
+                        .param("from", "2026-01-11T08:00:00")
+                        .param("to", "2026-01-10T08:00:00"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(analyticsHistoryService);
+    }
+
     @Test
     void getUnitAnalytics_ShouldReturnAdvancedAnalytics() throws Exception {
         String healthUnitId = "US-VILA-MARIANA";
@@ -115,6 +191,17 @@ class AnalyticsControllerTest {
                 .andExpect(jsonPath("$.riskPerformance").isEmpty());
     }
 
+    @Test
+    void streamUnitAnalytics_ShouldStartEventStream() throws Exception {
+        String healthUnitId = "US-VILA-MARIANA";
+
+        when(analyticsStreamService.subscribe(eq(healthUnitId))).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/analytics/units/{healthUnitId}/stream", healthUnitId)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+    }
+
     @Test
     void getAdvancedAnalyticsForUnits_ShouldReturnListOfAnalytics() throws Exception {
         List<String> healthUnitIds = Arrays.asList("US-VILA-MARIANA", "US-TATUAPE");
@@ -166,5 +253,99 @@ class AnalyticsControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void getRegionAnalytics_ShouldReturnMergedViewAndRanking() throws Exception {
+        RegionAnalytics region = new RegionAnalytics(
+                "zona-sul", 2, 40L, new LiveQueueSnapshot(18L, 11L, 7L), Collections.emptyList(), Collections.emptyList(),
+                List.of(new UnitStress("US-VILA-MARIANA", 1.75, RiskClassification.YELLOW, 105L, 6L, true))
+        );
+        when(regionalAnalyticsService.getRegion("zona-sul", 5)).thenReturn(region);
+
+        mockMvc.perform(get("/analytics/regions/{region}", "zona-sul").param("top", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.region").value("zona-sul"))
+                .andExpect(jsonPath("$.unitCount").value(2))
+                .andExpect(jsonPath("$.queueSnapshot.totalPatients").value(18))
+                .andExpect(jsonPath("$.mostStressedUnits[0].healthUnitId").value("US-VILA-MARIANA"))
+                .andExpect(jsonPath("$.mostStressedUnits[0].slaBreached").value(true));
+    }
+
+    @Test
+    void getAnalyticsForUnitGroup_ShouldAggregateGivenUnits() throws Exception {
+        List<String> healthUnitIds = Arrays.asList("US-VILA-MARIANA", "US-TATUAPE");
+        RegionAnalytics region = new RegionAnalytics(
+                RegionalAnalyticsService.CUSTOM_REGION, 2, 25L, new LiveQueueSnapshot(0L, 0L, 0L),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList()
+        );
+        when(regionalAnalyticsService.aggregate(RegionalAnalyticsService.CUSTOM_REGION, healthUnitIds, 10)).thenReturn(region);
+
+        mockMvc.perform(post("/analytics/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(healthUnitIds)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.region").value(RegionalAnalyticsService.CUSTOM_REGION))
+                .andExpect(jsonPath("$.generalAverageWaitTimeMinutes").value(25));
+    }
+
+    @Test
+    void getAnalyticsForUnitGroup_WithEmptyList_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/analytics/regions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(regionalAnalyticsService);
+    }
+
+    @Test
+    void getNextInQueue_ShouldReturnPatientsInCallOrder() throws Exception {
+        List<QueueEntry> next = List.of(
+                new QueueEntry(1, "a1", RiskClassification.RED, LocalDateTime.of(2026, 1, 10, 8, 0), 3L, 4L),
+                new QueueEntry(2, "a2", RiskClassification.YELLOW, LocalDateTime.of(2026, 1, 10, 7, 30), 33L, 9L)
+        );
+        when(waitingQueueService.getNext("US-VILA-MARIANA", 2)).thenReturn(next);
+
+        mockMvc.perform(get("/analytics/units/{healthUnitId}/queue", "US-VILA-MARIANA").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].attendanceId").value("a1"))
+                .andExpect(jsonPath("$[1].position").value(2))
+                .andExpect(jsonPath("$[1].riskClassification").value("YELLOW"));
+    }
+
+    @Test
+    void getQueuePosition_ShouldReturnPosition() throws Exception {
+        QueuePosition position = new QueuePosition("a2", "US-VILA-MARIANA", RiskClassification.YELLOW, 7, 2, 23L, 35L, 18L);
+        when(waitingQueueService.getPosition("US-VILA-MARIANA", "a2")).thenReturn(position);
+
+        mockMvc.perform(get("/analytics/units/{healthUnitId}/queue/{attendanceId}", "US-VILA-MARIANA", "a2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.position").value(7))
+                .andExpect(jsonPath("$.sameRiskAhead").value(2))
+                .andExpect(jsonPath("$.queueSize").value(23))
+                .andExpect(jsonPath("$.estimatedMinutesToService").value(18));
+    }
+
+    @Test
+    void getQueuePosition_WhenNotWaiting_ShouldReturnNotFound() throws Exception {
+        when(waitingQueueService.getPosition("US-VILA-MARIANA", "gone"))
+                .thenThrow(new ResourceNotFoundException("Attendance gone is not waiting in health unit US-VILA-MARIANA"));
+
+        mockMvc.perform(get("/analytics/units/{healthUnitId}/queue/{attendanceId}", "US-VILA-MARIANA", "gone"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getTimeToServiceEstimates_ShouldReturnWholeQueue() throws Exception {
+        List<QueueEntry> queue = List.of(
+                new QueueEntry(1, "a1", RiskClassification.ORANGE, LocalDateTime.of(2026, 1, 10, 8, 0), 6L, 3L)
+        );
+        when(waitingQueueService.getEstimates("US-VILA-MARIANA")).thenReturn(queue);
+
+        mockMvc.perform(get("/analytics/units/{healthUnitId}/eta", "US-VILA-MARIANA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].attendanceId").value("a1"))
+                .andExpect(jsonPath("$[0].estimatedMinutesToService").value(3));
+    }
+
 }
 
@@ -0,0 +1,89 @@
+package com.fiap.sus.liveops.modules.analytics.document;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttendanceRollupTest {
+
+    private static final LocalDateTime ENTRY = LocalDateTime.of(2026, 1, 10, 8, 0);
+
+    private static Attendance discharged(LocalDateTime start, LocalDateTime discharge) {
+        Attendance attendance = new Attendance("unit-1", RiskClassification.YELLOW, null);
+        attendance.setId("a-1");
+        attendance.setEntryTime(EpochTime.toInstant(ENTRY));
+        attendance.setStartTime(EpochTime.toInstant(start));
+        attendance.setDischargeTime(EpochTime.toInstant(discharge));
+        attendance.setStatus(AttendanceStatus.DISCHARGED);
+        return attendance;
+    }
+
+    @Test
+    @DisplayName("Should floor instants to the start of their 15-minute bucket in UTC")
+    void shouldFloorToUtcBucket() {
+        Instant hour = Instant.parse("2026-01-10T08:00:00Z");
+
+        assertEquals(hour, AttendanceRollup.bucketStart(hour));
+        assertEquals(hour, AttendanceRollup.bucketStart(Instant.parse("2026-01-10T08:14:59.999Z")));
+        assertEquals(Instant.parse("2026-01-10T08:45:00Z"), AttendanceRollup.bucketStart(Instant.parse("2026-01-10T08:59:00Z")));
+    }
+
+    @Test
+    @DisplayName("Should keep apart the two passes of a wall-clock hour repeated when daylight saving ends")
+    void shouldNotMergeRepeatedLocalHour() {
+        ZoneId saoPauloIn2018 = ZoneId.of("America/Sao_Paulo");
+        LocalDateTime repeated = LocalDateTime.of(2018, 2, 17, 23, 20);
+        Instant firstPass = repeated.atZone(saoPauloIn2018).withEarlierOffsetAtOverlap().toInstant();
+        Instant secondPass = repeated.atZone(saoPauloIn2018).withLaterOffsetAtOverlap().toInstant();
+
+        assertNotEquals(AttendanceRollup.bucketStart(firstPass), AttendanceRollup.bucketStart(secondPass));
+    }
+
+    @Test
+    @DisplayName("Should split the entry-to-discharge time into wait and service")
+    void shouldSplitWaitAndService() {
+        Attendance attendance = discharged(ENTRY.plusMinutes(25), ENTRY.plusMinutes(70));
+
+        assertEquals(25, AttendanceRollup.waitMinutes(attendance));
+        assertEquals(45, AttendanceRollup.serviceMinutes(attendance));
+    }
+
+    @Test
+    @DisplayName("Should count a discharge without start as waiting until discharge")
+    void shouldTreatMissingStartAsWait() {
+        Attendance attendance = discharged(null, ENTRY.plusMinutes(70));
+
+        assertEquals(70, AttendanceRollup.waitMinutes(attendance));
+        assertEquals(0, AttendanceRollup.serviceMinutes(attendance));
+    }
+
+    @Test
+    @DisplayName("Should place waits on Manchester limits at the start of the next bin")
+    void shouldBinOnUpperBoundExclusive() {
+        assertEquals(0, AttendanceRollup.waitBin(0));
+        assertEquals(2, AttendanceRollup.waitBin(10));
+        assertEquals(AttendanceRollup.waitBin(60) - 1, AttendanceRollup.waitBin(59));
+        assertEquals(AttendanceRollup.WAIT_BINS - 1, AttendanceRollup.waitBin(10_000));
+    }
+
+    @Test
+    @DisplayName("Should only roll up complete discharges")
+    void shouldOnlyAcceptCompleteDischarges() {
+        assertTrue(AttendanceRollup.isEligible(discharged(ENTRY.plusMinutes(5), ENTRY.plusMinutes(10))));
+
+        Attendance inProgress = discharged(ENTRY.plusMinutes(5), null);
+        inProgress.setStatus(AttendanceStatus.IN_PROGRESS);
+        assertFalse(AttendanceRollup.isEligible(inProgress));
+        assertFalse(AttendanceRollup.isEligible(discharged(ENTRY.plusMinutes(5), null)));
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.fiap.sus.liveops.modules.analytics.repository;
+
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupTotalsTest {
+
+    private static RollupTotals of(long... waits) {
+        long[] histogram = new long[AttendanceRollup.WAIT_BINS];
+        for (long wait : waits) {
+            histogram[AttendanceRollup.waitBin(wait)]++;
+        }
+        return RollupTotals.of(waits.length, LongStream.of(waits).sum(), 0, LongStream.of(waits).max().orElse(0), histogram);
+    }
+
+    @Test
+    @DisplayName("Should interpolate percentiles inside the histogram bins")
+    void shouldInterpolatePercentiles() {
+        RollupTotals totals = of(LongStream.range(0, 100).toArray());
+
+        assertEquals(50, totals.waitPercentile(0.50));
+        assertEquals(90, totals.waitPercentile(0.90));
+        // Interpolation would reach 117 inside [90, 120), but nothing waited longer than 99
+        assertEquals(99, totals.waitPercentile(0.99));
+    }
+
+    @Test
+    @DisplayName("Should keep percentiles of the open-ended bin between 24h and the observed maximum")
+    void shouldBoundOpenEndedBin() {
+        RollupTotals totals = of(2000, 3000);
+
+        long p50 = totals.waitPercentile(0.50);
+        assertTrue(p50 >= 1440 && p50 <= 3000, "p50 was " + p50);
+        assertTrue(totals.waitPercentile(0.99) <= 3000);
+    }
+
+    @Test
+    @DisplayName("Should give the same statistics merged as computed over all attendances at once")
+    void shouldMergeLikeCombinedTotals() {
+        RollupTotals merged = of(3, 12, 40).merge(of(7, 95, 300));
+        RollupTotals combined = of(3, 12, 40, 7, 95, 300);
+
+        assertEquals(combined.count(), merged.count());
+        assertEquals(combined.averageWaitMinutes(), merged.averageWaitMinutes());
+        assertEquals(combined.maxWaitMinutes(), merged.maxWaitMinutes());
+        for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+            assertEquals(combined.waitPercentile(quantile), merged.waitPercentile(quantile));
+        }
+    }
+
+    @Test
+    @DisplayName("Should report zeros without attendances")
+    void shouldReportZerosWhenEmpty() {
+        RollupTotals totals = new RollupTotals();
+
+        assertEquals(0, totals.averageTotalMinutes());
+        assertEquals(0, totals.waitPercentile(0.9));
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfile;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsAccumulatorTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 1",
+            "10, 2",
+            "1000, 3",
+            "10000, 4"
+    })
+    @DisplayName("Should produce the same UnitAnalytics as the original multi-stream computation")
+    void shouldMatchLegacyComputation(int size, long seed) {
+        Instant now = Instant.now();
+        List<Attendance> attendances = SyntheticAttendances.window("unit-1", size, now, seed);
+
+        UnitAnalytics expected = LegacyAnalyticsCalculator.compute("unit-1", attendances);
+        UnitAnalytics actual = AnalyticsAccumulator.of(attendances, now.toEpochMilli(), DecayProfile.DEFAULT).toUnitAnalytics("unit-1");
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Should match the original computation when only waiting patients of one risk exist")
+    void shouldMatchLegacyComputationForSkewedDistribution() {
+        Instant now = Instant.now();
+        List<Attendance> attendances = SyntheticAttendances.window(
+                "unit-1", 500, now, 7, new double[]{1, 0, 0, 0, 0}, 1.0, 0.0
+        );
+
+        UnitAnalytics expected = LegacyAnalyticsCalculator.compute("unit-1", attendances);
+        UnitAnalytics actual = AnalyticsAccumulator.of(attendances, now.toEpochMilli(), DecayProfile.DEFAULT).toUnitAnalytics("unit-1");
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Should return zeros and no breaches for an empty window")
+    void shouldReturnZerosForEmptyWindow() {
+        UnitAnalytics analytics = AnalyticsAccumulator.of(List.of(), EpochTime.now(), DecayProfile.DEFAULT).toUnitAnalytics("unit-1");
+
+        assertEquals(0L, analytics.generalAverageWaitTimeMinutes());
+        assertEquals(new LiveQueueSnapshot(0, 0, 0), analytics.queueSnapshot());
+        assertEquals(RiskClassification.values().length, analytics.riskPerformance().size());
+        analytics.riskPerformance().forEach(performance -> {
+            assertEquals(0L, performance.averageWaitTimeMinutes());
+            assertFalse(performance.isSlaBreached());
+        });
+    }
+
+    @Test
+    @DisplayName("Should flag a forgotten RED patient even when the average is low")
+    void shouldFlagForgottenPatient() {
+        Instant now = Instant.now();
+        long nowMillis = now.toEpochMilli();
+
+        Attendance forgotten = new Attendance();
+        forgotten.setStatus(AttendanceStatus.WAITING);
+        forgotten.setRiskClassification(RiskClassification.RED);
+        forgotten.setEntryTime(now.minus(10, ChronoUnit.MINUTES));
+
+        AnalyticsAccumulator accumulator = new AnalyticsAccumulator(nowMillis, DecayProfile.DEFAULT);
+        accumulator.add(forgotten);
+
+        assertTrue(accumulator.isAnyWaitingBreached(RiskClassification.RED));
+        assertEquals(10L, accumulator.getAverageWait(RiskClassification.RED));
+        assertFalse(accumulator.isAnyWaitingBreached(RiskClassification.ORANGE));
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.fiap.sus.liveops.core.migrations.DatabaseSeedMigration;
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.RiskAttendancePerformance;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepositoryCustomImpl;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parity between the Java-side computation and the aggregation engine on the seed scenarios, plus a unit whose
+ * oldest waiting patient was triaged before the analysis window. Both engines are evaluated at the same instant.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AnalyticsAggregationEngineTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static final String OLD_QUEUE_UNIT = "US-FILA-ANTIGA";
+
+    private static MongoClient client;
+    private static long now;
+    private static AnalyticsService javaService;
+    private static AnalyticsService aggregationService;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        MongoTemplate mongoTemplate = MongoTemplates.create(client, "liveops_test");
+        AttendanceRepository repository = new MongoRepositoryFactory(mongoTemplate).getRepository(
+                AttendanceRepository.class,
+                RepositoryFragments.just(new AttendanceRepositoryCustomImpl(mongoTemplate))
+        );
+
+        new DatabaseSeedMigration(repository).execute();
+
+        now = EpochTime.now();
+        Attendance forgotten = new Attendance(OLD_QUEUE_UNIT, RiskClassification.YELLOW, new Patient("000.000.000-00", "Paciente antigo"));
+        forgotten.setEntryTime(Instant.ofEpochMilli(now).minus(13, ChronoUnit.HOURS));
+        Attendance recent = new Attendance(OLD_QUEUE_UNIT, RiskClassification.YELLOW, new Patient("000.000.000-01", "Paciente recente"));
+        recent.setEntryTime(Instant.ofEpochMilli(now).minus(10, ChronoUnit.MINUTES));
+        repository.saveAll(List.of(forgotten, recent));
+
+        LiveQueueStateStore store = new LiveQueueStateStore(repository, DecayProfiles.defaults());
+        store.rebuild();
+
+        AnalyticsAggregationEngine engine = new AnalyticsAggregationEngine(mongoTemplate, store);
+
+        // Zero TTL: every call computes
+        AnalyticsResultCache noCache = new AnalyticsResultCache(new SimpleMeterRegistry(), 0, 0);
+        javaService = new AnalyticsService(repository, Runnable::run, store, engine, noCache, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(javaService, "engine", "java");
+
+        aggregationService = new AnalyticsService(repository, Runnable::run, store, engine, noCache, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(aggregationService, "engine", "aggregation");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"US-VILA-MARIANA", "US-JARDIM-PAULISTA", "US-TESTE-ALGORITMO", OLD_QUEUE_UNIT, "US-UNKNOWN"})
+    void aggregationEngineShouldMatchJavaComputation(String healthUnitId) {
+        UnitAnalytics expected = javaService.computeAnalytics(healthUnitId, now);
+        UnitAnalytics actual = aggregationService.computeAnalytics(healthUnitId, now);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("A patient waiting since before the window should stay in the snapshot and breach the SLA")
+    void shouldKeepPatientsOlderThanTheWindow() {
+        UnitAnalytics actual = aggregationService.computeAnalytics(OLD_QUEUE_UNIT, now);
+
+        assertEquals(new LiveQueueSnapshot(2, 2, 0), actual.queueSnapshot());
+        assertTrue(actual.riskPerformance().stream()
+                .filter(performance -> performance.risk() == RiskClassification.YELLOW)
+                .allMatch(RiskAttendancePerformance::isSlaBreached));
+    }
+
+}
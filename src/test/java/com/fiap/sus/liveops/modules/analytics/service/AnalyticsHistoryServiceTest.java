@@ -0,0 +1,215 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
+import com.fiap.sus.liveops.modules.analytics.document.AttendanceRollup;
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitHistory;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitMetrics;
+import com.fiap.sus.liveops.modules.analytics.dto.WaitStatistics;
+import com.fiap.sus.liveops.modules.analytics.repository.AttendanceRollupRepository;
+import com.fiap.sus.liveops.modules.analytics.repository.RollupTotals;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsHistoryServiceTest {
+
+    @Mock
+    private AttendanceRollupRepository rollupRepository;
+
+    @Mock
+    private LiveQueueStateStore liveQueueStateStore;
+
+    @Spy
+    private AnalyticsResultCache resultCache = new AnalyticsResultCache(new SimpleMeterRegistry(), 100, 60_000);
+
+    @InjectMocks
+    private AnalyticsHistoryService service;
+
+    // One attendance per wait, each in the bin of its wait
+    private static RollupTotals totals(long serviceMinutesEach, long... waits) {
+        long[] histogram = new long[AttendanceRollup.WAIT_BINS];
+        long sumWait = 0;
+        long maxWait = 0;
+        for (long wait : waits) {
+            histogram[AttendanceRollup.waitBin(wait)]++;
+            sumWait += wait;
+            maxWait = Math.max(maxWait, wait);
+        }
+        return RollupTotals.of(waits.length, sumWait, serviceMinutesEach * waits.length, maxWait, histogram);
+    }
+
+    private static Attendance attendance(String id, AttendanceStatus status) {
+        Instant now = Instant.now();
+        Attendance attendance = new Attendance();
+        attendance.setId(id);
+        attendance.setHealthUnitId("unit-1");
+        attendance.setRiskClassification(RiskClassification.GREEN);
+        attendance.setStatus(status);
+        attendance.setEntryTime(now.minus(50, ChronoUnit.MINUTES));
+        if (status != AttendanceStatus.WAITING) attendance.setStartTime(now.minus(20, ChronoUnit.MINUTES));
+        if (status == AttendanceStatus.DISCHARGED) attendance.setDischargeTime(now);
+        return attendance;
+    }
+
+    @Nested
+    class GetMetrics {
+
+        @Test
+        @DisplayName("Should return zero metrics when the unit has no queue and no history")
+        void shouldReturnZeroMetricsWhenNoAttendances() {
+            when(liveQueueStateStore.getSnapshot("unit-1")).thenReturn(new LiveQueueSnapshot(0, 0, 0));
+            when(rollupRepository.totalsByRisk("unit-1", null, null)).thenReturn(Map.of());
+
+            UnitMetrics metrics = service.getBasicMetrics("unit-1");
+
+            assertEquals("unit-1", metrics.getHealthUnitId());
+            assertEquals(0L, metrics.getQueueSize());
+            assertEquals(0L, metrics.getAverageMinutes());
+        }
+
+        @Test
+        @DisplayName("Should take the queue size from the live queue, excluding discharged attendances")
+        void shouldTakeQueueSizeFromLiveQueue() {
+            when(liveQueueStateStore.getSnapshot("unit-2")).thenReturn(new LiveQueueSnapshot(3, 2, 1));
+            when(rollupRepository.totalsByRisk("unit-2", null, null)).thenReturn(Map.of());
+
+            UnitMetrics metrics = service.getBasicMetrics("unit-2");
+
+            assertEquals(3L, metrics.getQueueSize());
+        }
+
+        @Test
+        @DisplayName("Should average entry-to-discharge minutes over every risk and truncate to long")
+        void shouldComputeAverageMinutesAcrossRisks() {
+            when(liveQueueStateStore.getSnapshot("unit-3")).thenReturn(new LiveQueueSnapshot(0, 0, 0));
+            when(rollupRepository.totalsByRisk("unit-3", null, null)).thenReturn(Map.of(
+                    RiskClassification.YELLOW, totals(20, 10),
+                    RiskClassification.RED, totals(40, 5)
+            ));
+
+            UnitMetrics metrics = service.getBasicMetrics("unit-3");
+
+            assertEquals(37L, metrics.getAverageMinutes());
+        }
+
+        @Test
+        @DisplayName("Should serve repeated metrics requests from the cache until the unit changes")
+        void shouldCacheMetricsUntilUnitChanges() {
+            when(liveQueueStateStore.getSnapshot("unit-5")).thenReturn(new LiveQueueSnapshot(0, 0, 0));
+            when(rollupRepository.totalsByRisk("unit-5", null, null)).thenReturn(Map.of());
+
+            service.getBasicMetrics("unit-5");
+            service.getBasicMetrics("unit-5");
+            resultCache.invalidate("unit-5");
+            service.getBasicMetrics("unit-5");
+
+            verify(rollupRepository, times(2)).totalsByRisk("unit-5", null, null);
+        }
+
+    }
+
+    @Nested
+    class GetHistory {
+
+        private final LocalDateTime to = LocalDateTime.of(2026, 1, 11, 8, 0);
+
+        @Test
+        @DisplayName("Should report every risk and merge them into the overall statistics")
+        void shouldReportEveryRiskAndOverall() {
+            LocalDateTime from = LocalDateTime.of(2026, 1, 10, 8, 0);
+            when(rollupRepository.totalsByRisk("unit-1", EpochTime.toInstant(from), EpochTime.toInstant(to))).thenReturn(Map.of(
+                    RiskClassification.ORANGE, totals(10, 4, 6),
+                    RiskClassification.GREEN, totals(30, 50, 70)
+            ));
+
+            UnitHistory history = service.getHistory("unit-1", from, to);
+
+            assertEquals(RiskClassification.values().length, history.riskStatistics().size());
+            WaitStatistics overall = history.overall();
+            assertNull(overall.risk());
+            assertEquals(4, overall.attendedCount());
+            assertEquals(32, overall.averageWaitMinutes());
+            assertEquals(20, overall.averageServiceMinutes());
+            assertEquals(70, overall.maxWaitMinutes());
+
+            WaitStatistics red = history.riskStatistics().getFirst();
+            assertEquals(RiskClassification.RED, red.risk());
+            assertEquals(0, red.attendedCount());
+            assertEquals(0, red.p99WaitMinutes());
+        }
+
+        @Test
+        @DisplayName("Should round the start of the range down to its 15-minute bucket")
+        void shouldRoundFromDownToBucket() {
+            LocalDateTime bucket = LocalDateTime.of(2026, 1, 10, 8, 0);
+            when(rollupRepository.totalsByRisk("unit-1", EpochTime.toInstant(bucket), EpochTime.toInstant(to)))
+                    .thenReturn(Map.of());
+
+            UnitHistory history = service.getHistory("unit-1", bucket.plusMinutes(14).plusSeconds(59), to);
+
+            assertEquals(bucket, history.from());
+        }
+
+    }
+
+    @Nested
+    class Recording {
+
+        @Test
+        @DisplayName("Should add only the discharged attendances of an event to the rollups")
+        void shouldRecordOnlyDischarged() {
+            Attendance discharged = attendance("a-1", AttendanceStatus.DISCHARGED);
+
+            service.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("a-0", AttendanceStatus.IN_PROGRESS),
+                    discharged
+            )));
+
+            verify(rollupRepository).recordAll(List.of(discharged));
+        }
+
+        @Test
+        @DisplayName("Should not touch the rollups when nothing was discharged")
+        void shouldSkipEventsWithoutDischarges() {
+            service.onAttendanceChanged(AttendanceChangedEvent.of(attendance("a-0", AttendanceStatus.WAITING)));
+
+            verifyNoInteractions(rollupRepository);
+        }
+
+        @Test
+        @DisplayName("Should not fail the status change when the rollups cannot be written")
+        void shouldSwallowRollupWriteFailures() {
+            when(rollupRepository.recordAll(anyCollection())).thenThrow(new DataAccessResourceFailureException("down"));
+
+            assertDoesNotThrow(() -> service.onAttendanceChanged(
+                    AttendanceChangedEvent.of(attendance("a-1", AttendanceStatus.DISCHARGED))));
+        }
+
+    }
+
+}
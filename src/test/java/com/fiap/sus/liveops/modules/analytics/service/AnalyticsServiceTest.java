@@ -1,24 +1,35 @@
 package com.fiap.sus.liveops.modules.analytics.service;
 
-import com.fiap.sus.liveops.modules.analytics.dto.UnitMetrics;
+import com.fiap.sus.liveops.core.config.AnalyticsDecayProperties;
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfile;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
 import com.fiap.sus.liveops.modules.attendance.document.Attendance;
-import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
 import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceTimes;
+import com.fiap.sus.liveops.shared.enums.DecayFunction;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.enums.UnitClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Collections;
+import java.time.Instant;
+import java.util.*;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class AnalyticsServiceTest {
@@ -26,95 +37,157 @@ class AnalyticsServiceTest {
     @Mock
     private AttendanceRepository repository;
 
-    @InjectMocks
-    private AnalyticsService service;
-
     @Nested
-    class GetMetrics {
+    class GetAnalyticsByUnits {
+
+        private final Map<String, List<AttendanceTimes>> windowByUnit = new HashMap<>();
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private AnalyticsService batchService;
+
+        @BeforeEach
+        void setUp() {
+            Instant now = Instant.now();
+            LiveQueueStateStore store = new LiveQueueStateStore(repository, DecayProfiles.defaults());
+
+            for (int i = 0; i < 3; i++) {
+                String unitId = "unit-" + i;
+                List<Attendance> window = SyntheticAttendances.window(unitId, 50, now, i);
+                window.forEach(attendance -> attendance.setId(unitId + "-" + attendance.getId()));
+                window.forEach(store::apply);
+                windowByUnit.put(unitId, window.stream().map(AttendanceTimes::of).toList());
+            }
+
+            // Zero TTL: every call computes
+            AnalyticsResultCache noCache = new AnalyticsResultCache(new SimpleMeterRegistry(), 0, 0);
+            batchService = new AnalyticsService(repository, Runnable::run, store, null, noCache, meterRegistry);
+            ReflectionTestUtils.setField(batchService, "singleQueryThreshold", 3);
+        }
 
         @Test
-        @DisplayName("Should return zero metrics when there are no attendances for the health unit")
-        void shouldReturnZeroMetricsWhenNoAttendances() {
-            when(repository.findByHealthUnitIdAndStatusNot("unit-1", AttendanceStatus.DISCHARGED))
-                    .thenReturn(Collections.emptyList());
-            when(repository.findByHealthUnitIdAndStatus("unit-1", AttendanceStatus.DISCHARGED))
-                    .thenReturn(Collections.emptyList());
-
-             UnitMetrics metrics = service.getBasicMetrics("unit-1");
-
-            assertEquals("unit-1", metrics.getHealthUnitId());
-            assertEquals(0L, metrics.getQueueSize());
-            assertEquals(0L, metrics.getAverageMinutes());
+        @DisplayName("Should answer large batches with a single query and keep the caller order")
+        void shouldUseSingleQueryAndKeepCallerOrder() {
+            when(repository.findByHealthUnitIdInAndEntryTimeAfter(anyCollection(), any()))
+                    .thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0).stream()
+                            .flatMap(id -> windowByUnit.getOrDefault(id, List.of()).stream()));
+
+            List<UnitAnalytics> result = batchService.getAnalyticsByUnits(List.of("unit-2", "unit-unknown", "unit-0", "unit-2"));
+
+            assertEquals(List.of("unit-2", "unit-unknown", "unit-0", "unit-2"),
+                    result.stream().map(UnitAnalytics::healthUnitId).toList());
+            assertEquals(0L, result.get(1).generalAverageWaitTimeMinutes());
+            verify(repository, times(1)).findByHealthUnitIdInAndEntryTimeAfter(
+                    eq(Set.of("unit-2", "unit-unknown", "unit-0")), any());
+            verify(repository, never()).findByHealthUnitIdAndEntryTimeAfter(anyString(), any());
         }
 
         @Test
-        @DisplayName("Should calculate queue size excluding discharged attendances")
-        void shouldCalculateQueueSizeExcludingDischargedAttendances() {
-
-            Attendance a1 = mock(Attendance.class);
-            Attendance a2 = mock(Attendance.class);
-            Attendance a3 = mock(Attendance.class);
-
-            when(repository.findByHealthUnitIdAndStatus("unit-2", AttendanceStatus.DISCHARGED))
-                    .thenReturn(Collections.emptyList());
-            when(repository.findByHealthUnitIdAndStatusNot("unit-2", AttendanceStatus.DISCHARGED))
-                    .thenReturn(Arrays.asList(a1, a2, a3));
-
-            UnitMetrics metrics = service.getBasicMetrics("unit-2");
-
-            assertEquals("unit-2", metrics.getHealthUnitId());
-            assertEquals(3L, metrics.getQueueSize());
+        @DisplayName("Should produce the same analytics as the per-unit fan-out")
+        void shouldMatchPerUnitFanOut() {
+            when(repository.findByHealthUnitIdInAndEntryTimeAfter(anyCollection(), any()))
+                    .thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0).stream()
+                            .flatMap(id -> windowByUnit.getOrDefault(id, List.of()).stream()));
+            when(repository.findByHealthUnitIdAndEntryTimeAfter(anyString(), any()))
+                    .thenAnswer(invocation -> windowByUnit.get(invocation.<String>getArgument(0)));
+            List<String> ids = List.of("unit-0", "unit-1", "unit-2");
+
+            List<UnitAnalytics> singleQuery = batchService.getAnalyticsByUnits(ids);
+            ReflectionTestUtils.setField(batchService, "singleQueryThreshold", Integer.MAX_VALUE);
+            List<UnitAnalytics> fanOut = batchService.getAnalyticsByUnits(ids);
+
+            assertEquals(fanOut, singleQuery);
         }
 
         @Test
-        @DisplayName("Should compute average minutes ignoring incomplete records and truncate to long")
-        void shouldComputeAverageMinutesCorrectly() {
-            LocalDateTime now = LocalDateTime.now();
-
-            Attendance a1 = mock(Attendance.class);
-            Attendance a2 = mock(Attendance.class);
-
-            when(a1.getEntryTime()).thenReturn(now.minusMinutes(30));
-            when(a1.getDischargeTime()).thenReturn(now);
+        @DisplayName("Should attach the wait percentiles of every risk from the live state")
+        void shouldAttachWaitPercentiles() {
+            when(repository.findByHealthUnitIdAndEntryTimeAfter(anyString(), any()))
+                    .thenAnswer(invocation -> windowByUnit.get(invocation.<String>getArgument(0)));
 
-            when(a2.getEntryTime()).thenReturn(now.minusMinutes(45));
-            when(a2.getDischargeTime()).thenReturn(now);
+            UnitAnalytics analytics = batchService.getAnalytics("unit-1");
 
-            when(repository.findByHealthUnitIdAndStatusNot("unit-3", AttendanceStatus.DISCHARGED))
-                    .thenReturn(Collections.emptyList());
-            when(repository.findByHealthUnitIdAndStatus("unit-3", AttendanceStatus.DISCHARGED))
-                    .thenReturn(Arrays.asList(a1, a2));
-
-            UnitMetrics metrics = service.getBasicMetrics("unit-3");
-
-            assertEquals("unit-3", metrics.getHealthUnitId());
-            assertEquals(0L, metrics.getQueueSize());
-            assertEquals(37L, metrics.getAverageMinutes());
+            assertEquals(RiskClassification.values().length, analytics.waitPercentiles().size());
+            assertEquals(RiskClassification.RED, analytics.waitPercentiles().getFirst().risk());
         }
 
         @Test
-        @DisplayName("Should return zero average when finished attendances have no complete timestamps")
-        void shouldReturnZeroAverageWhenFinishedAttendancesHaveNoCompleteTimestamps() {
-            Attendance f1 = mock(Attendance.class);
-            Attendance f2 = mock(Attendance.class);
+        @DisplayName("Should time every step and record the rows loaded per query")
+        void shouldRecordStepMetrics() {
+            when(repository.findByHealthUnitIdAndEntryTimeAfter(anyString(), any()))
+                    .thenAnswer(invocation -> windowByUnit.get(invocation.<String>getArgument(0)));
+
+            batchService.getAnalytics("unit-1");
+
+            for (String step : List.of("fetch", "weighted_wait", "snapshot", "risk_performance", "percentiles")) {
+                assertEquals(1, meterRegistry.get("analytics.step").tag("step", step).timer().count(), step);
+            }
+            assertEquals(windowByUnit.get("unit-1").size(),
+                    meterRegistry.get("analytics.rows.loaded").tag("query", "unit").summary().totalAmount());
+        }
 
-            when(f1.getEntryTime()).thenReturn(null);
+        @Test
+        @DisplayName("Memory engine should match the database analytics without querying MongoDB")
+        void memoryEngineShouldMatchDatabase() {
+            when(repository.findByHealthUnitIdAndEntryTimeAfter(anyString(), any()))
+                    .thenAnswer(invocation -> windowByUnit.get(invocation.<String>getArgument(0)));
+            List<String> ids = List.of("unit-0", "unit-1", "unit-2");
+            ReflectionTestUtils.setField(batchService, "singleQueryThreshold", Integer.MAX_VALUE);
+            List<UnitAnalytics> database = batchService.getAnalyticsByUnits(ids);
+            clearInvocations(repository);
+
+            ReflectionTestUtils.setField(batchService, "engine", "memory");
+            List<UnitAnalytics> memory = batchService.getAnalyticsByUnits(ids);
+
+            assertEquals(database, memory);
+            verifyNoInteractions(repository);
+            assertEquals(windowByUnit.values().stream().mapToInt(List::size).sum(),
+                    meterRegistry.get("analytics.rows.loaded").tag("query", "window").summary().totalAmount());
+        }
 
-            when(f2.getEntryTime()).thenReturn(LocalDateTime.now());
-            when(f2.getDischargeTime()).thenReturn(null);
+        @Test
+        @DisplayName("Should weigh each unit with the window and decay curve of its class")
+        void shouldApplyDecayProfileOfUnitClass() {
+            DecayProfiles profiles = new DecayProfiles(new AnalyticsDecayProperties(
+                    UnitClass.UPA,
+                    Map.of(UnitClass.UBS, Set.of("unit-1")),
+                    Map.of(UnitClass.UBS, new AnalyticsDecayProperties.Curve(2, DecayFunction.EXPONENTIAL, 30))
+            ));
+            LiveQueueStateStore store = new LiveQueueStateStore(repository, profiles);
+            Instant now = Instant.now();
+            List<Attendance> window = SyntheticAttendances.window("unit-1", 200, now, 1);
+            window.forEach(store::apply);
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            AnalyticsService service = new AnalyticsService(repository, Runnable::run, store, null,
+                    new AnalyticsResultCache(new SimpleMeterRegistry(), 0, 0), registry);
+            ReflectionTestUtils.setField(service, "engine", "memory");
+
+            DecayProfile ubs = profiles.of("unit-1");
+            long nowMillis = now.toEpochMilli();
+            List<Attendance> inWindow = window.stream()
+                    .filter(attendance -> attendance.getEntryTime().toEpochMilli() > ubs.windowStart(nowMillis))
+                    .toList();
+            AnalyticsAccumulator exponential = new AnalyticsAccumulator(nowMillis, ubs);
+            inWindow.forEach(exponential::add);
+
+            UnitAnalytics analytics = service.getAnalytics("unit-1");
+
+            assertEquals(inWindow.size(), registry.get("analytics.rows.loaded").tag("query", "window").summary().totalAmount());
+            assertEquals(exponential.getGeneralAverageWait(), analytics.generalAverageWaitTimeMinutes(), 1);
+            assertTrue(inWindow.size() < window.size(), "a 2-hour window leaves part of the 12 hours out");
+        }
 
-            when(repository.findByHealthUnitIdAndStatusNot("unit-4", AttendanceStatus.DISCHARGED))
-                    .thenReturn(Collections.emptyList());
-            when(repository.findByHealthUnitIdAndStatus("unit-4", AttendanceStatus.DISCHARGED))
-                    .thenReturn(Arrays.asList(f1, f2));
+        @Test
+        @DisplayName("Should keep one query per unit below the threshold")
+        void shouldFanOutBelowThreshold() {
+            when(repository.findByHealthUnitIdAndEntryTimeAfter(anyString(), any()))
+                    .thenAnswer(invocation -> windowByUnit.get(invocation.<String>getArgument(0)));
 
-            UnitMetrics metrics = service.getBasicMetrics("unit-4");
+            List<UnitAnalytics> result = batchService.getAnalyticsByUnits(List.of("unit-1", "unit-0"));
 
-            assertEquals("unit-4", metrics.getHealthUnitId());
-            assertEquals(0L, metrics.getQueueSize());
-            assertEquals(0L, metrics.getAverageMinutes());
+            assertEquals(List.of("unit-1", "unit-0"), result.stream().map(UnitAnalytics::healthUnitId).toList());
+            verify(repository, times(2)).findByHealthUnitIdAndEntryTimeAfter(anyString(), any());
+            verify(repository, never()).findByHealthUnitIdInAndEntryTimeAfter(anyCollection(), any());
         }
 
     }
 
-}
\ No newline at end of file
+}
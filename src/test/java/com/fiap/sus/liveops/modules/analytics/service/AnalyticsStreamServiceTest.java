@@ -0,0 +1,204 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.cache.AnalyticsResultCache;
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.event.SlaBreachEvent;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsStreamServiceTest {
+
+    private static final String UNIT_ID = "US-VILA-MARIANA";
+
+    @Mock
+    private AnalyticsService analyticsService;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private AnalyticsStreamService streamService;
+
+    @BeforeEach
+    void setUp() {
+        streamService = new AnalyticsStreamService(analyticsService, taskScheduler);
+        ReflectionTestUtils.setField(streamService, "minIntervalMillis", 5_000L);
+        ReflectionTestUtils.setField(streamService, "timeoutMillis", 1_800_000L);
+    }
+
+    private static UnitAnalytics analytics(long waitingCount) {
+        return new UnitAnalytics(UNIT_ID, 10L, new LiveQueueSnapshot(waitingCount, waitingCount, 0L), List.of());
+    }
+
+    private static AttendanceChangedEvent change(String healthUnitId) {
+        return AttendanceChangedEvent.of(new Attendance(healthUnitId, RiskClassification.GREEN, new Patient("000.000.000-00", "Paciente")));
+    }
+
+    private Runnable capturedEmission() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(task.capture(), any(Instant.class));
+        return task.getValue();
+    }
+
+    @Nested
+    class Subscribe {
+
+        @Test
+        @DisplayName("Should send each new subscriber the current analytics from the cached service, not the last emission")
+        void shouldSendCurrentAnalyticsOnSubscribe() {
+            when(analyticsService.getAnalytics(UNIT_ID)).thenReturn(analytics(3), analytics(4));
+
+            streamService.subscribe(UNIT_ID);
+            streamService.subscribe(UNIT_ID);
+
+            verify(analyticsService, times(2)).getAnalytics(UNIT_ID);
+            assertEquals(2, streamService.getSubscriberCount(UNIT_ID));
+        }
+
+        @Test
+        @DisplayName("Should keep subscribers of different units apart")
+        void shouldKeepUnitsApart() {
+            when(analyticsService.getAnalytics(any())).thenReturn(analytics(3));
+
+            streamService.subscribe(UNIT_ID);
+            streamService.subscribe("US-TATUAPE");
+
+            assertEquals(1, streamService.getSubscriberCount(UNIT_ID));
+            assertEquals(1, streamService.getSubscriberCount("US-TATUAPE"));
+            assertEquals(0, streamService.getSubscriberCount("US-MOOCA"));
+        }
+
+    }
+
+    @Nested
+    class Coalescing {
+
+        @Test
+        @DisplayName("Should ignore changes of units without subscribers")
+        void shouldIgnoreUnitsWithoutSubscribers() {
+            streamService.onAttendanceChanged(change("US-TATUAPE"));
+
+            verifyNoInteractions(taskScheduler, analyticsService);
+        }
+
+        @Test
+        @DisplayName("Should coalesce a burst of changes into a single shared computation")
+        void shouldCoalesceBurstOfChanges() {
+            when(analyticsService.getAnalytics(UNIT_ID)).thenReturn(analytics(3), analytics(4));
+            streamService.subscribe(UNIT_ID);
+            streamService.subscribe(UNIT_ID);
+            clearInvocations(analyticsService);
+
+            for (int i = 0; i < 50; i++) {
+                streamService.onAttendanceChanged(change(UNIT_ID));
+            }
+            capturedEmission().run();
+
+            verify(analyticsService, times(1)).getAnalytics(UNIT_ID);
+        }
+
+        @Test
+        @DisplayName("Should wait the minimum interval after an emission before the next one")
+        void shouldRespectMinimumInterval() {
+            when(analyticsService.getAnalytics(UNIT_ID)).thenReturn(analytics(3));
+            streamService.subscribe(UNIT_ID);
+
+            streamService.onAttendanceChanged(change(UNIT_ID));
+            capturedEmission().run();
+            long emittedAt = EpochTime.now();
+            clearInvocations(taskScheduler);
+
+            streamService.onAttendanceChanged(change(UNIT_ID));
+
+            ArgumentCaptor<Instant> when = ArgumentCaptor.forClass(Instant.class);
+            verify(taskScheduler).schedule(any(Runnable.class), when.capture());
+            assertTrue(when.getValue().toEpochMilli() >= emittedAt + 4_000L);
+        }
+
+        @Test
+        @DisplayName("Should schedule the emission only after the cached analytics of the unit were evicted")
+        void shouldEmitAfterCacheEviction() {
+            AnalyticsResultCache cache = new AnalyticsResultCache(new SimpleMeterRegistry(), 100, 60_000);
+            when(analyticsService.getAnalytics(UNIT_ID)).thenAnswer(invocation -> cache.getAnalytics(UNIT_ID, id -> analytics(3)));
+            streamService.subscribe(UNIT_ID);
+
+            List<UnitAnalytics> cachedWhenScheduled = new ArrayList<>();
+            when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(invocation -> {
+                cachedWhenScheduled.add(cache.getAnalyticsIfPresent(UNIT_ID));
+                return null;
+            });
+
+            try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+                // Registered in the reverse of the expected order, so only @Order can put the eviction first
+                context.registerBean(AnalyticsStreamService.class, () -> streamService);
+                context.registerBean(AnalyticsResultCache.class, () -> cache);
+                context.refresh();
+
+                context.publishEvent(change(UNIT_ID));
+            }
+
+            assertEquals(1, cachedWhenScheduled.size());
+            assertNull(cachedWhenScheduled.getFirst());
+        }
+
+    }
+
+    @Nested
+    class Breaches {
+
+        private SlaBreachEvent breach(String healthUnitId) {
+            LocalDateTime now = LocalDateTime.now();
+            return new SlaBreachEvent("a1", healthUnitId, RiskClassification.RED, now.minusMinutes(6), 5, 6, now);
+        }
+
+        @Test
+        @DisplayName("Should push a breach to the unit subscribers right away, without recomputing the analytics")
+        void shouldPushBreachImmediately() {
+            when(analyticsService.getAnalytics(UNIT_ID)).thenReturn(analytics(3));
+            streamService.subscribe(UNIT_ID);
+
+            streamService.onBreach(breach(UNIT_ID));
+
+            verify(analyticsService, times(1)).getAnalytics(UNIT_ID);
+            verifyNoInteractions(taskScheduler);
+            assertEquals(1, streamService.getSubscriberCount(UNIT_ID));
+        }
+
+        @Test
+        @DisplayName("Should ignore breaches of units without subscribers")
+        void shouldIgnoreBreachesOfOtherUnits() {
+            streamService.onBreach(breach("US-TATUAPE"));
+
+            verifyNoInteractions(analyticsService, taskScheduler);
+        }
+
+    }
+
+}
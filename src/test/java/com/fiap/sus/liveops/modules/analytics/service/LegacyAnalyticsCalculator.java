@@ -0,0 +1,124 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.RiskAttendancePerformance;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reference copy of the original multi-stream computation of {@code AnalyticsService}, kept to check
+ * that {@link AnalyticsAccumulator} produces the same output and to benchmark against it.
+ */
+public final class LegacyAnalyticsCalculator {
+
+    private LegacyAnalyticsCalculator() {
+    }
+
+    public static UnitAnalytics compute(String healthUnitId, List<Attendance> attendances) {
+        return new UnitAnalytics(
+                healthUnitId,
+                getGeneralWeightedWait(attendances),
+                getLiveQueueSnapshot(attendances),
+                getRiskAttendancePerformances(attendances)
+        );
+    }
+
+    static long calculateEffectiveWaitMinutes(Attendance a) {
+        Instant end = (a.getStartTime() != null) ? a.getStartTime() : Instant.now();
+        return Duration.between(a.getEntryTime(), end).toMinutes();
+    }
+
+    static long getGeneralWeightedWait(List<Attendance> attendances) {
+        List<Attendance> servedPatients = attendances.stream()
+                .filter(a -> a.getEntryTime() != null)
+                .toList();
+
+        return calculateWeightedWaitTime(servedPatients);
+    }
+
+    static LiveQueueSnapshot getLiveQueueSnapshot(List<Attendance> allAttendances) {
+        List<Attendance> activePatients = allAttendances.stream()
+                .filter(a -> a.getStatus() != AttendanceStatus.DISCHARGED)
+                .toList();
+
+        long waiting = activePatients.stream()
+                .filter(a -> a.getStatus() == AttendanceStatus.WAITING).count();
+
+        long inProgress = activePatients.stream()
+                .filter(a -> a.getStatus() == AttendanceStatus.IN_PROGRESS).count();
+
+        return new LiveQueueSnapshot(
+                activePatients.size(),
+                waiting,
+                inProgress
+        );
+    }
+
+    static List<RiskAttendancePerformance> getRiskAttendancePerformances(List<Attendance> attendances) {
+        Map<RiskClassification, List<Attendance>> byRisk = attendances.stream()
+                .collect(Collectors.groupingBy(Attendance::getRiskClassification));
+
+        List<RiskAttendancePerformance> performances = new ArrayList<>();
+
+        for (RiskClassification risk : RiskClassification.values()) {
+            List<Attendance> riskPatients = byRisk.getOrDefault(risk, List.of());
+
+            long avgWeightedWait = calculateWeightedWaitTime(riskPatients);
+            long limitWithTolerance = (long) risk.getMaxMinutesWaiting() + ((risk == RiskClassification.RED) ? 5 : 0);
+
+            boolean isAverageBreached = avgWeightedWait > limitWithTolerance;
+            boolean isAnyPatientWaitingBreached = riskPatients.stream()
+                    .filter(a -> a.getStatus() == AttendanceStatus.WAITING)
+                    .anyMatch(a -> calculateEffectiveWaitMinutes(a) > limitWithTolerance);
+
+            boolean slaBreached = isAverageBreached || isAnyPatientWaitingBreached;
+
+            performances.add(new RiskAttendancePerformance(
+                    risk,
+                    avgWeightedWait,
+                    risk.getMaxMinutesWaiting(),
+                    slaBreached
+            ));
+        }
+        return performances;
+    }
+
+    static long calculateWeightedWaitTime(List<Attendance> patients) {
+        if (patients.isEmpty()) return 0;
+
+        double totalWeightedTime = 0.0;
+        double totalWeights = 0.0;
+        Instant now = Instant.now();
+
+        for (Attendance p : patients) {
+            long waitMinutes = calculateEffectiveWaitMinutes(p);
+
+            double weight;
+            if (p.getStatus() == AttendanceStatus.WAITING) {
+                weight = 1.0;
+            } else {
+                Instant referenceTime = (p.getStartTime() != null) ? p.getStartTime() : p.getDischargeTime();
+                if(referenceTime == null) referenceTime = now;
+
+                double hoursAgo = Duration.between(referenceTime, now).toMinutes() / 60.0;
+                weight = 1.0 / (1.0 + hoursAgo);
+            }
+
+            totalWeightedTime += (waitMinutes * weight);
+            totalWeights += weight;
+        }
+
+        if (totalWeights == 0) return 0;
+        return (long) (totalWeightedTime / totalWeights);
+    }
+
+}
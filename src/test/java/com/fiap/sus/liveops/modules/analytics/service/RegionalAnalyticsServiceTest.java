@@ -0,0 +1,201 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.core.config.AnalyticsDecayProperties;
+import com.fiap.sus.liveops.core.config.AnalyticsRegionsProperties;
+import com.fiap.sus.liveops.core.exception.ResourceNotFoundException;
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.RegionAnalytics;
+import com.fiap.sus.liveops.modules.analytics.dto.RiskAttendancePerformance;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitAnalytics;
+import com.fiap.sus.liveops.modules.analytics.dto.UnitStress;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.DecayFunction;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.enums.UnitClass;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionalAnalyticsServiceTest {
+
+    private LiveQueueStateStore store;
+    private RegionalAnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        store = new LiveQueueStateStore(null, DecayProfiles.defaults());
+        service = new RegionalAnalyticsService(store, new AnalyticsRegionsProperties(Map.of(
+                "zona-sul", Set.of("US-VILA-MARIANA", "US-SAUDE")
+        )));
+    }
+
+    private Attendance waiting(String id, String unitId, RiskClassification risk, long minutesAgo) {
+        Attendance attendance = new Attendance();
+        attendance.setId(id);
+        attendance.setHealthUnitId(unitId);
+        attendance.setRiskClassification(risk);
+        attendance.setStatus(AttendanceStatus.WAITING);
+        attendance.setEntryTime(Instant.now().minus(minutesAgo, ChronoUnit.MINUTES));
+        store.apply(attendance);
+        return attendance;
+    }
+
+    private void served(String id, String unitId, long minutesAgoEntry, long minutesAgoStart) {
+        Attendance attendance = waiting(id, unitId, RiskClassification.GREEN, minutesAgoEntry);
+        attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+        attendance.setStartTime(Instant.now().minus(minutesAgoStart, ChronoUnit.MINUTES));
+        store.apply(attendance);
+    }
+
+    private static RiskAttendancePerformance performance(RegionAnalytics region, RiskClassification risk) {
+        return region.riskPerformance().stream()
+                .filter(performance -> performance.risk() == risk)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Nested
+    class Aggregation {
+
+        @Test
+        @DisplayName("Should add up the queues and merge the weighted waits of the units")
+        void shouldMergeUnitLoads() {
+            waiting("a1", "US-VILA-MARIANA", RiskClassification.GREEN, 30);
+            waiting("a2", "US-VILA-MARIANA", RiskClassification.GREEN, 90);
+            waiting("b1", "US-SAUDE", RiskClassification.GREEN, 60);
+            waiting("c1", "US-TATUAPE", RiskClassification.GREEN, 600);
+
+            RegionAnalytics region = service.getRegion("zona-sul", 10);
+
+            assertEquals("zona-sul", region.region());
+            assertEquals(2, region.unitCount());
+            assertEquals(new LiveQueueSnapshot(3, 3, 0), region.queueSnapshot());
+            assertEquals(60, region.generalAverageWaitTimeMinutes());
+            assertEquals(60, performance(region, RiskClassification.GREEN).averageWaitTimeMinutes());
+            assertEquals(RiskClassification.values().length, region.waitPercentiles().size());
+        }
+
+        @Test
+        @DisplayName("Should match the per-unit analytics when the region has a single unit")
+        void shouldMatchSingleUnitAnalytics() {
+            List<Attendance> attendances = List.of(
+                    waiting("a1", "US-VILA-MARIANA", RiskClassification.YELLOW, 45),
+                    waiting("a2", "US-VILA-MARIANA", RiskClassification.RED, 2)
+            );
+
+            RegionAnalytics region = service.aggregate("custom", List.of("US-VILA-MARIANA"), 0);
+            UnitAnalytics unit = AnalyticsAccumulator.of(attendances, EpochTime.now(), store.getDecayProfile("US-VILA-MARIANA")).toUnitAnalytics("US-VILA-MARIANA");
+
+            assertEquals(unit.generalAverageWaitTimeMinutes(), region.generalAverageWaitTimeMinutes());
+            assertEquals(unit.queueSnapshot(), region.queueSnapshot());
+            assertEquals(unit.riskPerformance(), region.riskPerformance());
+            assertTrue(region.mostStressedUnits().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should weigh the served waits of each unit with the window of its class")
+        void shouldUseDecayProfileOfEachUnit() {
+            DecayProfiles profiles = new DecayProfiles(new AnalyticsDecayProperties(
+                    UnitClass.UPA,
+                    Map.of(UnitClass.UBS, Set.of("US-SAUDE")),
+                    Map.of(UnitClass.UBS, new AnalyticsDecayProperties.Curve(2, DecayFunction.EXPONENTIAL, 30))
+            ));
+            store = new LiveQueueStateStore(null, profiles);
+            service = new RegionalAnalyticsService(store, new AnalyticsRegionsProperties(Map.of()));
+            // Served 3 hours ago: inside the 12-hour window of the UPA, outside the 2-hour window of the UBS
+            served("a1", "US-VILA-MARIANA", 200, 180);
+            served("b1", "US-SAUDE", 200, 180);
+            waiting("a2", "US-VILA-MARIANA", RiskClassification.GREEN, 10);
+            waiting("b2", "US-SAUDE", RiskClassification.GREEN, 10);
+
+            RegionAnalytics upa = service.aggregate("custom", List.of("US-VILA-MARIANA"), 0);
+            RegionAnalytics ubs = service.aggregate("custom", List.of("US-SAUDE"), 0);
+
+            assertTrue(upa.generalAverageWaitTimeMinutes() > 10);
+            assertEquals(10, ubs.generalAverageWaitTimeMinutes());
+        }
+
+        @Test
+        @DisplayName("Should cover every unit with live state for the reserved region name")
+        void shouldCoverAllUnits() {
+            waiting("a1", "US-VILA-MARIANA", RiskClassification.BLUE, 5);
+            waiting("b1", "US-TATUAPE", RiskClassification.BLUE, 5);
+
+            RegionAnalytics region = service.getRegion(RegionalAnalyticsService.ALL_UNITS, 10);
+
+            assertEquals(2, region.unitCount());
+            assertEquals(2, region.queueSnapshot().waitingCount());
+        }
+
+        @Test
+        @DisplayName("Should reject a region that is not configured")
+        void shouldRejectUnknownRegion() {
+            assertThrows(ResourceNotFoundException.class, () -> service.getRegion("zona-leste", 10));
+        }
+
+    }
+
+    @Nested
+    class Ranking {
+
+        @Test
+        @DisplayName("Should rank the units by how far their waits are beyond the risk limit")
+        void shouldRankByStress() {
+            waiting("a1", "US-VILA-MARIANA", RiskClassification.YELLOW, 30);   // 0.5 of 60
+            waiting("b1", "US-SAUDE", RiskClassification.ORANGE, 25);          // 2.5 of 10
+            waiting("c1", "US-TATUAPE", RiskClassification.GREEN, 180);        // 1.5 of 120
+
+            List<UnitStress> ranking = service.aggregate("custom",
+                    List.of("US-VILA-MARIANA", "US-SAUDE", "US-TATUAPE"), 2).mostStressedUnits();
+
+            assertEquals(List.of("US-SAUDE", "US-TATUAPE"), ranking.stream().map(UnitStress::healthUnitId).toList());
+            assertEquals(RiskClassification.ORANGE, ranking.getFirst().worstRisk());
+            assertEquals(2.5, ranking.getFirst().stressScore(), 0.01);
+            assertEquals(25, ranking.getFirst().longestWaitingMinutes());
+            assertTrue(ranking.getFirst().slaBreached());
+        }
+
+        @Test
+        @DisplayName("Should flag a breach from the oldest waiting patient even when the average is within the limit")
+        void shouldFlagBreachFromOldestPatient() {
+            for (int i = 0; i < 9; i++) {
+                waiting("a" + i, "US-VILA-MARIANA", RiskClassification.YELLOW, 1);
+            }
+            waiting("late", "US-VILA-MARIANA", RiskClassification.YELLOW, 90);
+
+            UnitStress stress = service.aggregate("custom", List.of("US-VILA-MARIANA"), 1).mostStressedUnits().getFirst();
+
+            assertTrue(stress.slaBreached());
+            assertEquals(90, stress.longestWaitingMinutes());
+            assertEquals(10, stress.waitingCount());
+        }
+
+        @Test
+        @DisplayName("Should cap the ranking size")
+        void shouldCapRankingSize() {
+            for (int i = 0; i < RegionalAnalyticsService.MAX_TOP + 20; i++) {
+                waiting("a" + i, "US-" + i, RiskClassification.GREEN, i);
+            }
+
+            RegionAnalytics region = service.getRegion(RegionalAnalyticsService.ALL_UNITS, 1_000);
+
+            assertEquals(RegionalAnalyticsService.MAX_TOP, region.mostStressedUnits().size());
+            assertEquals("US-" + (RegionalAnalyticsService.MAX_TOP + 19), region.mostStressedUnits().getFirst().healthUnitId());
+        }
+
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.analytics.event.SlaBreachEvent;
+import com.fiap.sus.liveops.modules.analytics.state.DecayProfiles;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class SlaBreachDetectorTest {
+
+    private static final String UNIT_ID = "US-VILA-MARIANA";
+    private static final long MINUTE = EpochTime.MILLIS_PER_MINUTE;
+
+    private LiveQueueStateStore store;
+    private List<SlaBreachEvent> raised;
+    private SimpleMeterRegistry meterRegistry;
+    private SlaBreachDetector detector;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        store = new LiveQueueStateStore(null, DecayProfiles.defaults());
+        raised = new ArrayList<>();
+        meterRegistry = new SimpleMeterRegistry();
+        // On a tick boundary, so a deadline is due exactly at the tick that reaches it
+        now = EpochTime.now() / 1_000 * 1_000;
+        detector = new SlaBreachDetector(store, List.of(raised::add), mock(TaskScheduler.class), meterRegistry, 1_000);
+    }
+
+    private static Attendance attendance(String id, RiskClassification risk, AttendanceStatus status, Instant entryTime) {
+        Attendance attendance = new Attendance();
+        attendance.setId(id);
+        attendance.setHealthUnitId(UNIT_ID);
+        attendance.setRiskClassification(risk);
+        attendance.setStatus(status);
+        attendance.setEntryTime(entryTime);
+        return attendance;
+    }
+
+    // Published to the live queue first, as the application context does
+    private void publish(Attendance... attendances) {
+        AttendanceChangedEvent event = new AttendanceChangedEvent(UNIT_ID, List.of(attendances));
+        store.onAttendanceChanged(event);
+        detector.onAttendanceChanged(event);
+    }
+
+    private Instant entryMinutesAgo(long minutes) {
+        return Instant.ofEpochMilli(now - minutes * MINUTE);
+    }
+
+    @Nested
+    class Deadlines {
+
+        @Test
+        @DisplayName("Should raise a breach once a RED patient waited more than the limit with tolerance")
+        void shouldRaiseRedBreach() {
+            publish(attendance("a1", RiskClassification.RED, AttendanceStatus.WAITING, entryMinutesAgo(0)));
+
+            detector.tick(now + 5 * MINUTE);
+            assertTrue(raised.isEmpty());
+
+            detector.tick(now + 6 * MINUTE);
+            assertEquals(1, raised.size());
+            SlaBreachEvent breach = raised.getFirst();
+            assertEquals("a1", breach.attendanceId());
+            assertEquals(UNIT_ID, breach.healthUnitId());
+            assertEquals(RiskClassification.RED, breach.riskClassification());
+            assertEquals(5, breach.limitMinutes());
+            assertEquals(6, breach.waitingMinutes());
+            assertEquals(1.0, meterRegistry.get("analytics.sla.breaches").counter().count());
+        }
+
+        @Test
+        @DisplayName("Should cancel the deadline when the patient is called")
+        void shouldCancelWhenCalled() {
+            Attendance attendance = attendance("a1", RiskClassification.ORANGE, AttendanceStatus.WAITING, entryMinutesAgo(0));
+            publish(attendance);
+            attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+            publish(attendance);
+
+            detector.tick(now + 60 * MINUTE);
+
+            assertTrue(raised.isEmpty());
+            assertEquals(0, detector.getPendingCount());
+        }
+
+        @Test
+        @DisplayName("Should raise each breach once even when the waiting state is replayed")
+        void shouldRaiseOnce() {
+            Attendance attendance = attendance("a1", RiskClassification.YELLOW, AttendanceStatus.WAITING, entryMinutesAgo(0));
+            publish(attendance);
+            detector.tick(now + 61 * MINUTE);
+
+            publish(attendance);
+            detector.tick(now + 62 * MINUTE);
+
+            assertEquals(1, raised.size());
+        }
+
+        @Test
+        @DisplayName("Should forget a fired deadline even if the patient never leaves through an event")
+        void shouldForgetFiredDeadlines() {
+            publish(attendance("a1", RiskClassification.RED, AttendanceStatus.WAITING, entryMinutesAgo(0)));
+            publish(attendance("a2", RiskClassification.BLUE, AttendanceStatus.WAITING, entryMinutesAgo(0)));
+
+            detector.tick(now + 6 * MINUTE);
+            store.remove("a1");
+
+            Map<?, ?> tracked = (Map<?, ?>) ReflectionTestUtils.getField(detector, "timersByAttendanceId");
+            assertEquals(Set.of("a2"), tracked.keySet());
+            assertEquals(1, raised.size());
+        }
+
+        @Test
+        @DisplayName("Should not raise a breach for a patient no longer in the live queue")
+        void shouldSkipPatientsGoneFromQueue() {
+            publish(attendance("a1", RiskClassification.RED, AttendanceStatus.WAITING, entryMinutesAgo(0)));
+            store.remove("a1");
+
+            detector.tick(now + 10 * MINUTE);
+
+            assertTrue(raised.isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should schedule the patients already waiting when started")
+        void shouldScheduleWaitingPatientsOnStart() {
+            store.apply(attendance("a1", RiskClassification.GREEN, AttendanceStatus.WAITING, entryMinutesAgo(200)));
+
+            detector.start();
+            detector.tick(now + MINUTE);
+
+            assertEquals(1, raised.size());
+            assertEquals(200, raised.getFirst().waitingMinutes(), 1);
+        }
+
+        @Test
+        @DisplayName("Should reschedule every deadline from the live queue after a resync")
+        void shouldRescheduleAfterResync() {
+            publish(attendance("a1", RiskClassification.RED, AttendanceStatus.WAITING, entryMinutesAgo(0)));
+            // Changes the detector never saw, found by the resync
+            store.remove("a1");
+            store.apply(attendance("a2", RiskClassification.RED, AttendanceStatus.WAITING, entryMinutesAgo(0)));
+
+            detector.onLiveQueueResynced();
+            detector.tick(now + 6 * MINUTE);
+
+            assertEquals(List.of("a2"), raised.stream().map(SlaBreachEvent::attendanceId).toList());
+            assertEquals(0, detector.getPendingCount());
+        }
+
+    }
+
+    @Nested
+    class Scale {
+
+        @Test
+        @DisplayName("Should track 100k waiting patients and raise exactly the ones past their limit")
+        void shouldHandleHundredThousandPatients() {
+            int patients = 100_000;
+            List<Attendance> batch = new ArrayList<>(patients);
+            RiskClassification[] risks = RiskClassification.values();
+            for (int i = 0; i < patients; i++) {
+                batch.add(attendance("a" + i, risks[i % risks.length], AttendanceStatus.WAITING, entryMinutesAgo(i % 60)));
+            }
+            publish(batch.toArray(Attendance[]::new));
+            assertEquals(patients, detector.getPendingCount());
+
+            // Over the next 30 minutes: RED (6 min), ORANGE (11 min) and YELLOW (61 min) once waited 31 minutes or more
+            for (long minute = 1; minute <= 30; minute++) {
+                detector.tick(now + minute * MINUTE);
+            }
+
+            long expected = batch.stream().filter(a -> {
+                long limit = AnalyticsAccumulator.limitWithTolerance(a.getRiskClassification()) + 1;
+                long waited = (now - a.getEntryTime().toEpochMilli()) / MINUTE + 30;
+                return waited >= limit;
+            }).count();
+            assertEquals(expected, raised.size());
+            assertEquals(patients - expected, detector.getPendingCount());
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds a synthetic 12-hour window of attendances for tests and benchmarks. Every timestamp sits half a minute
+ * off the minute boundary relative to {@code now}, so whole-minute truncation is stable for a few seconds.
+ */
+public final class SyntheticAttendances {
+
+    private static final RiskClassification[] RISKS = RiskClassification.values();
+
+    private SyntheticAttendances() {
+    }
+
+    public static List<Attendance> window(String healthUnitId, int size, Instant now, long seed) {
+        return window(healthUnitId, size, now, seed, new double[]{0.05, 0.15, 0.30, 0.35, 0.15}, 0.3, 0.2);
+    }
+
+    /**
+     * @param riskShare    share of each {@link RiskClassification}, by ordinal
+     * @param waitingShare share of WAITING attendances
+     * @param inProgressShare share of IN_PROGRESS attendances, the rest is DISCHARGED
+     */
+    public static List<Attendance> window(String healthUnitId, int size, Instant now, long seed,
+                                          double[] riskShare, double waitingShare, double inProgressShare) {
+        Random random = new Random(seed);
+        List<Attendance> attendances = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            RiskClassification risk = pickRisk(random.nextDouble(), riskShare);
+            Attendance attendance = new Attendance(healthUnitId, risk, new Patient("000.000.000-" + (i % 100), "Paciente " + i));
+            attendance.setId(Integer.toHexString(i));
+
+            int entryMinutesAgo = 1 + random.nextInt(12 * 60 - 2);
+            attendance.setEntryTime(now.minusSeconds(entryMinutesAgo * 60L + 30));
+
+            double statusRoll = random.nextDouble();
+            if (statusRoll < waitingShare) {
+                attendance.setStatus(AttendanceStatus.WAITING);
+                attendances.add(attendance);
+                continue;
+            }
+
+            int startMinutesAgo = random.nextInt(entryMinutesAgo);
+            attendance.setStartTime(now.minusSeconds(startMinutesAgo * 60L + 30));
+
+            if (statusRoll < waitingShare + inProgressShare) {
+                attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+            } else {
+                attendance.setStatus(AttendanceStatus.DISCHARGED);
+                attendance.setDischargeTime(now.minusSeconds(random.nextInt(startMinutesAgo + 1) * 60L));
+            }
+            attendances.add(attendance);
+        }
+        return attendances;
+    }
+
+    private static RiskClassification pickRisk(double roll, double[] riskShare) {
+        double cumulative = 0;
+        for (int i = 0; i < RISKS.length; i++) {
+            cumulative += riskShare[i];
+            if (roll < cumulative) return RISKS[i];
+        }
+        return RISKS[RISKS.length - 1];
+    }
+
+}
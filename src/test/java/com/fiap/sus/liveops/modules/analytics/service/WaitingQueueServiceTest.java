@@ -0,0 +1,45 @@
+package com.fiap.sus.liveops.modules.analytics.service;
+
+import com.fiap.sus.liveops.core.exception.ResourceNotFoundException;
+import com.fiap.sus.liveops.modules.analytics.state.LiveQueueStateStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WaitingQueueServiceTest {
+
+    @Mock
+    private LiveQueueStateStore liveQueueStateStore;
+
+    @InjectMocks
+    private WaitingQueueService service;
+
+    @Test
+    @DisplayName("Should clamp the number of patients requested")
+    void shouldClampLimit() {
+        service.getNext("US-VILA-MARIANA", 10_000);
+        service.getNext("US-VILA-MARIANA", 0);
+
+        verify(liveQueueStateStore).getNextWaiting("US-VILA-MARIANA", WaitingQueueService.MAX_NEXT);
+        verify(liveQueueStateStore).getNextWaiting("US-VILA-MARIANA", 1);
+    }
+
+    @Test
+    @DisplayName("Should throw ResourceNotFoundException when the attendance is not waiting in the unit")
+    void shouldThrowWhenNotWaiting() {
+        when(liveQueueStateStore.getQueuePosition("US-VILA-MARIANA", "a1")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getPosition("US-VILA-MARIANA", "a1"));
+    }
+
+}
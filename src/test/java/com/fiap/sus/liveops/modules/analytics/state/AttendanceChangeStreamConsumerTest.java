@@ -0,0 +1,232 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.core.config.MongoConfig;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttendanceChangeStreamConsumerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private LiveQueueStateStore liveQueueStateStore;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private LiveQueueCheckpoints checkpoints;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AttendanceChangeStreamConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        consumer = new AttendanceChangeStreamConsumer(mongoTemplate, liveQueueStateStore, eventPublisher, checkpoints,
+                meterRegistry);
+    }
+
+    private void useRealConverter() {
+        MongoCustomConversions conversions = MongoConfig.conversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<Document> change(OperationType operation, Document fullDocument, ObjectId id, long writtenAt) {
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        lenient().when(change.getOperationType()).thenReturn(operation);
+        lenient().when(change.getFullDocument()).thenReturn(fullDocument);
+        lenient().when(change.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonObjectId(id)));
+        lenient().when(change.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonString("token-" + id)));
+        lenient().when(change.getWallTime()).thenReturn(new BsonDateTime(writtenAt));
+        return change;
+    }
+
+    private static Document attendanceDocument(ObjectId id, String status, long entryTime) {
+        return new Document("_id", id)
+                .append("healthUnitId", "US-VILA-MARIANA")
+                .append("status", status)
+                .append("riskClassification", "RED")
+                .append("entryTime", entryTime);
+    }
+
+    @Nested
+    class Handling {
+
+        @Test
+        @DisplayName("Should republish inserted and updated attendances as change events")
+        void shouldRepublishWrites() {
+            useRealConverter();
+            ObjectId id = new ObjectId();
+            long entryTime = EpochTime.now();
+
+            consumer.handle(change(OperationType.UPDATE, attendanceDocument(id, "IN_PROGRESS", entryTime), id, EpochTime.now()));
+
+            ArgumentCaptor<AttendanceChangedEvent> captor = ArgumentCaptor.forClass(AttendanceChangedEvent.class);
+            verify(eventPublisher).publishEvent(captor.capture());
+            Attendance attendance = captor.getValue().attendances().getFirst();
+            assertEquals("US-VILA-MARIANA", captor.getValue().healthUnitId());
+            assertEquals(id.toHexString(), attendance.getId());
+            assertEquals(AttendanceStatus.IN_PROGRESS, attendance.getStatus());
+            assertEquals(Instant.ofEpochMilli(entryTime), attendance.getEntryTime());
+        }
+
+        @Test
+        @DisplayName("Should drop deleted attendances from the live queue and notify their unit")
+        void shouldRemoveDeletedAttendances() {
+            ObjectId id = new ObjectId();
+            when(liveQueueStateStore.remove(id.toHexString())).thenReturn(Optional.of("US-VILA-MARIANA"));
+
+            consumer.handle(change(OperationType.DELETE, null, id, EpochTime.now()));
+
+            ArgumentCaptor<AttendanceChangedEvent> captor = ArgumentCaptor.forClass(AttendanceChangedEvent.class);
+            verify(eventPublisher).publishEvent(captor.capture());
+            assertEquals("US-VILA-MARIANA", captor.getValue().healthUnitId());
+            assertTrue(captor.getValue().attendances().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should skip updates whose document was deleted before the lookup")
+        void shouldSkipUpdatesWithoutFullDocument() {
+            ObjectId id = new ObjectId();
+
+            consumer.handle(change(OperationType.UPDATE, null, id, EpochTime.now()));
+
+            verifyNoInteractions(eventPublisher, liveQueueStateStore);
+        }
+
+        @Test
+        @DisplayName("Should expose the lag and count of consumed changes")
+        void shouldRecordLagAndCount() {
+            ObjectId id = new ObjectId();
+
+            consumer.handle(change(OperationType.UPDATE, null, id, EpochTime.now() - 1_500));
+
+            assertTrue(consumer.getLagMillis() >= 1_500);
+            assertEquals(consumer.getLagMillis(), meterRegistry.get("analytics.change_stream.lag").gauge().value());
+            assertEquals(1.0, meterRegistry.get("analytics.change_stream.changes").counter().count());
+        }
+
+    }
+
+    @Nested
+    class Checkpoints {
+
+        private final UnitLiveState vilaMariana = new UnitLiveState("US-VILA-MARIANA", DecayProfile.DEFAULT,
+                DecayProfile.DEFAULT.getWindowMillis());
+        private final UnitLiveState se = new UnitLiveState("US-SE", DecayProfile.DEFAULT,
+                DecayProfile.DEFAULT.getWindowMillis());
+
+        private BsonDocument applyChange() {
+            useRealConverter();
+            ObjectId id = new ObjectId();
+            ChangeStreamDocument<Document> change = change(OperationType.INSERT,
+                    attendanceDocument(id, "WAITING", EpochTime.now()), id, EpochTime.now());
+            consumer.handle(change);
+            return change.getResumeToken();
+        }
+
+        @Test
+        @DisplayName("Should save only the units changed since the last checkpoint, then the token")
+        void shouldSaveChangedUnits() {
+            when(liveQueueStateStore.getState("US-VILA-MARIANA")).thenReturn(vilaMariana);
+            BsonDocument token = applyChange();
+
+            consumer.checkpoint();
+
+            verify(checkpoints).save(List.of(vilaMariana), token);
+            verify(checkpoints, never()).saveAll(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should save every unit when the live queue was rebuilt instead of restored")
+        void shouldSaveEverythingAfterRebuild() {
+            ReflectionTestUtils.setField(consumer, "fullCheckpointPending", true);
+            when(liveQueueStateStore.getStates()).thenReturn(List.of(vilaMariana, se));
+            BsonDocument token = applyChange();
+
+            consumer.checkpoint();
+
+            verify(checkpoints).saveAll(List.of(vilaMariana, se), token);
+        }
+
+        @Test
+        @DisplayName("Should not write again while nothing changed")
+        void shouldSkipUnchangedCheckpoint() {
+            when(liveQueueStateStore.getState("US-VILA-MARIANA")).thenReturn(vilaMariana);
+            applyChange();
+            consumer.checkpoint();
+
+            consumer.checkpoint();
+
+            verify(checkpoints).save(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should retry the same units on the next checkpoint after a failed save")
+        void shouldRetryAfterFailedSave() {
+            when(liveQueueStateStore.getState("US-VILA-MARIANA")).thenReturn(vilaMariana);
+            doThrow(new MongoException("not primary")).doNothing().when(checkpoints).save(any(), any());
+            BsonDocument token = applyChange();
+
+            consumer.checkpoint();
+            consumer.checkpoint();
+
+            verify(checkpoints, times(2)).save(List.of(vilaMariana), token);
+        }
+
+        @Test
+        @DisplayName("Should not save before any change was seen")
+        void shouldNotSaveWithoutToken() {
+            consumer.checkpoint();
+
+            verifyNoInteractions(checkpoints);
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepositoryCustomImpl;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Against the single-node replica set started by {@link MongoDBContainer}: writes made behind the service's back
+ * reach the live queue, and a restart restores the live queue from its checkpoint and resumes the stream from the
+ * saved token, catching up with the writes made while it was down.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AttendanceChangeStreamResumeTest {
+
+    private static final String UNIT_ID = "US-CHANGE-STREAM";
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static AttendanceRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl());
+        mongoTemplate = MongoTemplates.create(client, "liveops_test");
+        repository = new MongoRepositoryFactory(mongoTemplate).getRepository(
+                AttendanceRepository.class,
+                RepositoryFragments.just(new AttendanceRepositoryCustomImpl(mongoTemplate))
+        );
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @BeforeEach
+    void clean() {
+        mongoTemplate.remove(new Query(), Attendance.class);
+        mongoTemplate.dropCollection(LiveQueueCheckpoints.TOKENS_COLLECTION);
+        mongoTemplate.dropCollection(LiveQueueCheckpoints.STATES_COLLECTION);
+    }
+
+    /**
+     * One application instance: its live queue, checkpoints and consumer, filled as {@link LiveQueueInitializer}
+     * does on startup.
+     */
+    private record Instance(LiveQueueStateStore store, LiveQueueCheckpoints checkpoints, AttendanceChangeStreamConsumer consumer) {
+
+        static Instance boot() {
+            LiveQueueStateStore store = new LiveQueueStateStore(repository, DecayProfiles.defaults());
+            LiveQueueCheckpoints checkpoints = new LiveQueueCheckpoints(mongoTemplate);
+            ApplicationEventPublisher publisher = event -> {
+                if (event instanceof AttendanceChangedEvent change) store.onAttendanceChanged(change);
+            };
+            AttendanceChangeStreamConsumer consumer = new AttendanceChangeStreamConsumer(
+                    mongoTemplate, store, publisher, checkpoints, new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(consumer, "tokenSaveIntervalMillis", 100L);
+
+            consumer.captureStartTime();
+            if (!checkpoints.restoreInto(store)) {
+                store.rebuild();
+            }
+            return new Instance(store, checkpoints, consumer);
+        }
+
+        void awaitWaiting(long expected) {
+            await().atMost(Duration.ofSeconds(10))
+                    .untilAsserted(() -> assertEquals(expected, store.getSnapshot(UNIT_ID).waitingCount()));
+        }
+
+    }
+
+    private static void insertDirectly() {
+        mongoTemplate.insert(new Attendance(UNIT_ID, RiskClassification.YELLOW, new Patient("000.000.000-00", "Paciente")));
+    }
+
+    @Test
+    @DisplayName("Should apply external writes, including the ones made before the stream opened")
+    void shouldApplyExternalWrites() throws InterruptedException {
+        Instance instance = Instance.boot();
+
+        // Written before the consumer starts, after the start time was captured (e.g. by a migration)
+        insertDirectly();
+        assertEquals(new LiveQueueSnapshot(0, 0, 0), instance.store().getSnapshot(UNIT_ID));
+        instance.consumer().start();
+        instance.awaitWaiting(1);
+
+        insertDirectly();
+        insertDirectly();
+        instance.awaitWaiting(3);
+
+        mongoTemplate.remove(new Query(), Attendance.class);
+        instance.awaitWaiting(0);
+        instance.consumer().stop();
+    }
+
+    @Test
+    @DisplayName("Should restore the live queue on restart and resume from the saved token")
+    void shouldResumeFromSavedToken() throws InterruptedException {
+        Instance first = Instance.boot();
+        assertNull(first.checkpoints().getRestoredToken());
+        first.consumer().start();
+        insertDirectly();
+        first.awaitWaiting(1);
+        first.consumer().stop();
+
+        // Written while the service is down
+        insertDirectly();
+        insertDirectly();
+
+        Instance restarted = Instance.boot();
+        assertNotNull(restarted.checkpoints().getRestoredToken());
+        // Restored as checkpointed, not rebuilt: the writes made while down only arrive through the stream
+        assertEquals(1, restarted.store().getSnapshot(UNIT_ID).waitingCount());
+
+        restarted.consumer().start();
+        restarted.awaitWaiting(3);
+        restarted.consumer().stop();
+    }
+
+    @Test
+    @DisplayName("Should rebuild from the database when there is no checkpoint")
+    void shouldRebuildWithoutCheckpoint() {
+        insertDirectly();
+        insertDirectly();
+
+        Instance instance = Instance.boot();
+
+        assertNull(instance.checkpoints().getRestoredToken());
+        assertEquals(2, instance.store().getSnapshot(UNIT_ID).waitingCount());
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttendanceWindowTest {
+
+    private static final long NOW = Instant.parse("2026-01-10T12:00:00Z").toEpochMilli();
+    private static final long MINUTE = 60_000L;
+    private static final long RETENTION = DecayProfile.DEFAULT.getWindowMillis();
+
+    private final AttendanceWindow window = new AttendanceWindow(RETENTION);
+
+    private static Attendance attendance(String id, AttendanceStatus status, long entryMillis) {
+        Attendance attendance = new Attendance();
+        attendance.setId(id);
+        attendance.setHealthUnitId("unit-1");
+        attendance.setRiskClassification(RiskClassification.GREEN);
+        attendance.setStatus(status);
+        attendance.setEntryTime(Instant.ofEpochMilli(entryMillis));
+        if (status != AttendanceStatus.WAITING) attendance.setStartTime(Instant.ofEpochMilli(entryMillis + 10 * MINUTE));
+        if (status == AttendanceStatus.DISCHARGED) attendance.setDischargeTime(Instant.ofEpochMilli(entryMillis + 40 * MINUTE));
+        return attendance;
+    }
+
+    private record Row(AttendanceStatus status, RiskClassification risk, long entry, long start, long discharge) {
+    }
+
+    private List<Row> scan(long nowMillis, long cutoffMillis) {
+        List<Row> rows = new ArrayList<>();
+        int visited = window.scan(nowMillis, cutoffMillis,
+                (status, risk, entry, start, discharge) -> rows.add(new Row(status, risk, entry, start, discharge)));
+        assertEquals(rows.size(), visited);
+        return rows;
+    }
+
+    @Nested
+    class Changes {
+
+        @Test
+        @DisplayName("Should append new attendances and patch known ones in place")
+        void shouldAppendAndPatch() {
+            window.apply(attendance("a1", AttendanceStatus.WAITING, NOW - 30 * MINUTE), NOW);
+            window.apply(attendance("a2", AttendanceStatus.WAITING, NOW - 20 * MINUTE), NOW);
+            window.apply(attendance("a1", AttendanceStatus.DISCHARGED, NOW - 30 * MINUTE), NOW);
+
+            List<Row> rows = scan(NOW, NOW - 60 * MINUTE);
+
+            assertEquals(2, window.size());
+            assertEquals(new Row(AttendanceStatus.DISCHARGED, RiskClassification.GREEN,
+                    NOW - 30 * MINUTE, NOW - 20 * MINUTE, NOW + 10 * MINUTE), rows.getFirst());
+            assertEquals(new Row(AttendanceStatus.WAITING, RiskClassification.GREEN,
+                    NOW - 20 * MINUTE, AttendanceWindow.ABSENT, AttendanceWindow.ABSENT), rows.get(1));
+        }
+
+        @Test
+        @DisplayName("Should ignore a status older than the stored one")
+        void shouldIgnoreStatusRegression() {
+            window.apply(attendance("a1", AttendanceStatus.IN_PROGRESS, NOW - 30 * MINUTE), NOW);
+            window.apply(attendance("a1", AttendanceStatus.WAITING, NOW - 30 * MINUTE), NOW);
+
+            assertEquals(AttendanceStatus.IN_PROGRESS, scan(NOW, 0).getFirst().status());
+        }
+
+        @Test
+        @DisplayName("Should forget removed attendances")
+        void shouldRemove() {
+            window.apply(attendance("a1", AttendanceStatus.WAITING, NOW - 30 * MINUTE), NOW);
+            window.apply(attendance("a2", AttendanceStatus.WAITING, NOW - 20 * MINUTE), NOW);
+
+            assertTrue(window.remove("a1"));
+            assertFalse(window.remove("a1"));
+            assertEquals(1, window.size());
+            assertEquals(List.of(NOW - 20 * MINUTE), scan(NOW, 0).stream().map(Row::entry).toList());
+        }
+
+    }
+
+    @Nested
+    class Retention {
+
+        @Test
+        @DisplayName("Should drop attendances once older than the window, and skip the ones that already are")
+        void shouldTrimByAge() {
+            window.apply(attendance("old", AttendanceStatus.WAITING, NOW - RETENTION - MINUTE), NOW);
+            window.apply(attendance("a1", AttendanceStatus.WAITING, NOW - RETENTION + MINUTE), NOW);
+            window.apply(attendance("a2", AttendanceStatus.WAITING, NOW - 10 * MINUTE), NOW);
+            assertEquals(2, window.size());
+
+            assertEquals(1, scan(NOW + 2 * MINUTE, 0).size());
+            assertEquals(1, window.size());
+            assertFalse(window.remove("a1"));
+        }
+
+        @Test
+        @DisplayName("Should filter by the cutoff an entry appended out of order")
+        void shouldFilterOutOfOrderEntries() {
+            window.apply(attendance("a1", AttendanceStatus.WAITING, NOW - 10 * MINUTE), NOW);
+            window.apply(attendance("late", AttendanceStatus.DISCHARGED, NOW - 300 * MINUTE), NOW);
+
+            assertEquals(List.of(NOW - 10 * MINUTE), scan(NOW, NOW - 60 * MINUTE).stream().map(Row::entry).toList());
+            assertEquals(2, scan(NOW, 0).size());
+        }
+
+        @Test
+        @DisplayName("Should grow with the unit and shrink back once the window empties")
+        void shouldGrowAndShrink() {
+            long initial = window.footprintBytes();
+            for (int i = 0; i < 10_000; i++) {
+                window.apply(attendance("a" + i, AttendanceStatus.WAITING, NOW - 600 * MINUTE + i), NOW);
+            }
+            assertEquals(10_000, window.size());
+            // 26 bytes per slot and up to 8 of index, with up to half the ring spare right after growing
+            assertTrue(window.footprintBytes() / 10_000 <= 52, "bytes per attendance: " + window.footprintBytes() / 10_000);
+
+            assertEquals(0, scan(NOW + RETENTION, 0).size());
+            assertEquals(0, window.size());
+            assertEquals(initial, window.footprintBytes());
+        }
+
+    }
+
+    @Test
+    @DisplayName("Should agree with a map of the latest state under random changes")
+    void shouldMatchMapModel() {
+        Random random = new Random(42);
+        Map<String, Attendance> model = new HashMap<>();
+        long now = NOW;
+
+        for (int step = 0; step < 20_000; step++) {
+            now += random.nextInt(10_000);
+            String id = "a" + random.nextInt(3_000);
+            if (random.nextInt(10) == 0) {
+                assertEquals(model.remove(id) != null, window.remove(id), id);
+                continue;
+            }
+            Attendance known = model.get(id);
+            // Arrival order, so the head alone trims, as in the model
+            long entry = known != null ? known.getEntryTime().toEpochMilli() : now;
+            AttendanceStatus status = AttendanceStatus.values()[random.nextInt(AttendanceStatus.values().length)];
+            Attendance attendance = attendance(id, status, entry);
+
+            window.apply(attendance, now);
+            if (known == null || status.ordinal() >= known.getStatus().ordinal()) model.put(id, attendance);
+
+            long cutoff = now - RETENTION;
+            model.values().removeIf(a -> a.getEntryTime().toEpochMilli() <= cutoff);
+        }
+
+        long cutoff = now - 120 * MINUTE;
+        Map<AttendanceStatus, Integer> expected = new HashMap<>();
+        model.values().stream()
+                .filter(a -> a.getEntryTime().toEpochMilli() > cutoff)
+                .forEach(a -> expected.merge(a.getStatus(), 1, Integer::sum));
+        Map<AttendanceStatus, Integer> actual = new HashMap<>();
+        scan(now, cutoff).forEach(row -> actual.merge(row.status(), 1, Integer::sum));
+
+        assertEquals(expected, actual);
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.core.config.AnalyticsDecayProperties;
+import com.fiap.sus.liveops.core.config.AnalyticsDecayProperties.Curve;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.DecayFunction;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.enums.UnitClass;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecayProfileTest {
+
+    private static final long MINUTE = EpochTime.MILLIS_PER_MINUTE;
+    private static final long NOW = 1_000 * 60 * MINUTE;
+
+    private static Attendance served(String id, long entryMillis, long startMillis) {
+        Attendance attendance = new Attendance();
+        attendance.setId(id);
+        attendance.setHealthUnitId("unit-1");
+        attendance.setRiskClassification(RiskClassification.GREEN);
+        attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+        attendance.setEntryTime(Instant.ofEpochMilli(entryMillis));
+        attendance.setStartTime(Instant.ofEpochMilli(startMillis));
+        return attendance;
+    }
+
+    @Nested
+    class Weights {
+
+        @Test
+        @DisplayName("Default profile should reproduce 1 / (1 + hoursAgo) exactly")
+        void defaultShouldMatchOriginalWeight() {
+            for (long minutes = 0; minutes <= 12 * 60; minutes++) {
+                assertEquals(1.0 / (1.0 + minutes / 60.0), DecayProfile.DEFAULT.weight(minutes), 0.0, "minute " + minutes);
+            }
+        }
+
+        @Test
+        @DisplayName("Every curve should be down to 1/2 after one half-life")
+        void shouldHalveAfterHalfLife() {
+            for (DecayFunction function : DecayFunction.values()) {
+                DecayProfile profile = new DecayProfile(6, function, 90);
+                assertEquals(1.0, profile.weight(0), 1e-12, function.name());
+                assertEquals(0.5, profile.weight(90), 1e-12, function.name());
+            }
+        }
+
+        @Test
+        @DisplayName("Step curve should hold its weight within a half-life")
+        void stepShouldHoldWithinHalfLife() {
+            DecayProfile profile = new DecayProfile(6, DecayFunction.STEP, 30);
+
+            assertEquals(1.0, profile.weight(29));
+            assertEquals(0.5, profile.weight(59));
+            assertEquals(0.25, profile.weight(60));
+        }
+
+        @Test
+        @DisplayName("Should weigh 1 ahead of now and keep decaying past the table")
+        void shouldHandleMinutesOutsideTable() {
+            DecayProfile profile = new DecayProfile(1, DecayFunction.EXPONENTIAL, 60);
+
+            assertEquals(1.0, profile.weight(-5));
+            assertEquals(0.25, profile.weight(120), 1e-12);
+        }
+
+        @Test
+        @DisplayName("Should reject a non-positive window or half-life")
+        void shouldRejectInvalidCurve() {
+            assertThrows(IllegalArgumentException.class, () -> new DecayProfile(0, DecayFunction.HYPERBOLIC, 60));
+            assertThrows(IllegalArgumentException.class, () -> new DecayProfile(12, DecayFunction.STEP, 0));
+        }
+
+    }
+
+    @Nested
+    class Classes {
+
+        private final DecayProfiles profiles = new DecayProfiles(new AnalyticsDecayProperties(
+                UnitClass.UPA,
+                Map.of(UnitClass.UBS, Set.of("US-JARDIM-PAULISTA")),
+                Map.of(UnitClass.UBS, new Curve(24, DecayFunction.EXPONENTIAL, 120))
+        ));
+
+        @Test
+        @DisplayName("Should resolve listed units to their class and the others to the default one")
+        void shouldResolveUnitClass() {
+            assertEquals(UnitClass.UBS, profiles.classOf("US-JARDIM-PAULISTA"));
+            assertEquals(UnitClass.UPA, profiles.classOf("US-VILA-MARIANA"));
+
+            assertEquals(DecayFunction.EXPONENTIAL, profiles.of("US-JARDIM-PAULISTA").getFunction());
+            assertEquals(DecayFunction.HYPERBOLIC, profiles.of("US-VILA-MARIANA").getFunction());
+        }
+
+        @Test
+        @DisplayName("Should retain the windows for the longest configured window")
+        void shouldRetainLongestWindow() {
+            assertEquals(Duration.ofHours(24).toMillis(), profiles.getMaxWindowMillis());
+            assertEquals(Duration.ofHours(12).toMillis(), DecayProfiles.defaults().getMaxWindowMillis());
+        }
+
+        @Test
+        @DisplayName("Should reject a unit listed in two classes")
+        void shouldRejectUnitInTwoClasses() {
+            AnalyticsDecayProperties properties = new AnalyticsDecayProperties(null,
+                    Map.of(UnitClass.UBS, Set.of("US-1"), UnitClass.UPA, Set.of("US-1")), null);
+
+            assertThrows(IllegalArgumentException.class, () -> new DecayProfiles(properties));
+        }
+
+    }
+
+    @Nested
+    class IncrementalSums {
+
+        @Test
+        @DisplayName("Decayed sums should match re-weighting every wait from scratch")
+        void shouldMatchDirectWeighting() {
+            DecayingWaitSums sums = new DecayingWaitSums(60, Duration.ofHours(12).toMillis());
+            long[][] waits = {{30, NOW - 300 * MINUTE}, {10, NOW - 120 * MINUTE}, {50, NOW - 200 * MINUTE}, {20, NOW - 5 * MINUTE}};
+
+            double expectedWeightedWait = 0;
+            double expectedWeights = 0;
+            for (long[] wait : waits) {
+                sums.record(RiskClassification.GREEN, wait[0], wait[1]);
+                double weight = Math.pow(0.5, (NOW - wait[1]) / (60.0 * MINUTE));
+                expectedWeightedWait += wait[0] * weight;
+                expectedWeights += weight;
+            }
+
+            double[] weightedWait = new double[RiskClassification.values().length];
+            double[] weights = new double[RiskClassification.values().length];
+            sums.addWeighted(NOW, weightedWait, weights);
+
+            int green = RiskClassification.GREEN.ordinal();
+            assertEquals(expectedWeightedWait, weightedWait[green], 1e-9);
+            assertEquals(expectedWeights, weights[green], 1e-9);
+            assertEquals(0, weights[RiskClassification.RED.ordinal()]);
+        }
+
+        @Test
+        @DisplayName("Decayed sums should drop the waits that left the window")
+        void shouldDropExpiredWaits() {
+            DecayingWaitSums sums = new DecayingWaitSums(60, Duration.ofHours(2).toMillis());
+            sums.record(RiskClassification.GREEN, 30, NOW - 150 * MINUTE);
+            sums.record(RiskClassification.GREEN, 10, NOW - 60 * MINUTE);
+
+            int green = RiskClassification.GREEN.ordinal();
+            double[] weightedWait = new double[RiskClassification.values().length];
+            double[] weights = new double[RiskClassification.values().length];
+            sums.addWeighted(NOW, weightedWait, weights);
+            assertEquals(10 * 0.5, weightedWait[green], 1e-9);
+            assertEquals(0.5, weights[green], 1e-9);
+
+            sums.record(RiskClassification.GREEN, 20, NOW);
+            weightedWait = new double[RiskClassification.values().length];
+            weights = new double[RiskClassification.values().length];
+            sums.addWeighted(NOW, weightedWait, weights);
+            assertEquals(10 * 0.5 + 20, weightedWait[green], 1e-9);
+            assertEquals(1.5, weights[green], 1e-9);
+
+            weightedWait = new double[RiskClassification.values().length];
+            weights = new double[RiskClassification.values().length];
+            sums.addWeighted(NOW + 3 * 60 * MINUTE, weightedWait, weights);
+            assertEquals(0, weights[green]);
+        }
+
+        @Test
+        @DisplayName("A live state with an exponential profile should average its served waits incrementally")
+        void liveStateShouldUseDecayingSums() {
+            DecayProfile exponential = new DecayProfile(12, DecayFunction.EXPONENTIAL, 60);
+            UnitLiveState state = new UnitLiveState("unit-1", exponential, exponential.getWindowMillis());
+            state.seedServed(served("a1", NOW - 130 * MINUTE, NOW - 120 * MINUTE));
+            state.seedServed(served("a2", NOW - 40 * MINUTE, NOW));
+
+            UnitLoad load = state.load(NOW);
+
+            int green = RiskClassification.GREEN.ordinal();
+            assertEquals(1.25, load.servedWeights()[green], 1e-9);
+            assertEquals(10 * 0.25 + 40, load.servedWeightedWait()[green], 1e-9);
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveQueueMetricsTest {
+
+    private LiveQueueStateStore store;
+    private SimpleMeterRegistry registry;
+    private LiveQueueMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        store = new LiveQueueStateStore(null, DecayProfiles.defaults());
+        registry = new SimpleMeterRegistry();
+        metrics = new LiveQueueMetrics(store, null, registry, 2, 15_000);
+    }
+
+    private void waiting(String unitId, RiskClassification risk, int count) {
+        for (int i = 0; i < count; i++) {
+            Attendance attendance = new Attendance();
+            attendance.setId(unitId + "-" + risk + "-" + i);
+            attendance.setHealthUnitId(unitId);
+            attendance.setRiskClassification(risk);
+            attendance.setStatus(AttendanceStatus.WAITING);
+            attendance.setEntryTime(Instant.now().minus(30, ChronoUnit.MINUTES));
+            store.apply(attendance);
+        }
+    }
+
+    private Set<String> unitsExported() {
+        return registry.find("analytics.unit.waiting").gauges().stream()
+                .map(gauge -> gauge.getId().getTag("unit"))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    @DisplayName("Should export network totals per risk and only the units with the longest queues")
+    void shouldExportTotalsAndTopUnits() {
+        waiting("unit-small", RiskClassification.GREEN, 1);
+        waiting("unit-medium", RiskClassification.GREEN, 3);
+        waiting("unit-large", RiskClassification.RED, 2);
+        waiting("unit-large", RiskClassification.YELLOW, 4);
+
+        metrics.refresh();
+
+        assertEquals(4.0, registry.get("analytics.queue.waiting").tag("risk", "GREEN").gauge().value());
+        assertEquals(2.0, registry.get("analytics.queue.waiting").tag("risk", "RED").gauge().value());
+        assertEquals(Set.of("unit-large", "unit-medium"), unitsExported());
+        assertEquals(2 * RiskClassification.values().length, registry.find("analytics.unit.waiting").gauges().size());
+
+        Gauge longestRed = registry.get("analytics.unit.longest_wait").tags("unit", "unit-large", "risk", "RED").gauge();
+        assertTrue(longestRed.value() >= 30);
+    }
+
+    @Test
+    @DisplayName("Should drop the series of units that left the top")
+    void shouldDropUnitsThatLeftTheTop() {
+        waiting("unit-a", RiskClassification.GREEN, 1);
+        waiting("unit-b", RiskClassification.GREEN, 2);
+        metrics.refresh();
+
+        waiting("unit-c", RiskClassification.GREEN, 5);
+        metrics.refresh();
+
+        assertEquals(Set.of("unit-b", "unit-c"), unitsExported());
+    }
+
+}
@@ -0,0 +1,665 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.analytics.dto.LiveQueueSnapshot;
+import com.fiap.sus.liveops.modules.analytics.dto.QueueEntry;
+import com.fiap.sus.liveops.modules.analytics.dto.QueuePosition;
+import com.fiap.sus.liveops.modules.analytics.dto.WaitPercentiles;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.DecayFunction;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LiveQueueStateStoreTest {
+
+    @Mock
+    private AttendanceRepository repository;
+
+    private LiveQueueStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LiveQueueStateStore(repository, DecayProfiles.defaults());
+    }
+
+    private static Attendance attendance(String id, String unitId, RiskClassification risk,
+                                         AttendanceStatus status, long minutesAgoEntry) {
+        Attendance attendance = new Attendance();
+        attendance.setId(id);
+        attendance.setHealthUnitId(unitId);
+        attendance.setRiskClassification(risk);
+        attendance.setStatus(status);
+        attendance.setEntryTime(Instant.now().minus(minutesAgoEntry, ChronoUnit.MINUTES));
+        return attendance;
+    }
+
+    @Nested
+    class Snapshot {
+
+        @Test
+        @DisplayName("Should return an empty snapshot for an unknown unit")
+        void shouldReturnEmptySnapshotForUnknownUnit() {
+            LiveQueueSnapshot snapshot = store.getSnapshot("unknown");
+
+            assertEquals(new LiveQueueSnapshot(0, 0, 0), snapshot);
+        }
+
+        @Test
+        @DisplayName("Should count waiting and in progress attendances from change events")
+        void shouldCountActiveAttendancesFromEvents() {
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3),
+                    attendance("a2", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 20),
+                    attendance("a3", "unit-1", RiskClassification.BLUE, AttendanceStatus.IN_PROGRESS, 40)
+            )));
+
+            assertEquals(new LiveQueueSnapshot(3, 2, 1), store.getSnapshot("unit-1"));
+        }
+
+        @Test
+        @DisplayName("Should move an attendance between counters as its status changes")
+        void shouldMoveAttendanceBetweenCountersOnStatusChange() {
+            Attendance attendance = attendance("a1", "unit-1", RiskClassification.YELLOW, AttendanceStatus.WAITING, 5);
+            store.onAttendanceChanged(AttendanceChangedEvent.of(attendance));
+
+            attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+            store.onAttendanceChanged(AttendanceChangedEvent.of(attendance));
+            assertEquals(new LiveQueueSnapshot(1, 0, 1), store.getSnapshot("unit-1"));
+
+            attendance.setStatus(AttendanceStatus.DISCHARGED);
+            store.onAttendanceChanged(AttendanceChangedEvent.of(attendance));
+            assertEquals(new LiveQueueSnapshot(0, 0, 0), store.getSnapshot("unit-1"));
+        }
+
+        @Test
+        @DisplayName("Should ignore repeated and outdated states of the same attendance")
+        void shouldIgnoreRepeatedAndOutdatedStates() {
+            Attendance waiting = attendance("a1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 5);
+            Attendance inProgress = attendance("a1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.IN_PROGRESS, 5);
+
+            store.apply(waiting);
+            store.apply(inProgress);
+            store.apply(inProgress);
+            store.apply(waiting);
+
+            assertEquals(new LiveQueueSnapshot(1, 0, 1), store.getSnapshot("unit-1"));
+        }
+
+        @Test
+        @DisplayName("Should not queue again a discharged attendance whose older states arrive late")
+        void shouldIgnoreStatesArrivingAfterDischarge() {
+            store.apply(attendance("a1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 5));
+            store.apply(attendance("a1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.DISCHARGED, 5));
+            // Discharged before its first state was seen
+            store.apply(attendance("a2", "unit-1", RiskClassification.GREEN, AttendanceStatus.DISCHARGED, 5));
+
+            store.apply(attendance("a1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.IN_PROGRESS, 5));
+            store.apply(attendance("a1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 5));
+            store.apply(attendance("a2", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 5));
+
+            assertEquals(new LiveQueueSnapshot(0, 0, 0), store.getSnapshot("unit-1"));
+        }
+
+        @Test
+        @DisplayName("Should only remember the most recent discharges")
+        void shouldForgetOldestDischarge() {
+            store.apply(attendance("a0", "unit-1", RiskClassification.GREEN, AttendanceStatus.DISCHARGED, 5));
+            for (int i = 1; i <= UnitLiveState.RECENTLY_REMOVED_CAPACITY; i++) {
+                store.apply(attendance("a" + i, "unit-1", RiskClassification.GREEN, AttendanceStatus.DISCHARGED, 5));
+            }
+
+            store.apply(attendance("a0", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 5));
+            store.apply(attendance("a1", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 5));
+
+            assertEquals(new LiveQueueSnapshot(1, 1, 0), store.getSnapshot("unit-1"));
+        }
+
+    }
+
+    @Nested
+    class WaitingBreach {
+
+        @Test
+        @DisplayName("Should flag a forgotten patient waiting longer than the limit")
+        void shouldFlagForgottenPatient() {
+            store.apply(attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 10));
+            store.apply(attendance("a2", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 1));
+
+            assertTrue(store.isAnyWaitingBreached("unit-1", RiskClassification.RED, 5));
+            assertFalse(store.isAnyWaitingBreached("unit-1", RiskClassification.RED, 15));
+        }
+
+        @Test
+        @DisplayName("Should stop flagging once the forgotten patient is called")
+        void shouldStopFlaggingOnceThePatientIsCalled() {
+            Attendance forgotten = attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 10);
+            store.apply(forgotten);
+
+            forgotten.setStatus(AttendanceStatus.IN_PROGRESS);
+            store.apply(forgotten);
+
+            assertFalse(store.isAnyWaitingBreached("unit-1", RiskClassification.RED, 5));
+        }
+
+        @Test
+        @DisplayName("Should not flag in progress patients or other risks")
+        void shouldNotFlagInProgressOrOtherRisks() {
+            store.apply(attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.IN_PROGRESS, 60));
+            store.apply(attendance("a2", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 60));
+
+            assertFalse(store.isAnyWaitingBreached("unit-1", RiskClassification.RED, 5));
+            assertFalse(store.isAnyWaitingBreached("unknown", RiskClassification.RED, 5));
+        }
+
+    }
+
+    @Nested
+    class Rebuild {
+
+        @Test
+        @DisplayName("Should rebuild the live queue of every unit from active attendances")
+        void shouldRebuildFromActiveAttendances() {
+            when(repository.findByStatusIn(anyCollection())).thenReturn(List.of(
+                    attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 10),
+                    attendance("a2", "unit-1", RiskClassification.BLUE, AttendanceStatus.IN_PROGRESS, 30),
+                    attendance("b1", "unit-2", RiskClassification.GREEN, AttendanceStatus.WAITING, 15)
+            ));
+
+            store.rebuild();
+
+            assertEquals(new LiveQueueSnapshot(2, 1, 1), store.getSnapshot("unit-1"));
+            assertEquals(new LiveQueueSnapshot(1, 1, 0), store.getSnapshot("unit-2"));
+        }
+
+        @Test
+        @DisplayName("Should load the analysis window, discharged attendances included")
+        void shouldRebuildAnalysisWindow() {
+            Attendance discharged = attendance("a3", "unit-1", RiskClassification.YELLOW, AttendanceStatus.DISCHARGED, 120);
+            discharged.setStartTime(discharged.getEntryTime().plus(20, ChronoUnit.MINUTES));
+            discharged.setDischargeTime(discharged.getEntryTime().plus(60, ChronoUnit.MINUTES));
+            when(repository.findByStatusIn(anyCollection())).thenReturn(List.of(
+                    attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 10)
+            ));
+            when(repository.findByEntryTimeAfter(any())).thenReturn(Stream.of(
+                    attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 10),
+                    discharged
+            ));
+
+            store.rebuild();
+
+            List<AttendanceStatus> statuses = new ArrayList<>();
+            long cutoff = EpochTime.now() - 3 * 60 * EpochTime.MILLIS_PER_MINUTE;
+            assertEquals(2, store.scanWindow("unit-1", cutoff, (status, risk, entry, start, discharge) -> statuses.add(status)));
+            assertEquals(Set.of(AttendanceStatus.DISCHARGED, AttendanceStatus.WAITING), Set.copyOf(statuses));
+            assertEquals(0, store.scanWindow("unit-unknown", cutoff, (status, risk, entry, start, discharge) -> statuses.add(status)));
+        }
+
+    }
+
+    @Nested
+    class ExternalChanges {
+
+        @Test
+        @DisplayName("Should drop a deleted attendance and report its unit")
+        void shouldRemoveDeletedAttendance() {
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3),
+                    attendance("a2", "unit-1", RiskClassification.GREEN, AttendanceStatus.IN_PROGRESS, 20)
+            )));
+
+            assertEquals(Optional.of("unit-1"), store.remove("a1"));
+            assertEquals(Optional.empty(), store.remove("a1"));
+            assertEquals(new LiveQueueSnapshot(1, 0, 1), store.getSnapshot("unit-1"));
+        }
+
+        @Test
+        @DisplayName("Should resync to the active attendances, forgetting unobserved discharges")
+        void shouldResyncToActiveAttendances() {
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3)
+            )));
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-2", List.of(
+                    attendance("b1", "unit-2", RiskClassification.RED, AttendanceStatus.WAITING, 3)
+            )));
+            when(repository.findByStatusIn(anyCollection())).thenReturn(List.of(
+                    attendance("a2", "unit-1", RiskClassification.BLUE, AttendanceStatus.IN_PROGRESS, 30)
+            ));
+
+            store.resync();
+
+            assertEquals(new LiveQueueSnapshot(1, 0, 1), store.getSnapshot("unit-1"));
+            assertEquals(new LiveQueueSnapshot(0, 0, 0), store.getSnapshot("unit-2"));
+        }
+
+        @Test
+        @DisplayName("Should find the unit of a deleted attendance only while it is active")
+        void shouldIndexActiveAttendances() {
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3)
+            )));
+            store.apply(attendance("b1", "unit-2", RiskClassification.RED, AttendanceStatus.WAITING, 3));
+            store.apply(attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.DISCHARGED, 3));
+            when(repository.findByStatusIn(anyCollection())).thenReturn(List.of(
+                    attendance("a2", "unit-1", RiskClassification.BLUE, AttendanceStatus.IN_PROGRESS, 30)
+            ));
+
+            assertEquals(Optional.empty(), store.remove("a1"));
+            store.resync();
+
+            assertEquals(Optional.empty(), store.remove("b1"));
+            assertEquals(Optional.of("unit-1"), store.remove("a2"));
+            assertEquals(new LiveQueueSnapshot(0, 0, 0), store.getSnapshot("unit-1"));
+        }
+
+        @Test
+        @DisplayName("Should not re-add an attendance discharged while the rebuild reads MongoDB")
+        void shouldReplayChangesMadeDuringRebuild() {
+            when(repository.findByStatusIn(anyCollection())).thenAnswer(invocation -> {
+                List<Attendance> scanned = List.of(
+                        attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3),
+                        attendance("a2", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 5)
+                );
+                store.apply(attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.DISCHARGED, 3));
+                store.remove("a2");
+                return scanned;
+            });
+
+            store.rebuild();
+            assertEquals(new LiveQueueSnapshot(0, 0, 0), store.getSnapshot("unit-1"));
+            assertEquals(Optional.empty(), store.remove("a1"));
+
+            store.resync();
+            assertEquals(new LiveQueueSnapshot(0, 0, 0), store.getSnapshot("unit-1"));
+            assertEquals(Optional.empty(), store.remove("a2"));
+        }
+
+    }
+
+    @Nested
+    class Percentiles {
+
+        private Attendance started(String id, String unitId, RiskClassification risk, long waitedMinutes) {
+            Attendance attendance = attendance(id, unitId, risk, AttendanceStatus.IN_PROGRESS, waitedMinutes + 1);
+            attendance.setStartTime(attendance.getEntryTime().plus(waitedMinutes, ChronoUnit.MINUTES));
+            return attendance;
+        }
+
+        private void startAfterWaiting(String id, String unitId, RiskClassification risk, long waitedMinutes) {
+            Attendance attendance = started(id, unitId, risk, waitedMinutes);
+            attendance.setStatus(AttendanceStatus.WAITING);
+            store.apply(attendance);
+            attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+            store.apply(attendance);
+        }
+
+        private WaitPercentiles percentiles(List<WaitPercentiles> all, RiskClassification risk) {
+            return all.get(risk.ordinal());
+        }
+
+        @Test
+        @DisplayName("Should record each wait once, when the attendance leaves the waiting queue")
+        void shouldRecordWaitOnceWhenServiceStarts() {
+            startAfterWaiting("a1", "unit-1", RiskClassification.YELLOW, 40);
+            Attendance replayed = started("a1", "unit-1", RiskClassification.YELLOW, 40);
+            store.apply(replayed);
+            replayed.setStatus(AttendanceStatus.DISCHARGED);
+            store.apply(replayed);
+
+            WaitPercentiles yellow = percentiles(store.getWaitPercentiles("unit-1"), RiskClassification.YELLOW);
+            assertEquals(1, yellow.sampleCount());
+            assertEquals(40, yellow.p50WaitMinutes());
+            assertEquals(0, percentiles(store.getWaitPercentiles("unit-1"), RiskClassification.RED).sampleCount());
+        }
+
+        @Test
+        @DisplayName("Should report the tail of the waits, not only their middle")
+        void shouldReportTail() {
+            for (int i = 0; i < 95; i++) {
+                startAfterWaiting("a" + i, "unit-1", RiskClassification.GREEN, 10);
+            }
+            for (int i = 0; i < 5; i++) {
+                startAfterWaiting("late" + i, "unit-1", RiskClassification.GREEN, 200);
+            }
+
+            WaitPercentiles green = percentiles(store.getWaitPercentiles("unit-1"), RiskClassification.GREEN);
+            assertEquals(10, green.p50WaitMinutes());
+            assertEquals(10, green.p90WaitMinutes());
+            assertTrue(Math.abs(green.p99WaitMinutes() - 200) <= 6, "p99 was " + green.p99WaitMinutes());
+        }
+
+        @Test
+        @DisplayName("Should merge the sketches of several units into regional percentiles")
+        void shouldMergeUnits() {
+            startAfterWaiting("a1", "unit-1", RiskClassification.ORANGE, 5);
+            startAfterWaiting("b1", "unit-2", RiskClassification.ORANGE, 9);
+
+            WaitPercentiles region = percentiles(store.getWaitPercentiles(List.of("unit-1", "unit-2", "unknown")), RiskClassification.ORANGE);
+            assertEquals(2, region.sampleCount());
+            assertEquals(9, region.p99WaitMinutes());
+        }
+
+        @Test
+        @DisplayName("Should seed the sketches with waits that ended before a restart")
+        void shouldSeedOnRebuild() {
+            when(repository.findByStatusIn(anyCollection())).thenReturn(List.of());
+            when(repository.findByStartTimeAfter(any())).thenReturn(Stream.of(
+                    started("a1", "unit-1", RiskClassification.RED, 2),
+                    started("a2", "unit-1", RiskClassification.RED, 6)
+            ));
+
+            store.rebuild();
+
+            assertEquals(2, percentiles(store.getWaitPercentiles("unit-1"), RiskClassification.RED).sampleCount());
+        }
+
+        @Test
+        @DisplayName("Should keep the sketches across a resync")
+        void shouldKeepSketchesOnResync() {
+            startAfterWaiting("a1", "unit-1", RiskClassification.BLUE, 90);
+            when(repository.findByStatusIn(anyCollection())).thenReturn(List.of());
+
+            store.resync();
+
+            assertEquals(1, percentiles(store.getWaitPercentiles("unit-1"), RiskClassification.BLUE).sampleCount());
+        }
+
+    }
+
+    @Nested
+    class Load {
+
+        @Test
+        @DisplayName("Should return no load for an unknown unit")
+        void shouldReturnNullForUnknownUnit() {
+            assertNull(store.getLoad("unknown", EpochTime.now()));
+        }
+
+        @Test
+        @DisplayName("Should sum the waiting queue and track its oldest patient per risk")
+        void shouldSumWaitingQueuePerRisk() {
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("a1", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 10),
+                    attendance("a2", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 50),
+                    attendance("a3", "unit-1", RiskClassification.RED, AttendanceStatus.IN_PROGRESS, 5)
+            )));
+
+            UnitLoad load = store.getLoad("unit-1", EpochTime.now());
+
+            int green = RiskClassification.GREEN.ordinal();
+            assertEquals(2, load.waitingCount()[green]);
+            assertEquals(60, load.waitingMinutes()[green], 0.5);
+            assertEquals(50, load.longestWaitingMinutes()[green]);
+            assertEquals(-1, load.longestWaitingMinutes()[RiskClassification.RED.ordinal()]);
+            assertEquals(1, load.inProgressCount()[RiskClassification.RED.ordinal()]);
+        }
+
+        @Test
+        @DisplayName("Should weigh served waits by how long ago the service started")
+        void shouldWeighServedWaitsByRecency() {
+            Attendance attendance = attendance("a1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 30);
+            store.apply(attendance);
+            attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+            attendance.setStartTime(attendance.getEntryTime().plus(20, ChronoUnit.MINUTES));
+            store.apply(attendance);
+
+            UnitLoad load = store.getLoad("unit-1", EpochTime.now());
+
+            int orange = RiskClassification.ORANGE.ordinal();
+            assertEquals(0, load.waitingCount()[orange]);
+            assertTrue(load.servedWeights()[orange] > 0.5 && load.servedWeights()[orange] <= 1);
+            assertEquals(20, load.servedWeightedWait()[orange] / load.servedWeights()[orange], 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should list every unit with live state")
+        void shouldListUnits() {
+            store.apply(attendance("a1", "unit-1", RiskClassification.BLUE, AttendanceStatus.WAITING, 1));
+            store.apply(attendance("b1", "unit-2", RiskClassification.BLUE, AttendanceStatus.WAITING, 1));
+
+            assertEquals(Set.of("unit-1", "unit-2"), store.getHealthUnitIds());
+        }
+
+    }
+
+    @Nested
+    class CallOrder {
+
+        @Test
+        @DisplayName("Should list the next patients by risk, then by arrival")
+        void shouldListNextByRiskThenArrival() {
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("green-old", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 90),
+                    attendance("red", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 1),
+                    attendance("yellow-new", "unit-1", RiskClassification.YELLOW, AttendanceStatus.WAITING, 5),
+                    attendance("yellow-old", "unit-1", RiskClassification.YELLOW, AttendanceStatus.WAITING, 30),
+                    attendance("started", "unit-1", RiskClassification.RED, AttendanceStatus.IN_PROGRESS, 60)
+            )));
+
+            List<QueueEntry> next = store.getNextWaiting("unit-1", 3);
+
+            assertEquals(List.of("red", "yellow-old", "yellow-new"), next.stream().map(QueueEntry::attendanceId).toList());
+            assertEquals(List.of(1, 2, 3), next.stream().map(QueueEntry::position).toList());
+            assertEquals(30, next.get(1).waitingMinutes());
+            assertTrue(store.getNextWaiting("unknown", 3).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should give the position counting every more urgent patient and the earlier arrivals of the same risk")
+        void shouldGivePosition() {
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("orange", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 2),
+                    attendance("green-1", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 50),
+                    attendance("green-2", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 40),
+                    attendance("blue", "unit-1", RiskClassification.BLUE, AttendanceStatus.WAITING, 200)
+            )));
+
+            QueuePosition position = store.getQueuePosition("unit-1", "green-2").orElseThrow();
+
+            assertEquals(3, position.position());
+            assertEquals(1, position.sameRiskAhead());
+            assertEquals(4, position.queueSize());
+            assertEquals(RiskClassification.GREEN, position.riskClassification());
+            assertEquals(4, store.getQueuePosition("unit-1", "blue").orElseThrow().position());
+        }
+
+        @Test
+        @DisplayName("Should move everyone up once a patient is called")
+        void shouldMoveUpWhenPatientIsCalled() {
+            Attendance first = attendance("a1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3);
+            store.apply(first);
+            store.apply(attendance("a2", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 1));
+
+            first.setStatus(AttendanceStatus.IN_PROGRESS);
+            store.apply(first);
+
+            assertEquals(1, store.getQueuePosition("unit-1", "a2").orElseThrow().position());
+            assertTrue(store.getQueuePosition("unit-1", "a1").isEmpty());
+        }
+
+        private void served(String id, RiskClassification risk, long startedMinutesAgo, long waitedMinutes) {
+            Attendance attendance = attendance(id, "unit-1", risk, AttendanceStatus.WAITING, startedMinutesAgo + waitedMinutes);
+            store.apply(attendance);
+            attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+            attendance.setStartTime(attendance.getEntryTime().plus(waitedMinutes, ChronoUnit.MINUTES));
+            store.apply(attendance);
+        }
+
+        @Test
+        @DisplayName("Should estimate the time to service from the position and the recent call rate")
+        void shouldEstimateFromCallRate() {
+            for (int i = 0; i < 24; i++) {
+                served("s" + i, RiskClassification.GREEN, i * 5L, 20);
+            }
+            for (int i = 0; i < 3; i++) {
+                store.apply(attendance("w" + i, "unit-1", RiskClassification.YELLOW, AttendanceStatus.WAITING, 10 - i));
+            }
+
+            List<QueueEntry> queue = store.getNextWaiting("unit-1", 10);
+
+            assertEquals(3, queue.size());
+            for (int i = 0; i < 3; i++) {
+                long expected = 5L * (i + 1);
+                long estimated = queue.get(i).estimatedMinutesToService();
+                assertTrue(Math.abs(estimated - expected) <= 1 + i, "position " + (i + 1) + ": " + estimated);
+            }
+            assertEquals(queue.get(1).estimatedMinutesToService(),
+                    store.getQueuePosition("unit-1", "w1").orElseThrow().estimatedMinutesToService());
+        }
+
+        @Test
+        @DisplayName("Should not count the more urgent patients waiting ahead twice in a lower risk estimate")
+        void shouldNotCountMoreUrgentPatientsTwice() {
+            for (int i = 0; i < 24; i++) {
+                served("s" + i, RiskClassification.GREEN, i * 5L, 20);
+            }
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("red-1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3),
+                    attendance("red-2", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 2),
+                    attendance("orange", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 1),
+                    attendance("green-1", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 30),
+                    attendance("green-2", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 10)
+            )));
+
+            List<QueueEntry> queue = store.getNextWaiting("unit-1", 10);
+            QueuePosition green = store.getQueuePosition("unit-1", "green-1").orElseThrow();
+
+            assertEquals(4, green.position());
+            // One GREEN call interval: the RED and ORANGE patients ahead are already in it
+            long interval = green.estimatedMinutesToService();
+            assertTrue(interval >= 5 && interval <= 8, "green-1: " + interval);
+            assertEquals(interval, queue.get(3).estimatedMinutesToService());
+            assertEquals(2 * interval, queue.get(4).estimatedMinutesToService(), 1);
+            assertEquals(2 * queue.get(0).estimatedMinutesToService(), queue.get(1).estimatedMinutesToService(), 1);
+            assertTrue(queue.get(2).estimatedMinutesToService() <= interval);
+        }
+
+        @Test
+        @DisplayName("Should fall back to the remaining weighted average wait when nobody was called recently")
+        void shouldFallBackToAverageWait() {
+            Attendance old = attendance("old", "unit-1", RiskClassification.ORANGE, AttendanceStatus.DISCHARGED, 220);
+            old.setStartTime(old.getEntryTime().plus(40, ChronoUnit.MINUTES));
+            when(repository.findByStatusIn(anyCollection())).thenReturn(List.of(
+                    attendance("w1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 10)
+            ));
+            when(repository.findByStartTimeAfter(any())).thenReturn(Stream.of(old));
+
+            store.rebuild();
+
+            assertEquals(30, store.getNextWaiting("unit-1", 1).getFirst().estimatedMinutesToService());
+        }
+
+        @Test
+        @DisplayName("Should not estimate without any history")
+        void shouldNotEstimateWithoutHistory() {
+            store.apply(attendance("w1", "unit-1", RiskClassification.BLUE, AttendanceStatus.WAITING, 10));
+
+            assertNull(store.getNextWaiting("unit-1", 1).getFirst().estimatedMinutesToService());
+        }
+
+    }
+
+    @Nested
+    class Checkpoint {
+
+        private LiveQueueStateStore restoredCopy() {
+            LiveQueueStateStore restored = new LiveQueueStateStore(repository, DecayProfiles.defaults());
+            List<UnitLiveState> states = store.getStates().stream()
+                    .map(state -> LiveQueueCheckpoints.deserialize(LiveQueueCheckpoints.serialize(state)))
+                    .toList();
+            assertTrue(restored.restore(states));
+            return restored;
+        }
+
+        @Test
+        @DisplayName("Should answer from a restored checkpoint as the live queue it was taken from")
+        void shouldRestoreCheckpoint() {
+            Attendance served = attendance("s1", "unit-1", RiskClassification.YELLOW, AttendanceStatus.WAITING, 50);
+            store.apply(served);
+            served.setStatus(AttendanceStatus.IN_PROGRESS);
+            served.setStartTime(served.getEntryTime().plus(35, ChronoUnit.MINUTES));
+            store.apply(served);
+            store.onAttendanceChanged(new AttendanceChangedEvent("unit-1", List.of(
+                    attendance("w1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3),
+                    attendance("w2", "unit-1", RiskClassification.GREEN, AttendanceStatus.WAITING, 20)
+            )));
+            store.apply(attendance("b1", "unit-2", RiskClassification.BLUE, AttendanceStatus.WAITING, 90));
+
+            LiveQueueStateStore restored = restoredCopy();
+
+            long nowMillis = EpochTime.now();
+            assertEquals(Set.of("unit-1", "unit-2"), restored.getHealthUnitIds());
+            assertEquals(store.getSnapshot("unit-1"), restored.getSnapshot("unit-1"));
+            assertEquals(store.getNextWaiting("unit-1", 10), restored.getNextWaiting("unit-1", 10));
+            assertEquals(store.getWaitPercentiles("unit-1"), restored.getWaitPercentiles("unit-1"));
+            assertArrayEquals(store.getLoad("unit-1", nowMillis).servedWeightedWait(),
+                    restored.getLoad("unit-1", nowMillis).servedWeightedWait());
+            assertEquals(store.getQueuePosition("unit-2", "b1"), restored.getQueuePosition("unit-2", "b1"));
+        }
+
+        @Test
+        @DisplayName("Should keep applying changes and deletions after a restore")
+        void shouldApplyChangesAfterRestore() {
+            Attendance waiting = attendance("w1", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 5);
+            store.apply(waiting);
+            store.apply(attendance("w2", "unit-1", RiskClassification.ORANGE, AttendanceStatus.WAITING, 2));
+
+            LiveQueueStateStore restored = restoredCopy();
+            waiting.setStatus(AttendanceStatus.IN_PROGRESS);
+            restored.apply(waiting);
+
+            assertEquals(new LiveQueueSnapshot(2, 1, 1), restored.getSnapshot("unit-1"));
+            assertEquals(Optional.of("unit-1"), restored.remove("w2"));
+            assertEquals(new LiveQueueSnapshot(1, 0, 1), restored.getSnapshot("unit-1"));
+        }
+
+        @Test
+        @DisplayName("Should refuse a checkpoint taken with another decay profile")
+        void shouldRefuseCheckpointWithAnotherProfile() {
+            store.apply(attendance("w1", "unit-1", RiskClassification.RED, AttendanceStatus.WAITING, 3));
+            UnitLiveState other = new UnitLiveState("unit-2", new DecayProfile(6, DecayFunction.EXPONENTIAL, 30),
+                    DecayProfiles.defaults().getMaxWindowMillis());
+
+            assertFalse(store.restore(List.of(other)));
+            assertEquals(Set.of("unit-1"), store.getHealthUnitIds());
+        }
+
+        @Test
+        @DisplayName("Should not read back classes outside the live state")
+        void shouldRejectForeignClasses() throws Exception {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(new ArrayList<>(List.of("a1")));
+            }
+
+            assertThrows(UncheckedIOException.class, () -> LiveQueueCheckpoints.deserialize(bytes.toByteArray()));
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RollingWaitSketchesTest {
+
+    private static final long GENERATION = RollingWaitSketches.GENERATION_MILLIS;
+    private static final long START = 1_000 * GENERATION;
+
+    private static long count(RollingWaitSketches sketches, RiskClassification risk, long nowMillis) {
+        return sketches.merged(nowMillis)[risk.ordinal()].count();
+    }
+
+    @Test
+    @DisplayName("Should keep waits of the current and previous generation only")
+    void shouldExpireWaitsAfterTwoGenerations() {
+        RollingWaitSketches sketches = new RollingWaitSketches();
+        sketches.record(RiskClassification.RED, 3, START);
+        sketches.record(RiskClassification.RED, 4, START + GENERATION);
+
+        assertEquals(2, count(sketches, RiskClassification.RED, START + GENERATION));
+        assertEquals(1, count(sketches, RiskClassification.RED, START + 2 * GENERATION));
+        assertEquals(0, count(sketches, RiskClassification.RED, START + 3 * GENERATION));
+    }
+
+    @Test
+    @DisplayName("Should place late waits in the previous generation and drop older ones")
+    void shouldPlaceLateWaitsByTheirEndTime() {
+        RollingWaitSketches sketches = new RollingWaitSketches();
+        sketches.record(RiskClassification.GREEN, 30, START + GENERATION);
+        sketches.record(RiskClassification.GREEN, 40, START);
+        sketches.record(RiskClassification.GREEN, 50, START - GENERATION);
+
+        assertEquals(2, count(sketches, RiskClassification.GREEN, START + GENERATION));
+        assertEquals(1, count(sketches, RiskClassification.GREEN, START + 2 * GENERATION));
+    }
+
+    @Test
+    @DisplayName("Should copy both generations independently of the original")
+    void shouldCopyIndependently() {
+        RollingWaitSketches sketches = new RollingWaitSketches();
+        sketches.record(RiskClassification.BLUE, 100, START);
+
+        RollingWaitSketches copy = sketches.copy();
+        sketches.record(RiskClassification.BLUE, 120, START);
+
+        assertEquals(1, count(copy, RiskClassification.BLUE, START));
+        assertEquals(2, count(sketches, RiskClassification.BLUE, START));
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.fiap.sus.liveops.shared.utils.EpochTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceRateEstimatorTest {
+
+    private static final long MINUTE = EpochTime.MILLIS_PER_MINUTE;
+    private static final long NOW = 1_000 * 60 * MINUTE;
+
+    private static double minutesPerStart(ServiceRateEstimator estimator, RiskClassification risk) {
+        return estimator.minutesPerStart(NOW)[risk.ordinal()];
+    }
+
+    @Test
+    @DisplayName("Should have no rate before any service start")
+    void shouldHaveNoRateWithoutStarts() {
+        ServiceRateEstimator estimator = new ServiceRateEstimator();
+        estimator.recordArrival(RiskClassification.RED, NOW - MINUTE);
+
+        assertTrue(Double.isNaN(minutesPerStart(estimator, RiskClassification.GREEN)));
+    }
+
+    @Test
+    @DisplayName("Should converge to the interval between calls in steady state")
+    void shouldConvergeToStartInterval() {
+        ServiceRateEstimator estimator = new ServiceRateEstimator();
+        for (long t = NOW - 5 * 60 * MINUTE; t <= NOW; t += 5 * MINUTE) {
+            estimator.recordStart(t);
+        }
+
+        assertEquals(5, minutesPerStart(estimator, RiskClassification.RED), 0.5);
+        assertEquals(5, minutesPerStart(estimator, RiskClassification.BLUE), 0.5);
+    }
+
+    @Test
+    @DisplayName("Should leave a lower risk only the service not taken by more urgent arrivals")
+    void shouldDiscountMoreUrgentArrivals() {
+        ServiceRateEstimator estimator = new ServiceRateEstimator();
+        for (long t = NOW - 5 * 60 * MINUTE; t <= NOW; t += 5 * MINUTE) {
+            estimator.recordStart(t);
+        }
+        for (long t = NOW - 5 * 60 * MINUTE; t <= NOW; t += 10 * MINUTE) {
+            estimator.recordArrival(RiskClassification.ORANGE, t);
+        }
+
+        assertEquals(5, minutesPerStart(estimator, RiskClassification.ORANGE), 0.5);
+        assertEquals(10, minutesPerStart(estimator, RiskClassification.YELLOW), 1.5);
+    }
+
+    @Test
+    @DisplayName("Should not read the first arrivals of a risk as a burst")
+    void shouldMeasureNewRiskOverWholeObservation() {
+        ServiceRateEstimator estimator = new ServiceRateEstimator();
+        for (long t = NOW - 2 * 60 * MINUTE; t <= NOW; t += 5 * MINUTE) {
+            estimator.recordStart(t);
+        }
+        estimator.recordArrival(RiskClassification.RED, NOW - MINUTE);
+
+        assertEquals(5, minutesPerStart(estimator, RiskClassification.ORANGE), 0.5);
+    }
+
+    @Test
+    @DisplayName("Should never give a lower risk less than a floor share of the service")
+    void shouldFloorServiceShare() {
+        ServiceRateEstimator estimator = new ServiceRateEstimator();
+        for (long t = NOW - 2 * 60 * MINUTE; t <= NOW; t += 5 * MINUTE) {
+            estimator.recordStart(t);
+            estimator.recordArrival(RiskClassification.RED, t);
+            estimator.recordArrival(RiskClassification.RED, t);
+        }
+
+        double red = minutesPerStart(estimator, RiskClassification.RED);
+        double green = minutesPerStart(estimator, RiskClassification.GREEN);
+        assertEquals(red / ServiceRateEstimator.MIN_SERVICE_SHARE, green, 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should drop the rate of a unit that stopped calling patients")
+    void shouldDropRateWhenIdle() {
+        ServiceRateEstimator estimator = new ServiceRateEstimator();
+        for (long t = NOW - 10 * 60 * MINUTE; t <= NOW - 6 * 60 * MINUTE; t += 5 * MINUTE) {
+            estimator.recordStart(t);
+        }
+
+        assertTrue(Double.isNaN(minutesPerStart(estimator, RiskClassification.YELLOW)));
+    }
+
+    @Test
+    @DisplayName("Should accept starts out of order, as when seeded on rebuild")
+    void shouldAcceptOutOfOrderStarts() {
+        ServiceRateEstimator inOrder = new ServiceRateEstimator();
+        ServiceRateEstimator outOfOrder = new ServiceRateEstimator();
+        for (long t = NOW - 60 * MINUTE; t <= NOW; t += 6 * MINUTE) {
+            inOrder.recordStart(t);
+        }
+        for (long t = NOW; t >= NOW - 60 * MINUTE; t -= 6 * MINUTE) {
+            outOfOrder.recordStart(t);
+        }
+
+        assertEquals(minutesPerStart(inOrder, RiskClassification.BLUE), minutesPerStart(outOfOrder, RiskClassification.BLUE), 1e-9);
+    }
+
+}
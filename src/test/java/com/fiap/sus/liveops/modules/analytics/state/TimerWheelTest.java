@@ -0,0 +1,118 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    private static final long TICK = 1_000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Should expire a timer at its deadline tick and not before")
+    void shouldExpireAtDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, START);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("a", START + 30 * TICK);
+
+        wheel.advance(START + 29 * TICK, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(START + 30 * TICK, expired::add);
+        assertEquals(List.of("a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should expire a deadline already passed on the next tick")
+    void shouldExpirePastDeadlineOnNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, START);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("late", START - 10 * TICK);
+
+        assertEquals(1, wheel.advance(START + TICK, expired::add));
+        assertEquals(List.of("late"), expired);
+    }
+
+    @Test
+    @DisplayName("Should not expire a cancelled timer")
+    void shouldNotExpireCancelledTimer() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, START);
+        List<String> expired = new ArrayList<>();
+        TimerWheel.Timer<String> cancelled = wheel.schedule("cancelled", START + 2 * 3_600 * TICK);
+        wheel.schedule("kept", START + 2 * 3_600 * TICK);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        wheel.advance(START + 3 * 3_600 * TICK, expired::add);
+
+        assertEquals(List.of("kept"), expired);
+        assertFalse(cancelled.isPending());
+    }
+
+    @Test
+    @DisplayName("Should cascade timers of every level down to their exact tick")
+    void shouldCascadeToExactTick() {
+        Random random = new Random(11);
+        long now = START + random.nextInt(1_000) * TICK;
+        TimerWheel<Long> wheel = new TimerWheel<>(TICK, now);
+        Map<Long, Long> expiredAt = new HashMap<>();
+
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            // From seconds to about two days ahead, across the first three levels
+            long deadline = now + (long) Math.pow(10, random.nextDouble() * 5.2) * TICK;
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+
+        long end = now + 200_000 * TICK;
+        for (long t = now; t <= end; t += 7 * TICK) {
+            long at = t;
+            wheel.advance(at, deadline -> expiredAt.put(deadline, at));
+        }
+
+        assertEquals(0, wheel.size());
+        for (long deadline : deadlines) {
+            long firedAt = expiredAt.get(deadline);
+            assertTrue(firedAt >= deadline && firedAt < deadline + 7 * TICK, "deadline " + deadline + " fired at " + firedAt);
+        }
+    }
+
+    @Test
+    @DisplayName("Should hold deadlines beyond the top level until they come within range")
+    void shouldHoldDeadlinesBeyondTopLevel() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, START);
+        List<String> expired = new ArrayList<>();
+        long farAway = 1L << (TimerWheel.SLOT_BITS * TimerWheel.LEVELS + 1);
+        wheel.schedule("far", START + farAway * TICK);
+
+        wheel.advance(START + (farAway - 1) * TICK, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(START + farAway * TICK, expired::add);
+        assertEquals(List.of("far"), expired);
+    }
+
+    @Test
+    @DisplayName("Should skip idle time without walking every tick")
+    void shouldSkipIdleTime() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, START);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(START + 365L * 24 * 3_600 * TICK, expired::add);
+        wheel.schedule("a", START + 365L * 24 * 3_600 * TICK + 5 * TICK);
+        wheel.advance(START + 365L * 24 * 3_600 * TICK + 5 * TICK, expired::add);
+
+        assertEquals(List.of("a"), expired);
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitTimeSketchTest {
+
+    private static long exactQuantile(long[] sorted, double quantile) {
+        int rank = (int) Math.max(1, Math.ceil(quantile * sorted.length));
+        return sorted[rank - 1];
+    }
+
+    @Test
+    @DisplayName("Should stay within 3% of the exact quantiles on a long-tailed distribution")
+    void shouldApproximateQuantiles() {
+        Random random = new Random(42);
+        long[] waits = new long[50_000];
+        WaitTimeSketch sketch = new WaitTimeSketch();
+        for (int i = 0; i < waits.length; i++) {
+            waits[i] = (long) (-30 * Math.log(1 - random.nextDouble()));
+            sketch.record(waits[i]);
+        }
+        Arrays.sort(waits);
+
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = exactQuantile(waits, quantile);
+            long estimate = sketch.quantile(quantile);
+            assertTrue(Math.abs(estimate - exact) <= Math.max(1, exact * 0.03),
+                    "q" + quantile + ": exact " + exact + ", estimated " + estimate);
+        }
+    }
+
+    @Test
+    @DisplayName("Should be exact for short waits and never report more than the longest wait")
+    void shouldBeExactForShortWaits() {
+        WaitTimeSketch sketch = new WaitTimeSketch();
+        for (long wait = 0; wait < 10; wait++) sketch.record(wait);
+
+        assertEquals(4, sketch.quantile(0.5));
+        assertEquals(9, sketch.quantile(0.99));
+
+        sketch.record(1000);
+        assertTrue(sketch.quantile(1.0) <= 1000);
+    }
+
+    @Test
+    @DisplayName("Should give the same quantiles merged as recorded into a single sketch")
+    void shouldMergeLikeSingleSketch() {
+        WaitTimeSketch first = new WaitTimeSketch();
+        WaitTimeSketch second = new WaitTimeSketch();
+        WaitTimeSketch combined = new WaitTimeSketch();
+        for (long wait = 0; wait < 500; wait++) {
+            (wait % 3 == 0 ? first : second).record(wait * 7);
+            combined.record(wait * 7);
+        }
+
+        WaitTimeSketch merged = first.copy().merge(second);
+
+        assertEquals(combined.count(), merged.count());
+        for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+            assertEquals(combined.quantile(quantile), merged.quantile(quantile));
+        }
+    }
+
+    @Test
+    @DisplayName("Should map every tracked wait into a bucket whose bounds contain it")
+    void shouldMapValuesToContainingBuckets() {
+        for (long value = 0; value <= WaitTimeSketch.MAX_TRACKED_MINUTES; value++) {
+            int bucket = WaitTimeSketch.bucketOf(value);
+            assertTrue(bucket < WaitTimeSketch.BUCKETS);
+            assertTrue(WaitTimeSketch.lowerBound(bucket) <= value);
+            if (bucket + 1 < WaitTimeSketch.BUCKETS) {
+                assertTrue(WaitTimeSketch.lowerBound(bucket + 1) > value);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should clamp negative and very long waits to the tracked range")
+    void shouldClampOutOfRangeWaits() {
+        WaitTimeSketch sketch = new WaitTimeSketch();
+        sketch.record(-5);
+        sketch.record(Long.MAX_VALUE);
+
+        assertEquals(0, sketch.quantile(0.5));
+        long longest = sketch.quantile(1.0);
+        assertTrue(longest <= WaitTimeSketch.MAX_TRACKED_MINUTES && longest >= WaitTimeSketch.MAX_TRACKED_MINUTES * 0.97);
+    }
+
+}
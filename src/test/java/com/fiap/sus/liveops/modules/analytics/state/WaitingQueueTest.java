@@ -0,0 +1,96 @@
+package com.fiap.sus.liveops.modules.analytics.state;
+
+import com.fiap.sus.liveops.modules.analytics.state.UnitLiveState.ActiveAttendance;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitingQueueTest {
+
+    private static ActiveAttendance waiting(String id, long entryMillis) {
+        return new ActiveAttendance(id, RiskClassification.YELLOW, AttendanceStatus.WAITING, entryMillis);
+    }
+
+    @Test
+    @DisplayName("Should rank patients by entry time, breaking ties by ID")
+    void shouldRankByEntryTime() {
+        WaitingQueue queue = new WaitingQueue();
+        ActiveAttendance late = waiting("c", 300);
+        ActiveAttendance early = waiting("a", 100);
+        ActiveAttendance tie = waiting("b", 100);
+        queue.add(late);
+        queue.add(early);
+        queue.add(tie);
+
+        assertEquals(0, queue.rankOf(early));
+        assertEquals(1, queue.rankOf(tie));
+        assertEquals(2, queue.rankOf(late));
+        assertEquals(-1, queue.rankOf(waiting("d", 200)));
+        assertSame(early, queue.first());
+    }
+
+    @Test
+    @DisplayName("Should return the first patients in order, up to the limit")
+    void shouldReturnFirstPatients() {
+        WaitingQueue queue = new WaitingQueue();
+        for (int i = 9; i >= 0; i--) queue.add(waiting("p" + i, i));
+
+        List<ActiveAttendance> first = new ArrayList<>();
+        assertEquals(3, queue.addFirst(3, first));
+        assertEquals(List.of("p0", "p1", "p2"), first.stream().map(ActiveAttendance::id).toList());
+
+        List<ActiveAttendance> all = new ArrayList<>();
+        assertEquals(10, queue.addFirst(50, all));
+    }
+
+    @Test
+    @DisplayName("Should match a sorted set under random additions and removals")
+    void shouldMatchSortedSet() {
+        Random random = new Random(7);
+        WaitingQueue queue = new WaitingQueue();
+        TreeSet<ActiveAttendance> expected = new TreeSet<>(WaitingQueue.CALL_ORDER);
+        List<ActiveAttendance> present = new ArrayList<>();
+
+        for (int i = 0; i < 5_000; i++) {
+            if (present.isEmpty() || random.nextInt(3) > 0) {
+                ActiveAttendance entry = waiting("id" + i, random.nextInt(1_000));
+                queue.add(entry);
+                expected.add(entry);
+                present.add(entry);
+            } else {
+                ActiveAttendance entry = present.remove(random.nextInt(present.size()));
+                queue.remove(entry);
+                expected.remove(entry);
+            }
+        }
+
+        assertEquals(expected.size(), queue.size());
+        assertSame(expected.first(), queue.first());
+        Collections.shuffle(present, random);
+        for (ActiveAttendance entry : present.subList(0, 200)) {
+            assertEquals(expected.headSet(entry).size(), queue.rankOf(entry));
+        }
+    }
+
+    @Test
+    @DisplayName("Should be empty after removing every patient")
+    void shouldBeEmptyAfterRemovals() {
+        WaitingQueue queue = new WaitingQueue();
+        ActiveAttendance entry = waiting("a", 1);
+        queue.add(entry);
+        queue.remove(entry);
+
+        assertTrue(queue.isEmpty());
+        assertNull(queue.first());
+    }
+
+}
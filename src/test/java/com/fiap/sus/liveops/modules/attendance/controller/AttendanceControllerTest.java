@@ -3,14 +3,21 @@ package com.fiap.sus.liveops.modules.attendance.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fiap.sus.liveops.core.exception.ResourceNotFoundException;
 import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.dto.AttendanceFilter;
 import com.fiap.sus.liveops.modules.attendance.dto.AttendanceResponse;
+import com.fiap.sus.liveops.modules.attendance.dto.BulkItemResult;
+import com.fiap.sus.liveops.modules.attendance.dto.BulkResponse;
+import com.fiap.sus.liveops.modules.attendance.dto.BulkStatusUpdateRequest;
 import com.fiap.sus.liveops.modules.attendance.dto.CompleteAttendanceResponse;
 import com.fiap.sus.liveops.modules.attendance.dto.StatusUpdateRequest;
 import com.fiap.sus.liveops.modules.attendance.dto.TriageRequest;
 import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.BulkItemOutcome;
 import com.fiap.sus.liveops.shared.enums.RiskClassification;
 import com.fiap.sus.liveops.modules.attendance.mapper.AttendanceMapper;
+import com.fiap.sus.liveops.modules.attendance.service.AttendanceBulkService;
 import com.fiap.sus.liveops.modules.attendance.service.AttendanceService;
+import com.fiap.sus.liveops.shared.pagination.CursorPage;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
@@ -20,11 +27,20 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -43,6 +59,9 @@ class AttendanceControllerTest {
     @MockitoBean
     private AttendanceService service;
 
+    @MockitoBean
+    private AttendanceBulkService bulkService;
+
     @MockitoBean
     private AttendanceMapper mapper;
 
@@ -86,6 +105,96 @@ class AttendanceControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void startTriageBulk_ShouldReturnPerItemResults() throws Exception {
+        List<TriageRequest> requests = List.of(
+                new TriageRequest("US-01", "João", "123", RiskClassification.RED),
+                new TriageRequest("US-01", "", "456", RiskClassification.BLUE)
+        );
+
+        when(bulkService.startTriageBulk(any())).thenReturn(BulkResponse.of(List.of(
+                new BulkItemResult(0, "12345", BulkItemOutcome.CREATED, null),
+                new BulkItemResult(1, null, BulkItemOutcome.REJECTED, "patientName: Patient name is required")
+        )));
+
+        mockMvc.perform(post("/attendances/triage/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[0].id").value("12345"))
+                .andExpect(jsonPath("$.items[1].outcome").value("REJECTED"));
+    }
+
+    @Test
+    void startTriageBulk_WithTooManyItems_ShouldPointToNdjson() throws Exception {
+        List<TriageRequest> requests = Collections.nCopies(1001,
+                new TriageRequest("US-01", "João", "123", RiskClassification.RED));
+
+        mockMvc.perform(post("/attendances/triage/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.validationErrors.requests").value("At most 1000 triages per JSON array; send larger batches as NDJSON"));
+
+        verifyNoInteractions(bulkService);
+    }
+
+    @Test
+    void startTriageBulk_WithMalformedItem_ShouldPassItAsNull() throws Exception {
+        List<TriageRequest> received = new ArrayList<>();
+        when(bulkService.startTriageBulk(any())).thenAnswer(invocation -> {
+            Iterator<TriageRequest> requests = invocation.getArgument(0);
+            requests.forEachRemaining(received::add);
+            return BulkResponse.of(List.of());
+        });
+
+        String body = "["
+                + objectMapper.writeValueAsString(new TriageRequest("US-01", "João", "123", RiskClassification.RED))
+                + ", {\"healthUnitId\": \"US-01\", \"riskClassification\": \"PURPLE\"}, 42, null, "
+                + objectMapper.writeValueAsString(new TriageRequest("US-02", "Maria", "456", RiskClassification.GREEN))
+                + "]";
+
+        mockMvc.perform(post("/attendances/triage/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk());
+
+        assertEquals(5, received.size());
+        assertEquals("US-01", received.get(0).healthUnitId());
+        assertNull(received.get(1));
+        assertNull(received.get(2));
+        assertNull(received.get(3));
+        assertEquals("US-02", received.get(4).healthUnitId());
+    }
+
+    @Test
+    void startTriageBulk_WithNdjson_ShouldParseLineByLine() throws Exception {
+        List<TriageRequest> received = new ArrayList<>();
+        when(bulkService.startTriageBulk(any())).thenAnswer(invocation -> {
+            Iterator<TriageRequest> requests = invocation.getArgument(0);
+            requests.forEachRemaining(received::add);
+            return BulkResponse.of(List.of());
+        });
+
+        String body = objectMapper.writeValueAsString(new TriageRequest("US-01", "João", "123", RiskClassification.RED))
+                + "\n\n{not json\n"
+                + objectMapper.writeValueAsString(new TriageRequest("US-02", "Maria", "456", RiskClassification.GREEN))
+                + "\n";
+
+        mockMvc.perform(post("/attendances/triage/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk());
+
+        assertEquals(3, received.size());
+        assertEquals("US-01", received.get(0).healthUnitId());
+        assertNull(received.get(1));
+        assertEquals("US-02", received.get(2).healthUnitId());
+    }
+
     @Test
     void getById_ShouldReturnAttendance() throws Exception {
         String id = "12345";
@@ -139,4 +248,88 @@ class AttendanceControllerTest {
                 .andExpect(jsonPath("$.status").value("IN_PROGRESS"));
     }
 
-}
\ No newline at end of file
+    @Test
+    void listPageByUnitId_ShouldBindFiltersAndReturnPage() throws Exception {
+        Attendance attendance = new Attendance();
+        AttendanceResponse response = new AttendanceResponse(
+                "12345", "US-01", "Ana",
+                AttendanceStatus.WAITING, RiskClassification.RED,
+                LocalDateTime.of(2026, 2, 12, 20, 0)
+        );
+        AttendanceFilter filter = new AttendanceFilter(
+                AttendanceStatus.WAITING, RiskClassification.RED, LocalDateTime.of(2026, 2, 12, 8, 0), null
+        );
+
+        when(service.listPageByHealthUnitId("US-01", filter, "abc", 20))
+                .thenReturn(new CursorPage<>(List.of(attendance), "next"));
+        when(mapper.toResponse(attendance)).thenReturn(response);
+
+        mockMvc.perform(get("/attendances/unit/{unitId}/page", "US-01")
+                        .param("status", "WAITING")
+                        .param("risk", "RED")
+                        .param("from", "2026-02-12T08:00:00")
+                        .param("cursor", "abc")
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("12345"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void streamByUnitId_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        Attendance first = new Attendance();
+        first.setId("1");
+        Attendance second = new Attendance();
+        second.setId("2");
+
+        when(service.streamByHealthUnitId(eq("US-01"), any(AttendanceFilter.class)))
+                .thenReturn(Stream.of(first, second));
+        when(mapper.toResponse(first)).thenReturn(new AttendanceResponse(
+                "1", "US-01", "Ana", AttendanceStatus.WAITING, RiskClassification.RED, null));
+        when(mapper.toResponse(second)).thenReturn(new AttendanceResponse(
+                "2", "US-01", "Bia", AttendanceStatus.DISCHARGED, RiskClassification.BLUE, null));
+
+        MvcResult result = mockMvc.perform(get("/attendances/unit/{unitId}/stream", "US-01")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("1", objectMapper.readTree(lines[0]).get("id").asText());
+        assertEquals("Bia", objectMapper.readTree(lines[1]).get("patientName").asText());
+    }
+
+    @Test
+    void updateStatusBulk_ShouldReturnPerIdResults() throws Exception {
+        BulkStatusUpdateRequest request = new BulkStatusUpdateRequest(List.of("a", "b"), AttendanceStatus.DISCHARGED);
+
+        when(bulkService.updateStatusBulk(List.of("a", "b"), AttendanceStatus.DISCHARGED)).thenReturn(BulkResponse.of(List.of(
+                new BulkItemResult(0, "a", BulkItemOutcome.UPDATED, null),
+                new BulkItemResult(1, "b", BulkItemOutcome.REJECTED, "Invalid status transition from WAITING to DISCHARGED.")
+        )));
+
+        mockMvc.perform(patch("/attendances/status/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.items[1].outcome").value("REJECTED"));
+    }
+
+    @Test
+    void updateStatusBulk_WithoutIds_ShouldReturnBadRequest() throws Exception {
+        BulkStatusUpdateRequest request = new BulkStatusUpdateRequest(List.of(), AttendanceStatus.DISCHARGED);
+
+        mockMvc.perform(patch("/attendances/status/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+}
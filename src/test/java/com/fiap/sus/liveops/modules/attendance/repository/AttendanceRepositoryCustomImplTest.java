@@ -0,0 +1,90 @@
+package com.fiap.sus.liveops.modules.attendance.repository;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class AttendanceRepositoryCustomImplTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static AttendanceRepositoryCustomImpl repository;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = MongoTemplates.create(client, "liveops_test");
+        repository = new AttendanceRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        mongoTemplate.dropCollection(Attendance.class);
+    }
+
+    private static Attendance attendance(String id) {
+        Attendance attendance = new Attendance("US-BULK", RiskClassification.GREEN, new Patient("000.000.000-00", "Paciente"));
+        attendance.setId(id);
+        return attendance;
+    }
+
+    @Test
+    @DisplayName("Unordered insert should keep writing after a failing document and report its position")
+    void insertUnorderedShouldReportPartialFailures() {
+        String duplicated = new ObjectId().toHexString();
+        mongoTemplate.insert(attendance(duplicated));
+
+        List<Attendance> batch = List.of(
+                attendance(new ObjectId().toHexString()),
+                attendance(duplicated),
+                attendance(new ObjectId().toHexString())
+        );
+
+        Map<Integer, String> errors = repository.insertUnordered(batch);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(1).contains("duplicate key"), errors.get(1));
+        assertEquals(3, mongoTemplate.count(new Query(), Attendance.class));
+    }
+
+    @Test
+    @DisplayName("Unordered insert should return no errors when every document is written")
+    void insertUnorderedShouldReturnNoErrorsOnSuccess() {
+        Map<Integer, String> errors = repository.insertUnordered(List.of(
+                attendance(new ObjectId().toHexString()),
+                attendance(new ObjectId().toHexString())
+        ));
+
+        assertTrue(errors.isEmpty());
+        assertEquals(2, mongoTemplate.count(new Query(), Attendance.class));
+    }
+
+}
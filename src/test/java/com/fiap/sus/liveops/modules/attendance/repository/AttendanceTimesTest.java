@@ -0,0 +1,75 @@
+package com.fiap.sus.liveops.modules.attendance.repository;
+
+import com.fiap.sus.liveops.core.config.MongoConfig;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.lang.reflect.RecordComponent;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttendanceTimesTest {
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = MongoConfig.conversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    @DisplayName("Should read the projected fields of a stored attendance")
+    void shouldReadProjectedFields() {
+        Attendance attendance = new Attendance("US-VILA-MARIANA", RiskClassification.ORANGE, new Patient("123.456.789-00", "Maria"));
+        attendance.setId("65f0c0ffee0000000000abcd");
+        attendance.setEntryTime(Instant.now().minus(40, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.MILLIS));
+        attendance.setStartTime(Instant.now().minus(10, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.MILLIS));
+        attendance.setStatus(AttendanceStatus.IN_PROGRESS);
+
+        Document stored = new Document();
+        converter.write(attendance, stored);
+
+        assertEquals(AttendanceTimes.of(attendance), converter.read(AttendanceTimes.class, stored));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"findByHealthUnitIdAndEntryTimeAfter", "findByHealthUnitIdInAndEntryTimeAfter"})
+    @DisplayName("Analytics finders should ask the server for the projected fields only")
+    void analyticsFindersShouldRestrictFields(String finder) {
+        Query query = Arrays.stream(AttendanceRepository.class.getMethods())
+                .filter(method -> method.getName().equals(finder))
+                .findFirst()
+                .orElseThrow()
+                .getAnnotation(Query.class);
+        Document fields = Document.parse(query.fields());
+
+        assertEquals(0, fields.get("_id"));
+        assertFalse(fields.containsKey("patient"));
+        for (RecordComponent component : AttendanceTimes.class.getRecordComponents()) {
+            assertEquals(1, fields.get(component.getName()), component.getName());
+        }
+    }
+
+}
@@ -0,0 +1,295 @@
+package com.fiap.sus.liveops.modules.attendance.service;
+
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.modules.attendance.dto.BulkResponse;
+import com.fiap.sus.liveops.modules.attendance.dto.TriageRequest;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.BulkItemOutcome;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttendanceBulkServiceTest {
+
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    private AttendanceRepository attendanceRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private AttendanceBulkService bulkService;
+
+    @BeforeEach
+    void setUp() {
+        AttendanceService attendanceService = new AttendanceService(attendanceRepository, eventPublisher);
+        bulkService = new AttendanceBulkService(attendanceRepository, attendanceService, eventPublisher, VALIDATOR);
+        ReflectionTestUtils.setField(bulkService, "chunkSize", 3);
+    }
+
+    private static TriageRequest valid(String healthUnitId) {
+        return new TriageRequest(healthUnitId, "João Silva", "123.456.789-00", RiskClassification.YELLOW);
+    }
+
+    private static BulkResponse run(AttendanceBulkService service, TriageRequest... requests) {
+        return service.startTriageBulk(Arrays.asList(requests).iterator());
+    }
+
+    @Nested
+    class Validating {
+
+        @Test
+        @DisplayName("Should reject invalid and malformed items without blocking the valid ones")
+        void shouldRejectInvalidItemsAndKeepValidOnes() {
+            when(attendanceRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+            BulkResponse response = run(bulkService,
+                    valid("unit-1"),
+                    new TriageRequest("unit-1", "", "123", null),
+                    null,
+                    valid("unit-1"));
+
+            assertEquals(4, response.total());
+            assertEquals(2, response.succeeded());
+            assertEquals(2, response.failed());
+
+            assertEquals(BulkItemOutcome.CREATED, response.items().get(0).outcome());
+            assertNotNull(response.items().get(0).id());
+            assertEquals(BulkItemOutcome.REJECTED, response.items().get(1).outcome());
+            assertEquals("patientName: Patient name is required; riskClassification: Risk classification is required",
+                    response.items().get(1).message());
+            assertEquals(AttendanceBulkService.MALFORMED_ITEM, response.items().get(2).message());
+            assertEquals(BulkItemOutcome.CREATED, response.items().get(3).outcome());
+        }
+
+        @Test
+        @DisplayName("Should not touch the database when every item is rejected")
+        void shouldNotWriteWhenEveryItemIsRejected() {
+            BulkResponse response = run(bulkService, null, null);
+
+            assertEquals(0, response.succeeded());
+            verifyNoInteractions(attendanceRepository, eventPublisher);
+        }
+
+    }
+
+    @Nested
+    class Chunking {
+
+        @Test
+        @DisplayName("Should write in chunks and keep results in request order")
+        void shouldWriteInChunksAndKeepOrder() {
+            List<Integer> chunkSizes = new ArrayList<>();
+            when(attendanceRepository.insertUnordered(anyList())).thenAnswer(invocation -> {
+                chunkSizes.add(invocation.<List<Attendance>>getArgument(0).size());
+                return Map.of();
+            });
+
+            TriageRequest[] requests = IntStream.range(0, 7).mapToObj(i -> valid("unit-1")).toArray(TriageRequest[]::new);
+            BulkResponse response = run(bulkService, requests);
+
+            assertEquals(List.of(3, 3, 1), chunkSizes);
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), response.items().stream().map(item -> item.index()).toList());
+        }
+
+        @Test
+        @DisplayName("Should report write errors only for the items that failed")
+        void shouldReportPartialWriteFailures() {
+            when(attendanceRepository.insertUnordered(anyList())).thenReturn(Map.of(1, "E11000 duplicate key"));
+
+            BulkResponse response = run(bulkService, valid("unit-1"), valid("unit-1"), valid("unit-1"));
+
+            assertEquals(2, response.succeeded());
+            assertEquals(BulkItemOutcome.FAILED, response.items().get(1).outcome());
+            assertNull(response.items().get(1).id());
+            assertEquals("E11000 duplicate key", response.items().get(1).message());
+        }
+
+        @Test
+        @DisplayName("Should fail the whole chunk when the bulk write cannot reach the database")
+        void shouldFailWholeChunkOnDatabaseError() {
+            when(attendanceRepository.insertUnordered(anyList()))
+                    .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                    .thenReturn(Map.of());
+
+            BulkResponse response = run(bulkService, valid("unit-1"), valid("unit-1"), valid("unit-1"), valid("unit-1"));
+
+            assertEquals(1, response.succeeded());
+            assertTrue(response.items().subList(0, 3).stream().allMatch(item -> item.outcome() == BulkItemOutcome.FAILED));
+            assertEquals(BulkItemOutcome.CREATED, response.items().get(3).outcome());
+        }
+
+    }
+
+    @Nested
+    class LiveState {
+
+        @Test
+        @DisplayName("Should publish one event per unit per chunk with only the created attendances")
+        void shouldPublishOneEventPerUnitPerChunk() {
+            when(attendanceRepository.insertUnordered(anyList())).thenReturn(Map.of(2, "E11000 duplicate key"));
+
+            run(bulkService, valid("unit-1"), valid("unit-2"), valid("unit-1"));
+
+            ArgumentCaptor<AttendanceChangedEvent> captor = ArgumentCaptor.forClass(AttendanceChangedEvent.class);
+            verify(eventPublisher, times(2)).publishEvent(captor.capture());
+
+            List<AttendanceChangedEvent> events = captor.getAllValues();
+            assertEquals("unit-1", events.get(0).healthUnitId());
+            assertEquals(1, events.get(0).attendances().size());
+            assertEquals("unit-2", events.get(1).healthUnitId());
+        }
+
+        @Test
+        @DisplayName("Should not publish anything for a chunk that failed")
+        void shouldNotPublishForFailedChunk() {
+            when(attendanceRepository.insertUnordered(anyList()))
+                    .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+            run(bulkService, valid("unit-1"));
+
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+
+        @Test
+        @DisplayName("Should leave publishing to the change stream when it is enabled")
+        void shouldNotPublishWithChangeStream() {
+            ReflectionTestUtils.setField(bulkService, "changeStreamEnabled", true);
+            when(attendanceRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+            run(bulkService, valid("unit-1"));
+
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+
+    }
+
+    @Nested
+    class UpdateStatusBulk {
+
+        private static Attendance stored(String id, String healthUnitId, AttendanceStatus status) {
+            Attendance attendance = new Attendance(healthUnitId, RiskClassification.GREEN, new Patient("000.000.000-00", "Paciente"));
+            attendance.setId(id);
+            attendance.setStatus(status);
+            return attendance;
+        }
+
+        /**
+         * Simulates the conditional write: an attendance whose status is allowed is moved, stamped and returned.
+         */
+        private void storeHolds(Attendance... attendances) {
+            lenient().when(attendanceRepository.transitionStatus(anyString(), anyCollection(), any(), any())).thenAnswer(invocation -> {
+                String id = invocation.getArgument(0);
+                Collection<AttendanceStatus> allowed = invocation.getArgument(1);
+                AttendanceStatus newStatus = invocation.getArgument(2);
+                Instant at = invocation.getArgument(3);
+
+                for (Attendance attendance : attendances) {
+                    if (!attendance.getId().equals(id) || !allowed.contains(attendance.getStatus())) continue;
+                    attendance.setStatus(newStatus);
+                    if (newStatus == AttendanceStatus.IN_PROGRESS) attendance.setStartTime(at);
+                    if (newStatus == AttendanceStatus.DISCHARGED) attendance.setDischargeTime(at);
+                    return Optional.of(attendance);
+                }
+                return Optional.empty();
+            });
+            lenient().when(attendanceRepository.findAllById(anyIterable())).thenReturn(List.of(attendances));
+        }
+
+        @Test
+        @DisplayName("Should write every ID once and report each one in request order")
+        void shouldReportEachIdInRequestOrder() {
+            storeHolds(
+                    stored("a", "unit-1", AttendanceStatus.IN_PROGRESS),
+                    stored("b", "unit-1", AttendanceStatus.WAITING),
+                    stored("c", "unit-2", AttendanceStatus.IN_PROGRESS));
+
+            BulkResponse response = bulkService.updateStatusBulk(List.of("a", "b", "missing", "c"), AttendanceStatus.DISCHARGED);
+
+            verify(attendanceRepository, times(4)).transitionStatus(anyString(), anyCollection(), any(), any());
+            assertEquals(List.of(BulkItemOutcome.UPDATED, BulkItemOutcome.REJECTED, BulkItemOutcome.REJECTED, BulkItemOutcome.UPDATED),
+                    response.items().stream().map(item -> item.outcome()).toList());
+            assertEquals("Invalid status transition from WAITING to DISCHARGED.", response.items().get(1).message());
+            assertEquals("Attendance not found with ID: missing", response.items().get(2).message());
+            assertEquals(2, response.succeeded());
+        }
+
+        @Test
+        @DisplayName("Should report an attendance moved concurrently to an allowed status as a conflict")
+        void shouldReportConcurrentChange() {
+            Attendance raced = stored("a", "unit-1", AttendanceStatus.IN_PROGRESS);
+            when(attendanceRepository.transitionStatus(anyString(), anyCollection(), any(), any())).thenReturn(Optional.empty());
+            when(attendanceRepository.findAllById(anyIterable())).thenReturn(List.of(raced));
+
+            BulkResponse response = bulkService.updateStatusBulk(List.of("a"), AttendanceStatus.DISCHARGED);
+
+            assertEquals(BulkItemOutcome.REJECTED, response.items().getFirst().outcome());
+            assertTrue(response.items().getFirst().message().contains("changed concurrently"));
+        }
+
+        @Test
+        @DisplayName("Should report and publish a transition even if a concurrent write changed the attendance right after")
+        void shouldTrustTheWriteOverTheStoredState() {
+            Attendance moved = stored("a", "unit-1", AttendanceStatus.IN_PROGRESS);
+            moved.setStartTime(Instant.now());
+            when(attendanceRepository.transitionStatus(anyString(), anyCollection(), any(), any())).thenReturn(Optional.of(moved));
+
+            BulkResponse response = bulkService.updateStatusBulk(List.of("a"), AttendanceStatus.IN_PROGRESS);
+
+            assertEquals(BulkItemOutcome.UPDATED, response.items().getFirst().outcome());
+            verify(attendanceRepository, never()).findAllById(anyIterable());
+            verify(eventPublisher).publishEvent(any(AttendanceChangedEvent.class));
+        }
+
+        @Test
+        @DisplayName("Should publish one event per unit with only the updated attendances, once per ID")
+        void shouldPublishOneEventPerUnit() {
+            storeHolds(
+                    stored("a", "unit-1", AttendanceStatus.WAITING),
+                    stored("b", "unit-2", AttendanceStatus.WAITING),
+                    stored("c", "unit-1", AttendanceStatus.DISCHARGED));
+
+            bulkService.updateStatusBulk(List.of("a", "b", "c", "a"), AttendanceStatus.IN_PROGRESS);
+
+            ArgumentCaptor<AttendanceChangedEvent> captor = ArgumentCaptor.forClass(AttendanceChangedEvent.class);
+            verify(eventPublisher, times(2)).publishEvent(captor.capture());
+            assertEquals("unit-1", captor.getAllValues().get(0).healthUnitId());
+            assertEquals(1, captor.getAllValues().get(0).attendances().size());
+            assertEquals("unit-2", captor.getAllValues().get(1).healthUnitId());
+        }
+
+    }
+
+}
@@ -1,12 +1,17 @@
 package com.fiap.sus.liveops.modules.attendance.service;
 
 import com.fiap.sus.liveops.core.exception.InvalidAttendanceStatusException;
+import com.fiap.sus.liveops.core.exception.InvalidCursorException;
 import com.fiap.sus.liveops.core.exception.ResourceNotFoundException;
 import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.dto.AttendanceFilter;
 import com.fiap.sus.liveops.modules.attendance.dto.StatusUpdateRequest;
 import com.fiap.sus.liveops.modules.attendance.dto.TriageRequest;
+import com.fiap.sus.liveops.modules.attendance.event.AttendanceChangedEvent;
 import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceCursor;
 import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.shared.pagination.CursorPage;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,11 +21,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +43,9 @@ class AttendanceServiceTest {
     @Mock
     private AttendanceRepository attendanceRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private AttendanceService attendanceService;
 
@@ -52,6 +69,30 @@ class AttendanceServiceTest {
             verify(attendanceRepository, times(1)).save(any(Attendance.class));
         }
 
+        @Test
+        void shouldPublishChangedEventWithSavedAttendance_whenTriageIsSaved() {
+            TriageRequest request = new TriageRequest("unit-3", "Paulo Souza", "11122233344", null);
+            when(attendanceRepository.save(any(Attendance.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+            Attendance result = attendanceService.startTriage(request);
+
+            ArgumentCaptor<AttendanceChangedEvent> captor = ArgumentCaptor.forClass(AttendanceChangedEvent.class);
+            verify(eventPublisher).publishEvent(captor.capture());
+            assertEquals("unit-3", captor.getValue().healthUnitId());
+            assertSame(result, captor.getValue().attendances().get(0));
+        }
+
+        @Test
+        void shouldNotPublishChangedEvent_whenChangeStreamIsEnabled() {
+            ReflectionTestUtils.setField(attendanceService, "changeStreamEnabled", true);
+            TriageRequest request = new TriageRequest("unit-3", "Paulo Souza", "11122233344", null);
+            when(attendanceRepository.save(any(Attendance.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+            attendanceService.startTriage(request);
+
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+
         @Test
         void shouldPopulateAttendanceFieldsFromRequest_whenRequestIsValid() throws Exception {
             TriageRequest request = mock(TriageRequest.class);
@@ -91,6 +132,58 @@ class AttendanceServiceTest {
 
     }
 
+    @Nested
+    class ListPageByHealthUnitId {
+
+        private List<Attendance> rows(int count) {
+            Instant base = Instant.parse("2026-02-12T20:00:00Z");
+            return IntStream.range(0, count).mapToObj(i -> {
+                Attendance attendance = new Attendance();
+                attendance.setId("id-" + i);
+                attendance.setEntryTime(base.minus(i, ChronoUnit.MINUTES));
+                return attendance;
+            }).toList();
+        }
+
+        @Test
+        void shouldReturnNextCursorFromLastItem_whenThereAreMoreRows() {
+            when(attendanceRepository.findPage("unit-1", AttendanceFilter.NONE, null, 4)).thenReturn(rows(4));
+
+            CursorPage<Attendance> page = attendanceService.listPageByHealthUnitId("unit-1", AttendanceFilter.NONE, null, 3);
+
+            assertEquals(3, page.items().size());
+            assertEquals(new AttendanceCursor(Instant.parse("2026-02-12T19:58:00Z"), "id-2"), AttendanceCursor.decode(page.nextCursor()));
+        }
+
+        @Test
+        void shouldReturnNoCursor_whenLastPage() {
+            when(attendanceRepository.findPage("unit-1", AttendanceFilter.NONE, null, 4)).thenReturn(rows(2));
+
+            CursorPage<Attendance> page = attendanceService.listPageByHealthUnitId("unit-1", AttendanceFilter.NONE, "", 3);
+
+            assertEquals(2, page.items().size());
+            assertNull(page.nextCursor());
+        }
+
+        @Test
+        void shouldResumeAfterDecodedCursor_andClampPageSize() {
+            AttendanceCursor cursor = new AttendanceCursor(Instant.parse("2026-02-12T19:00:00Z"), "id-9");
+            when(attendanceRepository.findPage("unit-1", AttendanceFilter.NONE, cursor, AttendanceService.MAX_PAGE_SIZE + 1)).thenReturn(List.of());
+
+            attendanceService.listPageByHealthUnitId("unit-1", AttendanceFilter.NONE, cursor.encode(), 100_000);
+
+            verify(attendanceRepository).findPage("unit-1", AttendanceFilter.NONE, cursor, AttendanceService.MAX_PAGE_SIZE + 1);
+        }
+
+        @Test
+        void shouldThrowInvalidCursorException_whenCursorIsMalformed() {
+            assertThrows(InvalidCursorException.class,
+                    () -> attendanceService.listPageByHealthUnitId("unit-1", AttendanceFilter.NONE, "not-a-cursor", 10));
+            verifyNoInteractions(attendanceRepository);
+        }
+
+    }
+
     @Nested
     class GetAttendanceById {
 
@@ -120,93 +213,77 @@ class AttendanceServiceTest {
     @Nested
     class UpdateStatus {
 
-        @Test
-        void shouldUpdateStatusToInProgressAndSetStartTime_whenTransitionFromWaitingToInProgress() {
-            String id = "att-123";
-            Attendance attendance = mock(Attendance.class);
-            when(attendance.getStatus()).thenReturn(AttendanceStatus.WAITING);
-
+        private StatusUpdateRequest request(AttendanceStatus status) {
             StatusUpdateRequest request = mock(StatusUpdateRequest.class);
-            when(request.newStatus()).thenReturn(AttendanceStatus.IN_PROGRESS);
-
-            when(attendanceRepository.findById(id)).thenReturn(java.util.Optional.of(attendance));
-            when(attendanceRepository.save(any(Attendance.class))).thenAnswer(invocation -> invocation.getArgument(0));
-
-            Attendance result = attendanceService.updateStatus(id, request);
-
-            verify(attendance).setStatus(AttendanceStatus.IN_PROGRESS);
-            verify(attendance).setStartTime(any(java.time.LocalDateTime.class));
-            verify(attendanceRepository, times(1)).save(attendance);
-            assertSame(attendance, result);
+            when(request.status()).thenReturn(status);
+            return request;
         }
 
         @Test
-        void shouldUpdateStatusToDischargedAndSetDischargeTime_whenTransitionFromInProgressToDischarged() {
-            String id = "att-456";
-            Attendance attendance = mock(Attendance.class);
-            when(attendance.getStatus()).thenReturn(AttendanceStatus.IN_PROGRESS);
-
-            StatusUpdateRequest request = mock(StatusUpdateRequest.class);
-            when(request.newStatus()).thenReturn(AttendanceStatus.DISCHARGED);
-
-            when(attendanceRepository.findById(id)).thenReturn(java.util.Optional.of(attendance));
-            when(attendanceRepository.save(any(Attendance.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        void shouldTransitionAtomicallyFromWaiting_whenMovingToInProgress() {
+            String id = "att-123";
+            Attendance updated = new Attendance();
+            when(attendanceRepository.transitionStatus(eq(id), eq(Set.of(AttendanceStatus.WAITING, AttendanceStatus.IN_PROGRESS)),
+                    eq(AttendanceStatus.IN_PROGRESS), any(Instant.class))).thenReturn(Optional.of(updated));
 
-            Attendance result = attendanceService.updateStatus(id, request);
+            Attendance result = attendanceService.updateStatus(id, request(AttendanceStatus.IN_PROGRESS));
 
-            verify(attendance).setStatus(AttendanceStatus.DISCHARGED);
-            verify(attendance).setDischargeTime(any(java.time.LocalDateTime.class));
-            verify(attendanceRepository, times(1)).save(attendance);
-            assertSame(attendance, result);
+            assertSame(updated, result);
+            verify(attendanceRepository, never()).findById(any());
+            verify(attendanceRepository, never()).save(any(Attendance.class));
+            verify(eventPublisher).publishEvent(any(AttendanceChangedEvent.class));
         }
 
         @Test
-        void shouldAllowNoOpWhenNewStatusIsSameAndNotSetTimes() {
-            String id = "att-789";
-            Attendance attendance = mock(Attendance.class);
-            when(attendance.getStatus()).thenReturn(AttendanceStatus.WAITING);
-
-            StatusUpdateRequest request = mock(StatusUpdateRequest.class);
-            when(request.newStatus()).thenReturn(AttendanceStatus.WAITING);
-
-            when(attendanceRepository.findById(id)).thenReturn(java.util.Optional.of(attendance));
-            when(attendanceRepository.save(any(Attendance.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        void shouldTransitionAtomicallyFromInProgress_whenMovingToDischarged() {
+            String id = "att-456";
+            Attendance updated = new Attendance();
+            when(attendanceRepository.transitionStatus(eq(id), eq(Set.of(AttendanceStatus.IN_PROGRESS)),
+                    eq(AttendanceStatus.DISCHARGED), any(Instant.class))).thenReturn(Optional.of(updated));
 
-            Attendance result = attendanceService.updateStatus(id, request);
+            Attendance result = attendanceService.updateStatus(id, request(AttendanceStatus.DISCHARGED));
 
-            verify(attendance).setStatus(AttendanceStatus.WAITING);
-            verify(attendance, never()).setStartTime(any(java.time.LocalDateTime.class));
-            verify(attendance, never()).setDischargeTime(any(java.time.LocalDateTime.class));
-            verify(attendanceRepository, times(1)).save(attendance);
-            assertSame(attendance, result);
+            assertSame(updated, result);
+            verify(attendanceRepository, never()).findById(any());
         }
 
         @Test
         void shouldThrowResourceNotFoundException_whenAttendanceDoesNotExist() {
             String id = "missing-id";
-            StatusUpdateRequest request = mock(StatusUpdateRequest.class);
-            when(request.newStatus()).thenReturn(AttendanceStatus.IN_PROGRESS);
-
-            when(attendanceRepository.findById(id)).thenReturn(java.util.Optional.empty());
+            when(attendanceRepository.transitionStatus(eq(id), any(), any(), any())).thenReturn(Optional.empty());
+            when(attendanceRepository.findById(id)).thenReturn(Optional.empty());
 
-            assertThrows(ResourceNotFoundException.class, () -> attendanceService.updateStatus(id, request));
-            verify(attendanceRepository, never()).save(any(Attendance.class));
+            assertThrows(ResourceNotFoundException.class, () -> attendanceService.updateStatus(id, request(AttendanceStatus.IN_PROGRESS)));
+            verifyNoInteractions(eventPublisher);
         }
 
         @Test
         void shouldThrowInvalidAttendanceStatusException_whenInvalidTransitionAttempted() {
             String id = "att-000";
-            Attendance attendance = mock(Attendance.class);
-            when(attendance.getStatus()).thenReturn(AttendanceStatus.WAITING);
+            Attendance current = new Attendance();
+            current.setStatus(AttendanceStatus.WAITING);
+            when(attendanceRepository.transitionStatus(eq(id), any(), any(), any())).thenReturn(Optional.empty());
+            when(attendanceRepository.findById(id)).thenReturn(Optional.of(current));
 
-            StatusUpdateRequest request = mock(StatusUpdateRequest.class);
-            when(request.newStatus()).thenReturn(AttendanceStatus.DISCHARGED);
+            InvalidAttendanceStatusException exception = assertThrows(InvalidAttendanceStatusException.class,
+                    () -> attendanceService.updateStatus(id, request(AttendanceStatus.DISCHARGED)));
 
-            when(attendanceRepository.findById(id)).thenReturn(java.util.Optional.of(attendance));
+            assertEquals("Invalid status transition from WAITING to DISCHARGED.", exception.getMessage());
+            verifyNoInteractions(eventPublisher);
+        }
 
-            assertThrows(InvalidAttendanceStatusException.class, () -> attendanceService.updateStatus(id, request));
-            verify(attendance, never()).setStatus(any(AttendanceStatus.class));
-            verify(attendanceRepository, never()).save(any(Attendance.class));
+        @Test
+        void shouldReportConcurrentChange_whenStatusMovedBetweenUpdateAndRead() {
+            String id = "att-001";
+            Attendance current = new Attendance();
+            current.setStatus(AttendanceStatus.IN_PROGRESS);
+            when(attendanceRepository.transitionStatus(eq(id), any(), any(), any())).thenReturn(Optional.empty());
+            when(attendanceRepository.findById(id)).thenReturn(Optional.of(current));
+
+            InvalidAttendanceStatusException exception = assertThrows(InvalidAttendanceStatusException.class,
+                    () -> attendanceService.updateStatus(id, request(AttendanceStatus.DISCHARGED)));
+
+            assertTrue(exception.getMessage().contains("changed concurrently"));
         }
 
     }
@@ -238,6 +315,24 @@ class AttendanceServiceTest {
                     () -> attendanceService.validateStatusTransition(actual, newStatus));
         }
 
+        @Test
+        void allowedCurrentStatusesShouldMatchValidation() {
+            for (AttendanceStatus actual : AttendanceStatus.values()) {
+                for (AttendanceStatus newStatus : AttendanceStatus.values()) {
+                    boolean valid;
+                    try {
+                        attendanceService.validateStatusTransition(actual, newStatus);
+                        valid = true;
+                    } catch (InvalidAttendanceStatusException e) {
+                        valid = false;
+                    }
+
+                    assertEquals(valid, AttendanceService.allowedCurrentStatuses(newStatus).contains(actual),
+                            actual + " -> " + newStatus);
+                }
+            }
+        }
+
     }
 
 }
\ No newline at end of file
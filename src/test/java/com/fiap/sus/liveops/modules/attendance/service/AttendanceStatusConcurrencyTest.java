@@ -0,0 +1,113 @@
+package com.fiap.sus.liveops.modules.attendance.service;
+
+import com.fiap.sus.liveops.core.config.MongoTemplates;
+import com.fiap.sus.liveops.core.exception.InvalidAttendanceStatusException;
+import com.fiap.sus.liveops.modules.attendance.document.Attendance;
+import com.fiap.sus.liveops.modules.attendance.document.embedded.Patient;
+import com.fiap.sus.liveops.modules.attendance.dto.StatusUpdateRequest;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepository;
+import com.fiap.sus.liveops.modules.attendance.repository.AttendanceRepositoryCustomImpl;
+import com.fiap.sus.liveops.shared.enums.AttendanceStatus;
+import com.fiap.sus.liveops.shared.enums.RiskClassification;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many nurses acting on the same patient at once: every transition is decided by the database, so none is lost
+ * and a discharged attendance is never moved back to IN_PROGRESS.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AttendanceStatusConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static AttendanceRepository repository;
+    private static AttendanceService attendanceService;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        MongoTemplate mongoTemplate = MongoTemplates.create(client, "liveops_test");
+        repository = new MongoRepositoryFactory(mongoTemplate).getRepository(
+                AttendanceRepository.class,
+                RepositoryFragments.just(new AttendanceRepositoryCustomImpl(mongoTemplate))
+        );
+        attendanceService = new AttendanceService(repository, event -> { });
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @Test
+    @DisplayName("Concurrent starts and discharges should discharge exactly once and never reopen the attendance")
+    void concurrentTransitionsShouldNotLoseUpdates() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Attendance attendance = repository.save(
+                        new Attendance("US-CONCURRENCY", RiskClassification.ORANGE, new Patient("000.000.000-00", "Paciente")));
+                String id = attendance.getId();
+                CountDownLatch start = new CountDownLatch(1);
+
+                List<Future<AttendanceStatus>> results = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    AttendanceStatus target = i % 2 == 0 ? AttendanceStatus.IN_PROGRESS : AttendanceStatus.DISCHARGED;
+                    Callable<AttendanceStatus> task = () -> {
+                        start.await();
+                        try {
+                            return attendanceService.updateStatus(id, new StatusUpdateRequest(target)).getStatus();
+                        } catch (InvalidAttendanceStatusException e) {
+                            return null;
+                        }
+                    };
+                    results.add(pool.submit(task));
+                }
+                start.countDown();
+
+                long discharges = 0;
+                for (Future<AttendanceStatus> result : results) {
+                    if (result.get() == AttendanceStatus.DISCHARGED) discharges++;
+                }
+
+                Attendance stored = repository.findById(id).orElseThrow();
+                assertTrue(discharges <= 1, "Discharged " + discharges + " times");
+                assertEquals(discharges == 1 ? AttendanceStatus.DISCHARGED : AttendanceStatus.IN_PROGRESS, stored.getStatus());
+                assertNotNull(stored.getStartTime());
+                if (discharges == 1) {
+                    assertFalse(stored.getDischargeTime().isBefore(stored.getStartTime()));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+}